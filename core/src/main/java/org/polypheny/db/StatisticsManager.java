@@ -19,8 +19,10 @@
 import java.beans.PropertyChangeListener;
 import java.util.List;
 import java.util.Map;
+import org.jetbrains.annotations.Nullable;
 import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
 import org.polypheny.db.monitoring.events.MonitoringType;
+import org.polypheny.db.util.sketch.ColumnSketch;
 
 
 public abstract class StatisticsManager implements PropertyChangeListener {
@@ -77,6 +79,12 @@ public static StatisticsManager getInstance() {
 
     public abstract Long tupleCountPerEntity( long entityId );
 
+    /**
+     * Returns the sketch summarizing the values of a column, or {@code null} if there is none.
+     */
+    @Nullable
+    public abstract ColumnSketch getColumnSketch( long columnId );
+
     public abstract void updateCommitRollback( boolean committed );
 
     public abstract Object getDashboardInformation();
@@ -204,6 +204,15 @@ void deleteAllPrimary( final Iterable<Pair<List<PolyValue>, List<PolyValue>>> va
 
     abstract boolean isInitialized();
 
+
+    /**
+     * Releases the resources of an index which is deleted, e.g. the files of a persistent index.
+     */
+    void drop() {
+        // Nothing to release for indexes which only live on the heap
+    }
+
+
     public abstract int size();
 
     public abstract void insert( final PolyXid xid, final List<PolyValue> key, final List<PolyValue> value );
@@ -228,6 +237,23 @@ void deleteAllPrimary( final Iterable<Pair<List<PolyValue>, List<PolyValue>>> va
 
     public abstract Values getAsValues( final PolyXid xid, AlgBuilder builder, AlgDataType rowType, final List<PolyValue> key );
 
+
+    /**
+     * Whether the index keeps its keys in order, i.e. whether it supports range scans with
+     * {@link #getAsValues(PolyXid, AlgBuilder, AlgDataType, IndexRange)}.
+     */
+    public boolean isOrdered() {
+        return false;
+    }
+
+
+    /**
+     * Returns the keys in the given range of the first index column, in the order of the index.
+     */
+    public Values getAsValues( final PolyXid xid, AlgBuilder builder, AlgDataType rowType, final IndexRange range ) {
+        throw new UnsupportedOperationException( "The index " + name + " does not support range scans" );
+    }
+
     abstract Map<?, ?> getRaw();
 
 
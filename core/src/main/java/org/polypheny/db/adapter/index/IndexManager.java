@@ -20,13 +20,17 @@
 import com.google.common.collect.ImmutableList;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.adapter.AdapterManager;
+import org.polypheny.db.adapter.DataStore;
 import org.polypheny.db.adapter.DataStore.IndexMethodModel;
 import org.polypheny.db.adapter.index.Index.IndexFactory;
 import org.polypheny.db.catalog.Catalog;
@@ -51,8 +55,12 @@
 import org.polypheny.db.transaction.Transaction;
 import org.polypheny.db.transaction.TransactionException;
 import org.polypheny.db.transaction.TransactionManager;
+import org.polypheny.db.util.background.BackgroundTask.TaskPriority;
+import org.polypheny.db.util.background.BackgroundTask.TaskSchedulingType;
+import org.polypheny.db.util.background.BackgroundTaskManager;
 
 
+@Slf4j
 public class IndexManager {
 
     public static final String POLYPHENY = "POLYPHENY";
@@ -63,13 +71,15 @@ public class IndexManager {
     private final AtomicLong indexLookupMissesCounter = new AtomicLong();
 
     private static final List<IndexFactory> INDEX_FACTORIES = Arrays.asList(
+            new PersistentHashIndex.Factory(),
             new CoWHashIndex.Factory(),
-            new CowMultiHashIndex.Factory()
+            new CowMultiHashIndex.Factory(),
+            new SkipListIndex.Factory()
     );
 
-    private final Map<Long, Index> indexById = new HashMap<>();
+    private final Map<Long, Index> indexById = new ConcurrentHashMap<>();
     private final Map<String, Index> indexByName = new HashMap<>();
-    private final Map<PolyXid, List<Index>> openTransactions = new HashMap<>();
+    private final Map<PolyXid, List<Index>> openTransactions = new ConcurrentHashMap<>();
     private TransactionManager transactionManager = null;
 
 
@@ -85,7 +95,8 @@ private IndexManager() {
 
     public static List<IndexMethodModel> getAvailableIndexMethods() {
         return ImmutableList.of(
-                new IndexMethodModel( "hash", "HASH" )
+                new IndexMethodModel( "hash", "HASH" ),
+                new IndexMethodModel( SkipListIndex.METHOD, "SKIP LIST" )
         );
     }
 
@@ -96,10 +107,7 @@ public static IndexMethodModel getDefaultIndexMethod() {
 
 
     void begin( PolyXid xid, Index index ) {
-        if ( !openTransactions.containsKey( xid ) ) {
-            openTransactions.put( xid, new ArrayList<>() );
-        }
-        openTransactions.get( xid ).add( index );
+        openTransactions.computeIfAbsent( xid, k -> new CopyOnWriteArrayList<>() ).add( index );
     }
 
 
@@ -141,32 +149,65 @@ public void rollback( PolyXid xid ) {
 
     public void initialize( final TransactionManager transactionManager ) {
         this.transactionManager = transactionManager;
+        // Committed changes of persistent indexes are flushed in the background and at shutdown, not on every commit
+        BackgroundTaskManager.INSTANCE.registerTask(
+                this::checkpoint,
+                "Flush committed changes of persistent indexes",
+                TaskPriority.LOW,
+                TaskSchedulingType.EVERY_TEN_SECONDS );
+        Runtime.getRuntime().addShutdownHook( new Thread( this::checkpoint ) );
     }
 
 
-    public void restoreIndexes() throws TransactionException {
-        for ( final LogicalIndex index : Catalog.getInstance().getSnapshot().rel().getIndexes() ) {
-            if ( index.location < 0 ) {
-                addIndex( index );
+    /**
+     * Flushes the committed changes of all persistent indexes without pending transactions.
+     */
+    public void checkpoint() {
+        for ( final Index index : indexById.values() ) {
+            if ( index instanceof PersistentHashIndex ) {
+                try {
+                    ((PersistentHashIndex) index).checkpoint();
+                } catch ( Exception e ) {
+                    log.warn( "Unable to flush the persistent index {}", index.name, e );
+                }
             }
         }
     }
 
 
-    public void addIndex( final LogicalIndex index ) throws TransactionException {
-        addIndex( index, null );
+    public void restoreIndexes() throws TransactionException {
+        final Transaction transaction = transactionManager.startTransaction( Catalog.defaultUserId, false, "Index Manager" );
+        try {
+            for ( final LogicalIndex index : Catalog.getInstance().getSnapshot().rel().getIndexes() ) {
+                if ( index.location < 0 ) {
+                    addIndex( index.id, index.name, index.key, index.method, index.unique, RuntimeConfig.POLYSTORE_INDEXES_PERSISTENT.getBoolean(), transaction.createStatement(), true );
+                }
+            }
+            transaction.commit();
+        } catch ( Exception e ) {
+            transaction.rollback();
+            throw e;
+        }
     }
 
 
     public void addIndex( final LogicalIndex index, final Statement statement ) throws TransactionException {
-        addIndex( index.id, index.name, index.key, index.method, index.unique, null, statement );
+        addIndex( index.id, index.name, index.key, index.method, index.unique, RuntimeConfig.POLYSTORE_INDEXES_PERSISTENT.getBoolean(), statement, false );
     }
 
 
-    protected void addIndex( final long id, final String name, final LogicalKey key, final String method, final Boolean unique, final Boolean persistent, final Statement statement ) throws TransactionException {
+    /**
+     * Creates the index and fills it with the content of the table.
+     *
+     * @param restore whether the index is restored at startup, persistent indexes which were flushed before the shutdown
+     * are then reused if the table only lives on persistent stores
+     */
+    protected void addIndex( final long id, final String name, final LogicalKey key, final String method, final Boolean unique, final Boolean persistent, final Statement statement, final boolean restore ) throws TransactionException {
+        // Persistence is only a preference, not every index method has a persistent implementation
         final IndexFactory factory = INDEX_FACTORIES.stream()
                 .filter( it -> it.canProvide( method, unique, persistent ) )
                 .findFirst()
+                .or( () -> INDEX_FACTORIES.stream().filter( it -> it.canProvide( method, unique, null ) ).findFirst() )
                 .orElseThrow( IllegalArgumentException::new );
         final LogicalTable table = statement.getTransaction().getSnapshot().rel().getTable( key.entityId ).orElseThrow();
         final LogicalPrimaryKey pk = statement.getTransaction().getSnapshot().rel().getPrimaryKey( table.primaryKey ).orElseThrow();
@@ -182,11 +223,20 @@ protected void addIndex( final long id, final String name, final LogicalKey key,
                 pk.getFieldNames() );
         indexById.put( id, index );
         indexByName.put( name, index );
+        if ( restore && index.isPersistent() && index.isInitialized() && isOnPersistentStores( table ) ) {
+            return;
+        }
         final Transaction tx = statement.getTransaction();
         index.rebuild( tx );
     }
 
 
+    private static boolean isOnPersistentStores( LogicalTable table ) {
+        return Catalog.getInstance().getSnapshot().alloc().getPlacementsFromLogical( table.id ).stream()
+                .allMatch( placement -> AdapterManager.getInstance().getStore( placement.adapterId ).map( DataStore::isPersistent ).orElse( false ) );
+    }
+
+
     public void deleteIndex( final LogicalIndex index ) {
         deleteIndex( index.id );
     }
@@ -195,6 +245,7 @@ public void deleteIndex( final LogicalIndex index ) {
     public void deleteIndex( final long indexId ) {
         final Index idx = indexById.remove( indexId );
         indexByName.remove( idx.name );
+        idx.drop();
     }
 
 
@@ -208,6 +259,20 @@ public Index getIndex( LogicalNamespace schema, LogicalTable table, List<String>
     }
 
 
+    /**
+     * Returns an initialized index over the given columns which supports range scans, or {@code null} if there is none.
+     */
+    public Index getOrderedIndex( LogicalNamespace schema, LogicalTable table, List<String> columns ) {
+        return this.indexById.values().stream().filter( index ->
+                index.schema.equals( schema )
+                        && index.table.equals( table )
+                        && index.columns.equals( columns )
+                        && index.isOrdered()
+                        && index.isInitialized()
+        ).findFirst().orElse( null );
+    }
+
+
     public Index getIndex( LogicalNamespace schema, LogicalTable table, List<String> columns, String method, Boolean unique, Boolean persistent ) {
         return this.indexById.values().stream().filter( index ->
                 index.schema.equals( schema )
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.index;
+
+
+import lombok.Value;
+import org.polypheny.db.type.entity.PolyValue;
+
+
+/**
+ * Range over the first column of an ordered index. A {@code null} bound means that the range is unbounded on this side.
+ * Null keys are ordered after all other keys, as in an ascending sort with the default null direction.
+ */
+@Value
+public class IndexRange {
+
+    PolyValue lower;
+    boolean lowerInclusive;
+    PolyValue upper;
+    boolean upperInclusive;
+    boolean descending;
+    /**
+     * Maximum number of returned rows, or -1 for all rows.
+     */
+    int limit;
+
+
+    public static IndexRange all() {
+        return new IndexRange( null, false, null, false, false, -1 );
+    }
+
+
+    public static IndexRange between( PolyValue lower, boolean lowerInclusive, PolyValue upper, boolean upperInclusive ) {
+        return new IndexRange( lower, lowerInclusive, upper, upperInclusive, false, -1 );
+    }
+
+
+    public static IndexRange first( int limit, boolean descending ) {
+        return new IndexRange( null, false, null, false, descending, limit );
+    }
+
+
+    /**
+     * Returns the range narrowed by the given lower bound.
+     */
+    public IndexRange withLower( PolyValue value, boolean inclusive ) {
+        if ( lower != null ) {
+            int cmp = value.compareTo( lower );
+            if ( cmp < 0 || (cmp == 0 && (inclusive || !lowerInclusive)) ) {
+                return this;
+            }
+        }
+        return new IndexRange( value, inclusive, upper, upperInclusive, descending, limit );
+    }
+
+
+    /**
+     * Returns the range narrowed by the given upper bound.
+     */
+    public IndexRange withUpper( PolyValue value, boolean inclusive ) {
+        if ( upper != null ) {
+            int cmp = value.compareTo( upper );
+            if ( cmp > 0 || (cmp == 0 && (inclusive || !upperInclusive)) ) {
+                return this;
+            }
+        }
+        return new IndexRange( lower, lowerInclusive, value, inclusive, descending, limit );
+    }
+
+
+    public boolean isUnbounded() {
+        return lower == null && upper == null;
+    }
+
+}
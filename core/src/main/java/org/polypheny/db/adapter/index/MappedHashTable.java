@@ -0,0 +1,699 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.index;
+
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+
+
+/**
+ * Hash table with binary keys and values, which lives in memory-mapped files instead of the heap.
+ * <p>
+ * The table uses open addressing with linear probing. A slot consists of two longs: a tag and the offset of the entry in
+ * the data file. The tag is the hash of the key, or for tables with long keys the key itself. Entries
+ * ({@code keyLength | valueLength | key | value}) are appended to the data file, which is mapped in segments. Tables with
+ * long keys do not store the key in the entry. Overwritten and removed entries leave garbage in the data file, which is
+ * dropped by compacting the live entries into a new generation of the data file.
+ * <p>
+ * Lookups run concurrently, modifications are serialized. The header records whether the files were flushed after the
+ * last modification. The content of a table which was not flushed is undefined and has to be rebuilt.
+ */
+@Slf4j
+class MappedHashTable implements AutoCloseable {
+
+    static final int DEFAULT_SEGMENT_SIZE = 1 << 24;
+
+    private static final int MAGIC = 0x50494458; // PIDX
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int LONG_KEYS_OFFSET = 8;
+    private static final int CLEAN_OFFSET = 12;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int SIZE_OFFSET = 20;
+    private static final int TOMBSTONES_OFFSET = 24;
+    private static final int SEGMENT_SIZE_OFFSET = 28;
+    private static final int GENERATION_OFFSET = 32;
+    private static final int DATA_END_OFFSET = 40;
+    private static final int GARBAGE_OFFSET = 48;
+
+    private static final int SLOT_SIZE = 2 * Long.BYTES;
+    private static final int ENTRY_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final long EMPTY = 0;
+    private static final long DELETED = -1;
+    /**
+     * The data file starts with an unused long, so that no entry has the offset {@link #EMPTY}.
+     */
+    private static final long DATA_START = Long.BYTES;
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final double MAX_LOAD = 0.7;
+
+    private final Path folder;
+    private final String name;
+    private final boolean longKeys;
+    private final int segmentSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel slotChannel;
+    private MappedByteBuffer slots;
+    private FileChannel dataChannel;
+    private List<MappedByteBuffer> segments = new ArrayList<>();
+
+    private int capacity;
+    private int size;
+    private int tombstones;
+    private int generation;
+    private long dataEnd;
+    private long garbage;
+    private boolean clean;
+
+
+    /**
+     * Opens the table stored in the given folder or creates a new one, if there is no table or the existing table has a
+     * different layout.
+     *
+     * @param folder folder containing the files of the table
+     * @param name name of the table, used as prefix for the files
+     * @param longKeys whether the keys are longs, which are stored in the slots
+     * @param segmentSize size of the mapped segments of the data file, the upper bound for the size of an entry
+     */
+    MappedHashTable( Path folder, String name, boolean longKeys, int segmentSize ) {
+        this.folder = folder;
+        this.name = name;
+        this.longKeys = longKeys;
+        this.segmentSize = segmentSize;
+        try {
+            if ( !open() ) {
+                create();
+            }
+        } catch ( IOException e ) {
+            throw new GenericRuntimeException( "Could not open the index %s", e, name );
+        }
+    }
+
+
+    /**
+     * Whether the content of the table was flushed after the last modification, i.e. whether it can be trusted.
+     */
+    boolean isClean() {
+        lock.readLock().lock();
+        try {
+            return clean;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Marks the table as not clean on disk. Has to be called before changes are staged, which are applied to the
+     * table later, so that a crash in between does not leave a clean table without these changes.
+     */
+    void markDirty() {
+        lock.writeLock().lock();
+        try {
+            setDirty();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    byte[] get( byte[] key ) {
+        return get( hash( key ), key );
+    }
+
+
+    byte[] get( long key ) {
+        return get( key, null );
+    }
+
+
+    boolean containsKey( byte[] key ) {
+        return containsKey( hash( key ), key );
+    }
+
+
+    boolean containsKey( long key ) {
+        return containsKey( key, null );
+    }
+
+
+    void put( byte[] key, byte[] value ) {
+        put( hash( key ), key, value );
+    }
+
+
+    void put( long key, byte[] value ) {
+        put( key, new byte[0], value );
+    }
+
+
+    boolean remove( byte[] key ) {
+        return remove( hash( key ), key );
+    }
+
+
+    boolean remove( long key ) {
+        return remove( key, null );
+    }
+
+
+    /**
+     * Calls the consumer for every entry of the table. For tables with long keys, the key is only passed as tag.
+     */
+    void forEach( EntryConsumer consumer ) {
+        lock.readLock().lock();
+        try {
+            for ( int i = 0; i < capacity; i++ ) {
+                long offset = offsetAt( i );
+                if ( offset != EMPTY && offset != DELETED ) {
+                    consumer.accept( tagAt( i ), longKeys ? null : readKey( segments, offset ), readValue( segments, offset ) );
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            setDirty();
+            for ( int i = 0; i < capacity; i++ ) {
+                setSlot( slots, i, EMPTY, EMPTY );
+            }
+            size = 0;
+            tombstones = 0;
+            newGeneration();
+            writeHeader();
+        } catch ( IOException e ) {
+            throw new GenericRuntimeException( "Could not clear the index %s", e, name );
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Writes all modifications to disk and marks the table as clean.
+     */
+    void flush() {
+        lock.writeLock().lock();
+        try {
+            if ( clean ) {
+                return;
+            }
+            for ( MappedByteBuffer segment : segments ) {
+                segment.force();
+            }
+            slots.force();
+            clean = true;
+            writeHeader();
+            slots.force( 0, HEADER_SIZE );
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            slotChannel.close();
+            dataChannel.close();
+        } catch ( IOException e ) {
+            throw new GenericRuntimeException( "Could not close the index %s", e, name );
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Closes the table and deletes its files.
+     */
+    void drop() {
+        close();
+        try {
+            Files.deleteIfExists( slotPath() );
+            Files.deleteIfExists( dataPath( generation ) );
+        } catch ( IOException e ) {
+            log.warn( "Could not delete the files of the index {}", name, e );
+        }
+    }
+
+
+    private byte[] get( long tag, byte[] key ) {
+        lock.readLock().lock();
+        try {
+            int slot = find( tag, key );
+            return slot < 0 ? null : readValue( segments, offsetAt( slot ) );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    private boolean containsKey( long tag, byte[] key ) {
+        lock.readLock().lock();
+        try {
+            return find( tag, key ) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    private void put( long tag, byte[] key, byte[] value ) {
+        lock.writeLock().lock();
+        try {
+            setDirty();
+            int slot = find( tag, key );
+            if ( slot >= 0 ) {
+                garbage += entryLength( segments, offsetAt( slot ) );
+                setSlot( slots, slot, tag, append( longKeys ? new byte[0] : key, value ) );
+            } else {
+                if ( size + tombstones + 1 > capacity * MAX_LOAD ) {
+                    rehash( size + 1 > capacity * MAX_LOAD / 2 ? capacity << 1 : capacity );
+                }
+                slot = freeSlot( slots, capacity, tag );
+                if ( offsetAt( slot ) == DELETED ) {
+                    tombstones--;
+                }
+                setSlot( slots, slot, tag, append( longKeys ? new byte[0] : key, value ) );
+                size++;
+            }
+            if ( garbage > segmentSize && garbage > (dataEnd - DATA_START) / 2 ) {
+                compact();
+            }
+            writeHeader();
+        } catch ( IOException e ) {
+            throw new GenericRuntimeException( "Could not write to the index %s", e, name );
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    private boolean remove( long tag, byte[] key ) {
+        lock.writeLock().lock();
+        try {
+            int slot = find( tag, key );
+            if ( slot < 0 ) {
+                return false;
+            }
+            setDirty();
+            garbage += entryLength( segments, offsetAt( slot ) );
+            setSlot( slots, slot, tag, DELETED );
+            size--;
+            tombstones++;
+            writeHeader();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Returns the slot containing the key, or -1 if the key is not in the table.
+     */
+    private int find( long tag, byte[] key ) {
+        int mask = capacity - 1;
+        int slot = (int) (mix( tag ) & mask);
+        for ( int probes = 0; probes < capacity; probes++ ) {
+            long offset = offsetAt( slot );
+            if ( offset == EMPTY ) {
+                return -1;
+            }
+            if ( offset != DELETED && tagAt( slot ) == tag && (longKeys || keyEquals( offset, key )) ) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Returns the first empty or deleted slot in the probe sequence of the tag.
+     */
+    private static int freeSlot( MappedByteBuffer slots, int capacity, long tag ) {
+        int mask = capacity - 1;
+        int slot = (int) (mix( tag ) & mask);
+        while ( true ) {
+            long offset = slots.getLong( slotPosition( slot ) + Long.BYTES );
+            if ( offset == EMPTY || offset == DELETED ) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+
+    /**
+     * Rebuilds the slots with the given capacity, which also drops all tombstones. The data file is not touched.
+     */
+    private void rehash( int newCapacity ) throws IOException {
+        if ( newCapacity > MAX_CAPACITY ) {
+            throw new GenericRuntimeException( "The index %s exceeds the maximum number of %s entries", name, (int) (MAX_CAPACITY * MAX_LOAD) );
+        }
+        long[] live = new long[2 * size];
+        int n = 0;
+        for ( int i = 0; i < capacity; i++ ) {
+            long offset = offsetAt( i );
+            if ( offset != EMPTY && offset != DELETED ) {
+                live[n++] = tagAt( i );
+                live[n++] = offset;
+            }
+        }
+
+        MappedByteBuffer rehashed = slotChannel.map( MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * SLOT_SIZE );
+        for ( int i = 0; i < newCapacity; i++ ) {
+            setSlot( rehashed, i, EMPTY, EMPTY );
+        }
+        for ( int i = 0; i < n; i += 2 ) {
+            setSlot( rehashed, freeSlot( rehashed, newCapacity, live[i] ), live[i], live[i + 1] );
+        }
+        slots = rehashed;
+        capacity = newCapacity;
+        tombstones = 0;
+    }
+
+
+    /**
+     * Copies the live entries into a new generation of the data file and deletes the old one.
+     */
+    private void compact() throws IOException {
+        FileChannel oldChannel = dataChannel;
+        List<MappedByteBuffer> oldSegments = segments;
+        int oldGeneration = generation;
+
+        openData( generation + 1, true );
+        for ( int i = 0; i < capacity; i++ ) {
+            long offset = offsetAt( i );
+            if ( offset != EMPTY && offset != DELETED ) {
+                setSlot( slots, i, tagAt( i ), append( longKeys ? new byte[0] : readKey( oldSegments, offset ), readValue( oldSegments, offset ) ) );
+            }
+        }
+        oldChannel.close();
+        deleteData( oldGeneration );
+    }
+
+
+    private void newGeneration() throws IOException {
+        FileChannel oldChannel = dataChannel;
+        int oldGeneration = generation;
+        openData( generation + 1, true );
+        oldChannel.close();
+        deleteData( oldGeneration );
+    }
+
+
+    private long append( byte[] key, byte[] value ) throws IOException {
+        int length = ENTRY_HEADER_SIZE + key.length + value.length;
+        if ( length > segmentSize ) {
+            throw new GenericRuntimeException( "The entry of %s bytes is too large for the index %s", length, name );
+        }
+        long offset = dataEnd;
+        int position = (int) (offset % segmentSize);
+        if ( position + length > segmentSize ) {
+            // entries do not span segments
+            garbage += segmentSize - position;
+            offset += segmentSize - position;
+            position = 0;
+        }
+        MappedByteBuffer segment = segment( (int) (offset / segmentSize) );
+        segment.putInt( position, key.length );
+        segment.putInt( position + Integer.BYTES, value.length );
+        segment.put( position + ENTRY_HEADER_SIZE, key );
+        segment.put( position + ENTRY_HEADER_SIZE + key.length, value );
+        dataEnd = offset + length;
+        return offset;
+    }
+
+
+    private MappedByteBuffer segment( int index ) throws IOException {
+        while ( segments.size() <= index ) {
+            segments.add( dataChannel.map( MapMode.READ_WRITE, (long) segments.size() * segmentSize, segmentSize ) );
+        }
+        return segments.get( index );
+    }
+
+
+    private boolean keyEquals( long offset, byte[] key ) {
+        MappedByteBuffer segment = segments.get( (int) (offset / segmentSize) );
+        int position = (int) (offset % segmentSize);
+        if ( segment.getInt( position ) != key.length ) {
+            return false;
+        }
+        position += ENTRY_HEADER_SIZE;
+        for ( int i = 0; i < key.length; i++ ) {
+            if ( segment.get( position + i ) != key[i] ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private byte[] readKey( List<MappedByteBuffer> segments, long offset ) {
+        MappedByteBuffer segment = segments.get( (int) (offset / segmentSize) );
+        int position = (int) (offset % segmentSize);
+        byte[] key = new byte[segment.getInt( position )];
+        segment.get( position + ENTRY_HEADER_SIZE, key );
+        return key;
+    }
+
+
+    private byte[] readValue( List<MappedByteBuffer> segments, long offset ) {
+        MappedByteBuffer segment = segments.get( (int) (offset / segmentSize) );
+        int position = (int) (offset % segmentSize);
+        int keyLength = segment.getInt( position );
+        byte[] value = new byte[segment.getInt( position + Integer.BYTES )];
+        segment.get( position + ENTRY_HEADER_SIZE + keyLength, value );
+        return value;
+    }
+
+
+    private int entryLength( List<MappedByteBuffer> segments, long offset ) {
+        MappedByteBuffer segment = segments.get( (int) (offset / segmentSize) );
+        int position = (int) (offset % segmentSize);
+        return ENTRY_HEADER_SIZE + segment.getInt( position ) + segment.getInt( position + Integer.BYTES );
+    }
+
+
+    private long tagAt( int slot ) {
+        return slots.getLong( slotPosition( slot ) );
+    }
+
+
+    private long offsetAt( int slot ) {
+        return slots.getLong( slotPosition( slot ) + Long.BYTES );
+    }
+
+
+    private static void setSlot( MappedByteBuffer slots, int slot, long tag, long offset ) {
+        slots.putLong( slotPosition( slot ), tag );
+        slots.putLong( slotPosition( slot ) + Long.BYTES, offset );
+    }
+
+
+    private static int slotPosition( int slot ) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+
+    private void setDirty() {
+        if ( clean ) {
+            clean = false;
+            writeHeader();
+            slots.force( 0, HEADER_SIZE );
+        }
+    }
+
+
+    private void writeHeader() {
+        slots.putInt( MAGIC_OFFSET, MAGIC );
+        slots.putInt( VERSION_OFFSET, VERSION );
+        slots.putInt( LONG_KEYS_OFFSET, longKeys ? 1 : 0 );
+        slots.putInt( CLEAN_OFFSET, clean ? 1 : 0 );
+        slots.putInt( CAPACITY_OFFSET, capacity );
+        slots.putInt( SIZE_OFFSET, size );
+        slots.putInt( TOMBSTONES_OFFSET, tombstones );
+        slots.putInt( SEGMENT_SIZE_OFFSET, segmentSize );
+        slots.putInt( GENERATION_OFFSET, generation );
+        slots.putLong( DATA_END_OFFSET, dataEnd );
+        slots.putLong( GARBAGE_OFFSET, garbage );
+    }
+
+
+    /**
+     * Opens the existing files of the table.
+     *
+     * @return false if there is no table with a matching layout
+     */
+    private boolean open() throws IOException {
+        Path slotPath = slotPath();
+        if ( !Files.exists( slotPath ) || Files.size( slotPath ) < HEADER_SIZE ) {
+            return false;
+        }
+        slotChannel = FileChannel.open( slotPath, StandardOpenOption.READ, StandardOpenOption.WRITE );
+        MappedByteBuffer header = slotChannel.map( MapMode.READ_WRITE, 0, HEADER_SIZE );
+        int storedCapacity = header.getInt( CAPACITY_OFFSET );
+        int storedGeneration = header.getInt( GENERATION_OFFSET );
+        if ( header.getInt( MAGIC_OFFSET ) != MAGIC
+                || header.getInt( VERSION_OFFSET ) != VERSION
+                || (header.getInt( LONG_KEYS_OFFSET ) == 1) != longKeys
+                || header.getInt( SEGMENT_SIZE_OFFSET ) != segmentSize
+                || Integer.bitCount( storedCapacity ) != 1
+                || slotChannel.size() < HEADER_SIZE + (long) storedCapacity * SLOT_SIZE
+                || !Files.exists( dataPath( storedGeneration ) ) ) {
+            log.warn( "Discarding the incompatible or incomplete index {}", name );
+            slotChannel.close();
+            return false;
+        }
+
+        capacity = storedCapacity;
+        generation = storedGeneration;
+        clean = header.getInt( CLEAN_OFFSET ) == 1;
+        size = header.getInt( SIZE_OFFSET );
+        tombstones = header.getInt( TOMBSTONES_OFFSET );
+        dataEnd = header.getLong( DATA_END_OFFSET );
+        garbage = header.getLong( GARBAGE_OFFSET );
+        slots = slotChannel.map( MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE );
+        openData( generation, false );
+        return true;
+    }
+
+
+    private void create() throws IOException {
+        Files.deleteIfExists( slotPath() );
+        slotChannel = FileChannel.open( slotPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+        capacity = INITIAL_CAPACITY;
+        slots = slotChannel.map( MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE );
+        size = 0;
+        tombstones = 0;
+        generation = 0;
+        clean = false;
+        Files.deleteIfExists( dataPath( generation ) );
+        openData( generation, true );
+        writeHeader();
+    }
+
+
+    private void openData( int generation, boolean create ) throws IOException {
+        this.generation = generation;
+        if ( create ) {
+            dataChannel = FileChannel.open( dataPath( generation ), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE );
+            dataEnd = DATA_START;
+            garbage = 0;
+        } else {
+            dataChannel = FileChannel.open( dataPath( generation ), StandardOpenOption.READ, StandardOpenOption.WRITE );
+        }
+        segments = new ArrayList<>();
+        if ( dataEnd > DATA_START ) {
+            segment( (int) ((dataEnd - 1) / segmentSize) );
+        }
+    }
+
+
+    private void deleteData( int generation ) {
+        try {
+            Files.deleteIfExists( dataPath( generation ) );
+        } catch ( IOException e ) {
+            // the file might still be mapped, it is replaced when this generation is used again
+            log.debug( "Could not delete the old data file of the index {}", name, e );
+        }
+    }
+
+
+    private Path slotPath() {
+        return folder.resolve( name + ".slots" );
+    }
+
+
+    private Path dataPath( int generation ) {
+        return folder.resolve( name + "." + generation + ".data" );
+    }
+
+
+    /**
+     * 64-bit FNV-1a hash of the key.
+     */
+    private static long hash( byte[] key ) {
+        long hash = 0xcbf29ce484222325L;
+        for ( byte b : key ) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+
+    /**
+     * Finalizer of MurmurHash3, spreads the bits of tags (e.g. sequential keys) over the slots.
+     */
+    private static long mix( long tag ) {
+        tag ^= tag >>> 33;
+        tag *= 0xff51afd7ed558ccdL;
+        tag ^= tag >>> 33;
+        tag *= 0xc4ceb9fe1a85ec53L;
+        tag ^= tag >>> 33;
+        return tag;
+    }
+
+
+    interface EntryConsumer {
+
+        void accept( long tag, byte[] key, byte[] value );
+
+    }
+
+}
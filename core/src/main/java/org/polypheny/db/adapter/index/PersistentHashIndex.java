@@ -0,0 +1,700 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.index;
+
+
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.algebra.core.Values;
+import org.polypheny.db.algebra.exceptions.ConstraintViolationException;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.catalog.entity.logical.LogicalColumn;
+import org.polypheny.db.catalog.entity.logical.LogicalNamespace;
+import org.polypheny.db.catalog.entity.logical.LogicalTable;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.rex.RexBuilder;
+import org.polypheny.db.rex.RexLiteral;
+import org.polypheny.db.tools.AlgBuilder;
+import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.type.PolySerializable;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.type.entity.numerical.PolyInteger;
+import org.polypheny.db.type.entity.numerical.PolyLong;
+import org.polypheny.db.util.Pair;
+import org.polypheny.db.util.PolyphenyHomeDirManager;
+
+
+/**
+ * Hash index which stores its entries in a {@link MappedHashTable} instead of the heap. Keys and primary keys are
+ * stored in their binary encoding. If the index is over a single non-nullable integer column, the key is stored as
+ * long in the slots of the table.
+ * <p>
+ * The index can be unique or not. A unique index stores the primary key of the entry (or nothing if it is the primary
+ * key index itself), a non-unique index stores the set of all primary keys for the key.
+ * <p>
+ * Uncommitted changes are kept in per-transaction overlays like in {@link CoWHashIndex}. The files are marked dirty as
+ * soon as a transaction stages changes. Commits do not flush the files, the committed content is flushed and marked
+ * clean by {@link #checkpoint()}, which the {@link IndexManager} calls periodically and at shutdown, if no transaction
+ * has pending changes. A clean index can be reused after a restart instead of being rebuilt.
+ */
+@Slf4j
+public class PersistentHashIndex extends Index {
+
+    private static final String FOLDER = "indexes";
+
+    /**
+     * Keys are limited by the size of the segments of the table.
+     */
+    private static final int MAX_KEY_SIZE = MappedHashTable.DEFAULT_SEGMENT_SIZE;
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial( () -> new byte[PolySerializable.BUFFER_SIZE] );
+    private static final byte[] EMPTY = new byte[0];
+
+    private final boolean unique;
+    private final MappedHashTable index;
+    /**
+     * Type of the single integer key column, or {@code null} if the keys are stored in their binary encoding.
+     */
+    private final PolyType longKeyType;
+    private boolean initialized;
+    /**
+     * Whether transactions have been committed since the last flush. Guarded by {@link #cowIndex}.
+     */
+    private boolean flushPending = false;
+
+    private final Map<PolyXid, Map<List<PolyValue>, Set<List<PolyValue>>>> cowIndex = new ConcurrentHashMap<>();
+    private final Map<PolyXid, List<DeferredIndexUpdate>> cowOpLog = new ConcurrentHashMap<>();
+    private final Map<PolyXid, List<PendingUpdate>> barrierIndex = new ConcurrentHashMap<>();
+
+
+    public PersistentHashIndex(
+            final long id,
+            final String name,
+            final boolean unique,
+            final LogicalNamespace schema,
+            final LogicalTable table,
+            final List<String> columns,
+            final List<String> targetColumns ) {
+        this( id, name, unique, schema, table, columns, targetColumns, initFolder() );
+    }
+
+
+    public PersistentHashIndex(
+            final long id,
+            final String name,
+            final boolean unique,
+            final LogicalNamespace schema,
+            final LogicalTable table,
+            final List<String> columns,
+            final List<String> targetColumns,
+            final Path folder ) {
+        this.id = id;
+        this.name = name;
+        this.unique = unique;
+        this.schema = schema;
+        this.table = table;
+        this.columns = ImmutableList.copyOf( columns );
+        this.targetColumns = ImmutableList.copyOf( targetColumns );
+        this.longKeyType = getLongKeyType( table, columns );
+        this.index = new MappedHashTable( folder, Long.toString( id ), longKeyType != null, MappedHashTable.DEFAULT_SEGMENT_SIZE );
+        // a clean table contains everything which was committed before the shutdown
+        this.initialized = index.isClean();
+    }
+
+
+    private static Path initFolder() {
+        if ( PolyphenyHomeDirManager.getInstance().getHomeFile( FOLDER ).isEmpty() ) {
+            PolyphenyHomeDirManager.getInstance().registerNewFolder( FOLDER );
+        }
+        Optional<File> folder = PolyphenyHomeDirManager.getInstance().getHomeFile( FOLDER );
+        if ( !folder.map( File::isDirectory ).orElse( false ) ) {
+            throw new GenericRuntimeException( "There is an error with the indexes folder in the .polypheny folder." );
+        }
+        return folder.get().toPath();
+    }
+
+
+    private static PolyType getLongKeyType( LogicalTable table, List<String> columns ) {
+        if ( table == null || columns.size() != 1 ) {
+            return null;
+        }
+        return table.getColumns().stream()
+                .filter( c -> c.name.equals( columns.get( 0 ) ) )
+                .filter( c -> !c.nullable && PolyType.INT_TYPES.contains( c.type ) )
+                .map( LogicalColumn::getType )
+                .findFirst()
+                .orElse( null );
+    }
+
+
+    @Override
+    public String getMethod() {
+        return "hash";
+    }
+
+
+    @Override
+    public boolean isUnique() {
+        return unique;
+    }
+
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+
+    @Override
+    void commit( PolyXid xid ) {
+        begin( xid );
+        if ( !barrierIndex.get( xid ).isEmpty() ) {
+            throw new IllegalStateException( "Attempted index commit without invoking barrier first" );
+        }
+        for ( final DeferredIndexUpdate update : this.cowOpLog.get( xid ) ) {
+            update.execute( this );
+        }
+        rollback( xid );
+    }
+
+
+    @Override
+    public void barrier( PolyXid xid ) {
+        begin( xid );
+        for ( final PendingUpdate update : barrierIndex.get( xid ) ) {
+            postBarrier( xid, update.key(), update.primary(), update.insert() );
+        }
+        barrierIndex.get( xid ).clear();
+    }
+
+
+    @Override
+    void rollback( PolyXid xid ) {
+        synchronized ( cowIndex ) {
+            this.cowIndex.remove( xid );
+            this.cowOpLog.remove( xid );
+            this.barrierIndex.remove( xid );
+            flushPending = true;
+        }
+    }
+
+
+    protected void begin( PolyXid xid ) {
+        if ( cowIndex.containsKey( xid ) ) {
+            return;
+        }
+        synchronized ( cowIndex ) {
+            if ( !cowIndex.containsKey( xid ) ) {
+                // The stores may commit the changes of the transaction before the index does, so the files must not be
+                // reused after a restart until the changes are applied and flushed
+                index.markDirty();
+                IndexManager.getInstance().begin( xid, this );
+                cowIndex.put( xid, new HashMap<>() );
+                cowOpLog.put( xid, new ArrayList<>() );
+                barrierIndex.put( xid, new ArrayList<>() );
+            }
+        }
+    }
+
+
+    /**
+     * Flushes the committed content and marks the files clean, if transactions have been committed since the last
+     * checkpoint and no transaction has pending changes. Otherwise, the files stay dirty until a later checkpoint.
+     */
+    void checkpoint() {
+        synchronized ( cowIndex ) {
+            if ( flushPending && initialized && cowIndex.isEmpty() ) {
+                index.flush();
+                flushPending = false;
+            }
+        }
+    }
+
+
+    @Override
+    public boolean contains( PolyXid xid, List<PolyValue> value ) {
+        final List<PolyValue> key = normalize( value );
+        if ( key == null ) {
+            return false;
+        }
+        Map<List<PolyValue>, Set<List<PolyValue>>> idx;
+        if ( (idx = cowIndex.get( xid )) != null ) {
+            if ( idx.containsKey( key ) ) {
+                return !idx.get( key ).isEmpty();
+            }
+        }
+        return longKeyType != null ? index.containsKey( toLong( key ) ) : index.containsKey( encode( key ) );
+    }
+
+
+    @Override
+    public boolean containsAny( PolyXid xid, Iterable<List<PolyValue>> values ) {
+        for ( final List<PolyValue> tuple : values ) {
+            if ( contains( xid, tuple ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    @Override
+    public boolean containsAll( PolyXid xid, Iterable<List<PolyValue>> values ) {
+        for ( final List<PolyValue> tuple : values ) {
+            if ( !contains( xid, tuple ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    public Values getAsValues( PolyXid xid, AlgBuilder builder, AlgDataType rowType ) {
+        final Map<List<PolyValue>, Set<List<PolyValue>>> ci = cowIndex.get( xid );
+        final RexBuilder rexBuilder = builder.getRexBuilder();
+        final List<ImmutableList<RexLiteral>> tuples = new ArrayList<>( index.size() + (ci != null ? ci.size() : 0) );
+        index.forEach( ( tag, key, value ) -> {
+            final List<PolyValue> tuple = longKeyType != null ? fromLong( tag ) : decode( key );
+            if ( ci != null && ci.containsKey( tuple ) ) {
+                // Tuple was changed in CoW index
+                return;
+            }
+            final int count = unique ? 1 : decodeSet( value ).size();
+            for ( int i = 0; i < count; i++ ) {
+                tuples.add( makeRexRow( rowType, rexBuilder, tuple ) );
+            }
+        } );
+        if ( ci != null ) {
+            for ( Map.Entry<List<PolyValue>, Set<List<PolyValue>>> tuple : ci.entrySet() ) {
+                for ( int i = 0; i < tuple.getValue().size(); i++ ) {
+                    tuples.add( makeRexRow( rowType, rexBuilder, tuple.getKey() ) );
+                }
+            }
+        }
+
+        return (Values) builder.values( ImmutableList.copyOf( tuples ), rowType ).build();
+    }
+
+
+    @Override
+    public Values getAsValues( PolyXid xid, AlgBuilder builder, AlgDataType rowType, List<PolyValue> key ) {
+        final List<PolyValue> normalized = normalize( key );
+        if ( normalized == null ) {
+            return (Values) builder.values( ImmutableList.of(), rowType ).build();
+        }
+        final Map<List<PolyValue>, Set<List<PolyValue>>> ci = cowIndex.get( xid );
+        final RexBuilder rexBuilder = builder.getRexBuilder();
+        final Set<List<PolyValue>> primaries = ci != null && ci.containsKey( normalized ) ? ci.get( normalized ) : getCommitted( normalized );
+        final List<ImmutableList<RexLiteral>> tuples = new ArrayList<>( primaries.size() );
+        for ( int i = 0; i < primaries.size(); i++ ) {
+            tuples.add( makeRexRow( rowType, rexBuilder, key ) );
+        }
+        return (Values) builder.values( ImmutableList.copyOf( tuples ), rowType ).build();
+    }
+
+
+    /**
+     * Returns a copy of the committed content. Only intended for tests, as it materializes the whole index on the heap.
+     */
+    @Override
+    Map<?, ?> getRaw() {
+        final Map<List<PolyValue>, Object> raw = new HashMap<>();
+        index.forEach( ( tag, key, value ) -> {
+            final List<PolyValue> tuple = longKeyType != null ? fromLong( tag ) : decode( key );
+            raw.put( tuple, unique ? decodePrimary( tuple, value ) : decodeSet( value ) );
+        } );
+        return raw;
+    }
+
+
+    @Override
+    protected void clear() {
+        index.clear();
+        cowIndex.clear();
+        cowOpLog.clear();
+        barrierIndex.clear();
+        initialized = false;
+    }
+
+
+    @Override
+    boolean isInitialized() {
+        return initialized;
+    }
+
+
+    @Override
+    void initialize() {
+        initialized = true;
+        index.flush();
+    }
+
+
+    @Override
+    void drop() {
+        index.drop();
+    }
+
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+
+    @Override
+    public void insertAll( PolyXid xid, final Iterable<Pair<List<PolyValue>, List<PolyValue>>> values ) {
+        begin( xid );
+        List<DeferredIndexUpdate> log = cowOpLog.get( xid );
+        for ( final Pair<List<PolyValue>, List<PolyValue>> row : values ) {
+            _insert( xid, row.getKey(), row.getValue() );
+        }
+        log.add( DeferredIndexUpdate.createInsert( values ) );
+    }
+
+
+    @Override
+    public void insert( PolyXid xid, List<PolyValue> key, List<PolyValue> primary ) {
+        begin( xid );
+        List<DeferredIndexUpdate> log = cowOpLog.get( xid );
+        _insert( xid, key, primary );
+        log.add( DeferredIndexUpdate.createInsert( Collections.singleton( new Pair<>( key, primary ) ) ) );
+    }
+
+
+    protected void _insert( PolyXid xid, List<PolyValue> key, List<PolyValue> primary ) {
+        barrierIndex.get( xid ).add( new PendingUpdate( key, primary, true ) );
+    }
+
+
+    protected void postBarrier( PolyXid xid, List<PolyValue> key, List<PolyValue> primary, boolean insert ) {
+        final Map<List<PolyValue>, Set<List<PolyValue>>> idx = cowIndex.get( xid );
+        final List<PolyValue> normalized = normalize( key );
+        if ( normalized == null ) {
+            if ( insert ) {
+                throw new GenericRuntimeException( "The value %s can not be stored in the index %s", key, name );
+            }
+            return;
+        }
+
+        final Set<List<PolyValue>> primaries = idx.computeIfAbsent( normalized, k -> new HashSet<>( getCommitted( k ) ) );
+        if ( insert ) {
+            if ( unique && !primaries.isEmpty() ) {
+                throw new ConstraintViolationException(
+                        String.format( "Attempt to add duplicate key [%s] to unique index %s", key, name )
+                );
+            }
+            primaries.add( primary );
+        } else if ( primary == null || unique ) {
+            primaries.clear();
+        } else {
+            primaries.remove( primary );
+        }
+    }
+
+
+    @Override
+    void insert( List<PolyValue> key, List<PolyValue> primary ) {
+        final List<PolyValue> normalized = normalize( key );
+        if ( unique ) {
+            put( normalized, encodePrimary( normalized, primary ) );
+            return;
+        }
+        synchronized ( index ) {
+            final Set<List<PolyValue>> primaries = getCommitted( normalized );
+            primaries.add( primary );
+            put( normalized, encodeSet( primaries ) );
+        }
+    }
+
+
+    @Override
+    public void delete( PolyXid xid, List<PolyValue> key ) {
+        begin( xid );
+        List<DeferredIndexUpdate> log = cowOpLog.get( xid );
+
+        _delete( xid, key, null );
+        log.add( DeferredIndexUpdate.createDelete( Collections.singleton( key ) ) );
+    }
+
+
+    @Override
+    public void deletePrimary( PolyXid xid, List<PolyValue> key, List<PolyValue> primary ) {
+        begin( xid );
+        List<DeferredIndexUpdate> log = cowOpLog.get( xid );
+
+        _delete( xid, key, primary );
+        log.add( DeferredIndexUpdate.createDeletePrimary( Collections.singleton( new Pair<>( key, primary ) ) ) );
+    }
+
+
+    @Override
+    public void deleteAllPrimary( PolyXid xid, final Iterable<Pair<List<PolyValue>, List<PolyValue>>> values ) {
+        begin( xid );
+        List<DeferredIndexUpdate> log = cowOpLog.get( xid );
+
+        for ( final Pair<List<PolyValue>, List<PolyValue>> value : values ) {
+            _delete( xid, value.left, value.right );
+        }
+        log.add( DeferredIndexUpdate.createDeletePrimary( values ) );
+    }
+
+
+    @Override
+    public void deleteAll( PolyXid xid, final Iterable<List<PolyValue>> values ) {
+        begin( xid );
+        List<DeferredIndexUpdate> log = cowOpLog.get( xid );
+
+        for ( final List<PolyValue> value : values ) {
+            _delete( xid, value, null );
+        }
+        log.add( DeferredIndexUpdate.createDelete( values ) );
+    }
+
+
+    protected void _delete( PolyXid xid, List<PolyValue> key, List<PolyValue> primary ) {
+        barrierIndex.get( xid ).add( new PendingUpdate( key, primary, false ) );
+    }
+
+
+    @Override
+    void delete( List<PolyValue> key ) {
+        final List<PolyValue> normalized = normalize( key );
+        if ( normalized == null ) {
+            return;
+        }
+        if ( longKeyType != null ) {
+            index.remove( toLong( normalized ) );
+        } else {
+            index.remove( encode( normalized ) );
+        }
+    }
+
+
+    @Override
+    void deletePrimary( List<PolyValue> key, List<PolyValue> primary ) {
+        if ( unique ) {
+            delete( key );
+            return;
+        }
+        final List<PolyValue> normalized = normalize( key );
+        if ( normalized == null ) {
+            return;
+        }
+        synchronized ( index ) {
+            final Set<List<PolyValue>> primaries = getCommitted( normalized );
+            if ( !primaries.remove( primary ) ) {
+                return;
+            }
+            if ( primaries.isEmpty() ) {
+                delete( normalized );
+            } else {
+                put( normalized, encodeSet( primaries ) );
+            }
+        }
+    }
+
+
+    /**
+     * Returns a mutable copy of the committed primary keys for the given normalized key.
+     */
+    private Set<List<PolyValue>> getCommitted( List<PolyValue> key ) {
+        final byte[] value = longKeyType != null ? index.get( toLong( key ) ) : index.get( encode( key ) );
+        if ( value == null ) {
+            return new HashSet<>();
+        }
+        if ( unique ) {
+            final Set<List<PolyValue>> primaries = new HashSet<>();
+            primaries.add( decodePrimary( key, value ) );
+            return primaries;
+        }
+        return decodeSet( value );
+    }
+
+
+    private void put( List<PolyValue> key, byte[] value ) {
+        if ( longKeyType != null ) {
+            index.put( toLong( key ), value );
+        } else {
+            index.put( encode( key ), value );
+        }
+    }
+
+
+    /**
+     * Brings keys of long indexes into the form produced when reading them from the index, so that they can be compared
+     * with the keys in the overlays.
+     *
+     * @return the normalized key or {@code null} if the key can not be contained in the index
+     */
+    private List<PolyValue> normalize( List<PolyValue> key ) {
+        if ( longKeyType == null ) {
+            return key;
+        }
+        if ( key.size() != 1 || key.get( 0 ) == null || key.get( 0 ).isNull() || !key.get( 0 ).isNumber() ) {
+            return null;
+        }
+        return fromLong( key.get( 0 ).asNumber().longValue() );
+    }
+
+
+    private long toLong( List<PolyValue> key ) {
+        return key.get( 0 ).asNumber().longValue();
+    }
+
+
+    private List<PolyValue> fromLong( long key ) {
+        return List.of( longKeyType == PolyType.BIGINT ? PolyLong.of( key ) : PolyInteger.of( (int) key ) );
+    }
+
+
+    private boolean isPrimaryKeyIndex() {
+        return columns.equals( targetColumns );
+    }
+
+
+    private byte[] encodePrimary( List<PolyValue> key, List<PolyValue> primary ) {
+        // the primary key index does not have to store its key twice
+        return isPrimaryKeyIndex() ? EMPTY : encode( primary );
+    }
+
+
+    private List<PolyValue> decodePrimary( List<PolyValue> key, byte[] value ) {
+        return isPrimaryKeyIndex() ? key : decode( value );
+    }
+
+
+    /**
+     * Encodes the values as {@code count | (length | value)*}.
+     */
+    static byte[] encode( List<PolyValue> values ) {
+        byte[] buffer = BUFFER.get();
+        while ( true ) {
+            try {
+                return encode( values, buffer );
+            } catch ( IndexOutOfBoundsException e ) {
+                if ( buffer.length >= MAX_KEY_SIZE ) {
+                    throw new GenericRuntimeException( "The key exceeds the maximum size of %s bytes of a persistent index", MAX_KEY_SIZE );
+                }
+                buffer = new byte[(int) Math.min( MAX_KEY_SIZE, 2L * buffer.length )];
+                BUFFER.set( buffer );
+            }
+        }
+    }
+
+
+    private static byte[] encode( List<PolyValue> values, byte[] buffer ) {
+        final ByteBuffer wrapper = ByteBuffer.wrap( buffer );
+        wrapper.putInt( 0, values.size() );
+        int position = Integer.BYTES;
+        for ( PolyValue value : values ) {
+            final int end = PolyValue.serializer.encode( buffer, position + Integer.BYTES, value );
+            wrapper.putInt( position, end - position - Integer.BYTES );
+            position = end;
+        }
+        final byte[] encoded = new byte[position];
+        System.arraycopy( buffer, 0, encoded, 0, position );
+        return encoded;
+    }
+
+
+    static List<PolyValue> decode( byte[] encoded ) {
+        return decode( ByteBuffer.wrap( encoded ), encoded );
+    }
+
+
+    private static List<PolyValue> decode( ByteBuffer wrapper, byte[] encoded ) {
+        final int count = wrapper.getInt();
+        final List<PolyValue> values = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ ) {
+            final int length = wrapper.getInt();
+            values.add( PolyValue.serializer.decode( encoded, wrapper.position() ) );
+            wrapper.position( wrapper.position() + length );
+        }
+        return values;
+    }
+
+
+    private static byte[] encodeSet( Set<List<PolyValue>> primaries ) {
+        final List<byte[]> encoded = new ArrayList<>( primaries.size() );
+        int length = Integer.BYTES;
+        for ( List<PolyValue> primary : primaries ) {
+            final byte[] bytes = encode( primary );
+            encoded.add( bytes );
+            length += bytes.length;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate( length ).putInt( encoded.size() );
+        encoded.forEach( buffer::put );
+        return buffer.array();
+    }
+
+
+    private static Set<List<PolyValue>> decodeSet( byte[] encoded ) {
+        final ByteBuffer wrapper = ByteBuffer.wrap( encoded );
+        final int count = wrapper.getInt();
+        final Set<List<PolyValue>> primaries = new HashSet<>( count );
+        for ( int i = 0; i < count; i++ ) {
+            primaries.add( decode( wrapper, encoded ) );
+        }
+        return primaries;
+    }
+
+
+    private record PendingUpdate( List<PolyValue> key, List<PolyValue> primary, boolean insert ) {
+
+    }
+
+
+    static class Factory implements IndexFactory {
+
+        @Override
+        public boolean canProvide( String method, Boolean unique, Boolean persistent ) {
+            return (method == null || method.equals( "hash" ))
+                    && (persistent == null || persistent);
+        }
+
+
+        @Override
+        public Index create(
+                long id,
+                String name,
+                String method,
+                Boolean unique,
+                Boolean persistent,
+                LogicalNamespace schema,
+                LogicalTable table,
+                List<String> columns,
+                List<String> targetColumns ) {
+            return new PersistentHashIndex( id, name, unique == null || unique, schema, table, columns, targetColumns );
+        }
+
+    }
+
+}
@@ -0,0 +1,527 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.index;
+
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.polypheny.db.algebra.core.Values;
+import org.polypheny.db.algebra.exceptions.ConstraintViolationException;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.catalog.entity.logical.LogicalNamespace;
+import org.polypheny.db.catalog.entity.logical.LogicalTable;
+import org.polypheny.db.rex.RexBuilder;
+import org.polypheny.db.rex.RexLiteral;
+import org.polypheny.db.tools.AlgBuilder;
+import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.util.Pair;
+
+
+/**
+ * Ordered index based on a concurrent skip list, which supports range scans and top-N lookups on its first column in
+ * addition to the point lookups of the hash indexes.
+ * <p>
+ * Keys are ordered lexicographically, null values are ordered after all other values. The committed entries map to
+ * immutable sets of primary keys, so readers never observe a partially applied commit of a key. Uncommitted changes are
+ * kept in sorted per-transaction overlays, which are merged with the committed entries during a scan.
+ */
+public class SkipListIndex extends Index {
+
+    public static final String METHOD = "skiplist";
+
+    static final Comparator<List<PolyValue>> KEY_COMPARATOR = SkipListIndex::compareKeys;
+
+    private final boolean unique;
+    private final ConcurrentSkipListMap<List<PolyValue>, Set<List<PolyValue>>> index = new ConcurrentSkipListMap<>( KEY_COMPARATOR );
+    private volatile boolean initialized = false;
+
+    private final Map<PolyXid, NavigableMap<List<PolyValue>, Set<List<PolyValue>>>> cowIndex = new ConcurrentHashMap<>();
+    private final Map<PolyXid, List<DeferredIndexUpdate>> cowOpLog = new ConcurrentHashMap<>();
+    private final Map<PolyXid, List<Pair<Pair<List<PolyValue>, List<PolyValue>>, Boolean>>> barrierIndex = new ConcurrentHashMap<>();
+
+
+    public SkipListIndex(
+            final long id,
+            final String name,
+            final boolean unique,
+            final LogicalNamespace schema,
+            final LogicalTable table,
+            final List<String> columns,
+            final List<String> targetColumns ) {
+        this.id = id;
+        this.name = name;
+        this.unique = unique;
+        this.schema = schema;
+        this.table = table;
+        this.columns = ImmutableList.copyOf( columns );
+        this.targetColumns = ImmutableList.copyOf( targetColumns );
+    }
+
+
+    @Override
+    public String getMethod() {
+        return METHOD;
+    }
+
+
+    @Override
+    public boolean isUnique() {
+        return unique;
+    }
+
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+
+    @Override
+    public boolean isOrdered() {
+        return true;
+    }
+
+
+    @Override
+    void commit( PolyXid xid ) {
+        begin( xid );
+        if ( !barrierIndex.get( xid ).isEmpty() ) {
+            throw new IllegalStateException( "Attempted index commit without invoking barrier first" );
+        }
+        for ( final DeferredIndexUpdate update : this.cowOpLog.get( xid ) ) {
+            update.execute( this );
+        }
+        rollback( xid );
+    }
+
+
+    @Override
+    public void barrier( PolyXid xid ) {
+        begin( xid );
+        for ( final Pair<Pair<List<PolyValue>, List<PolyValue>>, Boolean> tuple : barrierIndex.get( xid ) ) {
+            postBarrier( xid, tuple.left.left, tuple.left.right, tuple.right );
+        }
+        barrierIndex.get( xid ).clear();
+    }
+
+
+    @Override
+    void rollback( PolyXid xid ) {
+        this.cowIndex.remove( xid );
+        this.cowOpLog.remove( xid );
+        this.barrierIndex.remove( xid );
+    }
+
+
+    protected void begin( PolyXid xid ) {
+        if ( !cowIndex.containsKey( xid ) ) {
+            IndexManager.getInstance().begin( xid, this );
+            cowIndex.put( xid, new TreeMap<>( KEY_COMPARATOR ) );
+            cowOpLog.put( xid, new ArrayList<>() );
+            barrierIndex.put( xid, new ArrayList<>() );
+        }
+    }
+
+
+    @Override
+    public boolean contains( PolyXid xid, List<PolyValue> value ) {
+        return !getVisible( xid, value ).isEmpty();
+    }
+
+
+    @Override
+    public boolean containsAny( PolyXid xid, Iterable<List<PolyValue>> values ) {
+        for ( final List<PolyValue> tuple : values ) {
+            if ( contains( xid, tuple ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    @Override
+    public boolean containsAll( PolyXid xid, Iterable<List<PolyValue>> values ) {
+        for ( final List<PolyValue> tuple : values ) {
+            if ( !contains( xid, tuple ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    public Values getAsValues( PolyXid xid, AlgBuilder builder, AlgDataType rowType ) {
+        return getAsValues( xid, builder, rowType, IndexRange.all() );
+    }
+
+
+    @Override
+    public Values getAsValues( PolyXid xid, AlgBuilder builder, AlgDataType rowType, List<PolyValue> key ) {
+        final RexBuilder rexBuilder = builder.getRexBuilder();
+        final Set<List<PolyValue>> primaries = getVisible( xid, key );
+        final List<ImmutableList<RexLiteral>> tuples = new ArrayList<>( primaries.size() );
+        for ( int i = 0; i < primaries.size(); i++ ) {
+            tuples.add( makeRexRow( rowType, rexBuilder, key ) );
+        }
+        return (Values) builder.values( ImmutableList.copyOf( tuples ), rowType ).build();
+    }
+
+
+    @Override
+    public Values getAsValues( PolyXid xid, AlgBuilder builder, AlgDataType rowType, IndexRange range ) {
+        final RexBuilder rexBuilder = builder.getRexBuilder();
+        final List<ImmutableList<RexLiteral>> tuples = new ArrayList<>();
+        for ( List<PolyValue> key : scan( xid, range ) ) {
+            tuples.add( makeRexRow( rowType, rexBuilder, key ) );
+        }
+        return (Values) builder.values( ImmutableList.copyOf( tuples ), rowType ).build();
+    }
+
+
+    /**
+     * Returns the keys in the range as seen by the transaction, once for every primary key they are mapped to.
+     */
+    List<List<PolyValue>> scan( PolyXid xid, IndexRange range ) {
+        final NavigableMap<List<PolyValue>, Set<List<PolyValue>>> ci = cowIndex.get( xid );
+        final Iterator<Entry<List<PolyValue>, Set<List<PolyValue>>>> committed = restrict( index, range ).entrySet().iterator();
+        final Iterator<Entry<List<PolyValue>, Set<List<PolyValue>>>> changed = ci == null
+                ? Collections.emptyIterator()
+                : restrict( ci, range ).entrySet().iterator();
+        final int direction = range.isDescending() ? -1 : 1;
+
+        final List<List<PolyValue>> keys = new ArrayList<>();
+        Entry<List<PolyValue>, Set<List<PolyValue>>> c = next( committed );
+        Entry<List<PolyValue>, Set<List<PolyValue>>> o = next( changed );
+        while ( (c != null || o != null) && (range.getLimit() < 0 || keys.size() < range.getLimit()) ) {
+            final int cmp = c == null ? 1 : o == null ? -1 : direction * KEY_COMPARATOR.compare( c.getKey(), o.getKey() );
+            final Entry<List<PolyValue>, Set<List<PolyValue>>> entry;
+            if ( cmp < 0 ) {
+                entry = c;
+                c = next( committed );
+            } else {
+                // the overlay of the transaction replaces the committed entry
+                entry = o;
+                if ( cmp == 0 ) {
+                    c = next( committed );
+                }
+                o = next( changed );
+            }
+            for ( int i = 0; i < entry.getValue().size() && (range.getLimit() < 0 || keys.size() < range.getLimit()); i++ ) {
+                keys.add( entry.getKey() );
+            }
+        }
+        return keys;
+    }
+
+
+    private static <T> T next( Iterator<T> iterator ) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+
+    /**
+     * Restricts the map to the range. Keys with a null value in the first column are only part of unbounded ranges,
+     * as no comparison with null is true.
+     */
+    private static NavigableMap<List<PolyValue>, Set<List<PolyValue>>> restrict( NavigableMap<List<PolyValue>, Set<List<PolyValue>>> map, IndexRange range ) {
+        NavigableMap<List<PolyValue>, Set<List<PolyValue>>> restricted = map;
+        if ( range.getLower() != null ) {
+            restricted = restricted.tailMap( new Bound( range.getLower(), !range.isLowerInclusive() ), true );
+        }
+        if ( range.getUpper() != null ) {
+            restricted = restricted.headMap( new Bound( range.getUpper(), range.isUpperInclusive() ), false );
+        } else if ( range.getLower() != null ) {
+            restricted = restricted.headMap( new Bound( null, false ), false );
+        }
+        return range.isDescending() ? restricted.descendingMap() : restricted;
+    }
+
+
+    private Set<List<PolyValue>> getVisible( PolyXid xid, List<PolyValue> key ) {
+        final NavigableMap<List<PolyValue>, Set<List<PolyValue>>> ci = cowIndex.get( xid );
+        if ( ci != null && ci.containsKey( key ) ) {
+            return ci.get( key );
+        }
+        final Set<List<PolyValue>> primaries = index.get( key );
+        return primaries == null ? Collections.emptySet() : primaries;
+    }
+
+
+    @Override
+    Map<List<PolyValue>, Set<List<PolyValue>>> getRaw() {
+        return index;
+    }
+
+
+    @Override
+    protected void clear() {
+        index.clear();
+        cowIndex.clear();
+        cowOpLog.clear();
+        barrierIndex.clear();
+        initialized = false;
+    }
+
+
+    @Override
+    boolean isInitialized() {
+        return initialized;
+    }
+
+
+    @Override
+    void initialize() {
+        initialized = true;
+    }
+
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+
+    @Override
+    public void insertAll( PolyXid xid, final Iterable<Pair<List<PolyValue>, List<PolyValue>>> values ) {
+        begin( xid );
+        List<DeferredIndexUpdate> log = cowOpLog.get( xid );
+        for ( final Pair<List<PolyValue>, List<PolyValue>> row : values ) {
+            _insert( xid, row.getKey(), row.getValue() );
+        }
+        log.add( DeferredIndexUpdate.createInsert( values ) );
+    }
+
+
+    @Override
+    public void insert( PolyXid xid, List<PolyValue> key, List<PolyValue> primary ) {
+        begin( xid );
+        List<DeferredIndexUpdate> log = cowOpLog.get( xid );
+        _insert( xid, key, primary );
+        log.add( DeferredIndexUpdate.createInsert( Collections.singleton( new Pair<>( key, primary ) ) ) );
+    }
+
+
+    protected void _insert( PolyXid xid, List<PolyValue> key, List<PolyValue> primary ) {
+        barrierIndex.get( xid ).add( new Pair<>( new Pair<>( key, primary ), true ) );
+    }
+
+
+    protected void postBarrier( PolyXid xid, List<PolyValue> key, List<PolyValue> primary, boolean insert ) {
+        final NavigableMap<List<PolyValue>, Set<List<PolyValue>>> idx = cowIndex.get( xid );
+        final Set<List<PolyValue>> primaries = idx.computeIfAbsent( key, k -> new HashSet<>( index.getOrDefault( k, Collections.emptySet() ) ) );
+        if ( insert ) {
+            if ( unique && !primaries.isEmpty() ) {
+                throw new ConstraintViolationException(
+                        String.format( "Attempt to add duplicate key [%s] to unique index %s", key, name )
+                );
+            }
+            primaries.add( primary );
+        } else if ( primary == null || unique ) {
+            primaries.clear();
+        } else {
+            primaries.remove( primary );
+        }
+    }
+
+
+    @Override
+    void insert( List<PolyValue> key, List<PolyValue> primary ) {
+        index.compute( key, ( k, primaries ) -> primaries == null || unique
+                ? ImmutableSet.of( primary )
+                : ImmutableSet.<List<PolyValue>>builder().addAll( primaries ).add( primary ).build() );
+    }
+
+
+    @Override
+    public void delete( PolyXid xid, List<PolyValue> key ) {
+        begin( xid );
+        List<DeferredIndexUpdate> log = cowOpLog.get( xid );
+
+        _delete( xid, key, null );
+        log.add( DeferredIndexUpdate.createDelete( Collections.singleton( key ) ) );
+    }
+
+
+    @Override
+    public void deletePrimary( PolyXid xid, List<PolyValue> key, List<PolyValue> primary ) {
+        begin( xid );
+        List<DeferredIndexUpdate> log = cowOpLog.get( xid );
+
+        _delete( xid, key, primary );
+        log.add( DeferredIndexUpdate.createDeletePrimary( Collections.singleton( new Pair<>( key, primary ) ) ) );
+    }
+
+
+    @Override
+    public void deleteAllPrimary( PolyXid xid, final Iterable<Pair<List<PolyValue>, List<PolyValue>>> values ) {
+        begin( xid );
+        List<DeferredIndexUpdate> log = cowOpLog.get( xid );
+
+        for ( final Pair<List<PolyValue>, List<PolyValue>> value : values ) {
+            _delete( xid, value.left, value.right );
+        }
+        log.add( DeferredIndexUpdate.createDeletePrimary( values ) );
+    }
+
+
+    @Override
+    public void deleteAll( PolyXid xid, final Iterable<List<PolyValue>> values ) {
+        begin( xid );
+        List<DeferredIndexUpdate> log = cowOpLog.get( xid );
+
+        for ( final List<PolyValue> value : values ) {
+            _delete( xid, value, null );
+        }
+        log.add( DeferredIndexUpdate.createDelete( values ) );
+    }
+
+
+    protected void _delete( PolyXid xid, List<PolyValue> key, List<PolyValue> primary ) {
+        barrierIndex.get( xid ).add( new Pair<>( new Pair<>( key, primary ), false ) );
+    }
+
+
+    @Override
+    void delete( List<PolyValue> key ) {
+        index.remove( key );
+    }
+
+
+    @Override
+    void deletePrimary( List<PolyValue> key, List<PolyValue> primary ) {
+        if ( unique ) {
+            index.remove( key );
+            return;
+        }
+        index.computeIfPresent( key, ( k, primaries ) -> {
+            if ( !primaries.contains( primary ) ) {
+                return primaries;
+            }
+            final Set<List<PolyValue>> remaining = new HashSet<>( primaries );
+            remaining.remove( primary );
+            return remaining.isEmpty() ? null : ImmutableSet.copyOf( remaining );
+        } );
+    }
+
+
+    private static boolean isNull( PolyValue value ) {
+        return value == null || value.isNull();
+    }
+
+
+    private static int compareValues( PolyValue a, PolyValue b ) {
+        if ( isNull( a ) || isNull( b ) ) {
+            return Boolean.compare( isNull( a ), isNull( b ) );
+        }
+        return a.compareTo( b );
+    }
+
+
+    private static int compareKeys( List<PolyValue> a, List<PolyValue> b ) {
+        final int length = Math.min( a.size(), b.size() );
+        for ( int i = 0; i < length; i++ ) {
+            final int cmp = compareValues( a.get( i ), b.get( i ) );
+            if ( cmp != 0 ) {
+                return cmp;
+            }
+        }
+        // a bound on the first column is placed before or after all keys with this value
+        if ( a instanceof Bound bound ) {
+            return bound.after ? 1 : -1;
+        }
+        if ( b instanceof Bound bound ) {
+            return bound.after ? -1 : 1;
+        }
+        return Integer.compare( a.size(), b.size() );
+    }
+
+
+    /**
+     * Search key for a value of the first column, which is ordered before or after all keys starting with this value.
+     */
+    private static class Bound extends AbstractList<PolyValue> {
+
+        private final PolyValue value;
+        private final boolean after;
+
+
+        private Bound( PolyValue value, boolean after ) {
+            this.value = value;
+            this.after = after;
+        }
+
+
+        @Override
+        public PolyValue get( int index ) {
+            if ( index != 0 ) {
+                throw new IndexOutOfBoundsException( index );
+            }
+            return value;
+        }
+
+
+        @Override
+        public int size() {
+            return 1;
+        }
+
+    }
+
+
+    static class Factory implements IndexFactory {
+
+        @Override
+        public boolean canProvide( String method, Boolean unique, Boolean persistent ) {
+            return METHOD.equals( method )
+                    && (persistent == null || !persistent);
+        }
+
+
+        @Override
+        public Index create(
+                long id,
+                String name,
+                String method,
+                Boolean unique,
+                Boolean persistent,
+                LogicalNamespace schema,
+                LogicalTable table,
+                List<String> columns,
+                List<String> targetColumns ) {
+            return new SkipListIndex( id, name, unique == null || unique, schema, table, columns, targetColumns );
+        }
+
+    }
+
+}
@@ -137,10 +137,14 @@ public abstract class AbstractAlgNode implements AlgNode {
      * The AlgTraitSet that describes the traits of this AlgNode.
      * Setter is used to set the cluster in Views
      */
-    @Setter
     @Getter
     protected AlgTraitSet traitSet;
 
+    /**
+     * Structural fingerprint, computed once by {@link #getFingerprint()} and reset if this node is changed.
+     */
+    private transient volatile AlgFingerprint fingerprint;
+
 
     /**
      * Creates an <code>AbstractAlgNode</code>.
@@ -372,6 +376,8 @@ public AlgNode onRegister( AlgPlanner planner ) {
 
     @Override
     public String recomputeDigest() {
+        // Planners recompute the digests of changed nodes and their parents, which changes their fingerprints as well
+        resetFingerprint();
         String tempDigest = computeDigest();
         assert tempDigest != null : "computeDigest() should be non-null";
 
@@ -455,6 +461,130 @@ protected void explain_( AlgNode alg, List<Pair<String, Object>> values ) {
     }
 
 
+    public void setTraitSet( AlgTraitSet traitSet ) {
+        this.traitSet = traitSet;
+        resetFingerprint();
+    }
+
+
+    /**
+     * Returns the fingerprint of this node. It is computed on the first call, from the fingerprints of the inputs, and
+     * returned by all further calls without visiting the inputs again. Nodes whose inputs are replaced reset their
+     * fingerprint, trees must not be changed below a node whose fingerprint has been taken otherwise.
+     */
+    @Override
+    public AlgFingerprint getFingerprint() {
+        AlgFingerprint cached = fingerprint;
+        if ( cached == null ) {
+            List<AlgNode> inputs = getInputs();
+            List<AlgFingerprint> inputFingerprints = new ArrayList<>( inputs.size() );
+            for ( AlgNode input : inputs ) {
+                inputFingerprints.add( input.getFingerprint() );
+            }
+            cached = AlgFingerprint.of( computeFingerprintDescriptor(), inputFingerprints );
+            fingerprint = cached;
+        }
+        return cached;
+    }
+
+
+    /**
+     * Discards the fingerprint of this node, which has to be called if the node is changed.
+     */
+    protected void resetFingerprint() {
+        fingerprint = null;
+    }
+
+
+    /**
+     * Computes the description of this node which is used for its {@link AlgFingerprint}. In contrast to the digest,
+     * inputs are left out, as they are represented by their own fingerprints.
+     * Does not modify this object.
+     *
+     * @return Description of this node without its inputs
+     */
+    protected String computeFingerprintDescriptor() {
+        StringBuilder sb = new StringBuilder( getClass().getName() );
+        for ( AlgTrait<?> trait : traitSet ) {
+            sb.append( "." ).append( trait );
+        }
+        sb.append( "(" );
+        explainTerms( new FingerprintWriter( sb ) );
+        return sb.append( "):" ).append( getTupleType().getFullTypeString() ).toString();
+    }
+
+
+    /**
+     * Lightweight {@link AlgWriter} which only collects the attributes of a single node.
+     */
+    private static class FingerprintWriter implements AlgWriter {
+
+        private final StringBuilder sb;
+        private int terms = 0;
+
+
+        private FingerprintWriter( StringBuilder sb ) {
+            this.sb = sb;
+        }
+
+
+        @Override
+        public void explain( AlgNode alg, List<Pair<String, Object>> valueList ) {
+            for ( Pair<String, Object> value : valueList ) {
+                item( value.left, value.right );
+            }
+        }
+
+
+        @Override
+        public ExplainLevel getDetailLevel() {
+            return ExplainLevel.DIGEST_ATTRIBUTES;
+        }
+
+
+        @Override
+        public AlgWriter input( String term, AlgNode input ) {
+            // inputs are part of the fingerprint on their own
+            return this;
+        }
+
+
+        @Override
+        public AlgWriter item( String term, Object value ) {
+            if ( value instanceof AlgNode ) {
+                return this;
+            }
+            if ( terms++ > 0 ) {
+                sb.append( "," );
+            }
+            sb.append( term ).append( "=" ).append( value );
+            return this;
+        }
+
+
+        @Override
+        public AlgWriter itemIf( String term, Object value, boolean condition ) {
+            if ( condition ) {
+                item( term, value );
+            }
+            return this;
+        }
+
+
+        @Override
+        public AlgWriter done( AlgNode node ) {
+            return this;
+        }
+
+
+        @Override
+        public boolean nest() {
+            return false;
+        }
+
+    }
+
+
     public static class AlgComparatorBuilder extends AlgShuttleImpl implements RexVisitor<String> {
 
 
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.algebra;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import lombok.Getter;
+
+
+/**
+ * Structural fingerprint of an {@link AlgNode} tree.
+ * <p>
+ * A fingerprint consists of a 128-bit hash, which is computed incrementally from the local descriptor of a node
+ * and the fingerprints of its inputs, plus the descriptors themselves. Two fingerprints are only considered equal if their
+ * hashes match <b>and</b> the trees are structurally equal, which makes them safe to use as cache keys even in the
+ * (unlikely) presence of hash collisions.
+ * <p>
+ * Fingerprints are immutable and do not reference the {@link AlgNode} they were created for, so they can be kept in
+ * caches without retaining clusters or planners.
+ */
+public final class AlgFingerprint {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    @Getter
+    private final long high;
+    @Getter
+    private final long low;
+
+    private final String descriptor;
+    private final AlgFingerprint[] inputs;
+
+
+    private AlgFingerprint( long high, long low, String descriptor, AlgFingerprint[] inputs ) {
+        this.high = high;
+        this.low = low;
+        this.descriptor = descriptor;
+        this.inputs = inputs;
+    }
+
+
+    /**
+     * Creates the fingerprint of a node.
+     *
+     * @param descriptor Description of the node itself, without its inputs
+     * @param inputs Fingerprints of the inputs of the node
+     */
+    public static AlgFingerprint of( String descriptor, List<AlgFingerprint> inputs ) {
+        Hasher hasher = HASH_FUNCTION.newHasher()
+                .putUnencodedChars( descriptor )
+                .putInt( inputs.size() );
+        for ( AlgFingerprint input : inputs ) {
+            hasher.putLong( input.high ).putLong( input.low );
+        }
+        ByteBuffer hash = ByteBuffer.wrap( hasher.hash().asBytes() ).order( ByteOrder.LITTLE_ENDIAN );
+        return new AlgFingerprint( hash.getLong( 0 ), hash.getLong( 8 ), descriptor, inputs.toArray( new AlgFingerprint[0] ) );
+    }
+
+
+    /**
+     * Compares the two trees node by node. Only called if the hashes already match.
+     */
+    private boolean structurallyEquals( AlgFingerprint other ) {
+        if ( this == other ) {
+            return true;
+        }
+        if ( high != other.high || low != other.low || inputs.length != other.inputs.length || !descriptor.equals( other.descriptor ) ) {
+            return false;
+        }
+        for ( int i = 0; i < inputs.length; i++ ) {
+            if ( !inputs[i].structurallyEquals( other.inputs[i] ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    public boolean equals( Object obj ) {
+        return obj == this
+                || obj instanceof AlgFingerprint other
+                && structurallyEquals( other );
+    }
+
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode( high ^ low );
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format( "%016x%016x", high, low );
+    }
+
+}
@@ -337,6 +337,12 @@ public interface AlgNode extends AlgOptNode, Cloneable {
      */
     String algCompareString();
 
+    /**
+     * Returns the structural fingerprint of the tree rooted at this node. In contrast to {@link #algCompareString()},
+     * the fingerprint is computed once per node, further calls neither visit the tree nor build strings.
+     */
+    AlgFingerprint getFingerprint();
+
     /**
      * For optimized trees. Returns whether the involved operators support implementation caching. Default is true.
      * Only override if you need to set this to false.
@@ -98,6 +98,7 @@ public AlgWriter explainTerms( AlgWriter pw ) {
     public void replaceInput( int ordinalInParent, AlgNode alg ) {
         assert ordinalInParent == 0;
         this.input = alg;
+        resetFingerprint();
     }
 
 
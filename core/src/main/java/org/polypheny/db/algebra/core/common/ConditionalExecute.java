@@ -83,6 +83,8 @@ protected AlgDataType deriveRowType() {
     public AlgWriter explainTerms( AlgWriter pw ) {
         return super.explainTerms( pw )
                 .item( "condition", condition )
+                .item( "exceptionClass", exceptionClass.getSimpleName() )
+                .itemIf( "exceptionMessage", exceptionMessage, exceptionMessage != null )
                 .itemIf( "check", checkDescription, checkDescription != null );
 //        pw.item( "schema", catalogNamespace == null ? "null" : catalogNamespace.name );
 //        pw.item( "table", catalogEntity == null ? "null" : catalogEntity.name );
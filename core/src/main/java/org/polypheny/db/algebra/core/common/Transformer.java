@@ -24,6 +24,7 @@
 import org.polypheny.db.algebra.AbstractAlgNode;
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.algebra.AlgVisitor;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.core.Union;
 import org.polypheny.db.algebra.core.lpg.LpgScan;
 import org.polypheny.db.algebra.core.relational.RelScan;
@@ -91,6 +92,15 @@ public void childrenAccept( AlgVisitor visitor ) {
     public void replaceInput( int ordinalInParent, AlgNode p ) {
         assert ordinalInParent < inputs.size();
         this.inputs.set( ordinalInParent, p );
+        resetFingerprint();
+    }
+
+
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "in", inModelTrait )
+                .item( "out", outModelTrait );
     }
 
 
@@ -24,6 +24,7 @@
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.SingleAlg;
 import org.polypheny.db.algebra.core.LaxAggregateCall;
 import org.polypheny.db.algebra.type.AlgDataType;
@@ -61,6 +62,14 @@ public Optional<RexNameRef> getGroup() {
     }
 
 
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "group", group )
+                .item( "aggs", aggCalls );
+    }
+
+
     @Override
     public String algCompareString() {
         return this.getClass().getSimpleName() + "$" +
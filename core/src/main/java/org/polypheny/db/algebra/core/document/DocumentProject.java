@@ -25,6 +25,7 @@
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.SingleAlg;
 import org.polypheny.db.algebra.operators.OperatorName;
 import org.polypheny.db.algebra.type.DocumentType;
@@ -61,6 +62,14 @@ protected DocumentProject( AlgCluster cluster, AlgTraitSet traits, AlgNode input
     }
 
 
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "includes", includes )
+                .item( "excludes", excludes );
+    }
+
+
     @Override
     public String algCompareString() {
         return "$" + getClass().getSimpleName() + "$" + includes.hashCode() + "$" + excludes.hashCode() + getInput().algCompareString();
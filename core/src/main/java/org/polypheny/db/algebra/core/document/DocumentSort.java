@@ -25,6 +25,7 @@
 import org.polypheny.db.algebra.AlgCollations;
 import org.polypheny.db.algebra.AlgFieldCollation;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.SingleAlg;
 import org.polypheny.db.plan.AlgCluster;
 import org.polypheny.db.plan.AlgTraitSet;
@@ -62,6 +63,16 @@ public DocumentSort( AlgCluster cluster, AlgTraitSet traits, AlgNode child, AlgC
     }
 
 
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "sort", fieldExps )
+                .item( "collation", collation )
+                .itemIf( "offset", offset, offset != null )
+                .itemIf( "fetch", fetch, fetch != null );
+    }
+
+
     @Override
     public String algCompareString() {
         return this.getClass().getSimpleName() + "$" +
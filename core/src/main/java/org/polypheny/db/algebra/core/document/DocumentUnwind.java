@@ -20,6 +20,7 @@
 import lombok.Value;
 import lombok.experimental.NonFinal;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.SingleAlg;
 import org.polypheny.db.plan.AlgCluster;
 import org.polypheny.db.plan.AlgTraitSet;
@@ -39,6 +40,13 @@ protected DocumentUnwind( AlgCluster cluster, AlgTraitSet traits, AlgNode input,
     }
 
 
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "path", path );
+    }
+
+
     @Override
     public String algCompareString() {
         return getClass().getSimpleName() + "$"
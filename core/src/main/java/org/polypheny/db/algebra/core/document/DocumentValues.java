@@ -25,6 +25,7 @@
 import org.bson.types.ObjectId;
 import org.polypheny.db.algebra.AbstractAlgNode;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.logical.relational.LogicalRelValues;
 import org.polypheny.db.algebra.type.AlgDataTypeFactory;
 import org.polypheny.db.algebra.type.DocumentType;
@@ -116,6 +117,14 @@ protected static ImmutableList<ImmutableList<RexLiteral>> relationalize( List<Po
     }
 
 
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .itemIf( "documents", documents, dynamicDocuments == null )
+                .itemIf( "dynamicDocuments", dynamicDocuments, dynamicDocuments != null );
+    }
+
+
     @Override
     public String algCompareString() {
         return getClass().getCanonicalName() + "$"
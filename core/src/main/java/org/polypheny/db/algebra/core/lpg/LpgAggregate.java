@@ -21,6 +21,7 @@
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.SingleAlg;
 import org.polypheny.db.algebra.core.LaxAggregateCall;
 import org.polypheny.db.algebra.type.AlgDataType;
@@ -53,6 +54,14 @@ protected LpgAggregate( AlgCluster cluster, AlgTraitSet traits, AlgNode child, @
     }
 
 
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "groups", groups )
+                .item( "aggs", aggCalls );
+    }
+
+
     @Override
     public String algCompareString() {
         return this.getClass().getSimpleName() + "$" +
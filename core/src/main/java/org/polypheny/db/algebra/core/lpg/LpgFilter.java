@@ -19,6 +19,7 @@
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.SingleAlg;
 import org.polypheny.db.plan.AlgCluster;
 import org.polypheny.db.plan.AlgTraitSet;
@@ -44,6 +45,13 @@ protected LpgFilter( AlgCluster cluster, AlgTraitSet traits, AlgNode input, @Not
     }
 
 
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "condition", condition );
+    }
+
+
     @Override
     public String algCompareString() {
         return getClass().getSimpleName() + "$"
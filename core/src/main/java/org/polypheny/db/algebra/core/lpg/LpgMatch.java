@@ -21,6 +21,7 @@
 import java.util.stream.Collectors;
 import lombok.Getter;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.SingleAlg;
 import org.polypheny.db.algebra.logical.lpg.LogicalLpgMatch;
 import org.polypheny.db.algebra.type.AlgDataType;
@@ -68,6 +69,14 @@ protected AlgDataType deriveRowType() {
     }
 
 
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "matches", matches )
+                .item( "names", names );
+    }
+
+
     @Override
     public String algCompareString() {
         return getClass().getSimpleName() + "$" +
@@ -21,6 +21,7 @@
 import java.util.stream.Collectors;
 import lombok.Getter;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.SingleAlg;
 import org.polypheny.db.algebra.type.AlgDataType;
 import org.polypheny.db.algebra.type.AlgDataTypeField;
@@ -52,6 +53,14 @@ protected LpgProject( AlgCluster cluster, AlgTraitSet traits, AlgNode input, Lis
     }
 
 
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "projects", projects )
+                .item( "names", names );
+    }
+
+
     @Override
     public String algCompareString() {
         return "$" + getClass().getSimpleName() +
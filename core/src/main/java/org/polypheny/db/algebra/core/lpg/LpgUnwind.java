@@ -21,6 +21,7 @@
 import java.util.List;
 import javax.annotation.Nullable;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.SingleAlg;
 import org.polypheny.db.algebra.logical.lpg.LogicalLpgProject;
 import org.polypheny.db.algebra.operators.OperatorName;
@@ -72,6 +73,14 @@ private static AlgNode adjustInputIfNecessary( AlgNode input, int index ) {
     }
 
 
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "index", index )
+                .itemIf( "alias", alias, alias != null );
+    }
+
+
     @Override
     public String algCompareString() {
         return getClass().getSimpleName() + "$"
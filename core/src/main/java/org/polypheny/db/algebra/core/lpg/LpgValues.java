@@ -20,6 +20,7 @@
 import java.util.Collection;
 import lombok.Getter;
 import org.polypheny.db.algebra.AbstractAlgNode;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.type.AlgDataType;
 import org.polypheny.db.plan.AlgCluster;
 import org.polypheny.db.plan.AlgTraitSet;
@@ -55,6 +56,15 @@ public NodeType getNodeType() {
     }
 
 
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "nodes", nodes )
+                .item( "edges", edges )
+                .item( "values", values );
+    }
+
+
     @Override
     public String algCompareString() {
         return getClass().getSimpleName() + "$"
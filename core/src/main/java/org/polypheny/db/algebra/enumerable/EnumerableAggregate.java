@@ -50,6 +50,7 @@
 import org.apache.calcite.linq4j.tree.Expressions;
 import org.apache.calcite.linq4j.tree.ParameterExpression;
 import org.apache.calcite.linq4j.tree.Types;
+import org.polypheny.db.adapter.DataContext;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
 import org.polypheny.db.algebra.AlgCollations;
 import org.polypheny.db.algebra.AlgNode;
@@ -67,6 +68,7 @@
 import org.polypheny.db.prepare.JavaTypeFactoryImpl.SyntheticRecordType;
 import org.polypheny.db.rex.RexIndexRef;
 import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.runtime.spill.MemoryBudget;
 import org.polypheny.db.util.BuiltInMethod;
 import org.polypheny.db.util.ImmutableBitSet;
 import org.polypheny.db.util.Pair;
@@ -115,6 +117,13 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         final Result result = implementor.visitChild( this, 0, child, pref );
         Expression childExp = builder.append( "child", result.block() );
 
+        if ( RuntimeConfig.VECTORIZED_EXECUTION.getBoolean() ) {
+            final Result vectorized = EnumerableVectorizer.implementAggregate( implementor, this, builder, childExp, result.physType() );
+            if ( vectorized != null ) {
+                return vectorized;
+            }
+        }
+
         final PhysType physType = PhysTypeImpl.of( typeFactory, getTupleType(), pref.preferCustom() );
 
         // final Enumerable<Employee> child = <<child adapter>>;
@@ -359,6 +368,21 @@ public RexToLixTranslator rowTranslator() {
                                     inputPhysType.convertTo( childExp, physType ),
                                     BuiltInMethod.DISTINCT.method,
                                     Expressions.<Expression>list().appendIfNotNull( physType.comparer() ) ) ) );
+        } else if ( MemoryBudget.isSpillingEnabled() && keyPhysType.comparer() == null && (result.format() == JavaTupleFormat.ARRAY || result.format() == JavaTupleFormat.SCALAR) ) {
+            // Aggregate groups, which exceed the memory budget of the statement, from disk
+            final Expression keySelector_ = builder.append( "keySelector", inputPhysType.generateSelector( parameter, groupSet.asList(), keyPhysType.getFormat() ) );
+            final Expression resultSelector_ = builder.append( "resultSelector", Expressions.lambda( Function2.class, resultBlock.toBlock(), key_, acc_ ) );
+            builder.add(
+                    Expressions.return_(
+                            null,
+                            Expressions.call(
+                                    BuiltInMethod.SPILLING_GROUP_BY.method,
+                                    DataContext.ROOT,
+                                    childExp,
+                                    keySelector_,
+                                    Expressions.call( lambdaFactory, BuiltInMethod.AGG_LAMBDA_FACTORY_ACC_INITIALIZER.method ),
+                                    Expressions.call( lambdaFactory, BuiltInMethod.AGG_LAMBDA_FACTORY_ACC_ADDER.method ),
+                                    Expressions.call( lambdaFactory, BuiltInMethod.AGG_LAMBDA_FACTORY_ACC_RESULT_SELECTOR.method, resultSelector_ ) ) ) );
         } else {
             final Expression keySelector_ = builder.append( "keySelector", inputPhysType.generateSelector( parameter, groupSet.asList(), keyPhysType.getFormat() ) );
             final Expression resultSelector_ = builder.append( "resultSelector", Expressions.lambda( Function2.class, resultBlock.toBlock(), key_, acc_ ) );
@@ -100,6 +100,7 @@ public class EnumerableAlgImplementor extends JavaAlgImplementor {
     protected final Function1<String, RexToLixTranslator.InputGetter> allCorrelateVariables = this::getCorrelVariableGetter;
 
     private int contextCounter = -1;
+    private int nameCounter = 0;
 
 
     public EnumerableAlgImplementor( RexBuilder rexBuilder, Map<String, Object> internalParameters ) {
@@ -119,6 +120,15 @@ public int increaseContext() {
     }
 
 
+    /**
+     * Returns a variable name starting with the given prefix, which is unique within the generated class.
+     * The names are numbered in the order of their creation, hence the same plan always generates the same code.
+     */
+    public String uniqueName( String prefix ) {
+        return prefix + nameCounter++;
+    }
+
+
     public ClassDeclaration implementRoot( EnumerableAlg rootAlg, EnumerableAlg.Prefer prefer ) {
         EnumerableAlg.Result result = rootAlg.implement( this, prefer );
 
@@ -58,6 +58,7 @@
 import org.polypheny.db.algebra.metadata.AlgMdCollation;
 import org.polypheny.db.algebra.metadata.AlgMdDistribution;
 import org.polypheny.db.algebra.metadata.AlgMetadataQuery;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.plan.AlgCluster;
 import org.polypheny.db.plan.AlgOptCost;
 import org.polypheny.db.plan.AlgOptPredicateList;
@@ -146,6 +147,13 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         final RexSimplify simplify = new RexSimplify( rexBuilder, predicates, RexUtil.EXECUTOR );
         final RexProgram program = this.program.normalize( rexBuilder, simplify );
 
+        if ( RuntimeConfig.VECTORIZED_EXECUTION.getBoolean() ) {
+            final Result vectorized = EnumerableVectorizer.implementCalc( implementor, this, program, builder, result );
+            if ( vectorized != null ) {
+                return vectorized;
+            }
+        }
+
         BlockStatement moveNextBody;
         if ( program.getCondition() == null ) {
             moveNextBody = Blocks.toFunctionBlock( Expressions.call( inputEnumerator, BuiltInMethod.ENUMERATOR_MOVE_NEXT.method ) );
@@ -184,7 +192,7 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         builder3.add( Expressions.return_( null, physType.record( expressions ) ) );
         BlockStatement currentBody = builder3.toBlock();
 
-        final Expression inputEnumerable = builder.append( builder.newName( "inputEnumerable" + System.nanoTime() ), result.block(), false );
+        final Expression inputEnumerable = builder.append( implementor.uniqueName( "inputEnumerable" ), result.block(), false );
         final Expression body;
 
         body = Expressions.new_(
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.algebra.enumerable;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Ord;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.core.Union;
+import org.polypheny.db.algebra.metadata.AlgMetadataQuery;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.plan.AlgCluster;
+import org.polypheny.db.plan.AlgOptCost;
+import org.polypheny.db.plan.AlgPlanner;
+import org.polypheny.db.plan.AlgTraitSet;
+import org.polypheny.db.runtime.parallel.ParallelExecution;
+import org.polypheny.db.util.BuiltInMethod;
+
+
+/**
+ * Exchange operator in {@link EnumerableConvention enumerable calling convention}, which concatenates its inputs like a
+ * {@link EnumerableUnion UNION ALL}, but enumerates them concurrently. The inputs are typically the partitions of a
+ * partitioned table, possibly aggregated partially.
+ */
+public class EnumerableGather extends Union implements EnumerableAlg {
+
+    public EnumerableGather( AlgCluster cluster, AlgTraitSet traitSet, List<AlgNode> inputs ) {
+        super( cluster, traitSet, inputs, true );
+    }
+
+
+    @Override
+    public EnumerableGather copy( AlgTraitSet traitSet, List<AlgNode> inputs, boolean all ) {
+        assert all;
+        return new EnumerableGather( getCluster(), traitSet, inputs );
+    }
+
+
+    @Override
+    public AlgOptCost computeSelfCost( AlgPlanner planner, AlgMetadataQuery mq ) {
+        // The inputs produce their tuples concurrently, but each of them has to compensate the overhead of its thread
+        final double tupleCount = mq.getTupleCount( this );
+        final int parallelism = Math.min( inputs.size(), ParallelExecution.degreeOfParallelism() );
+        final double cost = tupleCount / parallelism + inputs.size() * (double) RuntimeConfig.PARALLEL_EXECUTION_THRESHOLD.getInteger();
+        return planner.getCostFactory().makeCost( cost, cost, 0 );
+    }
+
+
+    @Override
+    public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
+        final BlockBuilder builder = new BlockBuilder();
+        final List<Expression> childExps = new ArrayList<>();
+        for ( Ord<AlgNode> ord : Ord.zip( inputs ) ) {
+            EnumerableAlg input = (EnumerableAlg) ord.e;
+            final Result result = implementor.visitChild( this, ord.i, input, pref );
+            // Every input gets its own enumerable, as they are enumerated by different threads
+            childExps.add( builder.append( implementor.uniqueName( "child" + ord.i ), result.block(), false ) );
+        }
+
+        builder.add(
+                Expressions.call(
+                        BuiltInMethod.GATHER.method,
+                        Expressions.newArrayInit( Enumerable.class, childExps ) ) );
+        final PhysType physType =
+                PhysTypeImpl.of(
+                        implementor.getTypeFactory(),
+                        getTupleType(),
+                        pref.prefer( JavaTupleFormat.CUSTOM ) );
+        return implementor.result( physType, builder.toBlock() );
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.algebra.enumerable;
+
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.convert.ConverterRule;
+import org.polypheny.db.algebra.logical.relational.LogicalRelUnion;
+import org.polypheny.db.algebra.metadata.AlgMetadataQuery;
+import org.polypheny.db.catalog.entity.allocation.AllocationEntity;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.plan.AlgOptRuleCall;
+import org.polypheny.db.plan.AlgTraitSet;
+import org.polypheny.db.plan.Convention;
+import org.polypheny.db.rex.RexTableIndexRef.AlgTableRef;
+
+
+/**
+ * Rule to convert a {@link LogicalRelUnion UNION ALL} to an {@link EnumerableGather}, if parallel execution is enabled.
+ * The planner chooses between the gather and the {@link EnumerableUnion} by their costs.
+ * <p>
+ * An adapter uses one connection per transaction, which must not be used by several threads at once. Hence, the inputs
+ * are only gathered if no two of them read from the same adapter. Giving every input its own connection is not an
+ * option, as a connection of another transaction neither sees the uncommitted changes of the query's transaction nor
+ * takes part in its commit. Partitions of a table, which are all placed on the same store, are therefore still read
+ * one after the other; only partitions placed on different stores are read concurrently.
+ */
+public class EnumerableGatherRule extends ConverterRule {
+
+    EnumerableGatherRule() {
+        super( LogicalRelUnion.class, Convention.NONE, EnumerableConvention.INSTANCE, "EnumerableGatherRule" );
+    }
+
+
+    @Override
+    public boolean matches( AlgOptRuleCall call ) {
+        final LogicalRelUnion union = call.alg( 0 );
+        return union.all
+                && union.getInputs().size() > 1
+                && RuntimeConfig.PARALLEL_EXECUTION.getBoolean()
+                && readDistinctAdapters( union.getInputs(), call.getMetadataQuery() );
+    }
+
+
+    /**
+     * Returns whether every adapter is read by at most one of the inputs. Inputs, whose entities are unknown, are
+     * assumed to share adapters.
+     */
+    static boolean readDistinctAdapters( List<AlgNode> inputs, AlgMetadataQuery mq ) {
+        final Set<Long> adapters = new HashSet<>();
+        for ( AlgNode input : inputs ) {
+            final Set<AlgTableRef> references = mq.getTableReferences( input );
+            if ( references == null ) {
+                return false;
+            }
+            final Set<Long> inputAdapters = new HashSet<>();
+            for ( AlgTableRef reference : references ) {
+                Optional<AllocationEntity> allocation = reference.getTable().unwrap( AllocationEntity.class );
+                if ( allocation.isEmpty() ) {
+                    return false;
+                }
+                inputAdapters.add( allocation.get().adapterId );
+            }
+            if ( !Collections.disjoint( adapters, inputAdapters ) ) {
+                return false;
+            }
+            adapters.addAll( inputAdapters );
+        }
+        return true;
+    }
+
+
+    @Override
+    public AlgNode convert( AlgNode alg ) {
+        final LogicalRelUnion union = (LogicalRelUnion) alg;
+        final EnumerableConvention out = EnumerableConvention.INSTANCE;
+        final AlgTraitSet traitSet = union.getTraitSet().replace( out );
+        return new EnumerableGather( alg.getCluster(), traitSet, convertList( union.getInputs(), out ) );
+    }
+
+}
@@ -34,10 +34,19 @@
 package org.polypheny.db.algebra.enumerable;
 
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import java.io.IOException;
 import java.io.StringReader;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.calcite.avatica.Helper;
 import org.apache.calcite.linq4j.AbstractEnumerable;
@@ -45,6 +54,8 @@
 import org.apache.calcite.linq4j.Enumerator;
 import org.apache.calcite.linq4j.tree.ClassDeclaration;
 import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.FieldDeclaration;
+import org.apache.calcite.linq4j.tree.VisitorImpl;
 import org.codehaus.commons.compiler.CompileException;
 import org.codehaus.commons.compiler.CompilerFactoryFactory;
 import org.codehaus.commons.compiler.IClassBodyEvaluator;
@@ -53,6 +64,7 @@
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.algebra.convert.ConverterImpl;
 import org.polypheny.db.algebra.enumerable.EnumerableAlg.Prefer;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
 import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.interpreter.BindableConvention;
 import org.polypheny.db.interpreter.Compiler;
@@ -85,11 +97,29 @@
 @Slf4j
 public class EnumerableInterpretable extends ConverterImpl implements InterpretableAlg {
 
+    private static final HashFunction HASH_FUNCTION = Hashing.sha256();
+    private static final AtomicLong COMPILATIONS = new AtomicLong();
+
+    /**
+     * Compiled classes by the hash of their source. As the generated code is deterministic, identical plans share
+     * their compiled class, even if they are not cached by the implementation cache.
+     */
+    private static volatile Cache<String, Class<?>> classCache;
+
+
     protected EnumerableInterpretable( AlgCluster cluster, AlgNode input ) {
         super( cluster, ConventionTraitDef.INSTANCE, cluster.traitSetOf( InterpretableConvention.INSTANCE ), input );
     }
 
 
+    /**
+     * Creates a node which compiles the enumerable input, so that it can be part of an interpreted plan.
+     */
+    public static EnumerableInterpretable create( AlgNode input ) {
+        return new EnumerableInterpretable( input.getCluster(), input );
+    }
+
+
     @Override
     public EnumerableInterpretable copy( AlgTraitSet traitSet, List<AlgNode> inputs ) {
         return new EnumerableInterpretable( getCluster(), sole( inputs ) );
@@ -103,6 +133,7 @@ public Node implement( final InterpreterImplementor implementor ) {
                 (EnumerableAlg) getInput(),
                 Prefer.ARRAY,
                 implementor.dataContext.getStatement() ).left;
+        implementor.dataContext.addAll( implementor.internalParameters );
         final ArrayBindable<PolyValue> arrayBindable = box( bindable );
         final Enumerable<PolyValue[]> enumerable = arrayBindable.bind( implementor.dataContext );
         return new EnumerableNode( enumerable, implementor.compiler, this );
@@ -133,6 +164,51 @@ public static <T> Pair<Bindable<T>, String> toBindable(
 
 
     static <T> Bindable<T> getBindable( ClassDeclaration expr, String s, int fieldCount ) throws CompileException, IOException {
+        if ( RuntimeConfig.COMPILED_CLASS_CACHING_SIZE.getInteger() == 0 || RuntimeConfig.DEBUG.getBoolean() ) {
+            return (Bindable<T>) compile( expr, s, fieldCount ).createInstance( new StringReader( s ) );
+        }
+        // Mutable static fields would be shared by all instances of a cached class. Constants hoisted into static final
+        // fields are part of the source, hence of the key, and can be shared.
+        MutableStaticFieldDetector detector = new MutableStaticFieldDetector();
+        expr.accept( detector );
+        if ( detector.containsMutableStaticField ) {
+            return (Bindable<T>) compile( expr, s, fieldCount ).createInstance( new StringReader( s ) );
+        }
+
+        String key = HASH_FUNCTION.newHasher()
+                .putInt( fieldCount == 1 ? 1 : 0 )
+                .putString( expr.name, StandardCharsets.UTF_8 )
+                .putString( s, StandardCharsets.UTF_8 )
+                .hash()
+                .toString();
+        try {
+            Class<?> clazz = getClassCache().get( key, () -> {
+                IClassBodyEvaluator cbe = compile( expr, s, fieldCount );
+                cbe.cook( new StringReader( s ) );
+                return cbe.getClazz();
+            } );
+            return (Bindable<T>) clazz.getDeclaredConstructor().newInstance();
+        } catch ( ExecutionException | UncheckedExecutionException e ) {
+            if ( e.getCause() instanceof CompileException ) {
+                throw (CompileException) e.getCause();
+            }
+            throw new GenericRuntimeException( e.getCause() );
+        } catch ( ReflectiveOperationException e ) {
+            throw new GenericRuntimeException( e );
+        }
+    }
+
+
+    /**
+     * Returns the number of classes which have been compiled from generated code.
+     */
+    public static long getCompilations() {
+        return COMPILATIONS.get();
+    }
+
+
+    private static IClassBodyEvaluator compile( ClassDeclaration expr, String s, int fieldCount ) {
+        COMPILATIONS.incrementAndGet();
         ICompilerFactory compilerFactory;
         try {
             compilerFactory = CompilerFactoryFactory.getDefaultCompilerFactory();
@@ -152,7 +228,22 @@ static <T> Bindable<T> getBindable( ClassDeclaration expr, String s, int fieldCo
             // Add line numbers to the generated janino class
             cbe.setDebuggingInformation( true, true, true );
         }
-        return (Bindable<T>) cbe.createInstance( new StringReader( s ) );
+        return cbe;
+    }
+
+
+    private static Cache<String, Class<?>> getClassCache() {
+        if ( classCache == null ) {
+            synchronized ( EnumerableInterpretable.class ) {
+                if ( classCache == null ) {
+                    RuntimeConfig.COMPILED_CLASS_CACHING_SIZE.setRequiresRestart( true );
+                    classCache = CacheBuilder.newBuilder()
+                            .maximumSize( RuntimeConfig.COMPILED_CLASS_CACHING_SIZE.getInteger() )
+                            .build();
+                }
+            }
+        }
+        return classCache;
     }
 
 
@@ -236,5 +327,24 @@ public void run() throws InterruptedException {
 
     }
 
-}
 
+    /**
+     * Detects whether a class declaration contains a static field which is not final or holds an array, whose elements
+     * could be changed.
+     */
+    private static class MutableStaticFieldDetector extends VisitorImpl<Void> {
+
+        boolean containsMutableStaticField = false;
+
+
+        @Override
+        public Void visit( FieldDeclaration fieldDeclaration ) {
+            final int modifier = fieldDeclaration.modifier;
+            containsMutableStaticField |= (modifier & Modifier.STATIC) != 0
+                    && ((modifier & Modifier.FINAL) == 0 || fieldDeclaration.parameter.getType() instanceof Class<?> && ((Class<?>) fieldDeclaration.parameter.getType()).isArray());
+            return containsMutableStaticField ? null : super.visit( fieldDeclaration );
+        }
+
+    }
+
+}
@@ -40,6 +40,7 @@
 import org.apache.calcite.linq4j.tree.Expressions;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
 import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgWriter;
 import org.polypheny.db.algebra.SingleAlg;
 import org.polypheny.db.algebra.metadata.AlgMetadataQuery;
 import org.polypheny.db.interpreter.Interpreter;
@@ -102,6 +103,13 @@ public AlgNode copy( AlgTraitSet traitSet, List<AlgNode> inputs ) {
     }
 
 
+    @Override
+    public AlgWriter explainTerms( AlgWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "factor", factor );
+    }
+
+
     @Override
     public String algCompareString() {
         return this.getClass().getSimpleName() + "$"
@@ -115,7 +123,7 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         final JavaTypeFactory typeFactory = implementor.getTypeFactory();
         final BlockBuilder builder = new BlockBuilder();
         final PhysType physType = PhysTypeImpl.of( typeFactory, getTupleType(), JavaTupleFormat.ARRAY );
-        final Expression interpreter_ = builder.append( builder.newName( "interpreter" + System.nanoTime() ), Expressions.new_( Interpreter.class, implementor.getRootExpression(), implementor.stash( getInput(), AlgNode.class ) ) );
+        final Expression interpreter_ = builder.append( implementor.uniqueName( "interpreter" ), Expressions.new_( Interpreter.class, implementor.getRootExpression(), implementor.stash( getInput(), AlgNode.class ) ) );
         final Expression sliced_ =
                 getTupleType().getFieldCount() == 1
                         ? Expressions.call( BuiltInMethod.SLICE0.method, interpreter_ )
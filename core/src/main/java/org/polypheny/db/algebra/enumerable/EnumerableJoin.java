@@ -40,6 +40,7 @@
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.adapter.DataContext;
 import org.polypheny.db.algebra.AlgCollationTraitDef;
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.algebra.AlgNodes;
@@ -50,11 +51,13 @@
 import org.polypheny.db.algebra.core.JoinInfo;
 import org.polypheny.db.algebra.metadata.AlgMdCollation;
 import org.polypheny.db.algebra.metadata.AlgMetadataQuery;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.plan.AlgCluster;
 import org.polypheny.db.plan.AlgOptCost;
 import org.polypheny.db.plan.AlgPlanner;
 import org.polypheny.db.plan.AlgTraitSet;
 import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.runtime.spill.MemoryBudget;
 import org.polypheny.db.schema.trait.ModelTrait;
 import org.polypheny.db.util.BuiltInMethod;
 import org.polypheny.db.util.Util;
@@ -158,12 +161,56 @@ private double addEpsilon( double d ) {
     public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         BlockBuilder builder = new BlockBuilder();
         final Result leftResult = implementor.visitChild( this, 0, (EnumerableAlg) left, pref );
-        Expression leftExpression = builder.append( "left" + System.nanoTime(), leftResult.block() );
+        Expression leftExpression = builder.append( implementor.uniqueName( "left" ), leftResult.block() );
         final Result rightResult = implementor.visitChild( this, 1, (EnumerableAlg) right, pref );
         // we need this false flag to avoid that the enumerables are reused which would lead to the same enumerable being accessed from both sides
-        Expression rightExpression = builder.append( "right" + System.nanoTime(), rightResult.block(), false );
+        Expression rightExpression = builder.append( implementor.uniqueName( "right" ), rightResult.block(), false );
+        if ( RuntimeConfig.VECTORIZED_EXECUTION.getBoolean() ) {
+            final Result vectorized = EnumerableVectorizer.implementJoin( implementor, this, builder, leftExpression, rightExpression, leftResult.physType(), rightResult.physType() );
+            if ( vectorized != null ) {
+                return vectorized;
+            }
+        }
         final PhysType physType = PhysTypeImpl.of( implementor.getTypeFactory(), getTupleType(), pref.preferArray() );
         final PhysType keyPhysType = leftResult.physType().project( leftKeys, JavaTupleFormat.LIST );
+        if ( RuntimeConfig.PARALLEL_EXECUTION.getBoolean()
+                && right instanceof EnumerableGather
+                && (joinType == JoinAlgType.INNER || joinType == JoinAlgType.LEFT)
+                && keyPhysType.comparer() == null ) {
+            // The partitions of the right input are read and hashed concurrently
+            return implementor.result(
+                    physType,
+                    builder.append(
+                                    Expressions.call(
+                                            BuiltInMethod.PARTITIONED_HASH_JOIN.method,
+                                            leftExpression,
+                                            rightExpression,
+                                            leftResult.physType().generateAccessor( leftKeys ),
+                                            rightResult.physType().generateAccessor( rightKeys ),
+                                            EnumUtils.joinSelector( joinType, physType, ImmutableList.of( leftResult.physType(), rightResult.physType() ) ),
+                                            Expressions.constant( joinType.generatesNullsOnRight() ) ) )
+                            .toBlock() );
+        }
+        if ( MemoryBudget.isSpillingEnabled()
+                && (joinType == JoinAlgType.INNER || joinType == JoinAlgType.LEFT)
+                && keyPhysType.comparer() == null
+                && isSpillable( leftResult.format() )
+                && isSpillable( rightResult.format() ) ) {
+            // Partitions of the inputs, which exceed the memory budget of the statement, are joined from disk
+            return implementor.result(
+                    physType,
+                    builder.append(
+                                    Expressions.call(
+                                            BuiltInMethod.SPILLING_HASH_JOIN.method,
+                                            DataContext.ROOT,
+                                            leftExpression,
+                                            rightExpression,
+                                            leftResult.physType().generateAccessor( leftKeys ),
+                                            rightResult.physType().generateAccessor( rightKeys ),
+                                            EnumUtils.joinSelector( joinType, physType, ImmutableList.of( leftResult.physType(), rightResult.physType() ) ),
+                                            Expressions.constant( joinType.generatesNullsOnRight() ) ) )
+                            .toBlock() );
+        }
         return implementor.result(
                 physType,
                 builder.append(
@@ -182,5 +229,10 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
                         .toBlock() );
     }
 
+
+    private static boolean isSpillable( JavaTupleFormat format ) {
+        return format == JavaTupleFormat.ARRAY || format == JavaTupleFormat.SCALAR;
+    }
+
 }
 
@@ -139,7 +139,7 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
     }
 
 
-    private static Expression getExpression( RexNode offset ) {
+    static Expression getExpression( RexNode offset ) {
         if ( offset instanceof RexDynamicParam param ) {
             return Expressions.convert_(
                     Expressions.call( DataContext.ROOT, BuiltInMethod.DATA_CONTEXT_GET_PARAMETER_VALUE.method, Expressions.constant( param.getIndex() ) ),
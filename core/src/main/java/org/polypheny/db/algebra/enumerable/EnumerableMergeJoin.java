@@ -121,10 +121,10 @@ public AlgOptCost computeSelfCost( AlgPlanner planner, AlgMetadataQuery mq ) {
     public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         BlockBuilder builder = new BlockBuilder();
         final Result leftResult = implementor.visitChild( this, 0, (EnumerableAlg) left, pref );
-        final Expression leftExpression = builder.append( "left" + System.nanoTime(), leftResult.block() );
+        final Expression leftExpression = builder.append( implementor.uniqueName( "left" ), leftResult.block() );
         final ParameterExpression left_ = Expressions.parameter( leftResult.physType().getJavaTupleType(), "left" );
         final Result rightResult = implementor.visitChild( this, 1, (EnumerableAlg) right, pref );
-        final Expression rightExpression = builder.append( "right" + System.nanoTime(), rightResult.block() );
+        final Expression rightExpression = builder.append( implementor.uniqueName( "right" ), rightResult.block() );
         final ParameterExpression right_ = Expressions.parameter( rightResult.physType().getJavaTupleType(), "right" );
         final JavaTypeFactory typeFactory = implementor.getTypeFactory();
         final PhysType physType = PhysTypeImpl.of( typeFactory, getTupleType(), pref.preferArray() );
@@ -100,8 +100,12 @@ private EnumerableRules() {
 
     public static final EnumerableLimitRule ENUMERABLE_LIMIT_RULE = new EnumerableLimitRule();
 
+    public static final EnumerableTopNRule ENUMERABLE_TOP_N_RULE = new EnumerableTopNRule();
+
     public static final EnumerableUnionRule ENUMERABLE_UNION_RULE = new EnumerableUnionRule();
 
+    public static final EnumerableGatherRule ENUMERABLE_GATHER_RULE = new EnumerableGatherRule();
+
     public static final EnumerableModifyCollectRule ENUMERABLE_MODIFY_COLLECT_RULE = new EnumerableModifyCollectRule();
 
     public static final EnumerableIntersectRule ENUMERABLE_INTERSECT_RULE = new EnumerableIntersectRule();
@@ -35,9 +35,11 @@
 
 
 import com.google.common.collect.ImmutableList;
+import java.util.Comparator;
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.adapter.DataContext;
 import org.polypheny.db.algebra.AlgCollation;
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.algebra.core.Sort;
@@ -47,6 +49,7 @@
 import org.polypheny.db.plan.AlgPlanner;
 import org.polypheny.db.plan.AlgTraitSet;
 import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.runtime.spill.MemoryBudget;
 import org.polypheny.db.util.BuiltInMethod;
 import org.polypheny.db.util.Pair;
 
@@ -95,6 +98,21 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         PhysType inputPhysType = result.physType();
         final Pair<Expression, Expression> pair = inputPhysType.generateCollationKey( collation.getFieldCollations() );
 
+        if ( MemoryBudget.isSpillingEnabled() && (result.format() == JavaTupleFormat.ARRAY || result.format() == JavaTupleFormat.SCALAR) ) {
+            // Sort runs, which exceed the memory budget of the statement, on disk
+            final Expression comparator = builder.appendIfNotNull( "comparator", pair.right );
+            builder.add(
+                    Expressions.return_(
+                            null,
+                            Expressions.call(
+                                    BuiltInMethod.SPILLING_ORDER_BY.method,
+                                    DataContext.ROOT,
+                                    childExp,
+                                    builder.append( "keySelector", pair.left ),
+                                    comparator == null ? Expressions.constant( null, Comparator.class ) : comparator ) ) );
+            return implementor.result( physType, builder.toBlock() );
+        }
+
         builder.add(
                 Expressions.return_(
                         null,
@@ -77,9 +77,9 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
 
         final Result prepared = implementor.visitChild( this, 1, (EnumerableAlg) getRight(), pref );
 
-        Expression executor = builder.append( builder.newName( "executor" + System.nanoTime() ), prepared.block() );
+        Expression executor = builder.append( implementor.uniqueName( "executor" ), prepared.block() );
 
-        ParameterExpression exp = Expressions.parameter( Types.of( Function0.class, Enumerable.class ), builder.newName( "executor" + System.nanoTime() ) );
+        ParameterExpression exp = Expressions.parameter( Types.of( Function0.class, Enumerable.class ), implementor.uniqueName( "executor" ) );
 
         // move executor enumerable into a lambda so parameters get not prematurely  executed with a "wrong" context (e.g. Cottontail)
         FunctionExpression<Function<?>> expCall = Expressions.lambda( Expressions.block( Expressions.return_( null, executor ) ) );
@@ -89,7 +89,7 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         MethodCallExpression transformContext = Expressions.call(
                 BuiltInMethod.STREAM_RIGHT.method,
                 Expressions.constant( DataContext.ROOT ),
-                builder.append( builder.newName( "query" + System.nanoTime() ), query.block() ),
+                builder.append( implementor.uniqueName( "query" ), query.block() ),
                 exp,
                 Expressions.constant( getLeft().getTupleType().getFields().stream().map( f -> f.getType().getPolyType() ).collect( Collectors.toList() ) ) );
 
@@ -148,9 +148,9 @@ private double addEpsilon( double d ) {
     public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         final BlockBuilder builder = new BlockBuilder();
         final Result leftResult = implementor.visitChild( this, 0, (EnumerableAlg) left, pref );
-        Expression leftExpression = builder.append( "left" + System.nanoTime(), leftResult.block() );
+        Expression leftExpression = builder.append( implementor.uniqueName( "left" ), leftResult.block() );
         final Result rightResult = implementor.visitChild( this, 1, (EnumerableAlg) right, pref );
-        Expression rightExpression = builder.append( "right" + System.nanoTime(), rightResult.block() );
+        Expression rightExpression = builder.append( implementor.uniqueName( "right" ), rightResult.block() );
         final PhysType physType = PhysTypeImpl.of( implementor.getTypeFactory(), getTupleType(), pref.preferArray() );
         final JoinInfo info = JoinInfo.of( left, right, condition );
         final PhysType keyPhysType = leftResult.physType().project( info.leftKeys, JavaTupleFormat.LIST );
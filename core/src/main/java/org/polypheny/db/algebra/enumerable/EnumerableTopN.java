@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.algebra.enumerable;
+
+
+import com.google.common.collect.ImmutableList;
+import java.util.Comparator;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.algebra.AlgCollation;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.core.Sort;
+import org.polypheny.db.algebra.metadata.AlgMetadataQuery;
+import org.polypheny.db.plan.AlgCluster;
+import org.polypheny.db.plan.AlgOptCost;
+import org.polypheny.db.plan.AlgPlanner;
+import org.polypheny.db.plan.AlgTraitSet;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexLiteral;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.util.BuiltInMethod;
+import org.polypheny.db.util.Pair;
+
+
+/**
+ * Implementation of a {@link Sort} with a fetch in {@link EnumerableConvention enumerable calling convention}. Instead of
+ * sorting its whole input, it keeps the first {@code offset + fetch} rows in a bounded heap.
+ */
+public class EnumerableTopN extends Sort implements EnumerableAlg {
+
+    /**
+     * Creates an EnumerableTopN.
+     * <p>
+     * Use {@link #create} unless you know what you're doing.
+     */
+    public EnumerableTopN( AlgCluster cluster, AlgTraitSet traitSet, AlgNode input, AlgCollation collation, RexNode offset, RexNode fetch ) {
+        super( cluster, traitSet, input, collation, null, offset, fetch );
+        assert getConvention() instanceof EnumerableConvention;
+        assert getConvention() == input.getConvention();
+        assert isSupported( offset ) && fetch != null && isSupported( fetch );
+    }
+
+
+    /**
+     * Creates an EnumerableTopN.
+     */
+    public static EnumerableTopN create( AlgNode child, AlgCollation collation, RexNode offset, RexNode fetch ) {
+        final AlgCluster cluster = child.getCluster();
+        final AlgTraitSet traitSet = child.getTraitSet().replace( collation );
+        return new EnumerableTopN( cluster, traitSet, child, collation, offset, fetch );
+    }
+
+
+    /**
+     * Whether the offset or fetch is known when the plan is executed.
+     */
+    public static boolean isSupported( RexNode node ) {
+        return node == null || node instanceof RexLiteral || node instanceof RexDynamicParam;
+    }
+
+
+    @Override
+    public EnumerableTopN copy( AlgTraitSet traitSet, AlgNode newInput, AlgCollation newCollation, ImmutableList<RexNode> nodes, RexNode offset, RexNode fetch ) {
+        return new EnumerableTopN( getCluster(), traitSet, newInput, newCollation, offset, fetch );
+    }
+
+
+    @Override
+    public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
+        final BlockBuilder builder = new BlockBuilder();
+        final EnumerableAlg child = (EnumerableAlg) getInput();
+        final Result result = implementor.visitChild( this, 0, child, pref );
+        final PhysType physType = PhysTypeImpl.of( implementor.getTypeFactory(), getTupleType(), result.format() );
+        Expression childExp = builder.append( "child", result.block() );
+
+        PhysType inputPhysType = result.physType();
+        final Pair<Expression, Expression> pair = inputPhysType.generateCollationKey( collation.getFieldCollations() );
+        final Expression comparator = builder.appendIfNotNull( "comparator", pair.right );
+
+        builder.add(
+                Expressions.return_(
+                        null,
+                        Expressions.call(
+                                BuiltInMethod.TOP_N.method,
+                                childExp,
+                                builder.append( "keySelector", pair.left ),
+                                comparator == null ? Expressions.constant( null, Comparator.class ) : comparator,
+                                offset == null ? Expressions.constant( 0 ) : EnumerableLimit.getExpression( offset ),
+                                EnumerableLimit.getExpression( fetch ) ) ) );
+        return implementor.result( physType, builder.toBlock() );
+    }
+
+
+    @Override
+    public AlgOptCost computeSelfCost( AlgPlanner planner, AlgMetadataQuery mq ) {
+        // Every input row is compared with the largest row of the heap, only rows entering the heap cost log(n)
+        final double inputRowCount = mq.getTupleCount( getInput() );
+        final double rowCount = mq.getTupleCount( this );
+        final double bytesPerRow = getTupleType().getFieldCount() * 4;
+        final double cpu = (inputRowCount + rowCount * Math.log( Math.max( rowCount, 2 ) )) * bytesPerRow;
+        return planner.getCostFactory().makeCost( inputRowCount, cpu, 0 );
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.algebra.enumerable;
+
+
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.convert.ConverterRule;
+import org.polypheny.db.algebra.core.Sort;
+import org.polypheny.db.plan.Convention;
+
+
+/**
+ * Rule to convert a {@link Sort} with a sort key and a fetch to an {@link EnumerableTopN}. The planner chooses between
+ * the top-N and an {@link EnumerableLimit} on top of an {@link EnumerableSort} by their costs.
+ */
+public class EnumerableTopNRule extends ConverterRule {
+
+    EnumerableTopNRule() {
+        super( Sort.class, Convention.NONE, EnumerableConvention.INSTANCE, "EnumerableTopNRule" );
+    }
+
+
+    @Override
+    public AlgNode convert( AlgNode alg ) {
+        final Sort sort = (Sort) alg;
+        if ( sort.fetch == null
+                || sort.getCollation().getFieldCollations().isEmpty()
+                || !EnumerableTopN.isSupported( sort.offset )
+                || !EnumerableTopN.isSupported( sort.fetch ) ) {
+            return null;
+        }
+        final AlgNode input = sort.getInput();
+        return EnumerableTopN.create(
+                convert( input, input.getTraitSet().replace( EnumerableConvention.INSTANCE ) ),
+                sort.getCollation(),
+                sort.offset,
+                sort.fetch );
+    }
+
+}
@@ -138,7 +138,7 @@ private Result implementGraphOnDocument( EnumerableAlgImplementor implementor, P
 
         List<Expression> tableAsNodes = new ArrayList<>();
         for ( Entry<String, Result> entry : nodes.entrySet() ) {
-            Expression exp = builder.append( builder.newName( "nodes_" + System.nanoTime() ), entry.getValue().block() );
+            Expression exp = builder.append( implementor.uniqueName( "nodes_" ), entry.getValue().block() );
             MethodCallExpression transformedTable = Expressions.call( BuiltInMethod.X_MODEL_COLLECTION_TO_NODE.method, exp, PolyString.of( entry.getKey() ).asExpression() );
             tableAsNodes.add( transformedTable );
         }
@@ -206,7 +206,7 @@ private Result implementGraphOnRelational( EnumerableAlgImplementor implementor,
         List<Expression> tableAsNodes = new ArrayList<>();
         int i = 0;
         for ( Entry<String, Pair<AlgNode, Result>> entry : nodes.entrySet() ) {
-            Expression exp = builder.append( builder.newName( "nodes_" + System.nanoTime() ), entry.getValue().right.block() );
+            Expression exp = builder.append( implementor.uniqueName( "nodes_" ), entry.getValue().right.block() );
             MethodCallExpression transformedTable = Expressions.call(
                     BuiltInMethod.X_MODEL_TABLE_TO_NODE.method,
                     exp,
@@ -276,8 +276,8 @@ private Result implementGraph( EnumerableAlgImplementor implementor, Prefer pref
         Type outputJavaType = physType.getJavaTupleType();
         final Type enumeratorType = Types.of( Enumerator.class, outputJavaType );
 
-        Expression nodesExp = builder.append( builder.newName( "nodes_" + System.nanoTime() ), nodes.block() );
-        Expression edgeExp = builder.append( builder.newName( "edges_" + System.nanoTime() ), edges.block() );
+        Expression nodesExp = builder.append( implementor.uniqueName( "nodes_" ), nodes.block() );
+        Expression edgeExp = builder.append( implementor.uniqueName( "edges_" ), edges.block() );
 
         MethodCallExpression nodeCall = Expressions.call( BuiltInMethod.TO_NODE.method, nodesExp );
         MethodCallExpression edgeCall = Expressions.call( BuiltInMethod.TO_EDGE.method, edgeExp );
@@ -330,11 +330,11 @@ private Result implementDocumentOnRelational( EnumerableAlgImplementor implement
         }
         BlockBuilder builder = new BlockBuilder();
         final PhysType physType = PhysTypeImpl.of( implementor.getTypeFactory(), getTupleType(), pref.prefer( JavaTupleFormat.SCALAR ) );
-        Expression old = builder.append( builder.newName( "docs_" + System.nanoTime() ), impl.block() );
+        Expression old = builder.append( implementor.uniqueName( "docs_" ), impl.block() );
 
         List<Expression> expressions = new ArrayList<>();
 
-        ParameterExpression target = Expressions.parameter( PolyValue[].class );
+        ParameterExpression target = Expressions.parameter( PolyValue[].class, implementor.uniqueName( "target" ) );
 
         attachDocOnRelational( impl, expressions, target );
 
@@ -381,12 +381,12 @@ private Result implementRelationalOnDocument( EnumerableAlgImplementor implement
 
         BlockBuilder builder = new BlockBuilder();
         final PhysType physType = PhysTypeImpl.of( implementor.getTypeFactory(), getTupleType(), pref.prefer( JavaTupleFormat.SCALAR ) );
-        Expression old = builder.append( builder.newName( "docs_" + System.nanoTime() ), impl.block() );
+        Expression old = builder.append( implementor.uniqueName( "docs_" ), impl.block() );
 
         List<String> extract = getTupleType().getFieldNames().stream().filter( n -> !n.equals( DocumentType.DOCUMENT_DATA ) ).toList();
         List<Expression> expressions = new ArrayList<>();
 
-        ParameterExpression target = Expressions.parameter( Object.class );
+        ParameterExpression target = Expressions.parameter( Object.class, implementor.uniqueName( "target" ) );
 
         for ( AlgDataTypeField field : getTupleType().getFields() ) {
 
@@ -446,7 +446,7 @@ private Result implementDocumentOnGraph( EnumerableAlgImplementor implementor, P
         Type inputJavaType = physType.getJavaTupleType();
         ParameterExpression inputEnumerator = Expressions.parameter( Types.of( Enumerator.class, inputJavaType ), "inputEnumerator" );
 
-        Expression nodesExp = builder.append( builder.newName( "nodes_" + System.nanoTime() ), res.block() );
+        Expression nodesExp = builder.append( implementor.uniqueName( "nodes_" ), res.block() );
 
         Type outputJavaType = physType.getJavaTupleType();
         final Type enumeratorType = Types.of( Enumerator.class, outputJavaType );
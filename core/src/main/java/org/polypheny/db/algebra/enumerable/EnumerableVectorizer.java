@@ -0,0 +1,390 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.algebra.enumerable;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.algebra.constant.Kind;
+import org.polypheny.db.algebra.core.Aggregate.Group;
+import org.polypheny.db.algebra.core.AggregateCall;
+import org.polypheny.db.algebra.core.JoinAlgType;
+import org.polypheny.db.algebra.enumerable.EnumerableAlg.Result;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.algebra.type.AlgDataTypeField;
+import org.polypheny.db.plan.AlgOptUtil;
+import org.polypheny.db.rex.RexCall;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexIndexRef;
+import org.polypheny.db.rex.RexLiteral;
+import org.polypheny.db.rex.RexLocalRef;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.rex.RexProgram;
+import org.polypheny.db.runtime.vector.ColumnVector;
+import org.polypheny.db.runtime.vector.ColumnVector.VectorKind;
+import org.polypheny.db.runtime.vector.VectorizedAggregate;
+import org.polypheny.db.runtime.vector.VectorizedCalc;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.PolyTypeFamily;
+import org.polypheny.db.util.BuiltInMethod;
+
+
+/**
+ * Implements enumerable algebra nodes by the vectorized operators of {@link org.polypheny.db.runtime.vector}, which
+ * process the tuples in batches of column vectors instead of one row after the other.
+ * Only the expressions and aggregate functions, which have a vectorized implementation, are supported. For all other
+ * nodes, the methods return {@code null} without changing the block builder and the node generates its code as usual.
+ */
+final class EnumerableVectorizer {
+
+    private EnumerableVectorizer() {
+        // Only static methods
+    }
+
+
+    /**
+     * Implements a calc, whose condition is a conjunction of comparisons and whose projections are input references
+     * or arithmetic on numbers.
+     */
+    static Result implementCalc( EnumerableAlgImplementor implementor, EnumerableCalc calc, RexProgram program, BlockBuilder builder, Result input ) {
+        if ( !isArray( input.physType() ) ) {
+            return null;
+        }
+        final CalcProgram calcProgram = new CalcProgram( program.getInputRowType() );
+        if ( program.getCondition() != null ) {
+            for ( RexNode conjunct : AlgOptUtil.conjunctions( program.expandLocalRef( program.getCondition() ) ) ) {
+                if ( !calcProgram.condition( conjunct ) ) {
+                    return null;
+                }
+            }
+        }
+        final List<AlgDataTypeField> outputFields = calc.getTupleType().getFields();
+        for ( int i = 0; i < outputFields.size(); i++ ) {
+            RexLocalRef project = program.getProjectList().get( i );
+            if ( !calcProgram.project( program.expandLocalRef( project ), outputFields.get( i ).getType().getPolyType() ) ) {
+                return null;
+            }
+        }
+
+        final Expression inputEnumerable = builder.append( implementor.uniqueName( "inputEnumerable" ), input.block(), false );
+        builder.add(
+                Expressions.return_(
+                        null,
+                        Expressions.call(
+                                BuiltInMethod.VECTORIZED_CALC.method,
+                                DataContext.ROOT,
+                                inputEnumerable,
+                                types( program.getInputRowType() ),
+                                types( calc.getTupleType() ),
+                                Expressions.newArrayInit( int.class, calcProgram.code ),
+                                Expressions.newArrayInit( long.class, calcProgram.longs ),
+                                Expressions.newArrayInit( double.class, calcProgram.doubles ) ) ) );
+        return implementor.result( PhysTypeImpl.of( implementor.getTypeFactory(), calc.getTupleType(), JavaTupleFormat.ARRAY ), builder.toBlock() );
+    }
+
+
+    /**
+     * Implements an aggregate with a simple grouping, whose aggregate functions are counts or sums, minimums and
+     * maximums of numbers.
+     */
+    static Result implementAggregate( EnumerableAlgImplementor implementor, EnumerableAggregate aggregate, BlockBuilder builder, Expression input, PhysType inputPhysType ) {
+        if ( !isArray( inputPhysType ) || aggregate.getGroupType() != Group.SIMPLE ) {
+            return null;
+        }
+        final AlgDataType inputType = aggregate.getInput().getTupleType();
+        final List<Expression> functions = new ArrayList<>();
+        final List<Expression> arguments = new ArrayList<>();
+        for ( AggregateCall call : aggregate.getAggCallList() ) {
+            if ( call.isDistinct() || call.hasFilter() || !call.collation.getFieldCollations().isEmpty() || call.getArgList().size() > 1 ) {
+                return null;
+            }
+            final int argument = call.getArgList().isEmpty() ? -1 : call.getArgList().get( 0 );
+            final VectorKind argumentKind = argument < 0 ? null : kind( inputType.getFields().get( argument ).getType() );
+            final boolean numeric = argumentKind == VectorKind.LONG || argumentKind == VectorKind.DOUBLE;
+            final int function;
+            switch ( call.getAggregation().getKind() ) {
+                case COUNT -> function = argument < 0 ? VectorizedAggregate.COUNT_STAR : VectorizedAggregate.COUNT;
+                case SUM -> function = VectorizedAggregate.SUM;
+                case SUM0 -> function = VectorizedAggregate.SUM0;
+                case MIN -> function = VectorizedAggregate.MIN;
+                case MAX -> function = VectorizedAggregate.MAX;
+                default -> {
+                    return null;
+                }
+            }
+            if ( function != VectorizedAggregate.COUNT_STAR && function != VectorizedAggregate.COUNT && (!numeric || kind( call.getType() ) == VectorKind.OBJECT) ) {
+                return null;
+            }
+            functions.add( Expressions.constant( function, int.class ) );
+            arguments.add( Expressions.constant( argument, int.class ) );
+        }
+
+        builder.add(
+                Expressions.return_(
+                        null,
+                        Expressions.call(
+                                BuiltInMethod.VECTORIZED_AGGREGATE.method,
+                                input,
+                                types( inputType ),
+                                types( aggregate.getTupleType() ),
+                                ints( aggregate.getGroupSet().asList() ),
+                                Expressions.newArrayInit( int.class, functions ),
+                                Expressions.newArrayInit( int.class, arguments ) ) ) );
+        return implementor.result( PhysTypeImpl.of( implementor.getTypeFactory(), aggregate.getTupleType(), JavaTupleFormat.ARRAY ), builder.toBlock() );
+    }
+
+
+    /**
+     * Implements an inner or left outer equi join, whose keys have the same representation on both sides.
+     */
+    static Result implementJoin( EnumerableAlgImplementor implementor, EnumerableJoin join, BlockBuilder builder, Expression left, Expression right, PhysType leftPhysType, PhysType rightPhysType ) {
+        if ( !isArray( leftPhysType ) || !isArray( rightPhysType ) || (join.getJoinType() != JoinAlgType.INNER && join.getJoinType() != JoinAlgType.LEFT) ) {
+            return null;
+        }
+        final AlgDataType leftType = join.getLeft().getTupleType();
+        final AlgDataType rightType = join.getRight().getTupleType();
+        for ( int i = 0; i < join.getLeftKeys().size(); i++ ) {
+            if ( kind( leftType.getFields().get( join.getLeftKeys().get( i ) ).getType() ) != kind( rightType.getFields().get( join.getRightKeys().get( i ) ).getType() ) ) {
+                return null;
+            }
+        }
+
+        builder.add(
+                Expressions.return_(
+                        null,
+                        Expressions.call(
+                                BuiltInMethod.VECTORIZED_HASH_JOIN.method,
+                                left,
+                                right,
+                                types( leftType ),
+                                types( rightType ),
+                                ints( join.getLeftKeys() ),
+                                ints( join.getRightKeys() ),
+                                Expressions.constant( join.getJoinType().generatesNullsOnRight() ) ) ) );
+        return implementor.result( PhysTypeImpl.of( implementor.getTypeFactory(), join.getTupleType(), JavaTupleFormat.ARRAY ), builder.toBlock() );
+    }
+
+
+    private static boolean isArray( PhysType physType ) {
+        return physType.getFormat() == JavaTupleFormat.ARRAY;
+    }
+
+
+    private static VectorKind kind( AlgDataType type ) {
+        return ColumnVector.kindOf( type.getPolyType() );
+    }
+
+
+    private static Expression types( AlgDataType tupleType ) {
+        return Expressions.newArrayInit( String.class, tupleType.getFields().stream().map( f -> Expressions.constant( f.getType().getPolyType().name() ) ).toList() );
+    }
+
+
+    private static Expression ints( List<Integer> values ) {
+        return Expressions.newArrayInit( int.class, values.stream().map( v -> Expressions.constant( v, int.class ) ).toList() );
+    }
+
+
+    /**
+     * Translates the expressions of a calc into the program of a {@link VectorizedCalc}.
+     */
+    private static final class CalcProgram {
+
+        private final AlgDataType inputType;
+        private final List<Expression> code = new ArrayList<>();
+        private final List<Expression> longs = new ArrayList<>();
+        private final List<Expression> doubles = new ArrayList<>();
+
+
+        CalcProgram( AlgDataType inputType ) {
+            this.inputType = inputType;
+        }
+
+
+        boolean condition( RexNode conjunct ) {
+            final int operation;
+            switch ( conjunct.getKind() ) {
+                case IS_NULL, IS_NOT_NULL -> {
+                    if ( expression( ((RexCall) conjunct).getOperands().get( 0 ) ) == null ) {
+                        return false;
+                    }
+                    emit( conjunct.getKind() == Kind.IS_NULL ? VectorizedCalc.IS_NULL : VectorizedCalc.IS_NOT_NULL );
+                    return true;
+                }
+                case EQUALS -> operation = VectorizedCalc.EQUALS;
+                case NOT_EQUALS -> operation = VectorizedCalc.NOT_EQUALS;
+                case LESS_THAN -> operation = VectorizedCalc.LESS_THAN;
+                case LESS_THAN_OR_EQUAL -> operation = VectorizedCalc.LESS_THAN_OR_EQUAL;
+                case GREATER_THAN -> operation = VectorizedCalc.GREATER_THAN;
+                case GREATER_THAN_OR_EQUAL -> operation = VectorizedCalc.GREATER_THAN_OR_EQUAL;
+                default -> {
+                    return false;
+                }
+            }
+            final RexNode left = ((RexCall) conjunct).getOperands().get( 0 );
+            final RexNode right = ((RexCall) conjunct).getOperands().get( 1 );
+            if ( kind( left.getType() ) == VectorKind.OBJECT || kind( right.getType() ) == VectorKind.OBJECT ) {
+                // Only strings are compared as objects
+                if ( !isString( left ) || !isString( right ) || expression( left ) == null || expression( right ) == null ) {
+                    return false;
+                }
+            } else {
+                VectorKind kind = kind( left.getType() ) == VectorKind.DOUBLE || kind( right.getType() ) == VectorKind.DOUBLE ? VectorKind.DOUBLE : VectorKind.LONG;
+                if ( !expression( left, kind ) || !expression( right, kind ) ) {
+                    return false;
+                }
+            }
+            emit( operation );
+            return true;
+        }
+
+
+        boolean project( RexNode project, PolyType outputType ) {
+            final VectorKind kind = ColumnVector.kindOf( outputType );
+            if ( kind == VectorKind.OBJECT ) {
+                // Objects are only passed through
+                if ( !(project instanceof RexIndexRef) ) {
+                    return false;
+                }
+                expression( project );
+            } else if ( !expression( project, kind ) ) {
+                return false;
+            }
+            emit( VectorizedCalc.OUTPUT );
+            return true;
+        }
+
+
+        /**
+         * Emits the expression and converts it to the given kind of number.
+         */
+        private boolean expression( RexNode node, VectorKind kind ) {
+            VectorKind actual = expression( node );
+            if ( actual == null || actual == VectorKind.OBJECT || (actual == VectorKind.DOUBLE && kind == VectorKind.LONG) ) {
+                return false;
+            }
+            if ( actual == VectorKind.LONG && kind == VectorKind.DOUBLE ) {
+                emit( VectorizedCalc.TO_DOUBLE );
+            }
+            return true;
+        }
+
+
+        /**
+         * Emits the expression and returns the kind of its vector, {@code null} if it is not supported.
+         */
+        private VectorKind expression( RexNode node ) {
+            final VectorKind kind = kind( node.getType() );
+            if ( node instanceof RexIndexRef ref ) {
+                emit( VectorizedCalc.INPUT, ref.getIndex() );
+                return kind( inputType.getFields().get( ref.getIndex() ).getType() );
+            } else if ( node instanceof RexDynamicParam param ) {
+                if ( kind == VectorKind.OBJECT && !isString( param ) ) {
+                    return null;
+                }
+                emit( switch ( kind ) {
+                    case LONG -> VectorizedCalc.LONG_PARAMETER;
+                    case DOUBLE -> VectorizedCalc.DOUBLE_PARAMETER;
+                    case OBJECT -> VectorizedCalc.OBJECT_PARAMETER;
+                }, (int) param.getIndex() );
+                return kind;
+            } else if ( node instanceof RexLiteral literal ) {
+                if ( literal.isNull() || kind == VectorKind.OBJECT ) {
+                    return null;
+                }
+                if ( kind == VectorKind.LONG ) {
+                    emit( VectorizedCalc.LONG_CONSTANT, longs.size() );
+                    longs.add( Expressions.constant( literal.value.asNumber().longValue(), long.class ) );
+                } else {
+                    emit( VectorizedCalc.DOUBLE_CONSTANT, doubles.size() );
+                    doubles.add( Expressions.constant( literal.value.asNumber().doubleValue(), double.class ) );
+                }
+                return kind;
+            } else if ( node instanceof RexCall call ) {
+                switch ( call.getKind() ) {
+                    case PLUS, MINUS, TIMES -> {
+                        if ( kind == VectorKind.OBJECT || call.getOperands().size() != 2
+                                || !expression( call.getOperands().get( 0 ), kind ) || !expression( call.getOperands().get( 1 ), kind ) ) {
+                            return null;
+                        }
+                        emit( switch ( call.getKind() ) {
+                            case PLUS -> VectorizedCalc.PLUS;
+                            case MINUS -> VectorizedCalc.MINUS;
+                            default -> VectorizedCalc.TIMES;
+                        } );
+                        return kind;
+                    }
+                    case CAST -> {
+                        final RexNode operand = call.getOperands().get( 0 );
+                        if ( kind == VectorKind.OBJECT || !isWidening( operand.getType().getPolyType(), node.getType().getPolyType() ) ) {
+                            return null;
+                        }
+                        return expression( operand, kind ) ? kind : null;
+                    }
+                    default -> {
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+
+
+        private void emit( int operation ) {
+            code.add( Expressions.constant( operation, int.class ) );
+        }
+
+
+        private void emit( int operation, int operand ) {
+            emit( operation );
+            code.add( Expressions.constant( operand, int.class ) );
+        }
+
+
+        private static boolean isString( RexNode node ) {
+            return node.getType().getPolyType().getFamily() == PolyTypeFamily.CHARACTER;
+        }
+
+
+        /**
+         * Whether the cast does not lose information, except for the precision of large integers cast to doubles.
+         */
+        private static boolean isWidening( PolyType from, PolyType to ) {
+            return switch ( ColumnVector.kindOf( from ) ) {
+                case LONG -> ColumnVector.kindOf( to ) == VectorKind.DOUBLE || rank( to ) >= rank( from );
+                case DOUBLE -> to == PolyType.DOUBLE || to == from;
+                case OBJECT -> false;
+            };
+        }
+
+
+        private static int rank( PolyType type ) {
+            return switch ( type ) {
+                case TINYINT -> 0;
+                case SMALLINT -> 1;
+                case INTEGER -> 2;
+                case BIGINT -> 3;
+                default -> -1;
+            };
+        }
+
+    }
+
+}
@@ -2472,13 +2472,13 @@ public Expression implement( RexToLixTranslator translator, RexCall call, NullAs
                                                     RuntimeException.class,
                                                     Expressions.constant( "The supplied element is no collection to test the predicate against." ) ) ) ) ) );
 
-                    ParameterExpression cList = Expressions.parameter( List.class );
+                    ParameterExpression cList = Expressions.parameter( List.class, blockBuilder.newName( "cList_" ) );
                     blockBuilder.add( Expressions.declare( Modifier.PRIVATE, cList, Expressions.convert_( list_, List.class ) ) );
 
-                    ParameterExpression count_ = Expressions.parameter( int.class, "count_" + System.nanoTime() );
+                    ParameterExpression count_ = Expressions.parameter( int.class, blockBuilder.newName( "count_" ) );
                     blockBuilder.add( Expressions.declare( Modifier.PRIVATE, count_, Expressions.constant( 0 ) ) );
 
-                    ParameterExpression i_ = Expressions.parameter( int.class, "i_" + System.nanoTime() );
+                    ParameterExpression i_ = Expressions.parameter( int.class, blockBuilder.newName( "i_" ) );
                     blockBuilder.add( Expressions.declare( Modifier.PRIVATE, i_, Expressions.constant( 0 ) ) );
 
                     ConditionalStatement ifIncr = EnumUtils.ifThen( translator.translate( call.operands.get( 1 ) ), Expressions.block( Expressions.statement( Expressions.increment( i_ ) ) ) );
@@ -42,7 +42,7 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
         final BlockBuilder builder = new BlockBuilder();
         final Result conditionResult = implementor.visitChild( this, 0, (EnumerableAlg) getLeft(), pref );
         Expression call = Expressions.call(
-                builder.append( builder.newName( "condition" + System.nanoTime() ), conditionResult.block() ),
+                builder.append( implementor.uniqueName( "condition" ), conditionResult.block() ),
                 "count" );
 
         Expression conditionExp = switch ( this.condition ) {
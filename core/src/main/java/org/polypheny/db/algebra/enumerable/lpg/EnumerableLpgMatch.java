@@ -73,13 +73,13 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
 
         final JavaTypeFactory typeFactory = implementor.getTypeFactory();
 
-        Expression inputEnumerable = builder.append( builder.newName( "inputEnumerable" + System.nanoTime() ), res.block(), false );
+        Expression inputEnumerable = builder.append( implementor.uniqueName( "inputEnumerable" ), res.block(), false );
 
-        Expression inputEnumerator = builder.append( builder.newName( "enumerator" + System.nanoTime() ), Expressions.call( inputEnumerable, BuiltInMethod.ENUMERABLE_ENUMERATOR.method ), false );
+        Expression inputEnumerator = builder.append( implementor.uniqueName( "enumerator" ), Expressions.call( inputEnumerable, BuiltInMethod.ENUMERABLE_ENUMERATOR.method ), false );
         builder.add( Expressions.statement( Expressions.call( inputEnumerator, BuiltInMethod.ENUMERATOR_MOVE_NEXT.method ) ) );
 
         Expression graph_ = builder.append(
-                builder.newName( "graph" + System.nanoTime() ),
+                implementor.uniqueName( "graph" ),
                 Expressions.convert_(
                         Expressions.arrayIndex(
                                 Expressions.convert_(
@@ -70,7 +70,7 @@ private Result buildInsert( EnumerableAlgImplementor implementor, Prefer pref, B
             inputs.add( implementor.visitChild( this, i, (EnumerableAlg) input, pref ) );
             i++;
         }
-        List<Expression> enumerables = inputs.stream().map( j -> attachLambdaEnumerable( j.block() ) ).collect( Collectors.toList() );
+        List<Expression> enumerables = inputs.stream().map( j -> attachLambdaEnumerable( implementor, j.block() ) ).collect( Collectors.toList() );
 
         MethodCallExpression splitter = Expressions.call(
                 BuiltInMethod.SPLIT_GRAPH_MODIFY.method,
@@ -79,17 +79,17 @@ private Result buildInsert( EnumerableAlgImplementor implementor, Prefer pref, B
                 EnumUtils.constantArrayList( operationOrder, PolyType.class ),
                 Expressions.constant( operation ) );
 
-        builder.add( Expressions.return_( null, builder.append( "splitter" + System.nanoTime(), splitter ) ) );
+        builder.add( Expressions.return_( null, builder.append( implementor.uniqueName( "splitter" ), splitter ) ) );
 
         return implementor.result( inputs.get( 0 ).physType(), builder.toBlock() );
     }
 
 
-    private Expression attachLambdaEnumerable( BlockStatement blockStatement ) {
+    private Expression attachLambdaEnumerable( EnumerableAlgImplementor implementor, BlockStatement blockStatement ) {
         BlockBuilder builder = new BlockBuilder();
-        Expression executor = builder.append( builder.newName( "executor" + System.nanoTime() ), blockStatement );
+        Expression executor = builder.append( implementor.uniqueName( "executor" ), blockStatement );
 
-        ParameterExpression exp = Expressions.parameter( Types.of( Function0.class, Enumerable.class ), builder.newName( "enumerable" + System.nanoTime() ) );
+        ParameterExpression exp = Expressions.parameter( Types.of( Function0.class, Enumerable.class ), implementor.uniqueName( "enumerable" ) );
 
         // Move executor enumerable into a lambda so parameters get not prematurely  executed with a "wrong" context (e.g. Cottontail)
         FunctionExpression<Function<?>> expCall = Expressions.lambda( Expressions.block( Expressions.return_( null, executor ) ) );
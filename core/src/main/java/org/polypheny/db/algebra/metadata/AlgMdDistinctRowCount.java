@@ -46,6 +46,7 @@
 import org.polypheny.db.algebra.core.Sort;
 import org.polypheny.db.algebra.core.Union;
 import org.polypheny.db.algebra.core.Values;
+import org.polypheny.db.algebra.core.relational.RelScan;
 import org.polypheny.db.algebra.operators.OperatorName;
 import org.polypheny.db.languages.OperatorRegistry;
 import org.polypheny.db.plan.AlgOptUtil;
@@ -120,6 +121,20 @@ public Double getDistinctRowCount( Union alg, AlgMetadataQuery mq, ImmutableBitS
     }
 
 
+    public Double getDistinctRowCount( RelScan<?> alg, AlgMetadataQuery mq, ImmutableBitSet groupKey, RexNode predicate ) {
+        Double rowCount = mq.getTupleCount( alg );
+        Double distinct = rowCount == null ? null : AlgMdUtil.estimateDistinctRowCount( alg, groupKey, rowCount );
+        if ( distinct == null ) {
+            return getDistinctRowCount( (AlgNode) alg, mq, groupKey, predicate );
+        }
+        Double selectivity = mq.getSelectivity( alg, predicate );
+        if ( selectivity == null || selectivity >= 1.0 ) {
+            return distinct;
+        }
+        return AlgMdUtil.numDistinctVals( distinct, rowCount * selectivity );
+    }
+
+
     public Double getDistinctRowCount( Sort alg, AlgMetadataQuery mq, ImmutableBitSet groupKey, RexNode predicate ) {
         return mq.getDistinctRowCount( alg.getInput(), groupKey, predicate );
     }
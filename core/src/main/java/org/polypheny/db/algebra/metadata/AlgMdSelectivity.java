@@ -43,6 +43,7 @@
 import org.polypheny.db.algebra.core.SemiJoin;
 import org.polypheny.db.algebra.core.Sort;
 import org.polypheny.db.algebra.core.Union;
+import org.polypheny.db.algebra.core.relational.RelScan;
 import org.polypheny.db.algebra.operators.OperatorName;
 import org.polypheny.db.languages.OperatorRegistry;
 import org.polypheny.db.plan.AlgOptUtil;
@@ -174,6 +175,11 @@ public Double getSelectivity( Project alg, AlgMetadataQuery mq, RexNode predicat
     }
 
 
+    public Double getSelectivity( RelScan<?> alg, AlgMetadataQuery mq, RexNode predicate ) {
+        return AlgMdUtil.estimateSelectivity( alg, predicate );
+    }
+
+
     // Catch-all rule when none of the others apply.
     public Double getSelectivity( AlgNode alg, AlgMetadataQuery mq, RexNode predicate ) {
         return AlgMdUtil.guessSelectivity( predicate );
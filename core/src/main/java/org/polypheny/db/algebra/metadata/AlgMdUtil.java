@@ -41,6 +41,8 @@
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import org.jetbrains.annotations.Nullable;
+import org.polypheny.db.StatisticsManager;
 import org.polypheny.db.algebra.AlgCollation;
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.algebra.constant.Kind;
@@ -53,6 +55,9 @@
 import org.polypheny.db.algebra.core.SemiJoin;
 import org.polypheny.db.algebra.core.Sort;
 import org.polypheny.db.algebra.core.Union;
+import org.polypheny.db.algebra.core.relational.RelScan;
+import org.polypheny.db.algebra.type.AlgDataTypeField;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.nodes.Operator;
 import org.polypheny.db.plan.AlgOptUtil;
 import org.polypheny.db.rex.RexBuilder;
@@ -64,9 +69,11 @@
 import org.polypheny.db.rex.RexProgram;
 import org.polypheny.db.rex.RexUtil;
 import org.polypheny.db.rex.RexVisitorImpl;
+import org.polypheny.db.type.entity.PolyValue;
 import org.polypheny.db.util.ImmutableBitSet;
 import org.polypheny.db.util.ImmutableBitSet.Builder;
 import org.polypheny.db.util.NumberUtil;
+import org.polypheny.db.util.sketch.ColumnSketch;
 
 
 /**
@@ -381,6 +388,113 @@ public static double guessSelectivity( RexNode predicate, boolean artificialOnly
     }
 
 
+    /**
+     * Returns the sketch of the column behind a field of a scan, or {@code null} if there are no sketches for it.
+     */
+    @Nullable
+    public static ColumnSketch getColumnSketch( RelScan<?> scan, int field ) {
+        if ( StatisticsManager.INSTANCE == null || !RuntimeConfig.STATISTIC_SKETCHES.getBoolean() ) {
+            return null;
+        }
+        List<AlgDataTypeField> fields = scan.getTupleType().getFields();
+        if ( field < 0 || field >= fields.size() || fields.get( field ).getId() == null ) {
+            return null;
+        }
+        ColumnSketch sketch = StatisticsManager.INSTANCE.getColumnSketch( fields.get( field ).getId() );
+        return sketch == null || sketch.getCount() == 0 ? null : sketch;
+    }
+
+
+    /**
+     * Estimates the selectivity of a predicate on a scan from the sketches of the referenced columns.
+     * Conjunctions which cannot be estimated from a sketch fall back to {@link #guessSelectivity(RexNode)}.
+     */
+    public static double estimateSelectivity( RelScan<?> scan, RexNode predicate ) {
+        if ( (predicate == null) || predicate.isAlwaysTrue() ) {
+            return 1.0;
+        }
+        double sel = 1.0;
+        for ( RexNode pred : AlgOptUtil.conjunctions( predicate ) ) {
+            Double estimate = estimateSelectivityFromSketch( scan, pred );
+            sel *= estimate != null ? estimate : guessSelectivity( pred );
+        }
+        return sel;
+    }
+
+
+    @Nullable
+    private static Double estimateSelectivityFromSketch( RelScan<?> scan, RexNode pred ) {
+        if ( !(pred instanceof RexCall call) ) {
+            return null;
+        }
+        if ( call.isA( Kind.IS_NULL ) || call.isA( Kind.IS_NOT_NULL ) ) {
+            if ( !(call.operands.get( 0 ) instanceof RexIndexRef ref) ) {
+                return null;
+            }
+            ColumnSketch sketch = getColumnSketch( scan, ref.getIndex() );
+            if ( sketch == null ) {
+                return null;
+            }
+            return call.isA( Kind.IS_NULL ) ? sketch.getNullFraction() : 1 - sketch.getNullFraction();
+        }
+        if ( call.operands.size() != 2 ) {
+            return null;
+        }
+
+        Kind kind = call.getKind();
+        RexIndexRef ref;
+        RexLiteral literal;
+        if ( call.operands.get( 0 ) instanceof RexIndexRef left && call.operands.get( 1 ) instanceof RexLiteral right ) {
+            ref = left;
+            literal = right;
+        } else if ( call.operands.get( 0 ) instanceof RexLiteral left && call.operands.get( 1 ) instanceof RexIndexRef right ) {
+            ref = right;
+            literal = left;
+            kind = kind.reverse();
+        } else {
+            return null;
+        }
+
+        ColumnSketch sketch = getColumnSketch( scan, ref.getIndex() );
+        if ( sketch == null ) {
+            return null;
+        }
+        PolyValue value = literal.value;
+        return switch ( kind ) {
+            case EQUALS -> sketch.getEqualsSelectivity( value );
+            case NOT_EQUALS -> {
+                Double equals = sketch.getEqualsSelectivity( value );
+                yield equals == null ? null : Math.max( 0.0, 1 - sketch.getNullFraction() - equals );
+            }
+            case LESS_THAN -> sketch.getRangeSelectivity( null, false, value, false );
+            case LESS_THAN_OR_EQUAL -> sketch.getRangeSelectivity( null, false, value, true );
+            case GREATER_THAN -> sketch.getRangeSelectivity( value, false, null, false );
+            case GREATER_THAN_OR_EQUAL -> sketch.getRangeSelectivity( value, true, null, false );
+            default -> null;
+        };
+    }
+
+
+    /**
+     * Estimates the number of distinct values of the given fields of a scan from the sketches of the columns,
+     * or returns {@code null} if there is no sketch for one of them. The estimate for several fields is the product
+     * of the distinct values of the single fields, bounded by the number of rows.
+     */
+    @Nullable
+    public static Double estimateDistinctRowCount( RelScan<?> scan, ImmutableBitSet groupKey, double rowCount ) {
+        double distinct = 1.0;
+        for ( int field : groupKey ) {
+            ColumnSketch sketch = getColumnSketch( scan, field );
+            if ( sketch == null ) {
+                return null;
+            }
+            // Null forms a group of its own
+            distinct *= Math.max( 1, sketch.getDistinctCount() + (sketch.getNullCount() > 0 ? 1 : 0) );
+        }
+        return Math.min( distinct, Math.max( rowCount, 1.0 ) );
+    }
+
+
     /**
      * AND's two predicates together, either of which may be null, removing redundant filters.
      *
@@ -107,6 +107,7 @@ public MultiJoin( AlgCluster cluster, List<AlgNode> inputs, RexNode joinFilter,
     @Override
     public void replaceInput( int ordinalInParent, AlgNode p ) {
         inputs.set( ordinalInParent, p );
+        resetFingerprint();
     }
 
 
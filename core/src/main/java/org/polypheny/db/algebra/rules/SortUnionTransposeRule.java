@@ -34,6 +34,7 @@
 package org.polypheny.db.algebra.rules;
 
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import org.polypheny.db.algebra.AlgNode;
@@ -44,6 +45,8 @@
 import org.polypheny.db.algebra.metadata.AlgMetadataQuery;
 import org.polypheny.db.plan.AlgOptRule;
 import org.polypheny.db.plan.AlgOptRuleCall;
+import org.polypheny.db.rex.RexLiteral;
+import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.tools.AlgBuilderFactory;
 
 
@@ -89,9 +92,12 @@ public SortUnionTransposeRule( Class<? extends Sort> sortClass, Class<? extends
     public boolean matches( AlgOptRuleCall call ) {
         final Sort sort = call.alg( 0 );
         final Union union = call.alg( 1 );
-        // We only apply this rule if Union.all is true and Sort.offset is null.
+        // We only apply this rule if Union.all is true and Sort.offset is null, or Sort.offset and Sort.fetch are literals.
         // There is a flag indicating if this rule should be applied when Sort.fetch is null.
-        return union.all && sort.offset == null && (matchNullFetch || sort.fetch != null);
+        if ( sort.offset != null ) {
+            return union.all && sort.offset instanceof RexLiteral && sort.fetch instanceof RexLiteral;
+        }
+        return union.all && (matchNullFetch || sort.fetch != null);
     }
 
 
@@ -99,14 +105,19 @@ public boolean matches( AlgOptRuleCall call ) {
     public void onMatch( AlgOptRuleCall call ) {
         final Sort sort = call.alg( 0 );
         final Union union = call.alg( 1 );
+        // Every input has to return the rows up to offset + fetch, as the offset applies to the union
+        RexNode branchFetch = sort.fetch;
+        if ( sort.offset != null ) {
+            branchFetch = sort.getCluster().getRexBuilder().makeExactLiteral( BigDecimal.valueOf( (long) RexLiteral.intValue( sort.offset ) + RexLiteral.intValue( sort.fetch ) ) );
+        }
         List<AlgNode> inputs = new ArrayList<>();
         // Thus we use 'ret' as a flag to identify if we have finished pushing the sort past a union.
         boolean ret = true;
         final AlgMetadataQuery mq = call.getMetadataQuery();
         for ( AlgNode input : union.getInputs() ) {
-            if ( !AlgMdUtil.checkInputForCollationAndLimit( mq, input, sort.getCollation(), sort.offset, sort.fetch ) ) {
+            if ( !AlgMdUtil.checkInputForCollationAndLimit( mq, input, sort.getCollation(), null, branchFetch ) ) {
                 ret = false;
-                Sort branchSort = sort.copy( sort.getTraitSet(), input, sort.getCollation(), null, sort.offset, sort.fetch );
+                Sort branchSort = sort.copy( sort.getTraitSet(), input, sort.getCollation(), null, null, branchFetch );
                 inputs.add( branchSort );
             } else {
                 inputs.add( input );
@@ -63,8 +63,8 @@
 import org.polypheny.db.catalog.impl.logical.GraphCatalog;
 import org.polypheny.db.catalog.impl.logical.RelationalCatalog;
 import org.polypheny.db.catalog.logistic.DataModel;
-import org.polypheny.db.catalog.persistance.FilePersister;
 import org.polypheny.db.catalog.persistance.InMemoryPersister;
+import org.polypheny.db.catalog.persistance.LogPersister;
 import org.polypheny.db.catalog.persistance.Persister;
 import org.polypheny.db.catalog.snapshot.Snapshot;
 import org.polypheny.db.catalog.snapshot.impl.SnapshotBuilder;
@@ -164,7 +164,7 @@ public PolyCatalog(
         this.adapterCatalogs = new ConcurrentHashMap<>();
         this.interfaceTemplates = new ConcurrentHashMap<>();
 
-        this.persister = memoryCatalog ? new InMemoryPersister() : new FilePersister();
+        this.persister = memoryCatalog ? new InMemoryPersister() : new LogPersister();
 
     }
 
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.catalog.persistance;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.type.PolySerializable;
+import org.polypheny.db.util.PolyphenyHomeDirManager;
+
+
+/**
+ * Persister which appends the changes of every commit to a checksummed log instead of rewriting the whole catalog.
+ * <p>
+ * Every write is stored as a delta against the previously persisted image (offset, number of removed bytes and the
+ * inserted bytes). After {@code compactionThreshold} deltas, or if a delta would be larger than the image itself, the
+ * full image is written as new snapshot and the log is truncated.
+ * <p>
+ * Snapshot and log records share the same layout: {@code magic | sequence | length | payload | crc}. Records carry a
+ * strictly increasing sequence number, so replaying a log which was not yet truncated after a snapshot cannot apply a
+ * delta twice. A torn or corrupt record at the end of the log (e.g. after a crash during a write) ends the replay and is
+ * cut off.
+ */
+@Slf4j
+public class LogPersister implements Persister {
+
+    private static final int MAGIC = 0x504C4F47; // PLOG
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int CRC_SIZE = Integer.BYTES;
+
+    private static final String SNAPSHOT_FILE = "catalog.snapshot";
+    private static final String LOG_FILE = "catalog.log";
+    private static final String LEGACY_FILE = "catalog.poly";
+
+    private final Path snapshotPath;
+    private final Path logPath;
+    private final int compactionThreshold;
+    private final boolean fsync;
+
+    private FileChannel logChannel;
+
+    /**
+     * Image which corresponds to the content of snapshot and log.
+     */
+    private byte[] image = new byte[0];
+    private long sequence = 0;
+    private int deltas = 0;
+
+
+    public LogPersister() {
+        this(
+                initFolder(),
+                RuntimeConfig.CATALOG_LOG_COMPACTION_THRESHOLD.getInteger(),
+                RuntimeConfig.CATALOG_LOG_FSYNC.getBoolean() );
+    }
+
+
+    public LogPersister( Path folder, int compactionThreshold, boolean fsync ) {
+        this.snapshotPath = folder.resolve( SNAPSHOT_FILE );
+        this.logPath = folder.resolve( LOG_FILE );
+        this.compactionThreshold = Math.max( 1, compactionThreshold );
+        this.fsync = fsync;
+        try {
+            recover( folder.resolve( LEGACY_FILE ) );
+        } catch ( IOException e ) {
+            throw new GenericRuntimeException( "Could not recover the catalog log", e );
+        }
+    }
+
+
+    private static Path initFolder() {
+        if ( PolyphenyHomeDirManager.getInstance().getHomeFile( "catalog" ).isEmpty() ) {
+            PolyphenyHomeDirManager.getInstance().registerNewFolder( "catalog" );
+        }
+        Optional<File> folder = PolyphenyHomeDirManager.getInstance().getHomeFile( "catalog" );
+        if ( !folder.map( File::isDirectory ).orElse( false ) ) {
+            throw new GenericRuntimeException( "There is an error with the catalog folder in the .polypheny folder." );
+        }
+        return folder.get().toPath();
+    }
+
+
+    @Override
+    public synchronized void write( String data ) {
+        byte[] next = data.getBytes( PolySerializable.SERIALIZAION_CHARSET );
+        try {
+            int max = Math.min( image.length, next.length );
+            int prefix = 0;
+            while ( prefix < max && image[prefix] == next[prefix] ) {
+                prefix++;
+            }
+            int suffix = 0;
+            while ( suffix < max - prefix && image[image.length - 1 - suffix] == next[next.length - 1 - suffix] ) {
+                suffix++;
+            }
+            int removed = image.length - prefix - suffix;
+            int inserted = next.length - prefix - suffix;
+
+            if ( removed == 0 && inserted == 0 ) {
+                return;
+            }
+
+            if ( deltas >= compactionThreshold || 2 * Integer.BYTES + inserted >= next.length ) {
+                writeSnapshot( next );
+            } else {
+                ByteBuffer delta = ByteBuffer.allocate( 2 * Integer.BYTES + inserted )
+                        .putInt( prefix )
+                        .putInt( removed )
+                        .put( next, prefix, inserted );
+                writeRecord( logChannel, sequence + 1, delta.array() );
+                if ( fsync ) {
+                    logChannel.force( false );
+                }
+                deltas++;
+            }
+            sequence++;
+            image = next;
+        } catch ( IOException e ) {
+            throw new GenericRuntimeException( "Could not persist the catalog", e );
+        }
+    }
+
+
+    @Override
+    public synchronized String read() {
+        return new String( image, PolySerializable.SERIALIZAION_CHARSET );
+    }
+
+
+    /**
+     * Closes the log. Only required if the catalog folder is reused in the same process (e.g. in tests).
+     */
+    public synchronized void close() throws IOException {
+        logChannel.close();
+    }
+
+
+    private void writeSnapshot( byte[] next ) throws IOException {
+        Path tmp = snapshotPath.resolveSibling( SNAPSHOT_FILE + ".tmp" );
+        try ( FileChannel channel = FileChannel.open( tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+            writeRecord( channel, sequence + 1, next );
+            channel.force( true );
+        }
+        Files.move( tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+
+        // the snapshot contains all deltas, if we crash before the truncation, the sequence numbers make replay skip them
+        logChannel.truncate( 0 );
+        logChannel.position( 0 );
+        if ( fsync ) {
+            logChannel.force( true );
+        }
+        deltas = 0;
+    }
+
+
+    private void recover( Path legacyPath ) throws IOException {
+        boolean migrate = false;
+        if ( Files.exists( snapshotPath ) ) {
+            try ( FileChannel channel = FileChannel.open( snapshotPath, StandardOpenOption.READ ) ) {
+                Record snapshot = readRecord( channel );
+                if ( snapshot == null ) {
+                    throw new GenericRuntimeException( "The catalog snapshot %s is corrupt.", snapshotPath );
+                }
+                image = snapshot.payload;
+                sequence = snapshot.sequence;
+            }
+        } else if ( Files.exists( legacyPath ) && Files.size( legacyPath ) > 0 ) {
+            log.info( "Migrating catalog from {}", legacyPath );
+            image = Files.readAllBytes( legacyPath );
+            migrate = true;
+        }
+
+        logChannel = FileChannel.open( logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+        long validEnd = 0;
+        Record record;
+        while ( (record = readRecord( logChannel )) != null ) {
+            if ( record.sequence > sequence + 1 ) {
+                log.warn( "Gap in the catalog log after sequence {}, ignoring the remaining records.", sequence );
+                break;
+            }
+            if ( record.sequence == sequence + 1 ) {
+                image = applyDelta( image, record.payload );
+                sequence = record.sequence;
+                deltas++;
+            }
+            validEnd = logChannel.position();
+        }
+        if ( validEnd < logChannel.size() ) {
+            log.warn( "Truncating {} bytes of an incomplete write from the catalog log.", logChannel.size() - validEnd );
+            logChannel.truncate( validEnd );
+            logChannel.force( true );
+        }
+        logChannel.position( validEnd );
+
+        if ( migrate ) {
+            writeSnapshot( image );
+            sequence++;
+        }
+    }
+
+
+    private static byte[] applyDelta( byte[] image, byte[] delta ) {
+        ByteBuffer buffer = ByteBuffer.wrap( delta );
+        int offset = buffer.getInt();
+        int removed = buffer.getInt();
+        int inserted = buffer.remaining();
+
+        byte[] next = Arrays.copyOf( image, image.length - removed + inserted );
+        buffer.get( next, offset, inserted );
+        System.arraycopy( image, offset + removed, next, offset + inserted, image.length - offset - removed );
+        return next;
+    }
+
+
+    private static void writeRecord( FileChannel channel, long sequence, byte[] payload ) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate( HEADER_SIZE + payload.length + CRC_SIZE )
+                .putInt( MAGIC )
+                .putLong( sequence )
+                .putInt( payload.length )
+                .put( payload );
+        CRC32C crc = new CRC32C();
+        crc.update( buffer.array(), 0, buffer.position() );
+        buffer.putInt( (int) crc.getValue() );
+        buffer.flip();
+        while ( buffer.hasRemaining() ) {
+            channel.write( buffer );
+        }
+    }
+
+
+    /**
+     * Reads the record at the current position of the channel.
+     *
+     * @return the record or {@code null} if there is no complete and valid record
+     */
+    private static Record readRecord( FileChannel channel ) throws IOException {
+        long remaining = channel.size() - channel.position();
+        if ( remaining < HEADER_SIZE + CRC_SIZE ) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+        readFully( channel, header );
+        int magic = header.getInt( 0 );
+        long sequence = header.getLong( Integer.BYTES );
+        int length = header.getInt( Integer.BYTES + Long.BYTES );
+        if ( magic != MAGIC || length < 0 || length > remaining - HEADER_SIZE - CRC_SIZE ) {
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.allocate( length + CRC_SIZE );
+        readFully( channel, body );
+
+        CRC32C crc = new CRC32C();
+        crc.update( header.array() );
+        crc.update( body.array(), 0, length );
+        if ( (int) crc.getValue() != body.getInt( length ) ) {
+            return null;
+        }
+        return new Record( sequence, Arrays.copyOf( body.array(), length ) );
+    }
+
+
+    private static void readFully( FileChannel channel, ByteBuffer buffer ) throws IOException {
+        while ( buffer.hasRemaining() ) {
+            if ( channel.read( buffer ) < 0 ) {
+                throw new IOException( "Unexpected end of file" );
+            }
+        }
+    }
+
+
+    private record Record( long sequence, byte[] payload ) {
+
+    }
+
+}
@@ -26,6 +26,7 @@
 import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
 import org.polypheny.db.config.Config.ConfigListener;
 import org.polypheny.db.ddl.DdlManager.DefaultIndexPlacementStrategy;
+import org.polypheny.db.monitoring.core.MonitoringQueue.OverloadPolicy;
 import org.polypheny.db.processing.ConstraintStrategy;
 import org.polypheny.db.util.background.BackgroundTask;
 import org.polypheny.db.util.background.BackgroundTask.TaskSchedulingType;
@@ -115,6 +116,62 @@ public enum RuntimeConfig {
             ConfigType.INTEGER,
             "processingExecutionGroup" ),
 
+    VECTORIZED_EXECUTION(
+            "runtime/vectorizedExecution",
+            "Execute filters, projections, aggregations and equi joins on batches of column vectors instead of row by row. Operators with unsupported expressions are executed row by row.",
+            false,
+            ConfigType.BOOLEAN,
+            "processingExecutionGroup" ),
+
+    PARALLEL_EXECUTION(
+            "runtime/parallelExecution",
+            "Enumerate the inputs of a UNION ALL, like the partitions of a partitioned table, concurrently if the planner estimates it to be cheaper and they are on different adapters. Aggregations are split into partial aggregations of the inputs and a final aggregation, and hash tables of joins are built in parallel.",
+            false,
+            ConfigType.BOOLEAN,
+            "processingExecutionGroup" ),
+
+    PARALLELISM(
+            "runtime/parallelism",
+            "Maximum number of threads executing parts of a query concurrently. 0 means the number of available processors.",
+            0,
+            ConfigType.INTEGER,
+            "processingExecutionGroup" ),
+
+    PARALLEL_EXECUTION_THRESHOLD(
+            "runtime/parallelExecutionThreshold",
+            "Estimated number of tuples, which an input of a parallel execution has to save to compensate the overhead of its thread.",
+            10000,
+            ConfigType.INTEGER,
+            "processingExecutionGroup" ),
+
+    QUERY_MEMORY_LIMIT(
+            "runtime/queryMemoryLimit",
+            "Memory in MB, which the joins, sorts and aggregations of a query may use before they spill to disk. 0 means no limit and no spilling.",
+            0,
+            ConfigType.INTEGER,
+            "processingExecutionGroup" ),
+
+    BATCH_EXECUTION_SIZE(
+            "runtime/batchExecutionSize",
+            "Maximum number of parameter rows of a JDBC batch, which are executed by one statement. Larger batches are executed in chunks of this size.",
+            10000,
+            ConfigType.INTEGER,
+            "processingExecutionGroup" ),
+
+    PREFETCHED_FRAMES(
+            "runtime/prefetchedFrames",
+            "Number of result frames per JDBC connection, which are fetched in the background while the client consumes the previous frame. 0 disables prefetching.",
+            1,
+            ConfigType.INTEGER,
+            "processingExecutionGroup" ),
+
+    RESULT_STREAMING_BATCH_SIZE(
+            "runtime/resultStreamingBatchSize",
+            "Number of rows, which the HTTP and REST interfaces fetch and write at a time when streaming a result to the client.",
+            1000,
+            ConfigType.INTEGER,
+            "processingExecutionGroup" ),
+
     DEFAULT_COLLATION(
             "runtime/defaultCollation",
             "Collation to use if no collation is specified",
@@ -134,6 +191,20 @@ public enum RuntimeConfig {
             ConfigType.BOOLEAN,
             "parsingGroup" ),
 
+    QUERY_TEXT_CACHING(
+            "processing/queryTextCaching",
+            "Cache the translated plans of statements, which only differ in the literals of comparisons and inserted values. Repeated statements skip parsing, validation and translation.",
+            true,
+            ConfigType.BOOLEAN,
+            "parsingGroup" ),
+
+    QUERY_TEXT_CACHING_SIZE(
+            "processing/queryTextCachingSize",
+            "Size of the query text cache. If the limit is reached, the least recently used entry is removed.",
+            1000,
+            ConfigType.INTEGER,
+            "parsingGroup" ),
+
     TRIM_UNUSED_FIELDS(
             "processing/trimUnusedFields",
             "Walks over a tree of relational expressions, replacing each {@link AlgNode} with a 'slimmed down' relational expression that projects only the columns required by its consumer.",
@@ -204,6 +275,13 @@ public enum RuntimeConfig {
             ConfigType.INTEGER,
             "statisticSettingsGroup" ),
 
+    STATISTIC_SKETCHES(
+            "statistics/sketches",
+            "Summarize the values of columns with sketches (distinct values, quantiles, frequencies), which are used for selectivity and cardinality estimation.",
+            true,
+            ConfigType.BOOLEAN,
+            "statisticSettingsGroup" ),
+
     UNIQUE_VALUES(
             "statistics/maxCharUniqueVal",
             "Maximum character of unique values",
@@ -317,6 +395,27 @@ public enum RuntimeConfig {
             ConfigType.INTEGER,
             "implementationCachingGroup" ),
 
+    TIERED_EXECUTION(
+            "runtime/tieredExecution",
+            "Interpret the first executions of a query and compile it in the background once it has been executed repeatedly. Only applies if implementation caching is enabled.",
+            false,
+            ConfigType.BOOLEAN,
+            "implementationCachingGroup" ),
+
+    TIERED_EXECUTION_THRESHOLD(
+            "runtime/tieredExecutionThreshold",
+            "Number of executions of a query after which it is compiled in the background if tiered execution is enabled.",
+            3,
+            ConfigType.INTEGER,
+            "implementationCachingGroup" ),
+
+    COMPILED_CLASS_CACHING_SIZE(
+            "runtime/compiledClassCachingSize",
+            "Number of compiled classes of generated code which are kept, so that identical code is compiled only once. If the limit is reached, the least recently used class is removed. 0 disables the cache.",
+            1000,
+            ConfigType.INTEGER,
+            "implementationCachingGroup" ),
+
     ROUTING_PLAN_CACHING(
             "runtime/routingPlanCaching",
             "Caching of routing plans.",
@@ -363,6 +462,24 @@ public enum RuntimeConfig {
             1000,
             ConfigType.INTEGER ),
 
+    DATA_MIGRATOR_QUEUE_CAPACITY(
+            "runtime/dataMigratorQueueCapacity",
+            "Number of batches which are buffered between reading the source and writing to the target stores.",
+            4,
+            ConfigType.INTEGER ),
+
+    DATA_MIGRATOR_PARALLELISM(
+            "runtime/dataMigratorParallelism",
+            "Number of workers writing the partitions of a table concurrently while the source is read, when data is migrated to a new partitioning. Every worker writes through a transaction of its own, which is committed once all data has been copied; hence, the store has to make tables created by the migrating transaction visible to other transactions. 1 writes all batches on the reading thread.",
+            1,
+            ConfigType.INTEGER ),
+
+    BACKGROUND_TASK_THREADS(
+            "runtime/backgroundTaskThreads",
+            "Number of threads executing background tasks. If all threads are busy, tasks of a higher priority are executed first. Requires a restart.",
+            4,
+            ConfigType.INTEGER ),
+
     UNIQUE_CONSTRAINT_ENFORCEMENT(
             "runtime/uniqueConstraintEnforcement",
             "Enable enforcement of uniqueness constraints.",
@@ -407,6 +524,13 @@ public enum RuntimeConfig {
             ConfigType.BOOLEAN,
             "polystoreIndexGroup" ),
 
+    POLYSTORE_INDEXES_PERSISTENT(
+            "runtime/polystoreIndexesPersistent",
+            "Store polystore level indexes in memory-mapped files. Persistent indexes do not occupy the heap and are not rebuilt at startup if they were flushed before the shutdown.",
+            false,
+            ConfigType.BOOLEAN,
+            "polystoreIndexGroup" ),
+
     DOCKER_INSTANCES(
             "runtime/dockerInstances",
             "Configure different docker instances, which can be used to place adapters on.",
@@ -456,6 +580,62 @@ public enum RuntimeConfig {
             ConfigType.INTEGER,
             "monitoringSettingsQueueGroup" ),
 
+    MONITORING_QUEUE_CAPACITY(
+            "runtime/monitoringQueueCapacity",
+            "The maximum number of workload monitoring events which are queued for processing. Rounded up to the next power of two.",
+            65536,
+            ConfigType.INTEGER,
+            "monitoringSettingsQueueGroup" ),
+
+    MONITORING_QUEUE_BATCH_SIZE(
+            "runtime/monitoringQueueBatchSize",
+            "The maximum number of workload monitoring events which are processed together.",
+            256,
+            ConfigType.INTEGER,
+            "monitoringSettingsQueueGroup" ),
+
+    MONITORING_QUEUE_OVERLOAD_POLICY(
+            "runtime/monitoringQueueOverloadPolicy",
+            "How new workload monitoring events are handled if the processing falls behind. BLOCK waits for space in the queue, DROP discards events if the queue is full and SAMPLE only keeps some of the events if the queue is more than three quarters full.",
+            OverloadPolicy.BLOCK,
+            ConfigType.ENUM,
+            "monitoringSettingsQueueGroup" ),
+
+    MONITORING_QUEUE_SAMPLE_RATE(
+            "runtime/monitoringQueueSampleRate",
+            "With the SAMPLE overload policy, one in this many workload monitoring events is kept while the queue is more than three quarters full.",
+            10,
+            ConfigType.INTEGER,
+            "monitoringSettingsQueueGroup" ),
+
+    MONITORING_RETENTION(
+            "runtime/monitoringRetention",
+            "Number of hours for which workload monitoring data points are kept.",
+            168,
+            ConfigType.INTEGER,
+            "monitoringSettingsRepositoryGroup" ),
+
+    MONITORING_DOWNSAMPLE_AFTER(
+            "runtime/monitoringDownsampleAfter",
+            "Number of minutes after which workload monitoring data points are downsampled.",
+            60,
+            ConfigType.INTEGER,
+            "monitoringSettingsRepositoryGroup" ),
+
+    MONITORING_DOWNSAMPLE_RATE(
+            "runtime/monitoringDownsampleRate",
+            "Only one in this many downsampled workload monitoring data points is kept. One disables the downsampling.",
+            10,
+            ConfigType.INTEGER,
+            "monitoringSettingsRepositoryGroup" ),
+
+    MONITORING_MAX_DATA_POINTS(
+            "runtime/monitoringMaxDataPoints",
+            "Maximum number of workload monitoring data points of one type. If there are more, the oldest data points are removed.",
+            1_000_000,
+            ConfigType.INTEGER,
+            "monitoringSettingsRepositoryGroup" ),
+
     TEMPERATURE_FREQUENCY_PROCESSING_INTERVAL(
             "runtime/partitionFrequencyProcessingInterval",
             "Time interval in seconds, how often the access frequency of all TEMPERATURE-partitioned tables is analyzed and redistributed",
@@ -505,7 +685,17 @@ public enum RuntimeConfig {
             "runtime/serialization",
             "How big the buffersize for catalog objects should be.",
             200000,
-            ConfigType.INTEGER );
+            ConfigType.INTEGER ),
+    CATALOG_LOG_COMPACTION_THRESHOLD(
+            "runtime/catalogLogCompactionThreshold",
+            "Number of catalog deltas which are appended to the catalog log before it is compacted into a new snapshot.",
+            100,
+            ConfigType.INTEGER ),
+    CATALOG_LOG_FSYNC(
+            "runtime/catalogLogFsync",
+            "Force every catalog commit to disk before the commit returns.",
+            true,
+            ConfigType.BOOLEAN );
 
 
     private final String key;
@@ -613,6 +803,9 @@ public enum RuntimeConfig {
         monitoringSettingsQueueGroup.withTitle( "Processing Queue" );
         configManager.registerWebUiPage( monitoringSettingsPage );
         configManager.registerWebUiGroup( monitoringSettingsQueueGroup );
+        final WebUiGroup monitoringSettingsRepositoryGroup = new WebUiGroup( "monitoringSettingsRepositoryGroup", monitoringSettingsPage.getId() );
+        monitoringSettingsRepositoryGroup.withTitle( "Repository" );
+        configManager.registerWebUiGroup( monitoringSettingsRepositoryGroup );
         MONITORING_QUEUE_ACTIVE.addObserver( new ConfigListener() {
             @Override
             public void onConfigChange( Config c ) {
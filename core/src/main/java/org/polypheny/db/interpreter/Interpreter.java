@@ -395,7 +395,7 @@ public void visit( AlgNode p, int ordinal, AlgNode parent ) {
                 this.handle( p );
             } else {
                 if ( p instanceof InterpretableAlg interpretableAlg ) {
-                    node = interpretableAlg.implement( new InterpretableAlg.InterpreterImplementor( this, null ) );
+                    node = interpretableAlg.implement( new InterpretableAlg.InterpreterImplementor( this, interpreter.dataContext ) );
                 } else {
                     // Probably need to add a visit(XxxRel) method to CoreCompiler.
                     throw new AssertionError( "interpreter: no implementation for " + p.getClass() );
@@ -29,6 +29,7 @@
 import org.polypheny.db.algebra.type.AlgDataType;
 import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
 import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.languages.QueryTextCache.Entry;
 import org.polypheny.db.nodes.ExecutableStatement;
 import org.polypheny.db.nodes.Node;
 import org.polypheny.db.processing.ImplementationContext;
@@ -39,6 +40,7 @@
 import org.polypheny.db.transaction.Statement;
 import org.polypheny.db.transaction.Transaction;
 import org.polypheny.db.transaction.TransactionException;
+import org.polypheny.db.type.entity.PolyValue;
 import org.polypheny.db.util.Pair;
 
 @Slf4j
@@ -97,6 +99,13 @@ public List<ImplementationContext> anyPrepareQuery( QueryContext context, Statem
             context.getInformationTarget().accept( statement.getTransaction().getQueryAnalyzer() );
         }
 
+        if ( QueryTextCache.isActive( context, statement ) ) {
+            ImplementationContext cached = prepareFromTextCache( context, statement );
+            if ( cached != null ) {
+                return List.of( cached );
+            }
+        }
+
         if ( transaction.isAnalyze() ) {
             statement.getOverviewDuration().start( "Parsing" );
         }
@@ -208,6 +217,77 @@ public List<ImplementationContext> anyPrepareQuery( QueryContext context, Statem
     }
 
 
+    /**
+     * Prepares the query with a copy of the cached plan of its normalized query. The normalized query is translated,
+     * if it is not cached yet.
+     *
+     * @return the prepared query, or {@code null} if the query has to be parsed, validated and translated
+     */
+    @Nullable
+    private static ImplementationContext prepareFromTextCache( QueryContext context, Statement statement ) {
+        Processor processor = context.getLanguage().processorSupplier().get();
+        NormalizedQuery normalized = processor.normalize( context.getQuery() );
+        if ( normalized == null ) {
+            return null;
+        }
+        Transaction transaction = statement.getTransaction();
+        QueryTextCache.Key key = QueryTextCache.key( context, transaction, normalized );
+        Entry entry = QueryTextCache.INSTANCE.getIfPresent( key );
+        if ( entry == null ) {
+            entry = translateNormalized( processor, normalized, context, statement );
+            QueryTextCache.INSTANCE.put( key, entry );
+        }
+        if ( !entry.isCacheable() ) {
+            return null;
+        }
+        List<PolyValue> values = entry.bind( normalized );
+        if ( values == null ) {
+            // The literals of this query cannot be represented exactly by the types of the parameters
+            return null;
+        }
+        AlgRoot root = entry.instantiate( statement );
+        if ( root == null ) {
+            QueryTextCache.INSTANCE.put( key, Entry.UNCACHEABLE );
+            return null;
+        }
+
+        ParsedQueryContext parsed = ParsedQueryContext.fromQuery( context.getQuery(), entry.getNode(), context );
+        try {
+            AlgDataType parameterRowType = entry.getParameterRowType();
+            for ( int i = 0; i < values.size(); i++ ) {
+                statement.getDataContext().addParameterValues( i, parameterRowType.getFields().get( i ).getType(), List.of( values.get( i ) ) );
+            }
+            PolyImplementation implementation = statement.getQueryProcessor().prepareQuery( root, parameterRowType, true );
+            return new ImplementationContext( implementation, parsed, statement, null );
+        } catch ( Throwable e ) {
+            log.warn( "Caught exception: ", e );
+            cancelTransaction( transaction );
+            return ImplementationContext.ofError( e, parsed, statement );
+        }
+    }
+
+
+    private static Entry translateNormalized( Processor processor, NormalizedQuery normalized, QueryContext context, Statement statement ) {
+        try {
+            List<String> queries = processor.splitStatements( normalized.query() );
+            if ( queries.size() != 1 ) {
+                return Entry.UNCACHEABLE;
+            }
+            List<? extends Node> nodes = processor.parse( queries.get( 0 ) );
+            if ( nodes.size() != 1 || nodes.get( 0 ).isDdl() ) {
+                return Entry.UNCACHEABLE;
+            }
+            Pair<Node, AlgDataType> validated = processor.validate( statement.getTransaction(), nodes.get( 0 ), RuntimeConfig.ADD_DEFAULT_VALUES_IN_INSERTS.getBoolean() );
+            AlgDataType parameterRowType = processor.getParameterRowType( validated.left );
+            AlgRoot root = processor.translate( statement, ParsedQueryContext.fromQuery( queries.get( 0 ), validated.left, context ) );
+            return Entry.of( root, parameterRowType, validated.left, normalized );
+        } catch ( Throwable e ) {
+            log.debug( "Normalized query \"{}\" cannot be cached: {}", normalized.query(), e.getMessage() );
+            return Entry.UNCACHEABLE;
+        }
+    }
+
+
     @NotNull
     private static List<ImplementationContext> handleParseException( Statement statement, ParsedQueryContext parsed, Transaction transaction, Exception e, List<ImplementationContext> implementationContexts ) {
         if ( transaction.isAnalyze() ) {
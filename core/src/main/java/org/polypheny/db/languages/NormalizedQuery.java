@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.languages;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.jetbrains.annotations.NotNull;
+import org.polypheny.db.type.entity.PolyValue;
+
+
+/**
+ * A query, whose literals have been replaced by dynamic parameters. Queries, which only differ in these literals,
+ * have the same normalized query.
+ *
+ * @param query the query with a dynamic parameter in place of every replaced literal
+ * @param literals the replaced literals in the order of their parameters, either numbers or strings
+ */
+public record NormalizedQuery( @NotNull String query, @NotNull List<PolyValue> literals ) {
+
+    /**
+     * Returns the kinds of the replaced literals. The same query with a string instead of a number is translated to
+     * another plan.
+     */
+    public String signature() {
+        return literals.stream().map( l -> l.isString() ? "S" : "N" ).collect( Collectors.joining() );
+    }
+
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.languages;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgRoot;
+import org.polypheny.db.algebra.logical.relational.LogicalRelScan;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.information.InformationAction;
+import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationKeyValue;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.information.InformationPage;
+import org.polypheny.db.nodes.Node;
+import org.polypheny.db.plan.AlgCluster;
+import org.polypheny.db.processing.QueryContext;
+import org.polypheny.db.rex.RexBuilder;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.rex.RexShuttle;
+import org.polypheny.db.rex.RexSubQuery;
+import org.polypheny.db.transaction.Statement;
+import org.polypheny.db.transaction.Transaction;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyString;
+import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.type.entity.numerical.PolyBigDecimal;
+import org.polypheny.db.type.entity.numerical.PolyDouble;
+import org.polypheny.db.type.entity.numerical.PolyFloat;
+import org.polypheny.db.type.entity.numerical.PolyInteger;
+import org.polypheny.db.type.entity.numerical.PolyLong;
+
+
+/**
+ * Caches the translated logical plans of {@link NormalizedQuery normalized queries}. Statements, which only differ in
+ * their normalized literals, skip parsing, validation and translation. The literals are bound as dynamic parameters
+ * instead. Entries are only valid for the catalog snapshot they have been translated with.
+ */
+public class QueryTextCache {
+
+    public static final QueryTextCache INSTANCE = new QueryTextCache();
+
+    private final Cache<Key, Entry> cache;
+
+    private final AtomicLong hitsCounter = new AtomicLong();
+    private final AtomicLong missesCounter = new AtomicLong();
+
+
+    public QueryTextCache() {
+        RuntimeConfig.QUERY_TEXT_CACHING_SIZE.setRequiresRestart( true );
+        cache = CacheBuilder.newBuilder()
+                .maximumSize( RuntimeConfig.QUERY_TEXT_CACHING_SIZE.getInteger() )
+                .build();
+        registerMonitoringPage();
+    }
+
+
+    /**
+     * Whether the plan of the query may be taken from the cache. Queries with parameters bound by the client and
+     * analyzed queries are always translated.
+     */
+    public static boolean isActive( QueryContext context, Statement statement ) {
+        return RuntimeConfig.QUERY_TEXT_CACHING.getBoolean()
+                && context.isUsesCache()
+                && !statement.getTransaction().isAnalyze()
+                && statement.getDataContext().getParameterTypes().isEmpty();
+    }
+
+
+    public static Key key( QueryContext context, Transaction transaction, NormalizedQuery normalized ) {
+        return new Key(
+                context.getLanguage().serializedName(),
+                context.getNamespaceId(),
+                transaction.getDefaultNamespace().id,
+                transaction.getSnapshot().id(),
+                RuntimeConfig.ADD_DEFAULT_VALUES_IN_INSERTS.getBoolean(),
+                normalized.query(),
+                normalized.signature() );
+    }
+
+
+    public Entry getIfPresent( Key key ) {
+        Entry entry = cache.getIfPresent( key );
+        if ( entry == null ) {
+            missesCounter.incrementAndGet();
+        } else {
+            hitsCounter.incrementAndGet();
+        }
+        return entry;
+    }
+
+
+    public void put( Key key, Entry entry ) {
+        cache.put( key, entry );
+    }
+
+
+    public void reset() {
+        cache.invalidateAll();
+        hitsCounter.set( 0 );
+        missesCounter.set( 0 );
+    }
+
+
+    public long getSize() {
+        return cache.size();
+    }
+
+
+    /**
+     * Returns the value of the literal as a value of the type of its parameter, or {@code null} if the literal cannot be
+     * represented exactly by this type. Such a literal is not bound, as it would change the semantics of the query.
+     */
+    static @Nullable PolyValue bind( PolyValue literal, AlgDataType type ) {
+        if ( literal.isString() ) {
+            final String value = literal.asString().value;
+            if ( type.getPolyType() != PolyType.VARCHAR || (type.getPrecision() != AlgDataType.PRECISION_NOT_SPECIFIED && value.length() > type.getPrecision()) ) {
+                return null;
+            }
+            return PolyString.of( value );
+        }
+        final BigDecimal value = literal.asBigDecimal().value;
+        try {
+            return switch ( type.getPolyType() ) {
+                case TINYINT -> PolyInteger.of( value.byteValueExact() );
+                case SMALLINT -> PolyInteger.of( value.shortValueExact() );
+                case INTEGER -> PolyInteger.of( value.intValueExact() );
+                case BIGINT -> PolyLong.of( value.longValueExact() );
+                case DECIMAL -> value.scale() <= type.getScale() && value.precision() - value.scale() <= type.getPrecision() - type.getScale()
+                        ? PolyBigDecimal.of( value )
+                        : null;
+                case FLOAT, REAL -> PolyFloat.of( value.floatValue() );
+                case DOUBLE -> PolyDouble.of( value.doubleValue() );
+                default -> null;
+            };
+        } catch ( ArithmeticException e ) {
+            // Fractional or out of range
+            return null;
+        }
+    }
+
+
+    private static boolean containsSubQuery( AlgNode node ) {
+        final boolean[] found = { false };
+        node.accept( new RexShuttle() {
+            @Override
+            public RexNode visitSubQuery( RexSubQuery subQuery ) {
+                found[0] = true;
+                return subQuery;
+            }
+        } );
+        return found[0] || node.getInputs().stream().anyMatch( QueryTextCache::containsSubQuery );
+    }
+
+
+    private void registerMonitoringPage() {
+        InformationManager im = InformationManager.getInstance();
+
+        InformationPage page = new InformationPage( "Query Text Cache" );
+        im.addPage( page );
+
+        InformationGroup generalGroup = new InformationGroup( page, "General" ).setOrder( 1 );
+        im.addGroup( generalGroup );
+
+        InformationKeyValue generalKv = new InformationKeyValue( generalGroup );
+        im.registerInformation( generalKv );
+        generalGroup.setRefreshFunction( () -> {
+            generalKv.putPair( "Status", RuntimeConfig.QUERY_TEXT_CACHING.getBoolean() ? "Active" : "Disabled" );
+            generalKv.putPair( "Current Cache Size", cache.size() + "" );
+            generalKv.putPair( "Maximum Cache Size", RuntimeConfig.QUERY_TEXT_CACHING_SIZE.getInteger() + "" );
+            generalKv.putPair( "Hits", hitsCounter.longValue() + "" );
+            generalKv.putPair( "Misses", missesCounter.longValue() + "" );
+        } );
+
+        InformationAction invalidateAction = new InformationAction( generalGroup, "Invalidate", parameters -> {
+            reset();
+            generalGroup.refresh();
+            return "Successfully invalidated the query text cache!";
+        } );
+        invalidateAction.setOrder( 2 );
+        im.registerInformation( invalidateAction );
+    }
+
+
+    /**
+     * The normalized query and everything else, which influences its translation.
+     */
+    public record Key( String language, long namespaceId, long defaultNamespaceId, long snapshotId, boolean addDefaultValues, String query, String signature ) {
+
+    }
+
+
+    /**
+     * The translated plan of a normalized query, whose dynamic parameters are described by the parameter row type.
+     * The plan is never executed itself, every statement gets its own copy.
+     */
+    public static final class Entry {
+
+        /**
+         * Marks normalized queries, which have to be translated for every statement.
+         */
+        public static final Entry UNCACHEABLE = new Entry( null, null, null );
+
+        private final AlgRoot root;
+        @Getter
+        private final AlgDataType parameterRowType;
+        @Getter
+        private final Node node;
+
+
+        private Entry( AlgRoot root, AlgDataType parameterRowType, Node node ) {
+            this.root = root;
+            this.parameterRowType = parameterRowType;
+            this.node = node;
+        }
+
+
+        /**
+         * Creates an entry for the translated normalized query, if its parameters accept the kinds of the literals.
+         *
+         * @param node the validated query node
+         */
+        public static Entry of( AlgRoot root, AlgDataType parameterRowType, Node node, NormalizedQuery normalized ) {
+            if ( parameterRowType.getFieldCount() != normalized.literals().size() || containsSubQuery( root.alg ) ) {
+                return UNCACHEABLE;
+            }
+            for ( int i = 0; i < parameterRowType.getFieldCount(); i++ ) {
+                final PolyType type = parameterRowType.getFields().get( i ).getType().getPolyType();
+                if ( normalized.literals().get( i ).isString() ? type != PolyType.VARCHAR : !PolyType.NUMERIC_TYPES.contains( type ) ) {
+                    return UNCACHEABLE;
+                }
+            }
+            return new Entry( root, parameterRowType, node );
+        }
+
+
+        public boolean isCacheable() {
+            return root != null;
+        }
+
+
+        /**
+         * Returns the values of the literals for the parameters, or {@code null} if one of them cannot be bound.
+         */
+        public @Nullable List<PolyValue> bind( NormalizedQuery normalized ) {
+            final List<PolyValue> values = new ArrayList<>( normalized.literals().size() );
+            for ( int i = 0; i < normalized.literals().size(); i++ ) {
+                final PolyValue value = QueryTextCache.bind( normalized.literals().get( i ), parameterRowType.getFields().get( i ).getType() );
+                if ( value == null ) {
+                    return null;
+                }
+                values.add( value );
+            }
+            return values;
+        }
+
+
+        /**
+         * Copies the plan into a cluster of the statement.
+         *
+         * @return the copy or {@code null} if the plan contains nodes, which cannot be copied
+         */
+        public @Nullable AlgRoot instantiate( Statement statement ) {
+            final AlgCluster cluster = AlgCluster.create(
+                    statement.getQueryProcessor().getPlanner(),
+                    new RexBuilder( statement.getTransaction().getTypeFactory() ),
+                    root.alg.getCluster().traitSet(),
+                    statement.getDataContext().getSnapshot() );
+            final AlgNode copy = copy( root.alg, cluster );
+            if ( copy == null ) {
+                return null;
+            }
+            copy.replaceCluster( cluster );
+            return root.withAlg( copy );
+        }
+
+
+        private static AlgNode copy( AlgNode node, AlgCluster cluster ) {
+            if ( node instanceof LogicalRelScan scan ) {
+                return new LogicalRelScan( cluster, scan.getTraitSet(), scan.entity );
+            }
+            final List<AlgNode> inputs = new ArrayList<>( node.getInputs().size() );
+            for ( AlgNode input : node.getInputs() ) {
+                final AlgNode copy = copy( input, cluster );
+                if ( copy == null ) {
+                    return null;
+                }
+                inputs.add( copy );
+            }
+            final AlgNode copy = node.copy( node.getTraitSet(), inputs );
+            // Nodes which return themselves would be moved to the other cluster
+            return copy == node ? null : copy;
+        }
+
+    }
+
+}
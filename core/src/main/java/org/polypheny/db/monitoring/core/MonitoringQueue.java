@@ -47,4 +47,28 @@ public interface MonitoringQueue {
 
     long getNumberOfProcessedEvents();
 
+    /**
+     * @return Number of events which were discarded because the processing fell behind
+     */
+    long getNumberOfDroppedEvents();
+
+
+    /**
+     * How new events are handled if the queue is full.
+     */
+    enum OverloadPolicy {
+        /**
+         * Waits for space in the queue, which slows down the producers of the events.
+         */
+        BLOCK,
+        /**
+         * Discards new events while the queue is full.
+         */
+        DROP,
+        /**
+         * Only keeps a sample of the new events while the queue is more than three quarters full.
+         */
+        SAMPLE
+    }
+
 }
@@ -16,6 +16,7 @@
 
 package org.polypheny.db.monitoring.repository;
 
+import java.util.List;
 import org.polypheny.db.monitoring.events.MonitoringDataPoint;
 
 
@@ -28,4 +29,15 @@ public interface MonitoringRepository {
      */
     void dataPoint( MonitoringDataPoint dataPoint );
 
+    /**
+     * Monitoring data of a batch of events that needs to be processed.
+     *
+     * @param dataPoints to be processed, in the order of their events
+     */
+    default void dataPoints( List<MonitoringDataPoint> dataPoints ) {
+        for ( MonitoringDataPoint dataPoint : dataPoints ) {
+            dataPoint( dataPoint );
+        }
+    }
+
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.partition;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Exponentially decayed read and write counters of partitions, which are used to decide which partitions of a
+ * TEMPERATURE partitioned table are hot.
+ * Accesses are counted on striped {@link LongAdder}s, so recording an access neither locks nor contends. Only the
+ * partitions which are tracked by the {@link FrequencyMap} are counted, accesses to other partitions are ignored.
+ * Reading a counter folds the accesses since the last read into the decayed value, hence reading the hotness of a
+ * table is linear in the number of its partitions and independent of the number of executed statements.
+ */
+public class PartitionAccessCounters {
+
+    public static final PartitionAccessCounters INSTANCE = new PartitionAccessCounters();
+
+    private final Map<Long, DecayingCounter> reads = new ConcurrentHashMap<>();
+    private final Map<Long, DecayingCounter> writes = new ConcurrentHashMap<>();
+
+
+    /**
+     * Starts counting the accesses of the given partitions.
+     */
+    public void track( Collection<Long> partitionIds ) {
+        long now = System.currentTimeMillis();
+        for ( long partitionId : partitionIds ) {
+            reads.computeIfAbsent( partitionId, id -> new DecayingCounter( now ) );
+            writes.computeIfAbsent( partitionId, id -> new DecayingCounter( now ) );
+        }
+    }
+
+
+    /**
+     * Stops counting the accesses of all partitions except the given ones.
+     */
+    public void retain( Set<Long> partitionIds ) {
+        reads.keySet().retainAll( partitionIds );
+        writes.keySet().retainAll( partitionIds );
+    }
+
+
+    public void clear() {
+        reads.clear();
+        writes.clear();
+    }
+
+
+    public void recordReads( Collection<Long> partitionIds ) {
+        record( reads, partitionIds );
+    }
+
+
+    public void recordWrites( Collection<Long> partitionIds ) {
+        record( writes, partitionIds );
+    }
+
+
+    /**
+     * Returns the decayed number of reads of the partition.
+     *
+     * @param now current time in milliseconds
+     * @param halfLife milliseconds after which an access counts half
+     */
+    public double getReads( long partitionId, long now, long halfLife ) {
+        return get( reads, partitionId, now, halfLife );
+    }
+
+
+    /**
+     * Returns the decayed number of writes of the partition.
+     *
+     * @param now current time in milliseconds
+     * @param halfLife milliseconds after which an access counts half
+     */
+    public double getWrites( long partitionId, long now, long halfLife ) {
+        return get( writes, partitionId, now, halfLife );
+    }
+
+
+    private static void record( Map<Long, DecayingCounter> counters, Collection<Long> partitionIds ) {
+        if ( counters.isEmpty() ) {
+            return;
+        }
+        for ( long partitionId : partitionIds ) {
+            DecayingCounter counter = counters.get( partitionId );
+            if ( counter != null ) {
+                counter.increment();
+            }
+        }
+    }
+
+
+    private static double get( Map<Long, DecayingCounter> counters, long partitionId, long now, long halfLife ) {
+        DecayingCounter counter = counters.get( partitionId );
+        return counter == null ? 0 : counter.roll( now, halfLife );
+    }
+
+
+    /**
+     * Counter whose value halves every half-life. New accesses are collected in a {@link LongAdder} and folded into the
+     * decayed value when the counter is read.
+     */
+    private static class DecayingCounter {
+
+        private final LongAdder recent = new LongAdder();
+        private double decayed = 0;
+        private long lastRoll;
+
+
+        DecayingCounter( long now ) {
+            this.lastRoll = now;
+        }
+
+
+        void increment() {
+            recent.increment();
+        }
+
+
+        synchronized double roll( long now, long halfLife ) {
+            long elapsed = Math.max( 0, now - lastRoll );
+            decayed = decayed * Math.pow( 0.5, (double) elapsed / Math.max( 1, halfLife ) ) + recent.sumThenReset();
+            lastRoll = Math.max( lastRoll, now );
+            return decayed;
+        }
+
+    }
+
+}
@@ -16,6 +16,7 @@
 
 package org.polypheny.db.partition;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.polypheny.db.catalog.entity.allocation.AllocationColumn;
@@ -24,6 +25,7 @@
 import org.polypheny.db.catalog.entity.logical.LogicalTable;
 import org.polypheny.db.partition.properties.PartitionProperty;
 import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyValue;
 
 
 public interface PartitionManager {
@@ -35,6 +37,29 @@ public interface PartitionManager {
      */
     long getTargetPartitionId( LogicalTable table, PartitionProperty property, String columnValue );
 
+    /**
+     * Returns the partition of every value, the value at position {@code i} is placed on the partition at position
+     * {@code i} of the returned array. In contrast to {@link #getTargetPartitionId}, the catalog is only consulted
+     * once per call and not once per value, which makes this the method of choice for routing batches of values.
+     *
+     * @param values values of the partition column, {@code null} or a null value is placed like {@link #NULL_STRING}
+     */
+    default long[] getTargetPartitionIds( LogicalTable table, PartitionProperty property, List<PolyValue> values ) {
+        Map<String, Long> partitionIds = new HashMap<>();
+        long[] targets = new long[values.size()];
+        for ( int i = 0; i < targets.length; i++ ) {
+            targets[i] = partitionIds.computeIfAbsent( asPartitionValue( values.get( i ) ), value -> getTargetPartitionId( table, property, value ) );
+        }
+        return targets;
+    }
+
+    /**
+     * Returns the string representation of a value as it is passed to {@link #getTargetPartitionId}.
+     */
+    static String asPartitionValue( PolyValue value ) {
+        return value == null || value.isNull() ? NULL_STRING : value.toString();
+    }
+
     boolean probePartitionGroupDistributionChange( LogicalTable table, int storeId, long columnId, int threshold );
 
     Map<Long, List<AllocationColumn>> getRelevantPlacements( LogicalTable table, List<AllocationEntity> allocs, List<Long> excludedAdapters );
@@ -82,6 +82,13 @@ public String algCompareString() {
     }
 
 
+    @Override
+    protected String computeFingerprintDescriptor() {
+        // Same as for the compare string, only the identity of this node is meaningful.
+        return this.getClass().getSimpleName() + "#" + id;
+    }
+
+
     @Override
     public AlgOptCost computeSelfCost( AlgPlanner planner, AlgMetadataQuery mq ) {
         // HepAlgMetadataProvider is supposed to intercept this and redirect to the real rels. But sometimes it doesn't.
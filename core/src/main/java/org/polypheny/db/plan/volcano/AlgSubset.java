@@ -179,6 +179,13 @@ public String algCompareString() {
     }
 
 
+    @Override
+    protected String computeFingerprintDescriptor() {
+        // Same as for the compare string, only the identity of this node is meaningful.
+        return this.getClass().getSimpleName() + "#" + id;
+    }
+
+
     @Override
     public AlgOptCost computeSelfCost( AlgPlanner planner, AlgMetadataQuery mq ) {
         return planner.getCostFactory().makeZeroCost();
@@ -24,6 +24,7 @@
 import org.polypheny.db.algebra.constant.Kind;
 import org.polypheny.db.algebra.type.AlgDataType;
 import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.languages.NormalizedQuery;
 import org.polypheny.db.languages.QueryParameters;
 import org.polypheny.db.nodes.ExecutableStatement;
 import org.polypheny.db.nodes.Node;
@@ -88,4 +89,15 @@ PolyImplementation getImplementation( Statement statement, ExecutableStatement n
 
     public abstract List<String> splitStatements( String statements );
 
+
+    /**
+     * Replaces the literals of the query, which can be bound as dynamic parameters without changing its plan. Queries,
+     * which only differ in these literals, share an entry of the {@link org.polypheny.db.languages.QueryTextCache}.
+     *
+     * @return the normalized query, or {@code null} if the language or the query does not support normalization
+     */
+    public NormalizedQuery normalize( String query ) {
+        return null;
+    }
+
 }
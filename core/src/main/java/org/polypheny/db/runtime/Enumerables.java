@@ -34,8 +34,15 @@
 package org.polypheny.db.runtime;
 
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
 import java.util.function.Supplier;
+import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.linq4j.function.Function1;
 import org.polypheny.db.interpreter.Row;
 import org.polypheny.db.type.entity.PolyValue;
@@ -75,5 +82,56 @@ public static Supplier<Enumerable<Row<PolyValue>>> toRow( final Supplier<Enumera
         return () -> toRow( supplier.get() );
     }
 
+
+    /**
+     * Returns the elements at the positions {@code offset} to {@code offset + fetch} of the input sorted by the keys of its
+     * elements, as {@code input.orderBy( keySelector, comparator ).skip( offset ).take( fetch )} does. Instead of sorting
+     * the whole input, only the first {@code offset + fetch} elements are kept in a bounded heap. The order of elements with
+     * equal keys is not defined.
+     *
+     * @param comparator comparator of the keys, natural order if {@code null}
+     */
+    public static <T, K> Enumerable<T> topN( final Enumerable<T> input, final Function1<T, K> keySelector, final Comparator<K> comparator, final int offset, final int fetch ) {
+        final Comparator<T> rowComparator = comparator == null
+                ? ( a, b ) -> compareNatural( keySelector.apply( a ), keySelector.apply( b ) )
+                : ( a, b ) -> comparator.compare( keySelector.apply( a ), keySelector.apply( b ) );
+        final int skip = Math.max( offset, 0 );
+        final long limit = (long) skip + fetch;
+        return new AbstractEnumerable<>() {
+            @Override
+            public Enumerator<T> enumerator() {
+                if ( fetch <= 0 ) {
+                    return Linq4j.emptyEnumerator();
+                }
+                if ( limit >= Integer.MAX_VALUE ) {
+                    // The heap cannot be bounded, sort the whole input
+                    return input.orderBy( keySelector, comparator ).skip( skip ).take( fetch ).enumerator();
+                }
+                // The head of the heap is the largest element kept so far
+                final PriorityQueue<T> heap = new PriorityQueue<>( (int) Math.min( limit, 1024 ) + 1, rowComparator.reversed() );
+                try ( Enumerator<T> enumerator = input.enumerator() ) {
+                    while ( enumerator.moveNext() ) {
+                        final T element = enumerator.current();
+                        if ( heap.size() < limit ) {
+                            heap.add( element );
+                        } else if ( rowComparator.compare( element, heap.peek() ) < 0 ) {
+                            heap.poll();
+                            heap.add( element );
+                        }
+                    }
+                }
+                final List<T> elements = new ArrayList<>( heap );
+                elements.sort( rowComparator );
+                return Linq4j.enumerator( elements.subList( Math.min( skip, elements.size() ), elements.size() ) );
+            }
+        };
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <K> int compareNatural( K a, K b ) {
+        return ((Comparable<K>) a).compareTo( b );
+    }
+
 }
 
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ManagedBlocker;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+
+
+/**
+ * Exchange operator, which enumerates its inputs concurrently on the {@link ParallelExecution#pool() pool} and gathers
+ * their elements in the order they arrive. Workers pass the elements in chunks through a bounded queue, so a slow
+ * consumer throttles the workers. Closing the enumerator waits for the workers, so that no input is still enumerated
+ * afterwards.
+ * <p>
+ * The inputs must not share state which is not thread-safe, like the connection of an adapter within a transaction.
+ * The {@link org.polypheny.db.algebra.enumerable.EnumerableGatherRule} ensures this for plans.
+ *
+ * @param <T> element type
+ */
+public class GatherEnumerable<T> extends AbstractEnumerable<T> {
+
+    private static final int CHUNK_SIZE = 256;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final Object DONE = new Object();
+
+    private static final AtomicLong RUNS = new AtomicLong();
+
+    @Getter
+    private final List<Enumerable<T>> inputs;
+
+
+    private GatherEnumerable( List<Enumerable<T>> inputs ) {
+        this.inputs = inputs;
+    }
+
+
+    /**
+     * Returns the concatenation of the inputs, which are enumerated concurrently.
+     */
+    public static <T> Enumerable<T> of( Enumerable<T>[] inputs ) {
+        return new GatherEnumerable<>( List.of( inputs ) );
+    }
+
+
+    @Override
+    public Enumerator<T> enumerator() {
+        return new GatherEnumerator();
+    }
+
+
+    /**
+     * Returns how often the inputs of a gather have been enumerated concurrently.
+     */
+    public static long getRuns() {
+        return RUNS.get();
+    }
+
+
+    private final class GatherEnumerator implements Enumerator<T> {
+
+        private Run run;
+        private int running;
+
+        private List<T> chunk;
+        private int index;
+        private T current;
+
+
+        @Override
+        public T current() {
+            return current;
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean moveNext() {
+            if ( run == null ) {
+                run = new Run();
+                RUNS.incrementAndGet();
+                running = inputs.size();
+                final ForkJoinPool pool = ParallelExecution.pool();
+                for ( Enumerable<T> input : inputs ) {
+                    final Run started = run;
+                    run.workers.add( pool.submit( () -> started.produce( input ) ) );
+                }
+            }
+            while ( true ) {
+                if ( chunk != null && index < chunk.size() ) {
+                    current = chunk.get( index++ );
+                    return true;
+                }
+                chunk = null;
+                if ( running == 0 ) {
+                    current = null;
+                    return false;
+                }
+                final Object item = run.take();
+                if ( item == DONE ) {
+                    running--;
+                } else if ( item instanceof Throwable t ) {
+                    close();
+                    throw t instanceof RuntimeException e ? e : new GenericRuntimeException( t );
+                } else {
+                    chunk = (List<T>) item;
+                    index = 0;
+                }
+            }
+        }
+
+
+        @Override
+        public void reset() {
+            close();
+            run = null;
+            chunk = null;
+            current = null;
+        }
+
+
+        @Override
+        public void close() {
+            if ( run != null ) {
+                run.cancel();
+            }
+        }
+
+    }
+
+
+    /**
+     * One enumeration of the inputs. The workers of an enumeration, which has been reset, must not mix their elements
+     * into the queue of the next enumeration.
+     */
+    private final class Run {
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>( QUEUE_CAPACITY );
+        private final List<ForkJoinTask<?>> workers = new ArrayList<>();
+        private volatile boolean cancelled = false;
+
+
+        private void produce( Enumerable<T> input ) {
+            if ( cancelled ) {
+                // Do not open inputs of an enumeration which has already been closed
+                return;
+            }
+            try ( Enumerator<T> enumerator = input.enumerator() ) {
+                List<T> elements = new ArrayList<>( CHUNK_SIZE );
+                while ( !cancelled && enumerator.moveNext() ) {
+                    elements.add( enumerator.current() );
+                    if ( elements.size() == CHUNK_SIZE ) {
+                        put( elements );
+                        elements = new ArrayList<>( CHUNK_SIZE );
+                    }
+                }
+                if ( !elements.isEmpty() ) {
+                    put( elements );
+                }
+            } catch ( Throwable t ) {
+                put( t );
+            } finally {
+                put( DONE );
+            }
+        }
+
+
+        private void put( Object item ) {
+            final ManagedBlocker blocker = new ManagedBlocker() {
+                private boolean done = false;
+
+
+                @Override
+                public boolean block() throws InterruptedException {
+                    // Wait only shortly, so the worker notices if the enumeration has been closed
+                    done = done || queue.offer( item, 10, TimeUnit.MILLISECONDS );
+                    return done || cancelled;
+                }
+
+
+                @Override
+                public boolean isReleasable() {
+                    return done || (done = queue.offer( item ));
+                }
+            };
+            while ( !cancelled && !blocker.isReleasable() ) {
+                try {
+                    ForkJoinPool.managedBlock( blocker );
+                } catch ( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+
+        private Object take() {
+            final Object[] item = new Object[1];
+            try {
+                ForkJoinPool.managedBlock( new ManagedBlocker() {
+                    @Override
+                    public boolean block() throws InterruptedException {
+                        item[0] = queue.take();
+                        return true;
+                    }
+
+
+                    @Override
+                    public boolean isReleasable() {
+                        return item[0] != null || (item[0] = queue.poll()) != null;
+                    }
+                } );
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new GenericRuntimeException( "Interrupted while gathering the results of parallel inputs", e );
+            }
+            return item[0];
+        }
+
+
+        /**
+         * Stops the workers and waits until they have closed their inputs.
+         */
+        private void cancel() {
+            cancelled = true;
+            // Unblock the workers waiting for free space
+            queue.clear();
+            for ( ForkJoinTask<?> worker : workers ) {
+                worker.quietlyJoin();
+            }
+        }
+
+    }
+
+}
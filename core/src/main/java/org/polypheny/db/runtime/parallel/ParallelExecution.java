@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.parallel;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import org.polypheny.db.config.RuntimeConfig;
+
+
+/**
+ * Fork-join pool, which executes the parts of a query running concurrently. Workers blocking on a full or empty queue
+ * of a gather use {@link ForkJoinPool#managedBlock}, so the pool compensates for them and nested gathers cannot
+ * starve the pool.
+ */
+public final class ParallelExecution {
+
+    private static ForkJoinPool pool;
+    private static int poolParallelism;
+
+
+    private ParallelExecution() {
+        // Only static methods
+    }
+
+
+    /**
+     * Returns the maximum number of threads executing parts of one query, as configured by {@link RuntimeConfig#PARALLELISM}.
+     */
+    public static int degreeOfParallelism() {
+        final int configured = RuntimeConfig.PARALLELISM.getInteger();
+        return configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+    }
+
+
+    /**
+     * Returns the pool. A new pool is created if the degree of parallelism has been changed.
+     */
+    public static synchronized ForkJoinPool pool() {
+        final int parallelism = degreeOfParallelism();
+        if ( pool == null || poolParallelism != parallelism ) {
+            if ( pool != null ) {
+                pool.shutdown();
+            }
+            pool = new ForkJoinPool( parallelism, new WorkerThreadFactory(), null, true );
+            poolParallelism = parallelism;
+        }
+        return pool;
+    }
+
+
+    /**
+     * Executes the tasks concurrently and waits for all of them to complete. An exception thrown by a task is rethrown.
+     */
+    static void invokeAll( List<? extends ForkJoinTask<?>> tasks ) {
+        final ForkJoinPool pool = pool();
+        if ( ForkJoinTask.getPool() == pool ) {
+            ForkJoinTask.invokeAll( tasks );
+        } else {
+            pool.invoke( ForkJoinTask.adapt( () -> ForkJoinTask.invokeAll( tasks ) ) );
+        }
+    }
+
+
+    private static final class WorkerThreadFactory implements ForkJoinWorkerThreadFactory {
+
+        @Override
+        public ForkJoinWorkerThread newThread( ForkJoinPool pool ) {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread( pool );
+            thread.setName( "ParallelExecution-" + thread.getPoolIndex() );
+            thread.setDaemon( true );
+            return thread;
+        }
+
+    }
+
+}
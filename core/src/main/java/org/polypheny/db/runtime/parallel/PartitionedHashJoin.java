@@ -0,0 +1,232 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.parallel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Function2;
+import org.polypheny.db.runtime.vector.ColumnVector;
+import org.polypheny.db.type.entity.PolyValue;
+
+
+/**
+ * Equi hash join, whose hash table is built in parallel. If the inner input is a {@link GatherEnumerable}, every one
+ * of its inputs is read by its own task, which scatters the rows into buckets by the hash of their key. Then the hash
+ * table of every bucket is built by its own task. The outer input is probed by the consuming thread.
+ * Keys, which are or contain null, never match.
+ */
+public final class PartitionedHashJoin {
+
+    private PartitionedHashJoin() {
+        // Only static entry points
+    }
+
+
+    /**
+     * Joins the inputs.
+     *
+     * @param generateNullsOnRight whether outer rows without a match are joined with null, as in a left outer join
+     */
+    public static <TOuter, TInner, TKey, TResult> Enumerable<TResult> join(
+            Enumerable<TOuter> outer,
+            Enumerable<TInner> inner,
+            Function1<TOuter, TKey> outerKeySelector,
+            Function1<TInner, TKey> innerKeySelector,
+            Function2<TOuter, TInner, TResult> resultSelector,
+            boolean generateNullsOnRight ) {
+        return new AbstractEnumerable<>() {
+            @Override
+            public Enumerator<TResult> enumerator() {
+                return new JoinEnumerator<>( outer, build( inner, innerKeySelector ), outerKeySelector, resultSelector, generateNullsOnRight );
+            }
+        };
+    }
+
+
+    private static <TInner, TKey> HashTable<TKey, TInner> build( Enumerable<TInner> inner, Function1<TInner, TKey> innerKeySelector ) {
+        final List<Enumerable<TInner>> partitions = inner instanceof GatherEnumerable<TInner> gather
+                ? gather.getInputs()
+                : List.of( inner );
+        final int buckets = Integer.highestOneBit( Math.max( 1, ParallelExecution.degreeOfParallelism() * 2 - 1 ) ) << 1;
+
+        // Scatter the rows of every partition into buckets
+        final List<List<List<Entry<TKey, TInner>>>> scattered = new ArrayList<>();
+        final List<ForkJoinTask<?>> scatterTasks = new ArrayList<>();
+        for ( Enumerable<TInner> partition : partitions ) {
+            final List<List<Entry<TKey, TInner>>> partitionBuckets = new ArrayList<>( buckets );
+            for ( int i = 0; i < buckets; i++ ) {
+                partitionBuckets.add( new ArrayList<>() );
+            }
+            scattered.add( partitionBuckets );
+            scatterTasks.add( ForkJoinTask.adapt( () -> {
+                try ( Enumerator<TInner> enumerator = partition.enumerator() ) {
+                    while ( enumerator.moveNext() ) {
+                        final TInner row = enumerator.current();
+                        final TKey key = innerKeySelector.apply( row );
+                        if ( !isNullKey( key ) ) {
+                            partitionBuckets.get( bucket( key, buckets ) ).add( new Entry<>( key, row ) );
+                        }
+                    }
+                }
+            } ) );
+        }
+        ParallelExecution.invokeAll( scatterTasks );
+
+        // Build the hash table of every bucket
+        final List<Map<TKey, List<TInner>>> tables = new ArrayList<>( Collections.nCopies( buckets, null ) );
+        final List<ForkJoinTask<?>> buildTasks = new ArrayList<>();
+        for ( int i = 0; i < buckets; i++ ) {
+            final int bucket = i;
+            buildTasks.add( ForkJoinTask.adapt( () -> {
+                final Map<TKey, List<TInner>> table = new HashMap<>();
+                for ( List<List<Entry<TKey, TInner>>> partitionBuckets : scattered ) {
+                    for ( Entry<TKey, TInner> entry : partitionBuckets.get( bucket ) ) {
+                        table.computeIfAbsent( entry.key(), k -> new ArrayList<>( 1 ) ).add( entry.row() );
+                    }
+                }
+                tables.set( bucket, table );
+            } ) );
+        }
+        ParallelExecution.invokeAll( buildTasks );
+        return new HashTable<>( tables );
+    }
+
+
+    private static int bucket( Object key, int buckets ) {
+        final int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (buckets - 1);
+    }
+
+
+    /**
+     * Whether the key is null or one of its fields is null. A null key never equals another key in SQL.
+     */
+    public static boolean isNullKey( Object key ) {
+        if ( key == null ) {
+            return true;
+        }
+        if ( key instanceof PolyValue value ) {
+            return ColumnVector.isNullValue( value );
+        }
+        if ( key instanceof List<?> fields ) {
+            for ( Object field : fields ) {
+                if ( isNullKey( field ) ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
+    private record Entry<TKey, TInner>(TKey key, TInner row) {
+
+    }
+
+
+    private record HashTable<TKey, TInner>(List<Map<TKey, List<TInner>>> tables) {
+
+        List<TInner> get( TKey key ) {
+            if ( isNullKey( key ) ) {
+                return null;
+            }
+            return tables.get( bucket( key, tables.size() ) ).get( key );
+        }
+
+    }
+
+
+    private static final class JoinEnumerator<TOuter, TInner, TKey, TResult> implements Enumerator<TResult> {
+
+        private final Enumerable<TOuter> outer;
+        private final HashTable<TKey, TInner> table;
+        private final Function1<TOuter, TKey> outerKeySelector;
+        private final Function2<TOuter, TInner, TResult> resultSelector;
+        private final boolean generateNullsOnRight;
+
+        private Enumerator<TOuter> outers;
+        private TOuter outerRow;
+        private Iterator<TInner> matches;
+        private TResult current;
+
+
+        JoinEnumerator( Enumerable<TOuter> outer, HashTable<TKey, TInner> table, Function1<TOuter, TKey> outerKeySelector, Function2<TOuter, TInner, TResult> resultSelector, boolean generateNullsOnRight ) {
+            this.outer = outer;
+            this.table = table;
+            this.outerKeySelector = outerKeySelector;
+            this.resultSelector = resultSelector;
+            this.generateNullsOnRight = generateNullsOnRight;
+            this.outers = outer.enumerator();
+        }
+
+
+        @Override
+        public TResult current() {
+            return current;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            while ( true ) {
+                if ( matches != null && matches.hasNext() ) {
+                    current = resultSelector.apply( outerRow, matches.next() );
+                    return true;
+                }
+                matches = null;
+                if ( !outers.moveNext() ) {
+                    current = null;
+                    return false;
+                }
+                outerRow = outers.current();
+                final List<TInner> innerRows = table.get( outerKeySelector.apply( outerRow ) );
+                if ( innerRows != null ) {
+                    matches = innerRows.iterator();
+                } else if ( generateNullsOnRight ) {
+                    current = resultSelector.apply( outerRow, null );
+                    return true;
+                }
+            }
+        }
+
+
+        @Override
+        public void reset() {
+            outers.close();
+            outers = outer.enumerator();
+            matches = null;
+            current = null;
+        }
+
+
+        @Override
+        public void close() {
+            outers.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.spill;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.util.PolyphenyHomeDirManager;
+
+
+/**
+ * Accounts the memory, which the materializing operators of one statement use. Operators reserve the estimated size
+ * of the rows they keep in memory. If a reservation is rejected, they write rows to {@link SpillFile spill files}
+ * instead. Spill files, which have not been deleted by their operator, are deleted when the statement is closed.
+ */
+@Slf4j
+public class MemoryBudget implements AutoCloseable {
+
+    private static File folder;
+
+    @Getter
+    private final long limit;
+    private final AtomicLong reserved = new AtomicLong();
+    private final List<SpillFile> spillFiles = new ArrayList<>();
+    private final AtomicLong spilledRows = new AtomicLong();
+
+
+    /**
+     * @param limit maximum number of bytes, which can be reserved; no limit if not positive
+     */
+    public MemoryBudget( long limit ) {
+        this.limit = limit;
+    }
+
+
+    /**
+     * Creates a budget limited by {@link RuntimeConfig#QUERY_MEMORY_LIMIT}.
+     */
+    public static MemoryBudget create() {
+        return new MemoryBudget( RuntimeConfig.QUERY_MEMORY_LIMIT.getInteger() * 1024L * 1024L );
+    }
+
+
+    /**
+     * Returns the budget of the statement executing in the data context.
+     */
+    public static MemoryBudget of( DataContext dataContext ) {
+        if ( dataContext == null || dataContext.getStatement() == null ) {
+            return create();
+        }
+        return dataContext.getStatement().getMemoryBudget();
+    }
+
+
+    /**
+     * Whether operators of this statement spill to disk at all.
+     */
+    public static boolean isSpillingEnabled() {
+        return RuntimeConfig.QUERY_MEMORY_LIMIT.getInteger() > 0;
+    }
+
+
+    /**
+     * Reserves the given number of bytes, if this does not exceed the limit.
+     *
+     * @return whether the bytes have been reserved
+     */
+    public boolean tryReserve( long bytes ) {
+        while ( true ) {
+            final long current = reserved.get();
+            if ( limit > 0 && current + bytes > limit ) {
+                return false;
+            }
+            if ( reserved.compareAndSet( current, current + bytes ) ) {
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * Reserves the given number of bytes, even if this exceeds the limit.
+     */
+    public void forceReserve( long bytes ) {
+        reserved.addAndGet( bytes );
+    }
+
+
+    public void release( long bytes ) {
+        reserved.addAndGet( -bytes );
+    }
+
+
+    public long getReserved() {
+        return reserved.get();
+    }
+
+
+    /**
+     * Returns the number of rows, which have been written to spill files.
+     */
+    public long getSpilledRows() {
+        return spilledRows.get();
+    }
+
+
+    /**
+     * Creates a new spill file, which is deleted by {@link SpillFile#close()} or at the latest when this budget is closed.
+     */
+    public SpillFile createSpillFile() {
+        try {
+            final SpillFile file = new SpillFile( this, Files.createTempFile( folder().toPath(), "spill", ".bin" ) );
+            synchronized ( spillFiles ) {
+                spillFiles.add( file );
+            }
+            return file;
+        } catch ( IOException e ) {
+            throw new GenericRuntimeException( "Could not create spill file", e );
+        }
+    }
+
+
+    private static synchronized File folder() {
+        if ( folder == null ) {
+            folder = PolyphenyHomeDirManager.getInstance().registerNewFolder( "tmp/spill" );
+        }
+        return folder;
+    }
+
+
+    void spilled( SpillFile file ) {
+        spilledRows.addAndGet( file.getRowCount() );
+    }
+
+
+    void deleted( SpillFile file ) {
+        synchronized ( spillFiles ) {
+            spillFiles.remove( file );
+        }
+    }
+
+
+    @Override
+    public void close() {
+        final List<SpillFile> files;
+        synchronized ( spillFiles ) {
+            files = new ArrayList<>( spillFiles );
+        }
+        files.forEach( SpillFile::close );
+        if ( spilledRows.get() > 0 ) {
+            log.debug( "Statement spilled {} rows to disk", spilledRows.get() );
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.spill;
+
+import java.util.List;
+import org.apache.calcite.linq4j.Enumerator;
+
+
+/**
+ * Releases the reserved memory and deletes the spill files, when the enumerator is closed.
+ */
+final class ReleasingEnumerator<T> implements Enumerator<T> {
+
+    private final Enumerator<T> enumerator;
+    private final MemoryBudget budget;
+    private long reserved;
+    private final List<SpillFile> files;
+
+
+    ReleasingEnumerator( Enumerator<T> enumerator, MemoryBudget budget, long reserved, List<SpillFile> files ) {
+        this.enumerator = enumerator;
+        this.budget = budget;
+        this.reserved = reserved;
+        this.files = files;
+    }
+
+
+    @Override
+    public T current() {
+        return enumerator.current();
+    }
+
+
+    @Override
+    public boolean moveNext() {
+        return enumerator.moveNext();
+    }
+
+
+    @Override
+    public void reset() {
+        enumerator.reset();
+    }
+
+
+    @Override
+    public void close() {
+        enumerator.close();
+        budget.release( reserved );
+        reserved = 0;
+        files.forEach( SpillFile::close );
+    }
+
+}
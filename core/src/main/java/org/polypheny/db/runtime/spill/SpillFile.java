@@ -0,0 +1,259 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.spill;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.Getter;
+import org.apache.calcite.linq4j.Enumerator;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.type.entity.PolyString;
+import org.polypheny.db.type.entity.PolyValue;
+
+
+/**
+ * Temporary file, to which an operator writes rows it cannot keep in memory. Rows are either arrays of values or
+ * single values, as produced by the {@link org.polypheny.db.algebra.enumerable.JavaTupleFormat#ARRAY array} and
+ * {@link org.polypheny.db.algebra.enumerable.JavaTupleFormat#SCALAR scalar} formats. They are encoded as
+ * {@code tag [count] (length value)*}, where the values are encoded by the binary serializer of {@link PolyValue}.
+ */
+public class SpillFile implements AutoCloseable {
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    private static final byte ARRAY = 0;
+    private static final byte SCALAR = 1;
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial( () -> new byte[64 * 1024] );
+
+    private final MemoryBudget budget;
+    private final Path path;
+    private DataOutputStream out;
+    @Getter
+    private long rowCount = 0;
+
+
+    SpillFile( MemoryBudget budget, Path path ) {
+        this.budget = budget;
+        this.path = path;
+    }
+
+
+    /**
+     * Appends a row. Rows cannot be written after the file has been read.
+     */
+    public void write( Object row ) {
+        try {
+            if ( out == null ) {
+                out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( path ), IO_BUFFER_SIZE ) );
+            }
+            writeRow( out, row );
+            rowCount++;
+        } catch ( IOException e ) {
+            throw new GenericRuntimeException( "Could not write to spill file", e );
+        }
+    }
+
+
+    /**
+     * Returns an enumerator of the written rows.
+     */
+    public <T> Enumerator<T> read() {
+        try {
+            if ( out != null ) {
+                out.close();
+                out = null;
+                budget.spilled( this );
+            }
+            if ( rowCount == 0 ) {
+                return new RowEnumerator<>( null, 0 );
+            }
+            return new RowEnumerator<>( new DataInputStream( new BufferedInputStream( Files.newInputStream( path ), IO_BUFFER_SIZE ) ), rowCount );
+        } catch ( IOException e ) {
+            throw new GenericRuntimeException( "Could not read spill file", e );
+        }
+    }
+
+
+    /**
+     * Deletes the file.
+     */
+    @Override
+    public void close() {
+        try {
+            if ( out != null ) {
+                out.close();
+                out = null;
+            }
+            Files.deleteIfExists( path );
+        } catch ( IOException e ) {
+            throw new GenericRuntimeException( "Could not delete spill file", e );
+        } finally {
+            budget.deleted( this );
+        }
+    }
+
+
+    static void writeRow( DataOutput out, Object row ) throws IOException {
+        if ( row instanceof Object[] values ) {
+            out.writeByte( ARRAY );
+            out.writeInt( values.length );
+            for ( Object value : values ) {
+                writeValue( out, value );
+            }
+        } else {
+            out.writeByte( SCALAR );
+            writeValue( out, row );
+        }
+    }
+
+
+    static Object readRow( DataInput in ) throws IOException {
+        if ( in.readByte() == SCALAR ) {
+            return readValue( in );
+        }
+        final PolyValue[] values = new PolyValue[in.readInt()];
+        for ( int i = 0; i < values.length; i++ ) {
+            values[i] = readValue( in );
+        }
+        return values;
+    }
+
+
+    private static void writeValue( DataOutput out, Object object ) throws IOException {
+        if ( object == null ) {
+            out.writeInt( -1 );
+            return;
+        }
+        if ( !(object instanceof PolyValue value) ) {
+            throw new GenericRuntimeException( "Values of type %s cannot be spilled", object.getClass().getName() );
+        }
+        byte[] buffer = BUFFER.get();
+        while ( true ) {
+            try {
+                final int length = PolyValue.serializer.encode( buffer, 0, value );
+                out.writeInt( length );
+                out.write( buffer, 0, length );
+                return;
+            } catch ( ArrayIndexOutOfBoundsException e ) {
+                // The value does not fit into the buffer
+                buffer = new byte[buffer.length * 2];
+                BUFFER.set( buffer );
+            }
+        }
+    }
+
+
+    private static PolyValue readValue( DataInput in ) throws IOException {
+        final int length = in.readInt();
+        if ( length < 0 ) {
+            return null;
+        }
+        byte[] buffer = BUFFER.get();
+        if ( buffer.length < length ) {
+            buffer = new byte[Integer.highestOneBit( length ) << 1];
+            BUFFER.set( buffer );
+        }
+        in.readFully( buffer, 0, length );
+        return PolyValue.serializer.decode( buffer, 0 );
+    }
+
+
+    /**
+     * Returns the estimated number of bytes, which the row occupies on the heap.
+     */
+    public static long estimateSize( Object row ) {
+        if ( row instanceof Object[] values ) {
+            long size = 16 + 8L * values.length;
+            for ( Object value : values ) {
+                size += estimateSize( value );
+            }
+            return size;
+        }
+        if ( row == null ) {
+            return 0;
+        }
+        if ( row instanceof PolyString string && string.value != null ) {
+            return 56 + 2L * string.value.length();
+        }
+        // Object header, type and boxed value
+        return 48;
+    }
+
+
+    private static final class RowEnumerator<T> implements Enumerator<T> {
+
+        private final DataInputStream in;
+        private final long count;
+        private long read = 0;
+        private T current;
+
+
+        RowEnumerator( DataInputStream in, long count ) {
+            this.in = in;
+            this.count = count;
+        }
+
+
+        @Override
+        public T current() {
+            return current;
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean moveNext() {
+            if ( read == count ) {
+                current = null;
+                return false;
+            }
+            try {
+                current = (T) readRow( in );
+                read++;
+                return true;
+            } catch ( IOException e ) {
+                throw new GenericRuntimeException( "Could not read spill file", e );
+            }
+        }
+
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void close() {
+            if ( in != null ) {
+                try {
+                    in.close();
+                } catch ( IOException e ) {
+                    throw new GenericRuntimeException( "Could not close spill file", e );
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.spill;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.function.Function0;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Function2;
+import org.polypheny.db.adapter.DataContext;
+
+
+/**
+ * Hybrid hash aggregation. Groups are accumulated in memory as long as the {@link MemoryBudget} of the statement
+ * permits. Rows of groups, which do not fit into memory anymore, are partitioned by the hash of their key and written
+ * to spill files. After the groups in memory have been returned, every spill file is aggregated in the same way.
+ * As the rows of a group end up in the same file, the accumulators never have to be written to disk.
+ */
+public final class SpillingAggregate {
+
+    static final int PARTITIONS = 16;
+    /**
+     * Depth of recursive partitioning, after which all groups are kept in memory.
+     */
+    static final int MAX_DEPTH = 4;
+
+
+    private SpillingAggregate() {
+        // Only static entry points
+    }
+
+
+    /**
+     * Groups the input by the keys of its rows, as {@link org.apache.calcite.linq4j.ExtendedEnumerable#groupBy(Function1, Function0, Function2, Function2)}.
+     */
+    public static <T, K, A, R> Enumerable<R> groupBy(
+            DataContext root,
+            Enumerable<T> input,
+            Function1<T, K> keySelector,
+            Function0<A> accumulatorInitializer,
+            Function2<A, T, A> accumulatorAdder,
+            Function2<K, A, R> resultSelector ) {
+        return groupBy( MemoryBudget.of( root ), input, keySelector, accumulatorInitializer, accumulatorAdder, resultSelector );
+    }
+
+
+    static <T, K, A, R> Enumerable<R> groupBy(
+            MemoryBudget budget,
+            Enumerable<T> input,
+            Function1<T, K> keySelector,
+            Function0<A> accumulatorInitializer,
+            Function2<A, T, A> accumulatorAdder,
+            Function2<K, A, R> resultSelector ) {
+        return new AbstractEnumerable<>() {
+            @Override
+            public Enumerator<R> enumerator() {
+                return new AggregateEnumerator<>( budget, input, keySelector, accumulatorInitializer, accumulatorAdder, resultSelector );
+            }
+        };
+    }
+
+
+    /**
+     * Returns the spill partition of the key at the given depth. Every depth uses other bits of the hash code.
+     */
+    static int partition( Object key, int depth ) {
+        return Integer.rotateLeft( Objects.hashCode( key ) * 0x9E3779B9, depth * 4 ) >>> 28;
+    }
+
+
+    private static final class AggregateEnumerator<T, K, A, R> implements Enumerator<R> {
+
+        private final MemoryBudget budget;
+        private final Enumerable<T> input;
+        private final Function1<T, K> keySelector;
+        private final Function0<A> accumulatorInitializer;
+        private final Function2<A, T, A> accumulatorAdder;
+        private final Function2<K, A, R> resultSelector;
+
+        // Spill files, which still have to be aggregated, and their depth
+        private final ArrayDeque<SpillFile> pending = new ArrayDeque<>();
+        private final ArrayDeque<Integer> pendingDepths = new ArrayDeque<>();
+        private boolean inputDone = false;
+
+        private Iterator<Map.Entry<K, A>> groups;
+        private long reserved = 0;
+        private R current;
+
+
+        AggregateEnumerator( MemoryBudget budget, Enumerable<T> input, Function1<T, K> keySelector, Function0<A> accumulatorInitializer, Function2<A, T, A> accumulatorAdder, Function2<K, A, R> resultSelector ) {
+            this.budget = budget;
+            this.input = input;
+            this.keySelector = keySelector;
+            this.accumulatorInitializer = accumulatorInitializer;
+            this.accumulatorAdder = accumulatorAdder;
+            this.resultSelector = resultSelector;
+        }
+
+
+        @Override
+        public R current() {
+            return current;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            while ( groups == null || !groups.hasNext() ) {
+                budget.release( reserved );
+                reserved = 0;
+                groups = null;
+                if ( !inputDone ) {
+                    inputDone = true;
+                    try ( Enumerator<T> rows = input.enumerator() ) {
+                        groups = aggregate( rows, 0 );
+                    }
+                } else if ( !pending.isEmpty() ) {
+                    final int depth = pendingDepths.poll();
+                    try ( SpillFile file = pending.poll(); Enumerator<T> rows = file.read() ) {
+                        groups = aggregate( rows, depth );
+                    }
+                } else {
+                    current = null;
+                    return false;
+                }
+            }
+            final Map.Entry<K, A> group = groups.next();
+            current = resultSelector.apply( group.getKey(), group.getValue() );
+            return true;
+        }
+
+
+        /**
+         * Aggregates the rows in memory and spills the rows of groups exceeding the budget to partitions of the next depth.
+         * Once a partition has been spilled, all new groups of the partition are spilled, so that no group is both in
+         * memory and in a spill file.
+         */
+        private Iterator<Map.Entry<K, A>> aggregate( Enumerator<T> rows, int depth ) {
+            final Map<K, A> accumulators = new HashMap<>();
+            final SpillFile[] partitions = new SpillFile[PARTITIONS];
+            while ( rows.moveNext() ) {
+                final T row = rows.current();
+                final K key = keySelector.apply( row );
+                A accumulator = accumulators.get( key );
+                if ( accumulator == null && !accumulators.containsKey( key ) ) {
+                    final int partition = partition( key, depth );
+                    if ( depth < MAX_DEPTH && partitions[partition] != null ) {
+                        // The key may have been spilled before, a later and smaller row must not start a second group in memory
+                        partitions[partition].write( row );
+                        continue;
+                    }
+                    final long size = SpillFile.estimateSize( row );
+                    if ( !budget.tryReserve( size ) ) {
+                        if ( depth < MAX_DEPTH && !accumulators.isEmpty() ) {
+                            partitions[partition] = budget.createSpillFile();
+                            partitions[partition].write( row );
+                            continue;
+                        }
+                        // Keep at least one group, or all groups of the deepest partitions, even if this exceeds the budget
+                        budget.forceReserve( size );
+                    }
+                    reserved += size;
+                    accumulator = accumulatorInitializer.apply();
+                }
+                accumulators.put( key, accumulatorAdder.apply( accumulator, row ) );
+            }
+            for ( SpillFile partition : partitions ) {
+                if ( partition != null ) {
+                    pending.add( partition );
+                    pendingDepths.add( depth + 1 );
+                }
+            }
+            return accumulators.entrySet().iterator();
+        }
+
+
+        @Override
+        public void reset() {
+            close();
+            inputDone = false;
+        }
+
+
+        @Override
+        public void close() {
+            budget.release( reserved );
+            reserved = 0;
+            groups = null;
+            pending.forEach( SpillFile::close );
+            pending.clear();
+            pendingDepths.clear();
+        }
+
+    }
+
+}
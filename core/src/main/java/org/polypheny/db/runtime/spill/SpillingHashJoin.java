@@ -0,0 +1,322 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.spill;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Function2;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.runtime.parallel.PartitionedHashJoin;
+
+
+/**
+ * Grace hash join. The hash table of the inner input is built in memory as long as the {@link MemoryBudget} of the
+ * statement permits. Otherwise, both inputs are partitioned by the hash of their keys and written to spill files,
+ * and the partitions are joined one after the other. The keys of spilled rows are computed again when they are read.
+ */
+public final class SpillingHashJoin {
+
+    /**
+     * Estimated size of a hash table entry in addition to the row.
+     */
+    private static final long ENTRY_OVERHEAD = 64;
+
+
+    private SpillingHashJoin() {
+        // Only static entry points
+    }
+
+
+    /**
+     * Joins the inputs on equal keys, as {@link org.apache.calcite.linq4j.ExtendedEnumerable#hashJoin(Enumerable, Function1, Function1, Function2, org.apache.calcite.linq4j.function.EqualityComparer, boolean, boolean)}.
+     * Rows with a null key do not match any row.
+     *
+     * @param generateNullsOnRight whether outer rows without a match are returned with {@code null} (left join)
+     */
+    public static <TOuter, TInner, TKey, TResult> Enumerable<TResult> join(
+            DataContext root,
+            Enumerable<TOuter> outer,
+            Enumerable<TInner> inner,
+            Function1<TOuter, TKey> outerKeySelector,
+            Function1<TInner, TKey> innerKeySelector,
+            Function2<TOuter, TInner, TResult> resultSelector,
+            boolean generateNullsOnRight ) {
+        return join( MemoryBudget.of( root ), outer, inner, outerKeySelector, innerKeySelector, resultSelector, generateNullsOnRight );
+    }
+
+
+    static <TOuter, TInner, TKey, TResult> Enumerable<TResult> join(
+            MemoryBudget budget,
+            Enumerable<TOuter> outer,
+            Enumerable<TInner> inner,
+            Function1<TOuter, TKey> outerKeySelector,
+            Function1<TInner, TKey> innerKeySelector,
+            Function2<TOuter, TInner, TResult> resultSelector,
+            boolean generateNullsOnRight ) {
+        return new AbstractEnumerable<>() {
+            @Override
+            public Enumerator<TResult> enumerator() {
+                return new JoinEnumerator<>( budget, outer, inner, outerKeySelector, innerKeySelector, resultSelector, generateNullsOnRight );
+            }
+        };
+    }
+
+
+    private static final class JoinEnumerator<TOuter, TInner, TKey, TResult> implements Enumerator<TResult> {
+
+        private final MemoryBudget budget;
+        private final Enumerable<TOuter> outer;
+        private final Enumerable<TInner> inner;
+        private final Function1<TOuter, TKey> outerKeySelector;
+        private final Function1<TInner, TKey> innerKeySelector;
+        private final Function2<TOuter, TInner, TResult> resultSelector;
+        private final boolean generateNullsOnRight;
+
+        private boolean started = false;
+        private Map<TKey, List<TInner>> table;
+        private long reserved = 0;
+
+        // Only set if the inner input did not fit into memory
+        private SpillFile[] innerPartitions;
+        private SpillFile[] outerPartitions;
+        private int partition = -1;
+
+        private Enumerator<TOuter> probe;
+        private TOuter outerRow;
+        private Iterator<TInner> matches;
+        private TResult current;
+
+
+        JoinEnumerator(
+                MemoryBudget budget,
+                Enumerable<TOuter> outer,
+                Enumerable<TInner> inner,
+                Function1<TOuter, TKey> outerKeySelector,
+                Function1<TInner, TKey> innerKeySelector,
+                Function2<TOuter, TInner, TResult> resultSelector,
+                boolean generateNullsOnRight ) {
+            this.budget = budget;
+            this.outer = outer;
+            this.inner = inner;
+            this.outerKeySelector = outerKeySelector;
+            this.innerKeySelector = innerKeySelector;
+            this.resultSelector = resultSelector;
+            this.generateNullsOnRight = generateNullsOnRight;
+        }
+
+
+        @Override
+        public TResult current() {
+            return current;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            if ( !started ) {
+                started = true;
+                build();
+            }
+            while ( true ) {
+                if ( matches != null && matches.hasNext() ) {
+                    current = resultSelector.apply( outerRow, matches.next() );
+                    return true;
+                }
+                matches = null;
+                if ( probe != null && probe.moveNext() ) {
+                    outerRow = probe.current();
+                    final TKey key = outerKeySelector.apply( outerRow );
+                    final List<TInner> rows = PartitionedHashJoin.isNullKey( key ) ? null : table.get( key );
+                    if ( rows != null ) {
+                        matches = rows.iterator();
+                    } else if ( generateNullsOnRight ) {
+                        current = resultSelector.apply( outerRow, null );
+                        return true;
+                    }
+                    continue;
+                }
+                if ( probe != null ) {
+                    probe.close();
+                    probe = null;
+                }
+                if ( !nextPartition() ) {
+                    current = null;
+                    return false;
+                }
+            }
+        }
+
+
+        /**
+         * Builds the hash table of the inner input, or partitions both inputs if it exceeds the budget.
+         */
+        private void build() {
+            table = new HashMap<>();
+            try ( Enumerator<TInner> rows = inner.enumerator() ) {
+                while ( rows.moveNext() ) {
+                    final TInner row = rows.current();
+                    final TKey key = innerKeySelector.apply( row );
+                    if ( PartitionedHashJoin.isNullKey( key ) ) {
+                        continue;
+                    }
+                    if ( innerPartitions == null ) {
+                        final long size = SpillFile.estimateSize( row ) + ENTRY_OVERHEAD;
+                        if ( budget.tryReserve( size ) ) {
+                            reserved += size;
+                            table.computeIfAbsent( key, k -> new ArrayList<>( 1 ) ).add( row );
+                            continue;
+                        }
+                        // Move the hash table to the partitions
+                        innerPartitions = new SpillFile[SpillingAggregate.PARTITIONS];
+                        for ( Map.Entry<TKey, List<TInner>> entry : table.entrySet() ) {
+                            for ( TInner tableRow : entry.getValue() ) {
+                                write( innerPartitions, entry.getKey(), tableRow );
+                            }
+                        }
+                        table.clear();
+                        budget.release( reserved );
+                        reserved = 0;
+                    }
+                    write( innerPartitions, key, row );
+                }
+            }
+            if ( innerPartitions == null ) {
+                probe = outer.enumerator();
+                return;
+            }
+            outerPartitions = new SpillFile[SpillingAggregate.PARTITIONS];
+            try ( Enumerator<TOuter> rows = outer.enumerator() ) {
+                while ( rows.moveNext() ) {
+                    final TOuter row = rows.current();
+                    final TKey key = outerKeySelector.apply( row );
+                    if ( generateNullsOnRight || !PartitionedHashJoin.isNullKey( key ) ) {
+                        write( outerPartitions, key, row );
+                    }
+                }
+            }
+        }
+
+
+        private void write( SpillFile[] partitions, TKey key, Object row ) {
+            final int i = SpillingAggregate.partition( key, 0 );
+            if ( partitions[i] == null ) {
+                partitions[i] = budget.createSpillFile();
+            }
+            partitions[i].write( row );
+        }
+
+
+        /**
+         * Loads the hash table of the next partition, which can produce results, and starts probing it.
+         */
+        private boolean nextPartition() {
+            if ( innerPartitions == null ) {
+                return false;
+            }
+            budget.release( reserved );
+            reserved = 0;
+            table.clear();
+            if ( partition >= 0 ) {
+                closePartition( partition );
+            }
+            do {
+                partition++;
+                if ( partition == SpillingAggregate.PARTITIONS ) {
+                    return false;
+                }
+                if ( !hasResults( partition ) ) {
+                    closePartition( partition );
+                }
+            } while ( !hasResults( partition ) );
+
+            if ( innerPartitions[partition] != null ) {
+                try ( Enumerator<TInner> rows = innerPartitions[partition].read() ) {
+                    while ( rows.moveNext() ) {
+                        final TInner row = rows.current();
+                        // A partition has to be kept in memory, even if it exceeds the budget
+                        final long size = SpillFile.estimateSize( row ) + ENTRY_OVERHEAD;
+                        budget.forceReserve( size );
+                        reserved += size;
+                        table.computeIfAbsent( innerKeySelector.apply( row ), k -> new ArrayList<>( 1 ) ).add( row );
+                    }
+                }
+            }
+            probe = outerPartitions[partition].read();
+            return true;
+        }
+
+
+        private boolean hasResults( int i ) {
+            return outerPartitions[i] != null && (innerPartitions[i] != null || generateNullsOnRight);
+        }
+
+
+        private void closePartition( int i ) {
+            if ( innerPartitions[i] != null ) {
+                innerPartitions[i].close();
+                innerPartitions[i] = null;
+            }
+            if ( outerPartitions[i] != null ) {
+                outerPartitions[i].close();
+                outerPartitions[i] = null;
+            }
+        }
+
+
+        @Override
+        public void reset() {
+            close();
+            started = false;
+        }
+
+
+        @Override
+        public void close() {
+            if ( probe != null ) {
+                probe.close();
+                probe = null;
+            }
+            matches = null;
+            table = null;
+            budget.release( reserved );
+            reserved = 0;
+            if ( innerPartitions != null ) {
+                for ( int i = 0; i < innerPartitions.length; i++ ) {
+                    if ( outerPartitions == null ) {
+                        if ( innerPartitions[i] != null ) {
+                            innerPartitions[i].close();
+                        }
+                    } else {
+                        closePartition( i );
+                    }
+                }
+            }
+            innerPartitions = null;
+            outerPartitions = null;
+            partition = -1;
+        }
+
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.spill;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Function1;
+import org.polypheny.db.adapter.DataContext;
+
+
+/**
+ * External merge sort. Rows are sorted in memory as long as the {@link MemoryBudget} of the statement permits.
+ * Otherwise, the rows in memory are sorted and written to a spill file as a sorted run, and the runs are merged at the
+ * end.
+ */
+public final class SpillingSort {
+
+    private SpillingSort() {
+        // Only static entry points
+    }
+
+
+    /**
+     * Sorts the input by the keys of its rows.
+     *
+     * @param comparator comparator of the keys, natural order if {@code null}
+     */
+    public static <T, K> Enumerable<T> orderBy( DataContext root, Enumerable<T> input, Function1<T, K> keySelector, Comparator<K> comparator ) {
+        return orderBy( MemoryBudget.of( root ), input, keySelector, comparator );
+    }
+
+
+    static <T, K> Enumerable<T> orderBy( MemoryBudget budget, Enumerable<T> input, Function1<T, K> keySelector, Comparator<K> comparator ) {
+        final Comparator<T> rowComparator = comparator == null
+                ? ( a, b ) -> compareNatural( keySelector.apply( a ), keySelector.apply( b ) )
+                : ( a, b ) -> comparator.compare( keySelector.apply( a ), keySelector.apply( b ) );
+        return new AbstractEnumerable<>() {
+            @Override
+            public Enumerator<T> enumerator() {
+                return sort( budget, input, rowComparator );
+            }
+        };
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <K> int compareNatural( K a, K b ) {
+        return ((Comparable<K>) a).compareTo( b );
+    }
+
+
+    private static <T> Enumerator<T> sort( MemoryBudget budget, Enumerable<T> input, Comparator<T> comparator ) {
+        final List<SpillFile> runs = new ArrayList<>();
+        final List<T> rows = new ArrayList<>();
+        long reserved = 0;
+        try ( Enumerator<T> enumerator = input.enumerator() ) {
+            while ( enumerator.moveNext() ) {
+                final T row = enumerator.current();
+                final long size = SpillFile.estimateSize( row );
+                if ( !budget.tryReserve( size ) ) {
+                    if ( !rows.isEmpty() ) {
+                        runs.add( writeRun( budget, rows, comparator ) );
+                        budget.release( reserved );
+                        reserved = 0;
+                        rows.clear();
+                    }
+                    if ( !budget.tryReserve( size ) ) {
+                        // Keep at least the current row, even if other operators of the statement exhausted the budget
+                        budget.forceReserve( size );
+                    }
+                }
+                reserved += size;
+                rows.add( row );
+            }
+        } catch ( RuntimeException e ) {
+            budget.release( reserved );
+            runs.forEach( SpillFile::close );
+            throw e;
+        }
+        rows.sort( comparator );
+        if ( runs.isEmpty() ) {
+            return new ReleasingEnumerator<>( Linq4j.enumerator( rows ), budget, reserved, List.of() );
+        }
+        final List<Enumerator<T>> sources = new ArrayList<>();
+        for ( SpillFile run : runs ) {
+            sources.add( run.read() );
+        }
+        sources.add( Linq4j.enumerator( rows ) );
+        return new ReleasingEnumerator<>( new MergeEnumerator<>( sources, comparator ), budget, reserved, runs );
+    }
+
+
+    private static <T> SpillFile writeRun( MemoryBudget budget, List<T> rows, Comparator<T> comparator ) {
+        rows.sort( comparator );
+        final SpillFile run = budget.createSpillFile();
+        for ( T row : rows ) {
+            run.write( row );
+        }
+        return run;
+    }
+
+
+    /**
+     * Merges sorted enumerators.
+     */
+    private static final class MergeEnumerator<T> implements Enumerator<T> {
+
+        private final List<Enumerator<T>> sources;
+        private final PriorityQueue<Integer> heads;
+        private T current;
+
+
+        MergeEnumerator( List<Enumerator<T>> sources, Comparator<T> comparator ) {
+            this.sources = sources;
+            this.heads = new PriorityQueue<>( sources.size(), ( a, b ) -> comparator.compare( sources.get( a ).current(), sources.get( b ).current() ) );
+            for ( int i = 0; i < sources.size(); i++ ) {
+                if ( sources.get( i ).moveNext() ) {
+                    heads.add( i );
+                }
+            }
+        }
+
+
+        @Override
+        public T current() {
+            return current;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            final Integer source = heads.poll();
+            if ( source == null ) {
+                current = null;
+                return false;
+            }
+            current = sources.get( source ).current();
+            if ( sources.get( source ).moveNext() ) {
+                heads.add( source );
+            }
+            return true;
+        }
+
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void close() {
+            sources.forEach( Enumerator::close );
+        }
+
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+import lombok.Getter;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyValue;
+
+
+/**
+ * Batch of up to {@link #CAPACITY} tuples, which is exchanged between vectorized operators.
+ * The tuples are stored in column vectors. A selection vector lists the positions of the tuples which are still
+ * part of the batch, so filters do not have to copy the columns. Batches created from rows, e.g. at the boundary to
+ * an adapter, decode a column only when it is accessed.
+ */
+public final class Batch {
+
+    public static final int CAPACITY = 1024;
+
+    @Getter
+    private final PolyType[] types;
+    private final ColumnVector[] columns;
+    private final PolyValue[][] rows;
+
+    /**
+     * Number of positions, including the positions which are not selected
+     */
+    @Getter
+    private final int size;
+    private int[] selection;
+    private int selected;
+
+
+    private Batch( PolyType[] types, ColumnVector[] columns, PolyValue[][] rows, int size, int[] selection, int selected ) {
+        this.types = types;
+        this.columns = columns;
+        this.rows = rows;
+        this.size = size;
+        this.selection = selection;
+        this.selected = selected;
+    }
+
+
+    /**
+     * Creates a batch of the first {@code size} rows. The rows are not copied.
+     */
+    public static Batch ofRows( PolyType[] types, PolyValue[][] rows, int size ) {
+        return new Batch( types, new ColumnVector[types.length], rows, size, null, size );
+    }
+
+
+    /**
+     * Creates a batch of the columns with the selection of the given batch.
+     */
+    public static Batch ofColumns( PolyType[] types, ColumnVector[] columns, Batch selection ) {
+        return new Batch( types, columns, null, selection.size, selection.selection, selection.selected );
+    }
+
+
+    public int getColumnCount() {
+        return types.length;
+    }
+
+
+    public ColumnVector column( int index ) {
+        ColumnVector column = columns[index];
+        if ( column == null ) {
+            column = ColumnVector.create( types[index], size );
+            for ( int i = 0; i < selected; i++ ) {
+                int position = position( i );
+                column.set( position, rows[position][index] );
+            }
+            columns[index] = column;
+        }
+        return column;
+    }
+
+
+    /**
+     * Returns the number of selected tuples.
+     */
+    public int selected() {
+        return selected;
+    }
+
+
+    /**
+     * Returns the position of the i-th selected tuple.
+     */
+    public int position( int i ) {
+        return selection == null ? i : selection[i];
+    }
+
+
+    /**
+     * Returns the positions of the selected tuples. The array may be longer than the number of selected tuples and
+     * must not be modified.
+     */
+    public int[] positions() {
+        if ( selection == null ) {
+            selection = new int[size];
+            for ( int i = 0; i < size; i++ ) {
+                selection[i] = i;
+            }
+        }
+        return selection;
+    }
+
+
+    /**
+     * Restricts the batch to the first {@code selected} of the given positions.
+     */
+    public void select( int[] positions, int selected ) {
+        this.selection = positions;
+        this.selected = selected;
+    }
+
+
+    /**
+     * Returns the tuple at the given position as row. Rows of batches created from rows are not copied.
+     */
+    public PolyValue[] row( int position ) {
+        if ( rows != null ) {
+            return rows[position];
+        }
+        PolyValue[] row = new PolyValue[columns.length];
+        for ( int i = 0; i < columns.length; i++ ) {
+            row[i] = columns[i].get( position );
+        }
+        return row;
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+import java.util.Arrays;
+import lombok.Getter;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyString;
+import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.type.entity.category.PolyNumber;
+import org.polypheny.db.type.entity.numerical.PolyDouble;
+import org.polypheny.db.type.entity.numerical.PolyFloat;
+import org.polypheny.db.type.entity.numerical.PolyInteger;
+import org.polypheny.db.type.entity.numerical.PolyLong;
+
+
+/**
+ * Column of a {@link Batch}. Numeric values are stored unboxed, null values are marked in a bitmap. The value at a
+ * null position is undefined.
+ */
+public abstract class ColumnVector {
+
+    @Getter
+    protected final PolyType type;
+    protected final long[] nulls;
+    private boolean hasNulls = false;
+
+
+    protected ColumnVector( PolyType type, int capacity ) {
+        this( type, new long[(capacity + 63) >>> 6] );
+    }
+
+
+    protected ColumnVector( PolyType type, long[] nulls ) {
+        this.type = type;
+        this.nulls = nulls;
+    }
+
+
+    public static ColumnVector create( PolyType type, int capacity ) {
+        return switch ( kindOf( type ) ) {
+            case LONG -> new LongVector( type, capacity );
+            case DOUBLE -> new DoubleVector( type, capacity );
+            case OBJECT -> new ObjectVector( type, capacity );
+        };
+    }
+
+
+    public static VectorKind kindOf( PolyType type ) {
+        return switch ( type ) {
+            case TINYINT, SMALLINT, INTEGER, BIGINT -> VectorKind.LONG;
+            case FLOAT, REAL, DOUBLE -> VectorKind.DOUBLE;
+            default -> VectorKind.OBJECT;
+        };
+    }
+
+
+    public boolean isNull( int position ) {
+        return hasNulls && (nulls[position >>> 6] & (1L << position)) != 0;
+    }
+
+
+    public void setNull( int position ) {
+        nulls[position >>> 6] |= 1L << position;
+        hasNulls = true;
+    }
+
+
+    public void setAllNull() {
+        Arrays.fill( nulls, -1L );
+        hasNulls = true;
+    }
+
+
+    public boolean hasNulls() {
+        return hasNulls;
+    }
+
+
+    /**
+     * Marks every position as null, which is null in one of the given vectors.
+     */
+    void unionNulls( ColumnVector a, ColumnVector b ) {
+        if ( a.hasNulls || b.hasNulls ) {
+            for ( int i = 0; i < nulls.length; i++ ) {
+                nulls[i] |= (a.hasNulls ? a.nulls[i] : 0) | (b.hasNulls ? b.nulls[i] : 0);
+            }
+            hasNulls = true;
+        }
+    }
+
+
+    protected void copyNulls( ColumnVector other ) {
+        if ( other.hasNulls ) {
+            if ( other.nulls != nulls ) {
+                System.arraycopy( other.nulls, 0, nulls, 0, Math.min( nulls.length, other.nulls.length ) );
+            }
+            hasNulls = true;
+        }
+    }
+
+
+    /**
+     * Sets the position to the unboxed value or marks it as null.
+     */
+    public abstract void set( int position, PolyValue value );
+
+    /**
+     * Returns the boxed value of the position, {@code null} for null values.
+     */
+    public abstract PolyValue get( int position );
+
+    /**
+     * Returns a vector with the same values, whose values are boxed as the given type.
+     */
+    public abstract ColumnVector withType( PolyType type );
+
+
+    /**
+     * Returns the numeric value of the given value, {@code null} if it is null. Numeric values can be nulls with a
+     * numeric type, they are treated as null.
+     */
+    static Number toNumber( PolyValue value ) {
+        if ( value == null || value.isNull() ) {
+            return null;
+        }
+        if ( value instanceof PolyInteger v ) {
+            return v.value;
+        } else if ( value instanceof PolyLong v ) {
+            return v.value;
+        } else if ( value instanceof PolyDouble v ) {
+            return v.value;
+        } else if ( value instanceof PolyFloat v ) {
+            return v.value;
+        }
+        return value.asNumber().bigDecimalValue();
+    }
+
+
+    /**
+     * Whether the value represents null. Besides {@code null} and {@link org.polypheny.db.type.entity.PolyNull}, this
+     * includes numbers and strings without a value.
+     */
+    public static boolean isNullValue( PolyValue value ) {
+        if ( value == null || value.isNull() ) {
+            return true;
+        }
+        if ( value instanceof PolyNumber ) {
+            return toNumber( value ) == null;
+        }
+        return value instanceof PolyString s && s.value == null;
+    }
+
+
+    public enum VectorKind {
+        LONG, DOUBLE, OBJECT
+    }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyValue;
+
+
+/**
+ * Enumerable of rows, which are produced in batches by a vectorized operator. A vectorized consumer reads the batches
+ * directly, every other consumer reads the rows.
+ */
+public abstract class ColumnarEnumerable extends AbstractEnumerable<PolyValue[]> {
+
+    /**
+     * Returns a new enumerator of the batches.
+     */
+    public abstract Enumerator<Batch> batches();
+
+
+    @Override
+    public Enumerator<PolyValue[]> enumerator() {
+        return new RowEnumerator( batches() );
+    }
+
+
+    /**
+     * Returns the batches of the input. Rows are collected into batches, unless the input already produces batches.
+     */
+    public static Enumerator<Batch> batches( Enumerable<PolyValue[]> input, PolyType[] types ) {
+        if ( input instanceof ColumnarEnumerable columnar ) {
+            return columnar.batches();
+        }
+        return new RowBatcher( input.enumerator(), types );
+    }
+
+
+    /**
+     * Splits the rows into batches.
+     */
+    public static ColumnarEnumerable of( List<PolyValue[]> rows, PolyType[] types ) {
+        return new ColumnarEnumerable() {
+            @Override
+            public Enumerator<Batch> batches() {
+                return new RowBatcher( Linq4j.iterableEnumerator( rows ), types );
+            }
+        };
+    }
+
+
+    public static PolyType[] types( String[] names ) {
+        PolyType[] types = new PolyType[names.length];
+        for ( int i = 0; i < names.length; i++ ) {
+            types[i] = PolyType.valueOf( names[i] );
+        }
+        return types;
+    }
+
+
+    /**
+     * Enumerator of the selected rows of batches.
+     */
+    private static class RowEnumerator implements Enumerator<PolyValue[]> {
+
+        private final Enumerator<Batch> batches;
+        private Batch batch;
+        private int index;
+        private PolyValue[] current;
+
+
+        RowEnumerator( Enumerator<Batch> batches ) {
+            this.batches = batches;
+        }
+
+
+        @Override
+        public PolyValue[] current() {
+            if ( current == null ) {
+                throw new NoSuchElementException();
+            }
+            return current;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            while ( batch == null || index >= batch.selected() ) {
+                if ( !batches.moveNext() ) {
+                    current = null;
+                    return false;
+                }
+                batch = batches.current();
+                index = 0;
+            }
+            current = batch.row( batch.position( index++ ) );
+            return true;
+        }
+
+
+        @Override
+        public void reset() {
+            batches.reset();
+            batch = null;
+            current = null;
+        }
+
+
+        @Override
+        public void close() {
+            batches.close();
+        }
+
+    }
+
+
+    /**
+     * Enumerator of batches, which reads up to {@link Batch#CAPACITY} rows at once.
+     */
+    private static class RowBatcher implements Enumerator<Batch> {
+
+        private final Enumerator<PolyValue[]> rows;
+        private final PolyType[] types;
+        private Batch current;
+        private boolean done = false;
+
+
+        RowBatcher( Enumerator<PolyValue[]> rows, PolyType[] types ) {
+            this.rows = rows;
+            this.types = types;
+        }
+
+
+        @Override
+        public Batch current() {
+            return current;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            if ( done ) {
+                return false;
+            }
+            // Rows are not reused, since they are handed out by the batches
+            PolyValue[][] batch = new PolyValue[Batch.CAPACITY][];
+            int size = 0;
+            while ( size < Batch.CAPACITY ) {
+                if ( !rows.moveNext() ) {
+                    done = true;
+                    break;
+                }
+                batch[size++] = rows.current();
+            }
+            if ( size == 0 ) {
+                current = null;
+                return false;
+            }
+            current = Batch.ofRows( types, batch, size );
+            return true;
+        }
+
+
+        @Override
+        public void reset() {
+            rows.reset();
+            done = false;
+            current = null;
+        }
+
+
+        @Override
+        public void close() {
+            rows.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.type.entity.numerical.PolyBigDecimal;
+import org.polypheny.db.type.entity.numerical.PolyDouble;
+import org.polypheny.db.type.entity.numerical.PolyFloat;
+
+
+/**
+ * Vector of floating point values, which are stored as doubles.
+ */
+public class DoubleVector extends ColumnVector {
+
+    public final double[] values;
+
+
+    public DoubleVector( PolyType type, int capacity ) {
+        super( type, capacity );
+        this.values = new double[capacity];
+    }
+
+
+    private DoubleVector( PolyType type, DoubleVector other ) {
+        super( type, other.nulls );
+        this.values = other.values;
+        copyNulls( other );
+    }
+
+
+    @Override
+    public void set( int position, PolyValue value ) {
+        Number number = toNumber( value );
+        if ( number == null ) {
+            setNull( position );
+        } else {
+            values[position] = number.doubleValue();
+        }
+    }
+
+
+    @Override
+    public PolyValue get( int position ) {
+        return isNull( position ) ? null : box( type, values[position] );
+    }
+
+
+    @Override
+    public ColumnVector withType( PolyType type ) {
+        return type == this.type ? this : new DoubleVector( type, this );
+    }
+
+
+    public static PolyValue box( PolyType type, double value ) {
+        return switch ( type ) {
+            case FLOAT, REAL -> PolyFloat.of( (float) value );
+            case DECIMAL -> PolyBigDecimal.of( value );
+            default -> PolyDouble.of( value );
+        };
+    }
+
+}
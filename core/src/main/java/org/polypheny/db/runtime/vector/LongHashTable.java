@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+import java.util.Arrays;
+
+
+/**
+ * Open addressing hash table from long keys to non-negative int values, which avoids boxing the keys.
+ */
+final class LongHashTable {
+
+    private static final int EMPTY = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+
+    LongHashTable() {
+        allocate( 64 );
+    }
+
+
+    /**
+     * Returns the value of the key, {@code -1} if there is none.
+     */
+    int get( long key ) {
+        int slot = slot( key );
+        while ( values[slot] != EMPTY ) {
+            if ( keys[slot] == key ) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+
+    /**
+     * Returns the value of the key or associates the key with the given value, if it has none.
+     */
+    int getOrPut( long key, int value ) {
+        int slot = slot( key );
+        while ( values[slot] != EMPTY ) {
+            if ( keys[slot] == key ) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if ( ++size * 2 > values.length ) {
+            grow();
+        }
+        return value;
+    }
+
+
+    /**
+     * Associates the key with the value and returns the previous value, {@code -1} if there was none.
+     */
+    int put( long key, int value ) {
+        int slot = slot( key );
+        while ( values[slot] != EMPTY ) {
+            if ( keys[slot] == key ) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if ( ++size * 2 > values.length ) {
+            grow();
+        }
+        return EMPTY;
+    }
+
+
+    int size() {
+        return size;
+    }
+
+
+    private int slot( long key ) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+
+    private void allocate( int capacity ) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill( values, EMPTY );
+        mask = capacity - 1;
+    }
+
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate( oldValues.length * 2 );
+        for ( int i = 0; i < oldValues.length; i++ ) {
+            if ( oldValues[i] != EMPTY ) {
+                int slot = slot( oldKeys[i] );
+                while ( values[slot] != EMPTY ) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+}
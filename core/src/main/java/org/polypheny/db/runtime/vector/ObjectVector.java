@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyValue;
+
+
+/**
+ * Vector of values without an unboxed representation. The original values are kept, also for null positions.
+ */
+public class ObjectVector extends ColumnVector {
+
+    public final PolyValue[] values;
+
+
+    public ObjectVector( PolyType type, int capacity ) {
+        super( type, capacity );
+        this.values = new PolyValue[capacity];
+    }
+
+
+    private ObjectVector( PolyType type, ObjectVector other ) {
+        super( type, other.nulls );
+        this.values = other.values;
+        copyNulls( other );
+    }
+
+
+    @Override
+    public void set( int position, PolyValue value ) {
+        values[position] = value;
+        if ( isNullValue( value ) ) {
+            setNull( position );
+        }
+    }
+
+
+    @Override
+    public PolyValue get( int position ) {
+        return values[position];
+    }
+
+
+    @Override
+    public ColumnVector withType( PolyType type ) {
+        return type == this.type ? this : new ObjectVector( type, this );
+    }
+
+}
@@ -0,0 +1,558 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyValue;
+
+
+/**
+ * Vectorized hash aggregation. The group of every tuple of a batch is looked up first, then every aggregate function
+ * adds the values of its argument column to the accumulators of the groups in one loop. Grouping by a single integral
+ * column uses a hash table of unboxed longs.
+ */
+public final class VectorizedAggregate {
+
+    public static final int COUNT_STAR = 0;
+    public static final int COUNT = 1;
+    public static final int SUM = 2;
+    public static final int SUM0 = 3;
+    public static final int MIN = 4;
+    public static final int MAX = 5;
+
+
+    private VectorizedAggregate() {
+        // Only static entry points
+    }
+
+
+    /**
+     * Aggregates the input. The output consists of the group keys followed by the aggregates.
+     *
+     * @param inputTypes types of the input columns
+     * @param outputTypes types of the output columns
+     * @param groupKeys indexes of the grouping columns
+     * @param functions aggregate functions
+     * @param arguments index of the argument column of each aggregate function, {@code -1} for {@link #COUNT_STAR}
+     */
+    public static Enumerable<PolyValue[]> aggregate( Enumerable<PolyValue[]> input, String[] inputTypes, String[] outputTypes, int[] groupKeys, int[] functions, int[] arguments ) {
+        final PolyType[] inputPolyTypes = ColumnarEnumerable.types( inputTypes );
+        final PolyType[] outputPolyTypes = ColumnarEnumerable.types( outputTypes );
+        return new ColumnarEnumerable() {
+            @Override
+            public Enumerator<Batch> batches() {
+                return new AggregateEnumerator( input, inputPolyTypes, outputPolyTypes, groupKeys, functions, arguments );
+            }
+        };
+    }
+
+
+    /**
+     * Consumes the input on the first call of {@link #moveNext()} and then returns the groups in batches.
+     */
+    private static final class AggregateEnumerator implements Enumerator<Batch> {
+
+        private final Enumerable<PolyValue[]> input;
+        private final PolyType[] inputTypes;
+        private final PolyType[] outputTypes;
+        private final int[] groupKeys;
+        private final int[] functions;
+        private final int[] arguments;
+        private Enumerator<Batch> groups;
+
+
+        AggregateEnumerator( Enumerable<PolyValue[]> input, PolyType[] inputTypes, PolyType[] outputTypes, int[] groupKeys, int[] functions, int[] arguments ) {
+            this.input = input;
+            this.inputTypes = inputTypes;
+            this.outputTypes = outputTypes;
+            this.groupKeys = groupKeys;
+            this.functions = functions;
+            this.arguments = arguments;
+        }
+
+
+        @Override
+        public Batch current() {
+            return groups.current();
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            if ( groups == null ) {
+                groups = ColumnarEnumerable.batches( Linq4j.asEnumerable( aggregate() ), outputTypes );
+            }
+            return groups.moveNext();
+        }
+
+
+        private List<PolyValue[]> aggregate() {
+            final Grouping grouping = new Grouping( inputTypes, groupKeys );
+            final Accumulator[] accumulators = new Accumulator[functions.length];
+            for ( int i = 0; i < functions.length; i++ ) {
+                accumulators[i] = Accumulator.of( functions[i], arguments[i] < 0 ? null : inputTypes[arguments[i]], outputTypes[groupKeys.length + i] );
+            }
+            try ( Enumerator<Batch> batches = ColumnarEnumerable.batches( input, inputTypes ) ) {
+                int[] groupIds = new int[Batch.CAPACITY];
+                while ( batches.moveNext() ) {
+                    Batch batch = batches.current();
+                    if ( batch.selected() == 0 ) {
+                        continue;
+                    }
+                    grouping.assign( batch, groupIds );
+                    for ( int i = 0; i < accumulators.length; i++ ) {
+                        accumulators[i].ensureCapacity( grouping.size() );
+                        accumulators[i].add( arguments[i] < 0 ? null : batch.column( arguments[i] ), batch, groupIds );
+                    }
+                }
+            }
+            if ( groupKeys.length == 0 && grouping.size() == 0 ) {
+                // Aggregation without grouping returns one row, also for empty inputs
+                grouping.global();
+                for ( Accumulator accumulator : accumulators ) {
+                    accumulator.ensureCapacity( 1 );
+                }
+            }
+            final List<PolyValue[]> rows = new ArrayList<>( grouping.size() );
+            for ( int group = 0; group < grouping.size(); group++ ) {
+                PolyValue[] row = new PolyValue[groupKeys.length + accumulators.length];
+                grouping.key( group, row );
+                for ( int i = 0; i < accumulators.length; i++ ) {
+                    row[groupKeys.length + i] = accumulators[i].result( group );
+                }
+                rows.add( row );
+            }
+            return rows;
+        }
+
+
+        @Override
+        public void reset() {
+            groups = null;
+        }
+
+
+        @Override
+        public void close() {
+            if ( groups != null ) {
+                groups.close();
+            }
+        }
+
+    }
+
+
+    /**
+     * Assigns dense ids to the groups.
+     */
+    private static final class Grouping {
+
+        private final int[] groupKeys;
+        private final boolean longKey;
+        private final LongHashTable longGroups;
+        private final Map<List<Object>, Integer> groups;
+        private final List<PolyValue[]> keys = new ArrayList<>();
+        private int nullGroup = -1;
+
+
+        Grouping( PolyType[] inputTypes, int[] groupKeys ) {
+            this.groupKeys = groupKeys;
+            this.longKey = groupKeys.length == 1 && ColumnVector.kindOf( inputTypes[groupKeys[0]] ) == ColumnVector.VectorKind.LONG;
+            this.longGroups = longKey ? new LongHashTable() : null;
+            this.groups = longKey ? null : new HashMap<>();
+        }
+
+
+        int size() {
+            return keys.size();
+        }
+
+
+        void global() {
+            keys.add( new PolyValue[0] );
+        }
+
+
+        void key( int group, PolyValue[] row ) {
+            PolyValue[] key = keys.get( group );
+            System.arraycopy( key, 0, row, 0, key.length );
+        }
+
+
+        /**
+         * Sets the group of the tuple at every selected position.
+         */
+        void assign( Batch batch, int[] groupIds ) {
+            final int[] positions = batch.positions();
+            final int n = batch.selected();
+            if ( groupKeys.length == 0 ) {
+                if ( keys.isEmpty() ) {
+                    global();
+                }
+                Arrays.fill( groupIds, 0, batch.getSize(), 0 );
+                return;
+            }
+            if ( longKey ) {
+                final LongVector vector = (LongVector) batch.column( groupKeys[0] );
+                final long[] values = vector.values;
+                for ( int i = 0; i < n; i++ ) {
+                    int p = positions[i];
+                    if ( vector.isNull( p ) ) {
+                        if ( nullGroup < 0 ) {
+                            nullGroup = keys.size();
+                            keys.add( new PolyValue[]{ null } );
+                        }
+                        groupIds[p] = nullGroup;
+                    } else {
+                        int group = longGroups.getOrPut( values[p], keys.size() );
+                        if ( group == keys.size() ) {
+                            keys.add( new PolyValue[]{ vector.get( p ) } );
+                        }
+                        groupIds[p] = group;
+                    }
+                }
+                return;
+            }
+            final ColumnVector[] columns = new ColumnVector[groupKeys.length];
+            for ( int k = 0; k < groupKeys.length; k++ ) {
+                columns[k] = batch.column( groupKeys[k] );
+            }
+            for ( int i = 0; i < n; i++ ) {
+                int p = positions[i];
+                Object[] key = new Object[columns.length];
+                for ( int k = 0; k < columns.length; k++ ) {
+                    key[k] = keyOf( columns[k], p );
+                }
+                Integer group = groups.get( Arrays.asList( key ) );
+                if ( group == null ) {
+                    group = keys.size();
+                    groups.put( Arrays.asList( key ), group );
+                    PolyValue[] values = new PolyValue[columns.length];
+                    for ( int k = 0; k < columns.length; k++ ) {
+                        values[k] = columns[k].isNull( p ) ? null : columns[k].get( p );
+                    }
+                    keys.add( values );
+                }
+                groupIds[p] = group;
+            }
+        }
+
+    }
+
+
+    /**
+     * Returns the value of the position as key of a hash map. Nulls are equal and numbers are compared by their value.
+     */
+    static Object keyOf( ColumnVector column, int position ) {
+        if ( column.isNull( position ) ) {
+            return null;
+        }
+        if ( column instanceof LongVector vector ) {
+            return vector.values[position];
+        } else if ( column instanceof DoubleVector vector ) {
+            return vector.values[position];
+        }
+        return column.get( position );
+    }
+
+
+    /**
+     * State of an aggregate function for all groups.
+     */
+    private abstract static class Accumulator {
+
+        protected final PolyType resultType;
+        protected int capacity = 0;
+
+
+        Accumulator( PolyType resultType ) {
+            this.resultType = resultType;
+        }
+
+
+        static Accumulator of( int function, PolyType argumentType, PolyType resultType ) {
+            return switch ( function ) {
+                case COUNT_STAR, COUNT -> new Count( resultType );
+                case SUM, SUM0 -> ColumnVector.kindOf( argumentType ) == ColumnVector.VectorKind.LONG
+                        ? new LongSum( resultType, function == SUM0 )
+                        : new DoubleSum( resultType, function == SUM0 );
+                default -> ColumnVector.kindOf( argumentType ) == ColumnVector.VectorKind.LONG
+                        ? new LongExtremum( resultType, function == MAX )
+                        : new DoubleExtremum( resultType, function == MAX );
+            };
+        }
+
+
+        void ensureCapacity( int groups ) {
+            if ( groups > capacity ) {
+                capacity = Math.max( groups, Math.max( 16, capacity * 2 ) );
+                grow( capacity );
+            }
+        }
+
+
+        abstract void grow( int capacity );
+
+        /**
+         * Adds the values of the selected positions to their groups.
+         *
+         * @param argument argument column, {@code null} for {@link #COUNT_STAR}
+         */
+        abstract void add( ColumnVector argument, Batch batch, int[] groupIds );
+
+        abstract PolyValue result( int group );
+
+    }
+
+
+    private static final class Count extends Accumulator {
+
+        private long[] counts = new long[0];
+
+
+        Count( PolyType resultType ) {
+            super( resultType );
+        }
+
+
+        @Override
+        void grow( int capacity ) {
+            counts = Arrays.copyOf( counts, capacity );
+        }
+
+
+        @Override
+        void add( ColumnVector argument, Batch batch, int[] groupIds ) {
+            final int[] positions = batch.positions();
+            final int n = batch.selected();
+            if ( argument == null || !argument.hasNulls() ) {
+                for ( int i = 0; i < n; i++ ) {
+                    counts[groupIds[positions[i]]]++;
+                }
+            } else {
+                for ( int i = 0; i < n; i++ ) {
+                    int p = positions[i];
+                    if ( !argument.isNull( p ) ) {
+                        counts[groupIds[p]]++;
+                    }
+                }
+            }
+        }
+
+
+        @Override
+        PolyValue result( int group ) {
+            return LongVector.box( resultType, counts[group] );
+        }
+
+    }
+
+
+    private static final class LongSum extends Accumulator {
+
+        private final boolean zeroIfEmpty;
+        private long[] sums = new long[0];
+        private boolean[] seen = new boolean[0];
+
+
+        LongSum( PolyType resultType, boolean zeroIfEmpty ) {
+            super( resultType );
+            this.zeroIfEmpty = zeroIfEmpty;
+        }
+
+
+        @Override
+        void grow( int capacity ) {
+            sums = Arrays.copyOf( sums, capacity );
+            seen = Arrays.copyOf( seen, capacity );
+        }
+
+
+        @Override
+        void add( ColumnVector argument, Batch batch, int[] groupIds ) {
+            final int[] positions = batch.positions();
+            final int n = batch.selected();
+            final long[] values = ((LongVector) argument).values;
+            final boolean nulls = argument.hasNulls();
+            for ( int i = 0; i < n; i++ ) {
+                int p = positions[i];
+                if ( !nulls || !argument.isNull( p ) ) {
+                    int group = groupIds[p];
+                    sums[group] += values[p];
+                    seen[group] = true;
+                }
+            }
+        }
+
+
+        @Override
+        PolyValue result( int group ) {
+            return seen[group] || zeroIfEmpty ? LongVector.box( resultType, sums[group] ) : null;
+        }
+
+    }
+
+
+    private static final class DoubleSum extends Accumulator {
+
+        private final boolean zeroIfEmpty;
+        private double[] sums = new double[0];
+        private boolean[] seen = new boolean[0];
+
+
+        DoubleSum( PolyType resultType, boolean zeroIfEmpty ) {
+            super( resultType );
+            this.zeroIfEmpty = zeroIfEmpty;
+        }
+
+
+        @Override
+        void grow( int capacity ) {
+            sums = Arrays.copyOf( sums, capacity );
+            seen = Arrays.copyOf( seen, capacity );
+        }
+
+
+        @Override
+        void add( ColumnVector argument, Batch batch, int[] groupIds ) {
+            final int[] positions = batch.positions();
+            final int n = batch.selected();
+            final double[] values = ((DoubleVector) argument).values;
+            final boolean nulls = argument.hasNulls();
+            for ( int i = 0; i < n; i++ ) {
+                int p = positions[i];
+                if ( !nulls || !argument.isNull( p ) ) {
+                    int group = groupIds[p];
+                    sums[group] += values[p];
+                    seen[group] = true;
+                }
+            }
+        }
+
+
+        @Override
+        PolyValue result( int group ) {
+            return seen[group] || zeroIfEmpty ? DoubleVector.box( resultType, sums[group] ) : null;
+        }
+
+    }
+
+
+    private static final class LongExtremum extends Accumulator {
+
+        private final boolean max;
+        private long[] values = new long[0];
+        private boolean[] seen = new boolean[0];
+
+
+        LongExtremum( PolyType resultType, boolean max ) {
+            super( resultType );
+            this.max = max;
+        }
+
+
+        @Override
+        void grow( int capacity ) {
+            values = Arrays.copyOf( values, capacity );
+            seen = Arrays.copyOf( seen, capacity );
+        }
+
+
+        @Override
+        void add( ColumnVector argument, Batch batch, int[] groupIds ) {
+            final int[] positions = batch.positions();
+            final int n = batch.selected();
+            final long[] arguments = ((LongVector) argument).values;
+            final boolean nulls = argument.hasNulls();
+            for ( int i = 0; i < n; i++ ) {
+                int p = positions[i];
+                if ( !nulls || !argument.isNull( p ) ) {
+                    int group = groupIds[p];
+                    long value = arguments[p];
+                    if ( !seen[group] || (max ? value > values[group] : value < values[group]) ) {
+                        values[group] = value;
+                        seen[group] = true;
+                    }
+                }
+            }
+        }
+
+
+        @Override
+        PolyValue result( int group ) {
+            return seen[group] ? LongVector.box( resultType, values[group] ) : null;
+        }
+
+    }
+
+
+    private static final class DoubleExtremum extends Accumulator {
+
+        private final boolean max;
+        private double[] values = new double[0];
+        private boolean[] seen = new boolean[0];
+
+
+        DoubleExtremum( PolyType resultType, boolean max ) {
+            super( resultType );
+            this.max = max;
+        }
+
+
+        @Override
+        void grow( int capacity ) {
+            values = Arrays.copyOf( values, capacity );
+            seen = Arrays.copyOf( seen, capacity );
+        }
+
+
+        @Override
+        void add( ColumnVector argument, Batch batch, int[] groupIds ) {
+            final int[] positions = batch.positions();
+            final int n = batch.selected();
+            final double[] arguments = ((DoubleVector) argument).values;
+            final boolean nulls = argument.hasNulls();
+            for ( int i = 0; i < n; i++ ) {
+                int p = positions[i];
+                if ( !nulls || !argument.isNull( p ) ) {
+                    int group = groupIds[p];
+                    double value = arguments[p];
+                    if ( !seen[group] || (max ? value > values[group] : value < values[group]) ) {
+                        values[group] = value;
+                        seen[group] = true;
+                    }
+                }
+            }
+        }
+
+
+        @Override
+        PolyValue result( int group ) {
+            return seen[group] ? DoubleVector.box( resultType, values[group] ) : null;
+        }
+
+    }
+
+}
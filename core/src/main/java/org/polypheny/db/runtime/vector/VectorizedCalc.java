@@ -0,0 +1,510 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+import java.util.Arrays;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyValue;
+
+
+/**
+ * Vectorized filter and projection. The calc is described by a program, which is evaluated on a stack of vectors for
+ * every batch: the comparisons of the filter remove tuples from the selection of the batch, the projections compute
+ * the output columns for the remaining tuples. Columns which are only passed through are not copied.
+ */
+public final class VectorizedCalc {
+
+    // Operations of the program. INPUT, the constants and the parameters are followed by their index.
+
+    /**
+     * Pushes the input column.
+     */
+    public static final int INPUT = 0;
+    public static final int LONG_CONSTANT = 1;
+    public static final int DOUBLE_CONSTANT = 2;
+    public static final int LONG_PARAMETER = 3;
+    public static final int DOUBLE_PARAMETER = 4;
+    public static final int OBJECT_PARAMETER = 5;
+    /**
+     * Converts the long vector on top of the stack to doubles.
+     */
+    public static final int TO_DOUBLE = 6;
+    /**
+     * Pops two vectors of the same kind and pushes the result.
+     */
+    public static final int PLUS = 7;
+    public static final int MINUS = 8;
+    public static final int TIMES = 9;
+    /**
+     * Pops two vectors of the same kind and removes the tuples from the selection, for which the comparison is not true.
+     */
+    public static final int EQUALS = 10;
+    public static final int NOT_EQUALS = 11;
+    public static final int LESS_THAN = 12;
+    public static final int LESS_THAN_OR_EQUAL = 13;
+    public static final int GREATER_THAN = 14;
+    public static final int GREATER_THAN_OR_EQUAL = 15;
+    /**
+     * Pops a vector and removes the tuples from the selection, which are not null respectively null.
+     */
+    public static final int IS_NULL = 16;
+    public static final int IS_NOT_NULL = 17;
+    /**
+     * Pops a vector and appends it to the output columns.
+     */
+    public static final int OUTPUT = 18;
+
+
+    private VectorizedCalc() {
+        // Only static entry points
+    }
+
+
+    /**
+     * Filters and projects the input.
+     *
+     * @param inputTypes types of the input columns
+     * @param outputTypes types of the output columns
+     * @param program operations of the calc
+     * @param longs long constants
+     * @param doubles double constants
+     */
+    public static Enumerable<PolyValue[]> calc( DataContext root, Enumerable<PolyValue[]> input, String[] inputTypes, String[] outputTypes, int[] program, long[] longs, double[] doubles ) {
+        final PolyType[] inputPolyTypes = ColumnarEnumerable.types( inputTypes );
+        final PolyType[] outputPolyTypes = ColumnarEnumerable.types( outputTypes );
+        return new ColumnarEnumerable() {
+            @Override
+            public Enumerator<Batch> batches() {
+                final Evaluator evaluator = new Evaluator( root, outputPolyTypes, program, longs, doubles );
+                final Enumerator<Batch> batches = ColumnarEnumerable.batches( input, inputPolyTypes );
+                return new Enumerator<>() {
+                    private Batch current;
+
+
+                    @Override
+                    public Batch current() {
+                        return current;
+                    }
+
+
+                    @Override
+                    public boolean moveNext() {
+                        while ( batches.moveNext() ) {
+                            current = evaluator.evaluate( batches.current() );
+                            if ( current != null ) {
+                                return true;
+                            }
+                        }
+                        current = null;
+                        return false;
+                    }
+
+
+                    @Override
+                    public void reset() {
+                        batches.reset();
+                        current = null;
+                    }
+
+
+                    @Override
+                    public void close() {
+                        batches.close();
+                    }
+                };
+            }
+        };
+    }
+
+
+    /**
+     * Evaluates the program for the batches of one execution. Vectors of constants and parameters are created once.
+     */
+    static final class Evaluator {
+
+        private final DataContext root;
+        private final PolyType[] outputTypes;
+        private final int[] program;
+        private final long[] longs;
+        private final double[] doubles;
+        private final ColumnVector[] constants;
+
+
+        Evaluator( DataContext root, PolyType[] outputTypes, int[] program, long[] longs, double[] doubles ) {
+            this.root = root;
+            this.outputTypes = outputTypes;
+            this.program = program;
+            this.longs = longs;
+            this.doubles = doubles;
+            this.constants = new ColumnVector[program.length];
+        }
+
+
+        /**
+         * Returns the output batch, {@code null} if no tuple of the batch is selected.
+         */
+        Batch evaluate( Batch batch ) {
+            if ( batch.selected() == 0 ) {
+                return null;
+            }
+            final int size = batch.getSize();
+            final ColumnVector[] stack = new ColumnVector[program.length];
+            final ColumnVector[] outputs = new ColumnVector[outputTypes.length];
+            int top = 0;
+            int output = 0;
+            for ( int pc = 0; pc < program.length; pc++ ) {
+                final int operation = program[pc];
+                switch ( operation ) {
+                    case INPUT -> stack[top++] = batch.column( program[++pc] );
+                    case LONG_CONSTANT, DOUBLE_CONSTANT, LONG_PARAMETER, DOUBLE_PARAMETER, OBJECT_PARAMETER -> {
+                        stack[top++] = constant( pc, operation, program[pc + 1] );
+                        pc++;
+                    }
+                    case TO_DOUBLE -> stack[top - 1] = toDouble( (LongVector) stack[top - 1], batch, size );
+                    case PLUS, MINUS, TIMES -> {
+                        ColumnVector right = stack[--top];
+                        ColumnVector left = stack[--top];
+                        stack[top++] = arithmetic( operation, left, right, batch, size );
+                    }
+                    case EQUALS, NOT_EQUALS, LESS_THAN, LESS_THAN_OR_EQUAL, GREATER_THAN, GREATER_THAN_OR_EQUAL -> {
+                        ColumnVector right = stack[--top];
+                        ColumnVector left = stack[--top];
+                        compare( operation, left, right, batch );
+                        if ( batch.selected() == 0 ) {
+                            return null;
+                        }
+                    }
+                    case IS_NULL, IS_NOT_NULL -> {
+                        isNull( operation == IS_NULL, stack[--top], batch );
+                        if ( batch.selected() == 0 ) {
+                            return null;
+                        }
+                    }
+                    case OUTPUT -> {
+                        outputs[output] = stack[--top].withType( outputTypes[output] );
+                        output++;
+                    }
+                    default -> throw new GenericRuntimeException( "Unknown operation of vectorized calc: %s", operation );
+                }
+            }
+            return Batch.ofColumns( outputTypes, outputs, batch );
+        }
+
+
+        private ColumnVector constant( int pc, int operation, int index ) {
+            ColumnVector constant = constants[pc];
+            if ( constant != null ) {
+                return constant;
+            }
+            switch ( operation ) {
+                case LONG_CONSTANT -> {
+                    LongVector vector = new LongVector( PolyType.BIGINT, Batch.CAPACITY );
+                    Arrays.fill( vector.values, longs[index] );
+                    constant = vector;
+                }
+                case DOUBLE_CONSTANT -> {
+                    DoubleVector vector = new DoubleVector( PolyType.DOUBLE, Batch.CAPACITY );
+                    Arrays.fill( vector.values, doubles[index] );
+                    constant = vector;
+                }
+                default -> {
+                    PolyValue value = root.getParameterValue( index );
+                    if ( operation == OBJECT_PARAMETER ) {
+                        ObjectVector vector = new ObjectVector( PolyType.ANY, Batch.CAPACITY );
+                        Arrays.fill( vector.values, value );
+                        constant = vector;
+                    } else {
+                        Number number = ColumnVector.toNumber( value );
+                        if ( operation == LONG_PARAMETER ) {
+                            LongVector vector = new LongVector( PolyType.BIGINT, Batch.CAPACITY );
+                            Arrays.fill( vector.values, number == null ? 0 : number.longValue() );
+                            constant = vector;
+                        } else {
+                            DoubleVector vector = new DoubleVector( PolyType.DOUBLE, Batch.CAPACITY );
+                            Arrays.fill( vector.values, number == null ? 0 : number.doubleValue() );
+                            constant = vector;
+                        }
+                    }
+                    if ( ColumnVector.isNullValue( value ) ) {
+                        constant.setAllNull();
+                    }
+                }
+            }
+            constants[pc] = constant;
+            return constant;
+        }
+
+    }
+
+
+    static DoubleVector toDouble( LongVector vector, Batch batch, int size ) {
+        final DoubleVector result = new DoubleVector( PolyType.DOUBLE, size );
+        final int[] positions = batch.positions();
+        final int n = batch.selected();
+        final long[] values = vector.values;
+        final double[] out = result.values;
+        for ( int i = 0; i < n; i++ ) {
+            int p = positions[i];
+            out[p] = values[p];
+        }
+        result.copyNulls( vector );
+        return result;
+    }
+
+
+    static ColumnVector arithmetic( int operation, ColumnVector left, ColumnVector right, Batch batch, int size ) {
+        final int[] positions = batch.positions();
+        final int n = batch.selected();
+        final ColumnVector result;
+        if ( left instanceof LongVector l && right instanceof LongVector r ) {
+            final LongVector vector = new LongVector( PolyType.BIGINT, size );
+            final long[] a = l.values;
+            final long[] b = r.values;
+            final long[] out = vector.values;
+            switch ( operation ) {
+                case PLUS -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        out[p] = a[p] + b[p];
+                    }
+                }
+                case MINUS -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        out[p] = a[p] - b[p];
+                    }
+                }
+                default -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        out[p] = a[p] * b[p];
+                    }
+                }
+            }
+            result = vector;
+        } else {
+            final DoubleVector vector = new DoubleVector( PolyType.DOUBLE, size );
+            final double[] a = ((DoubleVector) left).values;
+            final double[] b = ((DoubleVector) right).values;
+            final double[] out = vector.values;
+            switch ( operation ) {
+                case PLUS -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        out[p] = a[p] + b[p];
+                    }
+                }
+                case MINUS -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        out[p] = a[p] - b[p];
+                    }
+                }
+                default -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        out[p] = a[p] * b[p];
+                    }
+                }
+            }
+            result = vector;
+        }
+        result.unionNulls( left, right );
+        return result;
+    }
+
+
+    /**
+     * Keeps the selected tuples, for which the comparison is true. Comparisons with null are never true.
+     */
+    static void compare( int operation, ColumnVector left, ColumnVector right, Batch batch ) {
+        final int[] positions = batch.positions();
+        final int n = batch.selected();
+        final int[] selection = new int[n];
+        int count = 0;
+        if ( left instanceof LongVector l && right instanceof LongVector r ) {
+            final long[] a = l.values;
+            final long[] b = r.values;
+            switch ( operation ) {
+                case EQUALS -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        if ( a[p] == b[p] ) {
+                            selection[count++] = p;
+                        }
+                    }
+                }
+                case NOT_EQUALS -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        if ( a[p] != b[p] ) {
+                            selection[count++] = p;
+                        }
+                    }
+                }
+                case LESS_THAN -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        if ( a[p] < b[p] ) {
+                            selection[count++] = p;
+                        }
+                    }
+                }
+                case LESS_THAN_OR_EQUAL -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        if ( a[p] <= b[p] ) {
+                            selection[count++] = p;
+                        }
+                    }
+                }
+                case GREATER_THAN -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        if ( a[p] > b[p] ) {
+                            selection[count++] = p;
+                        }
+                    }
+                }
+                default -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        if ( a[p] >= b[p] ) {
+                            selection[count++] = p;
+                        }
+                    }
+                }
+            }
+        } else if ( left instanceof DoubleVector l && right instanceof DoubleVector r ) {
+            final double[] a = l.values;
+            final double[] b = r.values;
+            switch ( operation ) {
+                case EQUALS -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        if ( a[p] == b[p] ) {
+                            selection[count++] = p;
+                        }
+                    }
+                }
+                case NOT_EQUALS -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        if ( a[p] != b[p] ) {
+                            selection[count++] = p;
+                        }
+                    }
+                }
+                case LESS_THAN -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        if ( a[p] < b[p] ) {
+                            selection[count++] = p;
+                        }
+                    }
+                }
+                case LESS_THAN_OR_EQUAL -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        if ( a[p] <= b[p] ) {
+                            selection[count++] = p;
+                        }
+                    }
+                }
+                case GREATER_THAN -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        if ( a[p] > b[p] ) {
+                            selection[count++] = p;
+                        }
+                    }
+                }
+                default -> {
+                    for ( int i = 0; i < n; i++ ) {
+                        int p = positions[i];
+                        if ( a[p] >= b[p] ) {
+                            selection[count++] = p;
+                        }
+                    }
+                }
+            }
+        } else {
+            final PolyValue[] a = ((ObjectVector) left).values;
+            final PolyValue[] b = ((ObjectVector) right).values;
+            for ( int i = 0; i < n; i++ ) {
+                int p = positions[i];
+                if ( !left.isNull( p ) && !right.isNull( p ) && matches( operation, a[p].compareTo( b[p] ) ) ) {
+                    selection[count++] = p;
+                }
+            }
+        }
+        if ( left.hasNulls() || right.hasNulls() ) {
+            count = removeNulls( selection, count, left, right );
+        }
+        batch.select( selection, count );
+    }
+
+
+    private static boolean matches( int operation, int comparison ) {
+        return switch ( operation ) {
+            case EQUALS -> comparison == 0;
+            case NOT_EQUALS -> comparison != 0;
+            case LESS_THAN -> comparison < 0;
+            case LESS_THAN_OR_EQUAL -> comparison <= 0;
+            case GREATER_THAN -> comparison > 0;
+            default -> comparison >= 0;
+        };
+    }
+
+
+    private static int removeNulls( int[] selection, int count, ColumnVector left, ColumnVector right ) {
+        int kept = 0;
+        for ( int i = 0; i < count; i++ ) {
+            int p = selection[i];
+            if ( !left.isNull( p ) && !right.isNull( p ) ) {
+                selection[kept++] = p;
+            }
+        }
+        return kept;
+    }
+
+
+    static void isNull( boolean isNull, ColumnVector vector, Batch batch ) {
+        if ( !vector.hasNulls() ) {
+            if ( isNull ) {
+                batch.select( batch.positions(), 0 );
+            }
+            return;
+        }
+        final int[] positions = batch.positions();
+        final int n = batch.selected();
+        final int[] selection = new int[n];
+        int count = 0;
+        for ( int i = 0; i < n; i++ ) {
+            int p = positions[i];
+            if ( vector.isNull( p ) == isNull ) {
+                selection[count++] = p;
+            }
+        }
+        batch.select( selection, count );
+    }
+
+}
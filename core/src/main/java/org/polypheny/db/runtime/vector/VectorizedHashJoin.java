@@ -0,0 +1,259 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyValue;
+
+
+/**
+ * Vectorized equi hash join. The right input is built into a hash table, whose entries chain the rows with the same
+ * key. The keys of a batch of the left input are probed in one loop. Joining on a single integral column uses a hash
+ * table of unboxed longs. Keys containing null never match.
+ */
+public final class VectorizedHashJoin {
+
+    private VectorizedHashJoin() {
+        // Only static entry points
+    }
+
+
+    /**
+     * Joins the inputs. The output consists of the columns of the left input followed by the columns of the right input.
+     *
+     * @param generateNullsOnRight whether left rows without a match are joined with nulls, as in a left outer join
+     */
+    public static Enumerable<PolyValue[]> join( Enumerable<PolyValue[]> left, Enumerable<PolyValue[]> right, String[] leftTypes, String[] rightTypes, int[] leftKeys, int[] rightKeys, boolean generateNullsOnRight ) {
+        final PolyType[] leftPolyTypes = ColumnarEnumerable.types( leftTypes );
+        final PolyType[] rightPolyTypes = ColumnarEnumerable.types( rightTypes );
+        final PolyType[] outputTypes = new PolyType[leftTypes.length + rightTypes.length];
+        System.arraycopy( leftPolyTypes, 0, outputTypes, 0, leftTypes.length );
+        System.arraycopy( rightPolyTypes, 0, outputTypes, leftTypes.length, rightTypes.length );
+        return new ColumnarEnumerable() {
+            @Override
+            public Enumerator<Batch> batches() {
+                return new JoinEnumerator( left, right, leftPolyTypes, rightPolyTypes, outputTypes, leftKeys, rightKeys, generateNullsOnRight );
+            }
+        };
+    }
+
+
+    private static final class JoinEnumerator implements Enumerator<Batch> {
+
+        private final Enumerable<PolyValue[]> left;
+        private final Enumerable<PolyValue[]> right;
+        private final PolyType[] leftTypes;
+        private final PolyType[] rightTypes;
+        private final PolyType[] outputTypes;
+        private final int[] leftKeys;
+        private final int[] rightKeys;
+        private final boolean generateNullsOnRight;
+        private final boolean longKey;
+
+        private Enumerator<Batch> probe;
+        private final ArrayDeque<Batch> pending = new ArrayDeque<>();
+        private Batch current;
+
+        // Hash table of the right input: the first row of every key and the next row with the same key for every row
+        private final List<PolyValue[]> rows = new ArrayList<>();
+        private int[] next = new int[64];
+        private LongHashTable longHeads;
+        private Map<List<Object>, Integer> heads;
+
+
+        JoinEnumerator( Enumerable<PolyValue[]> left, Enumerable<PolyValue[]> right, PolyType[] leftTypes, PolyType[] rightTypes, PolyType[] outputTypes, int[] leftKeys, int[] rightKeys, boolean generateNullsOnRight ) {
+            this.left = left;
+            this.right = right;
+            this.leftTypes = leftTypes;
+            this.rightTypes = rightTypes;
+            this.outputTypes = outputTypes;
+            this.leftKeys = leftKeys;
+            this.rightKeys = rightKeys;
+            this.generateNullsOnRight = generateNullsOnRight;
+            this.longKey = leftKeys.length == 1
+                    && ColumnVector.kindOf( leftTypes[leftKeys[0]] ) == ColumnVector.VectorKind.LONG
+                    && ColumnVector.kindOf( rightTypes[rightKeys[0]] ) == ColumnVector.VectorKind.LONG;
+        }
+
+
+        @Override
+        public Batch current() {
+            return current;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            if ( probe == null ) {
+                build();
+                probe = ColumnarEnumerable.batches( left, leftTypes );
+            }
+            while ( pending.isEmpty() ) {
+                if ( !probe.moveNext() ) {
+                    current = null;
+                    return false;
+                }
+                probe( probe.current() );
+            }
+            current = pending.poll();
+            return true;
+        }
+
+
+        private void build() {
+            if ( longKey ) {
+                longHeads = new LongHashTable();
+            } else {
+                heads = new HashMap<>();
+            }
+            try ( Enumerator<Batch> batches = ColumnarEnumerable.batches( right, rightTypes ) ) {
+                while ( batches.moveNext() ) {
+                    Batch batch = batches.current();
+                    int[] positions = batch.positions();
+                    int n = batch.selected();
+                    if ( longKey ) {
+                        LongVector keys = (LongVector) batch.column( rightKeys[0] );
+                        for ( int i = 0; i < n; i++ ) {
+                            int p = positions[i];
+                            if ( !keys.isNull( p ) ) {
+                                int row = add( batch.row( p ) );
+                                next[row] = longHeads.put( keys.values[p], row );
+                            }
+                        }
+                    } else {
+                        ColumnVector[] keys = columns( batch, rightKeys );
+                        for ( int i = 0; i < n; i++ ) {
+                            int p = positions[i];
+                            List<Object> key = key( keys, p );
+                            if ( key != null ) {
+                                int row = add( batch.row( p ) );
+                                Integer previous = heads.put( key, row );
+                                next[row] = previous == null ? -1 : previous;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+
+        private int add( PolyValue[] row ) {
+            int index = rows.size();
+            rows.add( row );
+            if ( index == next.length ) {
+                next = Arrays.copyOf( next, index * 2 );
+            }
+            return index;
+        }
+
+
+        private void probe( Batch batch ) {
+            final int[] positions = batch.positions();
+            final int n = batch.selected();
+            final List<PolyValue[]> output = new ArrayList<>();
+            final LongVector longKeys = longKey ? (LongVector) batch.column( leftKeys[0] ) : null;
+            final ColumnVector[] keys = longKey ? null : columns( batch, leftKeys );
+            for ( int i = 0; i < n; i++ ) {
+                int p = positions[i];
+                int match;
+                if ( longKey ) {
+                    match = longKeys.isNull( p ) ? -1 : longHeads.get( longKeys.values[p] );
+                } else {
+                    List<Object> key = key( keys, p );
+                    Integer head = key == null ? null : heads.get( key );
+                    match = head == null ? -1 : head;
+                }
+                if ( match < 0 && !generateNullsOnRight ) {
+                    continue;
+                }
+                PolyValue[] leftRow = batch.row( p );
+                if ( match < 0 ) {
+                    output.add( concat( leftRow, new PolyValue[rightTypes.length] ) );
+                }
+                for ( ; match >= 0; match = next[match] ) {
+                    output.add( concat( leftRow, rows.get( match ) ) );
+                }
+            }
+            for ( int from = 0; from < output.size(); from += Batch.CAPACITY ) {
+                List<PolyValue[]> chunk = output.subList( from, Math.min( output.size(), from + Batch.CAPACITY ) );
+                pending.add( Batch.ofRows( outputTypes, chunk.toArray( new PolyValue[0][] ), chunk.size() ) );
+            }
+        }
+
+
+        private PolyValue[] concat( PolyValue[] leftRow, PolyValue[] rightRow ) {
+            PolyValue[] row = new PolyValue[outputTypes.length];
+            System.arraycopy( leftRow, 0, row, 0, leftTypes.length );
+            System.arraycopy( rightRow, 0, row, leftTypes.length, rightTypes.length );
+            return row;
+        }
+
+
+        private static ColumnVector[] columns( Batch batch, int[] indexes ) {
+            ColumnVector[] columns = new ColumnVector[indexes.length];
+            for ( int i = 0; i < indexes.length; i++ ) {
+                columns[i] = batch.column( indexes[i] );
+            }
+            return columns;
+        }
+
+
+        /**
+         * Returns the key of the position, {@code null} if a column of the key is null.
+         */
+        private static List<Object> key( ColumnVector[] columns, int position ) {
+            Object[] key = new Object[columns.length];
+            for ( int i = 0; i < columns.length; i++ ) {
+                if ( columns[i].isNull( position ) ) {
+                    return null;
+                }
+                key[i] = VectorizedAggregate.keyOf( columns[i], position );
+            }
+            return Arrays.asList( key );
+        }
+
+
+        @Override
+        public void reset() {
+            if ( probe != null ) {
+                probe.close();
+            }
+            probe = null;
+            pending.clear();
+            rows.clear();
+            current = null;
+        }
+
+
+        @Override
+        public void close() {
+            if ( probe != null ) {
+                probe.close();
+            }
+        }
+
+    }
+
+}
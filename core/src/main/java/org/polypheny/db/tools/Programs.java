@@ -151,6 +151,7 @@ public class Programs {
                     EnumerableRules.ENUMERABLE_AGGREGATE_RULE,
                     EnumerableRules.ENUMERABLE_SORT_RULE,
                     EnumerableRules.ENUMERABLE_LIMIT_RULE,
+                    EnumerableRules.ENUMERABLE_TOP_N_RULE,
                     EnumerableRules.ENUMERABLE_UNION_RULE,
                     EnumerableRules.ENUMERABLE_MODIFY_COLLECT_RULE,
                     EnumerableRules.ENUMERABLE_INTERSECT_RULE,
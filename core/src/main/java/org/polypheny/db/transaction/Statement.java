@@ -21,6 +21,7 @@
 import org.polypheny.db.prepare.Context;
 import org.polypheny.db.monitoring.events.StatementEvent;
 import org.polypheny.db.processing.QueryProcessor;
+import org.polypheny.db.runtime.spill.MemoryBudget;
 import org.polypheny.db.util.FileInputHandle;
 
 public interface Statement {
@@ -47,4 +48,6 @@ public interface Statement {
 
     void registerFileInputHandle( FileInputHandle fileInputHandle );
 
+    MemoryBudget getMemoryBudget();
+
 }
@@ -84,6 +84,10 @@ public interface Transaction {
 
     Set<LogicalTable> getLogicalTables();
 
+    /**
+     * Lets the reads of this transaction skip entity locks. They see the latest committed state of every store, but no
+     * consistent snapshot across statements or stores.
+     */
     void setAcceptsOutdated( boolean acceptsOutdated );
 
     boolean acceptsOutdated();
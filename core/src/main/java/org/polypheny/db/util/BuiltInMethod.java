@@ -125,6 +125,14 @@
 import org.polypheny.db.runtime.RandomFunction;
 import org.polypheny.db.runtime.SortedMultiMap;
 import org.polypheny.db.runtime.Utilities;
+import org.polypheny.db.runtime.parallel.GatherEnumerable;
+import org.polypheny.db.runtime.parallel.PartitionedHashJoin;
+import org.polypheny.db.runtime.spill.SpillingAggregate;
+import org.polypheny.db.runtime.spill.SpillingHashJoin;
+import org.polypheny.db.runtime.spill.SpillingSort;
+import org.polypheny.db.runtime.vector.VectorizedAggregate;
+import org.polypheny.db.runtime.vector.VectorizedCalc;
+import org.polypheny.db.runtime.vector.VectorizedHashJoin;
 import org.polypheny.db.schema.SchemaPlus;
 import org.polypheny.db.schema.types.QueryableEntity;
 import org.polypheny.db.schema.types.ScannableEntity;
@@ -173,6 +181,11 @@ public enum BuiltInMethod {
     ROW_AS_COPY( Row.class, "asCopy", Object[].class ),
     JOIN( ExtendedEnumerable.class, "hashJoin", Enumerable.class, Function1.class, Function1.class, Function2.class, EqualityComparer.class, boolean.class,
             boolean.class, Predicate2.class ),
+    VECTORIZED_CALC( VectorizedCalc.class, "calc", DataContext.class, Enumerable.class, String[].class, String[].class, int[].class, long[].class, double[].class ),
+    VECTORIZED_AGGREGATE( VectorizedAggregate.class, "aggregate", Enumerable.class, String[].class, String[].class, int[].class, int[].class, int[].class ),
+    VECTORIZED_HASH_JOIN( VectorizedHashJoin.class, "join", Enumerable.class, Enumerable.class, String[].class, String[].class, int[].class, int[].class, boolean.class ),
+    PARTITIONED_HASH_JOIN( PartitionedHashJoin.class, "join", Enumerable.class, Enumerable.class, Function1.class, Function1.class, Function2.class, boolean.class ),
+    SPILLING_HASH_JOIN( SpillingHashJoin.class, "join", DataContext.class, Enumerable.class, Enumerable.class, Function1.class, Function1.class, Function2.class, boolean.class ),
     MERGE_JOIN( EnumerableDefaults.class, "mergeJoin", Enumerable.class, Enumerable.class, Function1.class, Function1.class, Function2.class, boolean.class, boolean.class ),
     SLICE0( Enumerables.class, "slice0", Enumerable.class ),
     SEMI_JOIN( EnumerableDefaults.class, "semiJoin", Enumerable.class, Enumerable.class, Function1.class, Function1.class ),
@@ -187,15 +200,19 @@ public enum BuiltInMethod {
     DISTINCT2( ExtendedEnumerable.class, "distinct", EqualityComparer.class ),
     GROUP_BY( ExtendedEnumerable.class, "groupBy", Function1.class ),
     GROUP_BY2( ExtendedEnumerable.class, "groupBy", Function1.class, Function0.class, Function2.class, Function2.class ),
+    SPILLING_GROUP_BY( SpillingAggregate.class, "groupBy", DataContext.class, Enumerable.class, Function1.class, Function0.class, Function2.class, Function2.class ),
     GROUP_BY_MULTIPLE( EnumerableDefaults.class, "groupByMultiple", Enumerable.class, List.class, Function0.class, Function2.class, Function2.class ),
     AGGREGATE( ExtendedEnumerable.class, "aggregate", Object.class, Function2.class, Function1.class ),
     ORDER_BY( ExtendedEnumerable.class, "orderBy", Function1.class, Comparator.class ),
+    SPILLING_ORDER_BY( SpillingSort.class, "orderBy", DataContext.class, Enumerable.class, Function1.class, Comparator.class ),
     UNION( ExtendedEnumerable.class, "union", Enumerable.class ),
     CONCAT( ExtendedEnumerable.class, "concat", Enumerable.class ),
+    GATHER( GatherEnumerable.class, "of", Enumerable[].class ),
     INTERSECT( ExtendedEnumerable.class, "intersect", Enumerable.class ),
     EXCEPT( ExtendedEnumerable.class, "except", Enumerable.class ),
     SKIP( ExtendedEnumerable.class, "skip", int.class ),
     TAKE( ExtendedEnumerable.class, "take", int.class ),
+    TOP_N( Enumerables.class, "topN", Enumerable.class, Function1.class, Comparator.class, int.class, int.class ),
     SINGLETON_ENUMERABLE( Linq4j.class, "singletonEnumerable", Object.class ),
     SINGLETON_ARRAY_ENUMERABLE( Functions.class, "singletonEnumerable", PolyValue.class ),
     EMPTY_ENUMERABLE( Linq4j.class, "emptyEnumerable" ),
@@ -19,20 +19,29 @@
 
 import java.util.LinkedList;
 import java.util.Queue;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.time.StopWatch;
 import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
 import org.polypheny.db.util.background.BackgroundTask.TaskDelayType;
 import org.polypheny.db.util.background.BackgroundTask.TaskPriority;
 import org.polypheny.db.util.background.BackgroundTask.TaskSchedulingType;
 
+/**
+ * Schedules a background task on the shared scheduler of the {@link BackgroundTaskManager} and executes it on the
+ * shared executor. The scheduler only triggers the task, a trigger enqueues the handle, unless the previous execution
+ * of the task is still waiting or running. Hence, a task is never executed concurrently with itself.
+ */
 @Slf4j
-class BackgroundTaskHandle implements Runnable {
+class BackgroundTaskHandle implements Runnable, Comparable<BackgroundTaskHandle> {
+
+    private static final AtomicLong triggerCounter = new AtomicLong();
 
     @Getter
     private final String id;
@@ -45,35 +54,51 @@ class BackgroundTaskHandle implements Runnable {
     @Getter
     private final TaskSchedulingType schedulingType;
 
-    private final StopWatch stopWatch = new StopWatch();
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+
     private final MovingAverage avgExecTime = new MovingAverage( 100 );
     @Getter
-    private long maxExecTime = 0L;
+    private volatile long maxExecTime = 0L;
+    private final MovingAverage avgLatency = new MovingAverage( 100 );
+    @Getter
+    private volatile long maxLatency = 0L;
+    private final AtomicLong overruns = new AtomicLong();
 
-    private final ScheduledFuture<?> runner;
+    // Whether the task is waiting for or in execution
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile long triggerTime;
+    private volatile long triggerSequence;
 
+    private ScheduledFuture<?> runner;
+    private boolean stopped = false;
 
-    public BackgroundTaskHandle( String id, BackgroundTask task, String description, TaskPriority priority, TaskSchedulingType schedulingType ) {
+
+    public BackgroundTaskHandle( String id, BackgroundTask task, String description, TaskPriority priority, TaskSchedulingType schedulingType, ScheduledExecutorService scheduler, Executor executor ) {
         this.id = id;
         this.task = task;
         this.description = description;
         this.priority = priority;
         this.schedulingType = schedulingType;
+        this.scheduler = scheduler;
+        this.executor = executor;
 
         // Schedule
-        ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
-        if ( schedulingType.getDelayType() == TaskDelayType.FIXED ) {
-            this.runner = exec.scheduleAtFixedRate( this, 0, schedulingType.getMillis(), TimeUnit.MILLISECONDS );
-        } else if ( schedulingType.getDelayType() == TaskDelayType.DELAYED ) {
-            this.runner = exec.scheduleWithFixedDelay( this, 0, schedulingType.getMillis(), TimeUnit.MILLISECONDS );
-        } else {
-            throw new GenericRuntimeException( "Unknown TaskDelayType: " + schedulingType.getDelayType().name() );
+        synchronized ( this ) {
+            if ( schedulingType.getDelayType() == TaskDelayType.FIXED ) {
+                this.runner = scheduler.scheduleAtFixedRate( this::trigger, 0, schedulingType.getMillis(), TimeUnit.MILLISECONDS );
+            } else if ( schedulingType.getDelayType() == TaskDelayType.DELAYED ) {
+                // The next execution is scheduled when the previous one has finished
+                this.runner = scheduler.schedule( this::trigger, 0, TimeUnit.MILLISECONDS );
+            } else {
+                throw new GenericRuntimeException( "Unknown TaskDelayType: " + schedulingType.getDelayType().name() );
+            }
         }
-
     }
 
 
-    public void stop() {
+    public synchronized void stop() {
+        stopped = true;
         if ( runner != null && !this.runner.isCancelled() ) {
             this.runner.cancel( false );
         }
@@ -85,24 +110,87 @@ public double getAverageExecutionTime() {
     }
 
 
+    /**
+     * Average time in milliseconds between the trigger of the task and the start of its execution.
+     */
+    public double getAverageLatency() {
+        return avgLatency.getAverage();
+    }
+
+
+    /**
+     * Number of executions which took longer than the interval of the task.
+     */
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+
+    private void trigger() {
+        if ( !pending.compareAndSet( false, true ) ) {
+            // The previous execution is still running, the trigger is coalesced with it
+            return;
+        }
+        triggerTime = System.nanoTime();
+        triggerSequence = triggerCounter.getAndIncrement();
+        try {
+            executor.execute( this );
+        } catch ( RejectedExecutionException e ) {
+            pending.set( false );
+            log.warn( "Background task {} has been rejected", description );
+        }
+    }
+
+
     @Override
     public void run() {
         try {
-            stopWatch.reset();
-            stopWatch.start();
+            long start = System.nanoTime();
+            long latency = TimeUnit.NANOSECONDS.toMillis( start - triggerTime );
+            avgLatency.add( latency );
+            if ( maxLatency < latency ) {
+                maxLatency = latency;
+            }
+
             task.backgroundTask();
-            stopWatch.stop();
-            avgExecTime.add( stopWatch.getTime() );
-            if ( maxExecTime < stopWatch.getTime() ) {
-                maxExecTime = stopWatch.getTime();
+
+            long execTime = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+            avgExecTime.add( execTime );
+            if ( maxExecTime < execTime ) {
+                maxExecTime = execTime;
+            }
+            if ( execTime > schedulingType.getMillis() ) {
+                overruns.incrementAndGet();
             }
         } catch ( Exception e ) {
 
             log.error( "Caught exception in background task", e );
+        } finally {
+            pending.set( false );
+            if ( schedulingType.getDelayType() == TaskDelayType.DELAYED ) {
+                scheduleNext();
+            }
         }
     }
 
 
+    private synchronized void scheduleNext() {
+        if ( !stopped ) {
+            runner = scheduler.schedule( this::trigger, schedulingType.getMillis(), TimeUnit.MILLISECONDS );
+        }
+    }
+
+
+    /**
+     * Tasks of a higher priority come first, tasks of the same priority in the order they have been triggered.
+     */
+    @Override
+    public int compareTo( BackgroundTaskHandle other ) {
+        int byPriority = other.priority.compareTo( priority );
+        return byPriority != 0 ? byPriority : Long.compare( triggerSequence, other.triggerSequence );
+    }
+
+
     // https://stackoverflow.com/a/19922501
     private static class MovingAverage {
 
@@ -117,7 +205,7 @@ public MovingAverage( int period ) {
         }
 
 
-        public void add( long x ) {
+        public synchronized void add( long x ) {
             sum += x;
             window.add( x );
             if ( window.size() > period ) {
@@ -126,7 +214,7 @@ public void add( long x ) {
         }
 
 
-        public double getAverage() {
+        public synchronized double getAverage() {
             if ( window.isEmpty() ) {
                 return 0.0; // technically the average is undefined
             }
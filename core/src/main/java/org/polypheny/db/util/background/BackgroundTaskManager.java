@@ -2,13 +2,18 @@
 
 
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Locale;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.information.InformationGroup;
 import org.polypheny.db.information.InformationManager;
 import org.polypheny.db.information.InformationPage;
@@ -17,18 +22,47 @@
 import org.polypheny.db.util.background.BackgroundTask.TaskSchedulingType;
 
 
+/**
+ * Runs the background tasks of all components. A single scheduler thread triggers the tasks, which are then executed
+ * by a bounded pool of worker threads. If all workers are busy, the triggered tasks wait in a queue ordered by their
+ * {@link TaskPriority}.
+ */
 public class BackgroundTaskManager {
 
     public static final BackgroundTaskManager INSTANCE = new BackgroundTaskManager();
 
     private final ConcurrentHashMap<String, BackgroundTaskHandle> tasks = new ConcurrentHashMap<>();
 
+    private final ScheduledExecutorService scheduler;
+    private final ThreadPoolExecutor executor;
+
     private InformationPage informationPage;
     private InformationGroup informationGroupOverview;
     private InformationTable overviewTable;
 
 
     private BackgroundTaskManager() {
+        scheduler = Executors.newSingleThreadScheduledExecutor( r -> {
+            Thread thread = new Thread( r, "BackgroundTaskScheduler" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        AtomicInteger threadCounter = new AtomicInteger();
+        int threads = Math.max( 1, RuntimeConfig.BACKGROUND_TASK_THREADS.getInteger() );
+        executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                60,
+                TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>( 16, Comparator.comparing( r -> (BackgroundTaskHandle) r ) ),
+                r -> {
+                    Thread thread = new Thread( r, "BackgroundTask-" + threadCounter.getAndIncrement() );
+                    thread.setDaemon( true );
+                    return thread;
+                } );
+        // Workers are only kept while there is work
+        executor.allowCoreThreadTimeOut( true );
+
         informationPage = new InformationPage( "Background Tasks" );
         informationPage.fullWidth();
         informationGroupOverview = new InformationGroup( informationPage, "Overview" );
@@ -39,18 +73,17 @@ private BackgroundTaskManager() {
 
         overviewTable = new InformationTable(
                 informationGroupOverview,
-                Arrays.asList( "Class", "Description", " Scheduling Type", "Priority", "Average Time", "Max Time" ) );
+                Arrays.asList( "Class", "Description", " Scheduling Type", "Priority", "Average Time", "Max Time", "Average Latency", "Max Latency", "Overruns" ) );
         im.registerInformation( overviewTable.fullWidth( true ) );
 
         BackgroundTaskInfo backgroundTaskInfo = new BackgroundTaskInfo();
-        ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
-        exec.scheduleAtFixedRate( backgroundTaskInfo, 0, 5, TimeUnit.SECONDS );
+        scheduler.scheduleAtFixedRate( backgroundTaskInfo, 0, 5, TimeUnit.SECONDS );
     }
 
 
     public String registerTask( BackgroundTask task, String description, TaskPriority priority, TaskSchedulingType schedulingType ) {
         String id = UUID.randomUUID().toString();
-        tasks.put( id, new BackgroundTaskHandle( id, task, description, priority, schedulingType ) );
+        tasks.put( id, new BackgroundTaskHandle( id, task, description, priority, schedulingType, scheduler, executor ) );
         return id;
     }
 
@@ -76,7 +109,9 @@ public void run() {
                         handle.getDescription(),
                         handle.getSchedulingType().name(),
                         handle.getPriority().name(),
-                        String.format( Locale.ENGLISH, "%.2f", handle.getAverageExecutionTime() ) + " ms", handle.getMaxExecTime() + " ms" );
+                        String.format( Locale.ENGLISH, "%.2f", handle.getAverageExecutionTime() ) + " ms", handle.getMaxExecTime() + " ms",
+                        String.format( Locale.ENGLISH, "%.2f", handle.getAverageLatency() ) + " ms", handle.getMaxLatency() + " ms",
+                        handle.getOverruns() );
             }
         }
 
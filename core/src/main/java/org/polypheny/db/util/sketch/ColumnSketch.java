@@ -0,0 +1,240 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.util.sketch;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.jetbrains.annotations.Nullable;
+import org.polypheny.db.type.entity.PolyValue;
+
+
+/**
+ * Mergeable summary of the values of a column: a {@link HyperLogLog} for the number of distinct values, a
+ * {@link KllSketch} for the distribution of numerical and temporal values and a {@link CountMinSketch} for the
+ * frequency of single values. All methods are thread-safe.
+ * <p>
+ * The sketches only support adding values: deleted and updated rows are never subtracted, so the estimates of a
+ * column with many deletes or updates drift until the statistics are re-evaluated and the sketch is rebuilt from
+ * the current values (see {@link #clear()}).
+ */
+public class ColumnSketch {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final HyperLogLog distinct;
+    private final KllSketch quantiles;
+    private final CountMinSketch frequencies;
+    private long count;
+    private long nullCount;
+
+
+    public ColumnSketch() {
+        this( new HyperLogLog(), new KllSketch(), new CountMinSketch(), 0, 0 );
+    }
+
+
+    private ColumnSketch( HyperLogLog distinct, KllSketch quantiles, CountMinSketch frequencies, long count, long nullCount ) {
+        this.distinct = distinct;
+        this.quantiles = quantiles;
+        this.frequencies = frequencies;
+        this.count = count;
+        this.nullCount = nullCount;
+    }
+
+
+    public synchronized void add( @Nullable PolyValue value ) {
+        count++;
+        if ( value == null || value.isNull() ) {
+            nullCount++;
+            return;
+        }
+        long hash = hash( value );
+        distinct.add( hash );
+        frequencies.add( hash, 1 );
+        Double position = toDouble( value );
+        if ( position != null ) {
+            quantiles.add( position );
+        }
+    }
+
+
+    public synchronized void addAll( Iterable<? extends PolyValue> values ) {
+        for ( PolyValue value : values ) {
+            add( value );
+        }
+    }
+
+
+    public void merge( ColumnSketch other ) {
+        ColumnSketch copy = other.copy();
+        synchronized ( this ) {
+            distinct.merge( copy.distinct );
+            quantiles.merge( copy.quantiles );
+            frequencies.merge( copy.frequencies );
+            count += copy.count;
+            nullCount += copy.nullCount;
+        }
+    }
+
+
+    public synchronized void clear() {
+        distinct.clear();
+        quantiles.clear();
+        frequencies.clear();
+        count = 0;
+        nullCount = 0;
+    }
+
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+
+    public synchronized long getNullCount() {
+        return nullCount;
+    }
+
+
+    /**
+     * Returns the estimated number of distinct non-null values.
+     */
+    public synchronized long getDistinctCount() {
+        return Math.min( distinct.estimate(), count - nullCount );
+    }
+
+
+    /**
+     * Returns the estimated fraction of the values which are equal to the given value, or {@code null} if the
+     * column is empty. The count-min sketch only overestimates, by up to {@code e / width} of the values, which
+     * dominates for columns with many more distinct values than its width. Estimates within that error are therefore
+     * capped by the uniform estimate of the non-null values divided by the number of distinct values, while larger
+     * estimates belong to frequent values and are kept.
+     */
+    public synchronized @Nullable Double getEqualsSelectivity( @Nullable PolyValue value ) {
+        if ( count == 0 ) {
+            return null;
+        }
+        if ( value == null || value.isNull() ) {
+            // Nothing is equal to null
+            return 0.0;
+        }
+        double frequency = frequencies.estimate( hash( value ) );
+        if ( frequency <= Math.E / frequencies.getWidth() * frequencies.getTotal() ) {
+            frequency = Math.min( frequency, (double) (count - nullCount) / Math.max( 1, getDistinctCount() ) );
+        }
+        return Math.min( 1.0, frequency / count );
+    }
+
+
+    /**
+     * Returns the estimated fraction of the values which are within the given bounds, or {@code null} if there is
+     * no distribution for the values of this column. A {@code null} bound is unbounded.
+     */
+    public synchronized @Nullable Double getRangeSelectivity( @Nullable PolyValue lower, boolean lowerInclusive, @Nullable PolyValue upper, boolean upperInclusive ) {
+        if ( quantiles.isEmpty() || !isOrdered( lower ) || !isOrdered( upper ) ) {
+            return null;
+        }
+        double upperRank = upper == null ? 1.0 : quantiles.getRank( toDouble( upper ), upperInclusive );
+        double lowerRank = lower == null ? 0.0 : quantiles.getRank( toDouble( lower ), !lowerInclusive );
+        double nonNullFraction = (double) (count - nullCount) / count;
+        return Math.max( 0.0, upperRank - lowerRank ) * nonNullFraction;
+    }
+
+
+    public synchronized double getNullFraction() {
+        return count == 0 ? 0 : (double) nullCount / count;
+    }
+
+
+    /**
+     * Returns the estimated value at the given fraction of the sorted non-null values, or {@code NaN} if there is
+     * no distribution for the values of this column.
+     */
+    public synchronized double getQuantile( double fraction ) {
+        return quantiles.getQuantile( fraction );
+    }
+
+
+    public synchronized ColumnSketch copy() {
+        ColumnSketch copy = new ColumnSketch();
+        copy.distinct.merge( distinct );
+        copy.quantiles.merge( quantiles );
+        copy.frequencies.merge( frequencies );
+        copy.count = count;
+        copy.nullCount = nullCount;
+        return copy;
+    }
+
+
+    public synchronized void write( DataOutput out ) throws IOException {
+        out.writeLong( count );
+        out.writeLong( nullCount );
+        distinct.write( out );
+        quantiles.write( out );
+        frequencies.write( out );
+    }
+
+
+    public static ColumnSketch read( DataInput in ) throws IOException {
+        long count = in.readLong();
+        long nullCount = in.readLong();
+        return new ColumnSketch( HyperLogLog.read( in ), KllSketch.read( in ), CountMinSketch.read( in ), count, nullCount );
+    }
+
+
+    private static boolean isOrdered( @Nullable PolyValue value ) {
+        return value == null || toDouble( value ) != null;
+    }
+
+
+    /**
+     * Returns the position of the value in the distribution: numbers by their value, temporal values by their
+     * milliseconds since the epoch, or {@code null} if the value has no position.
+     */
+    private static @Nullable Double toDouble( PolyValue value ) {
+        if ( value.isNull() ) {
+            return null;
+        }
+        if ( value.isTemporal() ) {
+            Long millis = value.asTemporal().getMillisSinceEpoch();
+            return millis == null ? null : millis.doubleValue();
+        }
+        if ( value.isNumber() ) {
+            return value.asNumber().doubleValue();
+        }
+        return null;
+    }
+
+
+    /**
+     * Numbers are hashed by their value, so that the same number in different types has the same hash.
+     */
+    private static long hash( PolyValue value ) {
+        if ( value.isNumber() ) {
+            double number = value.asNumber().doubleValue();
+            return HASH_FUNCTION.hashLong( Double.doubleToLongBits( number == 0 ? 0.0 : number ) ).asLong();
+        }
+        String string = value.isString() ? value.asString().value : value.toJson();
+        return HASH_FUNCTION.hashString( String.valueOf( string ), StandardCharsets.UTF_8 ).asLong();
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.util.sketch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import lombok.Getter;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+
+
+/**
+ * Count-min sketch estimating the frequency of 64-bit hashes. Estimates never undercount; they overcount by at most
+ * {@code e / width} of the total count with a probability of {@code 1 - e^-depth}.
+ */
+public class CountMinSketch {
+
+    public static final int DEFAULT_DEPTH = 4;
+    public static final int DEFAULT_WIDTH = 512;
+
+    @Getter
+    private final int depth;
+    @Getter
+    private final int width;
+    private final int[][] counters;
+    @Getter
+    private long total = 0;
+
+
+    public CountMinSketch() {
+        this( DEFAULT_DEPTH, DEFAULT_WIDTH );
+    }
+
+
+    public CountMinSketch( int depth, int width ) {
+        this.depth = depth;
+        this.width = width;
+        this.counters = new int[depth][width];
+    }
+
+
+    public void add( long hash, int count ) {
+        for ( int i = 0; i < depth; i++ ) {
+            int[] row = counters[i];
+            int index = index( hash, i );
+            // Saturate instead of overflowing, the estimates are upper bounds anyway
+            row[index] = (int) Math.min( Integer.MAX_VALUE, (long) row[index] + count );
+        }
+        total += count;
+    }
+
+
+    public long estimate( long hash ) {
+        long min = Long.MAX_VALUE;
+        for ( int i = 0; i < depth; i++ ) {
+            min = Math.min( min, counters[i][index( hash, i )] );
+        }
+        return min;
+    }
+
+
+    public void merge( CountMinSketch other ) {
+        if ( other.depth != depth || other.width != width ) {
+            throw new GenericRuntimeException( "Cannot merge count-min sketches with different dimensions" );
+        }
+        for ( int i = 0; i < depth; i++ ) {
+            for ( int j = 0; j < width; j++ ) {
+                counters[i][j] = (int) Math.min( Integer.MAX_VALUE, (long) counters[i][j] + other.counters[i][j] );
+            }
+        }
+        total += other.total;
+    }
+
+
+    public void clear() {
+        for ( int[] row : counters ) {
+            Arrays.fill( row, 0 );
+        }
+        total = 0;
+    }
+
+
+    /**
+     * Derives the hash functions of the rows from the two halves of the hash.
+     */
+    private int index( long hash, int row ) {
+        int combined = (int) hash + row * (int) (hash >>> 32);
+        return Math.floorMod( combined, width );
+    }
+
+
+    public void write( DataOutput out ) throws IOException {
+        out.writeInt( depth );
+        out.writeInt( width );
+        out.writeLong( total );
+        for ( int[] row : counters ) {
+            for ( int counter : row ) {
+                out.writeInt( counter );
+            }
+        }
+    }
+
+
+    public static CountMinSketch read( DataInput in ) throws IOException {
+        CountMinSketch sketch = new CountMinSketch( in.readInt(), in.readInt() );
+        sketch.total = in.readLong();
+        for ( int[] row : sketch.counters ) {
+            for ( int j = 0; j < row.length; j++ ) {
+                row[j] = in.readInt();
+            }
+        }
+        return sketch;
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.util.sketch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import lombok.Getter;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+
+
+/**
+ * HyperLogLog sketch estimating the number of distinct 64-bit hashes which have been added to it.
+ * With the default precision of 12 the sketch uses 4 KiB and has a standard error of about 1.6%.
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 12;
+
+    @Getter
+    private final int precision;
+    private final byte[] registers;
+
+
+    public HyperLogLog() {
+        this( DEFAULT_PRECISION );
+    }
+
+
+    public HyperLogLog( int precision ) {
+        if ( precision < 4 || precision > 18 ) {
+            throw new GenericRuntimeException( "The precision of a HyperLogLog has to be between 4 and 18 but is %s", precision );
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+
+    public void add( long hash ) {
+        int index = (int) (hash >>> (64 - precision));
+        // The marker bit bounds the rank if all remaining bits are zero
+        byte rank = (byte) (Long.numberOfLeadingZeros( (hash << precision) | (1L << (precision - 1)) ) + 1);
+        if ( rank > registers[index] ) {
+            registers[index] = rank;
+        }
+    }
+
+
+    public long estimate() {
+        double m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for ( byte register : registers ) {
+            sum += 1.0 / (1L << register);
+            if ( register == 0 ) {
+                zeros++;
+            }
+        }
+        double estimate = alpha( registers.length ) * m * m / sum;
+        if ( estimate <= 2.5 * m && zeros > 0 ) {
+            // Linear counting is more accurate for small cardinalities
+            estimate = m * Math.log( m / zeros );
+        }
+        return Math.round( estimate );
+    }
+
+
+    public void merge( HyperLogLog other ) {
+        if ( other.precision != precision ) {
+            throw new GenericRuntimeException( "Cannot merge HyperLogLog sketches with different precisions" );
+        }
+        for ( int i = 0; i < registers.length; i++ ) {
+            if ( other.registers[i] > registers[i] ) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+
+    public void clear() {
+        Arrays.fill( registers, (byte) 0 );
+    }
+
+
+    public void write( DataOutput out ) throws IOException {
+        out.writeByte( precision );
+        out.write( registers );
+    }
+
+
+    public static HyperLogLog read( DataInput in ) throws IOException {
+        HyperLogLog sketch = new HyperLogLog( in.readByte() );
+        in.readFully( sketch.registers );
+        return sketch;
+    }
+
+
+    private static double alpha( int m ) {
+        return switch ( m ) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+
+}
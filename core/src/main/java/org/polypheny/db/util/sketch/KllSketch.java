@@ -0,0 +1,301 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.util.sketch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import lombok.Getter;
+
+
+/**
+ * KLL quantile sketch over doubles (Karnin, Lang and Liberty). Items are kept in a hierarchy of compactors, an item
+ * on level {@code h} stands for {@code 2^h} added items. Full compactors are sorted and every other item is promoted
+ * to the next level. With the default {@code k} of 200 the rank error is about 1.3%.
+ */
+public class KllSketch {
+
+    public static final int DEFAULT_K = 200;
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+    @Getter
+    private final int k;
+    private final List<Compactor> levels = new ArrayList<>();
+    private final Random random = new Random( 42 );
+
+    /**
+     * Number of added items
+     */
+    @Getter
+    private long count = 0;
+    @Getter
+    private double min = Double.NaN;
+    @Getter
+    private double max = Double.NaN;
+
+    private int size = 0;
+    private int maxSize = 0;
+
+
+    public KllSketch() {
+        this( DEFAULT_K );
+    }
+
+
+    public KllSketch( int k ) {
+        this.k = k;
+        grow();
+    }
+
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+
+    public void add( double value ) {
+        if ( Double.isNaN( value ) ) {
+            return;
+        }
+        if ( count == 0 ) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min( min, value );
+            max = Math.max( max, value );
+        }
+        count++;
+        levels.get( 0 ).add( value );
+        size++;
+        if ( size >= maxSize ) {
+            compress();
+        }
+    }
+
+
+    public void merge( KllSketch other ) {
+        if ( other.count == 0 ) {
+            return;
+        }
+        while ( levels.size() < other.levels.size() ) {
+            grow();
+        }
+        for ( int h = 0; h < other.levels.size(); h++ ) {
+            Compactor source = other.levels.get( h );
+            levels.get( h ).addAll( source.items, source.size );
+        }
+        min = count == 0 ? other.min : Math.min( min, other.min );
+        max = count == 0 ? other.max : Math.max( max, other.max );
+        count += other.count;
+        size = levels.stream().mapToInt( c -> c.size ).sum();
+        while ( size >= maxSize ) {
+            compress();
+        }
+    }
+
+
+    /**
+     * Returns the estimated fraction of the added items which are smaller than, or if inclusive equal to, the value.
+     */
+    public double getRank( double value, boolean inclusive ) {
+        if ( count == 0 ) {
+            return 0;
+        }
+        if ( value < min || (!inclusive && value == min) ) {
+            return 0;
+        }
+        if ( value > max || (inclusive && value == max) ) {
+            return 1;
+        }
+        long weight = 0;
+        long total = 0;
+        for ( int h = 0; h < levels.size(); h++ ) {
+            Compactor compactor = levels.get( h );
+            for ( int i = 0; i < compactor.size; i++ ) {
+                double item = compactor.items[i];
+                if ( item < value || (inclusive && item == value) ) {
+                    weight += 1L << h;
+                }
+            }
+            total += (long) compactor.size << h;
+        }
+        return total == 0 ? 0 : (double) weight / total;
+    }
+
+
+    /**
+     * Returns the estimated value at the given fraction of the sorted items.
+     */
+    public double getQuantile( double fraction ) {
+        if ( count == 0 ) {
+            return Double.NaN;
+        }
+        if ( fraction <= 0 ) {
+            return min;
+        }
+        if ( fraction >= 1 ) {
+            return max;
+        }
+        int items = size;
+        double[] values = new double[items];
+        long[] weights = new long[items];
+        int n = 0;
+        for ( int h = 0; h < levels.size(); h++ ) {
+            Compactor compactor = levels.get( h );
+            for ( int i = 0; i < compactor.size; i++ ) {
+                values[n] = compactor.items[i];
+                weights[n++] = 1L << h;
+            }
+        }
+        Integer[] order = new Integer[n];
+        for ( int i = 0; i < n; i++ ) {
+            order[i] = i;
+        }
+        Arrays.sort( order, ( a, b ) -> Double.compare( values[a], values[b] ) );
+        long total = Arrays.stream( weights, 0, n ).sum();
+        long target = (long) Math.ceil( fraction * total );
+        long cumulative = 0;
+        for ( int i : order ) {
+            cumulative += weights[i];
+            if ( cumulative >= target ) {
+                return values[i];
+            }
+        }
+        return max;
+    }
+
+
+    public void clear() {
+        levels.clear();
+        count = 0;
+        size = 0;
+        min = Double.NaN;
+        max = Double.NaN;
+        grow();
+    }
+
+
+    private int capacity( int level ) {
+        int height = levels.size() - level - 1;
+        return (int) Math.ceil( Math.pow( CAPACITY_DECAY, height ) * k ) + 1;
+    }
+
+
+    private void grow() {
+        levels.add( new Compactor() );
+        maxSize = 0;
+        for ( int h = 0; h < levels.size(); h++ ) {
+            maxSize += capacity( h );
+        }
+    }
+
+
+    private void compress() {
+        for ( int h = 0; h < levels.size(); h++ ) {
+            if ( levels.get( h ).size >= capacity( h ) ) {
+                if ( h + 1 >= levels.size() ) {
+                    grow();
+                }
+                levels.get( h ).compactInto( levels.get( h + 1 ), random.nextBoolean() );
+                size = levels.stream().mapToInt( c -> c.size ).sum();
+                if ( size < maxSize ) {
+                    break;
+                }
+            }
+        }
+    }
+
+
+    public void write( DataOutput out ) throws IOException {
+        out.writeInt( k );
+        out.writeLong( count );
+        out.writeDouble( min );
+        out.writeDouble( max );
+        out.writeInt( levels.size() );
+        for ( Compactor compactor : levels ) {
+            out.writeInt( compactor.size );
+            for ( int i = 0; i < compactor.size; i++ ) {
+                out.writeDouble( compactor.items[i] );
+            }
+        }
+    }
+
+
+    public static KllSketch read( DataInput in ) throws IOException {
+        KllSketch sketch = new KllSketch( in.readInt() );
+        sketch.count = in.readLong();
+        sketch.min = in.readDouble();
+        sketch.max = in.readDouble();
+        int levelCount = in.readInt();
+        while ( sketch.levels.size() < levelCount ) {
+            sketch.grow();
+        }
+        for ( Compactor compactor : sketch.levels ) {
+            int items = in.readInt();
+            for ( int i = 0; i < items; i++ ) {
+                compactor.add( in.readDouble() );
+            }
+            sketch.size += items;
+        }
+        return sketch;
+    }
+
+
+    private static class Compactor {
+
+        private double[] items = new double[16];
+        private int size = 0;
+
+
+        void add( double value ) {
+            if ( size == items.length ) {
+                items = Arrays.copyOf( items, size * 2 );
+            }
+            items[size++] = value;
+        }
+
+
+        void addAll( double[] values, int count ) {
+            if ( size + count > items.length ) {
+                items = Arrays.copyOf( items, Math.max( items.length * 2, size + count ) );
+            }
+            System.arraycopy( values, 0, items, size, count );
+            size += count;
+        }
+
+
+        /**
+         * Promotes every other item, starting at a random offset, to the next level. An odd item stays on this level.
+         */
+        void compactInto( Compactor next, boolean odd ) {
+            Arrays.sort( items, 0, size );
+            int pairs = size / 2;
+            int start = size - pairs * 2;
+            for ( int i = 0; i < pairs; i++ ) {
+                next.add( items[start + 2 * i + (odd ? 1 : 0)] );
+            }
+            // Keep the smallest item if the size is odd
+            size = start;
+        }
+
+    }
+
+}
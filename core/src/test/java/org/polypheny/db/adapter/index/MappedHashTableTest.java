@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.index;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+public class MappedHashTableTest {
+
+    private static final int SEGMENT_SIZE = 1 << 12;
+
+    @TempDir
+    Path folder;
+
+
+    private static byte[] bytes( String value ) {
+        return value.getBytes( StandardCharsets.UTF_8 );
+    }
+
+
+    @Test
+    public void putGetRemove() {
+        try ( MappedHashTable table = new MappedHashTable( folder, "test", false, SEGMENT_SIZE ) ) {
+            for ( int i = 0; i < 10_000; i++ ) {
+                table.put( bytes( "key" + i ), bytes( "value" + i ) );
+            }
+            assertEquals( 10_000, table.size() );
+            for ( int i = 0; i < 10_000; i += 2 ) {
+                assertTrue( table.remove( bytes( "key" + i ) ) );
+            }
+            assertFalse( table.remove( bytes( "key0" ) ) );
+            assertEquals( 5_000, table.size() );
+            for ( int i = 0; i < 10_000; i++ ) {
+                if ( i % 2 == 0 ) {
+                    assertNull( table.get( bytes( "key" + i ) ) );
+                } else {
+                    assertArrayEquals( bytes( "value" + i ), table.get( bytes( "key" + i ) ) );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void longKeys() {
+        try ( MappedHashTable table = new MappedHashTable( folder, "test", true, SEGMENT_SIZE ) ) {
+            // 0 and -1 are the markers for empty and deleted slots, they have to work as keys anyway
+            for ( long i = -1_000; i < 1_000; i++ ) {
+                table.put( i, bytes( Long.toString( i ) ) );
+            }
+            assertEquals( 2_000, table.size() );
+            assertArrayEquals( bytes( "0" ), table.get( 0 ) );
+            assertArrayEquals( bytes( "-1" ), table.get( -1 ) );
+            assertTrue( table.remove( 0 ) );
+            assertFalse( table.containsKey( 0 ) );
+            assertTrue( table.containsKey( -1 ) );
+
+            AtomicInteger count = new AtomicInteger();
+            table.forEach( ( key, ignored, value ) -> {
+                assertArrayEquals( bytes( Long.toString( key ) ), value );
+                count.incrementAndGet();
+            } );
+            assertEquals( 1_999, count.get() );
+        }
+    }
+
+
+    @Test
+    public void compaction() throws Exception {
+        try ( MappedHashTable table = new MappedHashTable( folder, "test", false, SEGMENT_SIZE ) ) {
+            // overwriting the same keys produces garbage, which has to be compacted away
+            for ( int round = 0; round < 100; round++ ) {
+                for ( int i = 0; i < 100; i++ ) {
+                    table.put( bytes( "key" + i ), bytes( "value" + i + "/" + round ) );
+                }
+            }
+            assertEquals( 100, table.size() );
+            for ( int i = 0; i < 100; i++ ) {
+                assertArrayEquals( bytes( "value" + i + "/99" ), table.get( bytes( "key" + i ) ) );
+            }
+        }
+        try ( Stream<Path> files = Files.list( folder ) ) {
+            long dataSize = files.filter( f -> f.toString().endsWith( ".data" ) ).mapToLong( f -> f.toFile().length() ).sum();
+            assertTrue( dataSize <= 4L * SEGMENT_SIZE, "Data files were not compacted: " + dataSize );
+        }
+    }
+
+
+    @Test
+    public void reopen() {
+        try ( MappedHashTable table = new MappedHashTable( folder, "test", false, SEGMENT_SIZE ) ) {
+            for ( int i = 0; i < 1_000; i++ ) {
+                table.put( bytes( "key" + i ), bytes( "value" + i ) );
+            }
+            table.flush();
+            assertTrue( table.isClean() );
+            table.remove( bytes( "key0" ) );
+            assertFalse( table.isClean() );
+            table.flush();
+        }
+
+        try ( MappedHashTable table = new MappedHashTable( folder, "test", false, SEGMENT_SIZE ) ) {
+            assertTrue( table.isClean() );
+            assertEquals( 999, table.size() );
+            assertNull( table.get( bytes( "key0" ) ) );
+            assertArrayEquals( bytes( "value999" ), table.get( bytes( "key999" ) ) );
+            table.put( bytes( "key0" ), bytes( "value0" ) );
+        }
+
+        // not flushed after the last modification
+        try ( MappedHashTable table = new MappedHashTable( folder, "test", false, SEGMENT_SIZE ) ) {
+            assertFalse( table.isClean() );
+        }
+
+        // a different layout is discarded
+        try ( MappedHashTable table = new MappedHashTable( folder, "test", true, SEGMENT_SIZE ) ) {
+            assertEquals( 0, table.size() );
+        }
+    }
+
+
+    @Test
+    public void concurrentReaders() throws Exception {
+        try ( MappedHashTable table = new MappedHashTable( folder, "test", true, SEGMENT_SIZE ) ) {
+            ExecutorService executor = Executors.newFixedThreadPool( 4 );
+            List<Future<?>> readers = new ArrayList<>();
+            for ( int t = 0; t < 4; t++ ) {
+                readers.add( executor.submit( () -> {
+                    for ( int round = 0; round < 50; round++ ) {
+                        for ( long i = 1; i < 1_000; i++ ) {
+                            byte[] value = table.get( i );
+                            if ( value != null ) {
+                                assertEquals( Long.toString( i ), new String( value, StandardCharsets.UTF_8 ) );
+                            }
+                        }
+                    }
+                } ) );
+            }
+            // writes grow and rehash the table while it is read
+            for ( long i = 1; i < 20_000; i++ ) {
+                table.put( i, bytes( Long.toString( i ) ) );
+            }
+            for ( Future<?> reader : readers ) {
+                reader.get();
+            }
+            executor.shutdown();
+            assertEquals( 19_999, table.size() );
+        }
+    }
+
+}
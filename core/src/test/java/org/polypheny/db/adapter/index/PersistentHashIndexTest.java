@@ -0,0 +1,241 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.index;
+
+
+import static org.polypheny.db.adapter.index.CowHashIndexTest.asPolyValues;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.polypheny.db.algebra.exceptions.ConstraintViolationException;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.transaction.PUID;
+import org.polypheny.db.transaction.PUID.Type;
+import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.type.PolySerializable;
+import org.polypheny.db.type.entity.PolyString;
+import org.polypheny.db.type.entity.numerical.PolyInteger;
+import org.polypheny.db.util.Pair;
+import org.polypheny.db.util.PolyphenyHomeDirManager;
+import org.polypheny.db.util.RunMode;
+
+
+public class PersistentHashIndexTest {
+
+    @TempDir
+    Path folder;
+
+
+    @BeforeAll
+    public static void init() {
+        if ( PolyphenyHomeDirManager.getMode() == null ) {
+            PolyphenyHomeDirManager.setModeAndGetInstance( RunMode.TEST );
+        }
+    }
+
+
+    private PersistentHashIndex unique() {
+        return new PersistentHashIndex( 42L, "idx_test", true, null, null, List.of( "a", "b", "c" ), List.of( "id" ), folder );
+    }
+
+
+    private PersistentHashIndex multi() {
+        return new PersistentHashIndex( 43L, "idx_multi", false, null, null, List.of( "a", "b", "c" ), List.of( "id" ), folder );
+    }
+
+
+    private static PolyXid xid() {
+        return PolyXid.generateLocalTransactionIdentifier( PUID.randomPUID( Type.NODE ), PUID.randomPUID( Type.TRANSACTION ) );
+    }
+
+
+    @Test
+    public void testCopyOnWriteIsolation() {
+        PersistentHashIndex idx = unique();
+        PolyXid xid1 = xid();
+        PolyXid xid2 = xid();
+        Assertions.assertEquals( 0, idx.getRaw().size() );
+        idx.insert( xid1, asPolyValues( 1, 2, 3 ), asPolyValues( 1 ) );
+        idx.insertAll( xid1, Arrays.asList(
+                Pair.of( asPolyValues( 2, 3, 4 ), asPolyValues( 2 ) ),
+                Pair.of( asPolyValues( 3, 4, 5 ), asPolyValues( 3 ) )
+        ) );
+        idx.delete( xid1, asPolyValues( 2, 3, 4 ) );
+        Assertions.assertFalse( idx.contains( xid1, asPolyValues( 1, 2, 3 ) ) );
+        // Only visible to the writing transaction after the barrier
+        idx.barrier( xid1 );
+        Assertions.assertTrue( idx.contains( xid1, asPolyValues( 1, 2, 3 ) ) );
+        Assertions.assertFalse( idx.contains( xid1, asPolyValues( 2, 3, 4 ) ) );
+        Assertions.assertFalse( idx.contains( xid2, asPolyValues( 1, 2, 3 ) ) );
+        Assertions.assertEquals( 0, idx.size() );
+        // Visible to everyone after the commit
+        idx.commit( xid1 );
+        Assertions.assertTrue( idx.contains( xid2, asPolyValues( 1, 2, 3 ) ) );
+        Assertions.assertTrue( idx.contains( xid2, asPolyValues( 3, 4, 5 ) ) );
+        Assertions.assertFalse( idx.contains( xid2, asPolyValues( 2, 3, 4 ) ) );
+        Assertions.assertEquals( 2, idx.size() );
+        Assertions.assertEquals( asPolyValues( 3 ), idx.getRaw().get( asPolyValues( 3, 4, 5 ) ) );
+        // Deletes are isolated as well
+        idx.delete( xid1, asPolyValues( 1, 2, 3 ) );
+        idx.barrier( xid1 );
+        Assertions.assertFalse( idx.contains( xid1, asPolyValues( 1, 2, 3 ) ) );
+        Assertions.assertTrue( idx.contains( xid2, asPolyValues( 1, 2, 3 ) ) );
+        idx.rollback( xid1 );
+        Assertions.assertTrue( idx.contains( xid1, asPolyValues( 1, 2, 3 ) ) );
+    }
+
+
+    @Test
+    public void testDuplicateDetection() {
+        PersistentHashIndex idx = unique();
+        PolyXid xid1 = xid();
+        idx.insert( xid1, asPolyValues( 1, 2, 3 ), asPolyValues( 1 ) );
+        idx.barrier( xid1 );
+        idx.commit( xid1 );
+
+        idx.insert( xid1, asPolyValues( 1, 2, 3 ), asPolyValues( 2 ) );
+        Assertions.assertThrows( ConstraintViolationException.class, () -> idx.barrier( xid1 ) );
+        Assertions.assertThrows( IllegalStateException.class, () -> idx.commit( xid1 ) );
+        idx.rollback( xid1 );
+
+        // Replacing a deleted key in the same transaction is allowed
+        idx.delete( xid1, asPolyValues( 1, 2, 3 ) );
+        idx.insert( xid1, asPolyValues( 1, 2, 3 ), asPolyValues( 2 ) );
+        idx.barrier( xid1 );
+        idx.commit( xid1 );
+        Assertions.assertEquals( asPolyValues( 2 ), idx.getRaw().get( asPolyValues( 1, 2, 3 ) ) );
+    }
+
+
+    @Test
+    public void testMultipleValues() {
+        PersistentHashIndex idx = multi();
+        PolyXid xid1 = xid();
+        idx.insertAll( xid1, Arrays.asList(
+                Pair.of( asPolyValues( 1, 2, 3 ), asPolyValues( 1 ) ),
+                Pair.of( asPolyValues( 1, 2, 3 ), asPolyValues( 2 ) ),
+                Pair.of( asPolyValues( 2, 3, 4 ), asPolyValues( 3 ) )
+        ) );
+        idx.barrier( xid1 );
+        idx.commit( xid1 );
+        Assertions.assertEquals( Set.of( asPolyValues( 1 ), asPolyValues( 2 ) ), idx.getRaw().get( asPolyValues( 1, 2, 3 ) ) );
+
+        idx.deletePrimary( xid1, asPolyValues( 1, 2, 3 ), asPolyValues( 1 ) );
+        idx.barrier( xid1 );
+        idx.commit( xid1 );
+        Assertions.assertEquals( Set.of( asPolyValues( 2 ) ), idx.getRaw().get( asPolyValues( 1, 2, 3 ) ) );
+
+        idx.deletePrimary( xid1, asPolyValues( 1, 2, 3 ), asPolyValues( 2 ) );
+        idx.barrier( xid1 );
+        idx.commit( xid1 );
+        Assertions.assertFalse( idx.contains( xid1, asPolyValues( 1, 2, 3 ) ) );
+        Assertions.assertTrue( idx.contains( xid1, asPolyValues( 2, 3, 4 ) ) );
+    }
+
+
+    @Test
+    public void testReopen() {
+        PersistentHashIndex idx = unique();
+        PolyXid xid1 = xid();
+        idx.clear();
+        idx.initialize();
+        for ( int i = 0; i < 10_000; i++ ) {
+            idx.insert( xid1, asPolyValues( i, i + 1, i + 2 ), asPolyValues( i ) );
+        }
+        idx.barrier( xid1 );
+        idx.commit( xid1 );
+
+        // Commits are flushed by checkpoints only
+        Assertions.assertFalse( unique().isInitialized() );
+        idx.checkpoint();
+
+        PolyXid xid2 = xid();
+        PersistentHashIndex reopened = unique();
+        Assertions.assertTrue( reopened.isInitialized() );
+        Assertions.assertEquals( 10_000, reopened.size() );
+        Assertions.assertTrue( reopened.contains( xid2, asPolyValues( 9_999, 10_000, 10_001 ) ) );
+        Assertions.assertEquals( asPolyValues( 42 ), reopened.getRaw().get( asPolyValues( 42, 43, 44 ) ) );
+
+        // Staged changes mark the files dirty until they are committed or rolled back
+        idx.insert( xid2, asPolyValues( -1, -1, -1 ), asPolyValues( -1 ) );
+        idx.checkpoint();
+        Assertions.assertFalse( unique().isInitialized() );
+        idx.rollback( xid2 );
+        idx.checkpoint();
+        Assertions.assertTrue( unique().isInitialized() );
+
+        reopened.drop();
+        Assertions.assertFalse( unique().isInitialized() );
+    }
+
+
+    @Test
+    public void testCrashBeforeIndexCommit() {
+        PersistentHashIndex idx = unique();
+        PolyXid xid1 = xid();
+        idx.clear();
+        idx.initialize();
+        idx.insert( xid1, asPolyValues( 1, 2, 3 ), asPolyValues( 1 ) );
+        idx.barrier( xid1 );
+        idx.commit( xid1 );
+        idx.checkpoint();
+        Assertions.assertTrue( unique().isInitialized() );
+
+        // The stores have committed, but the index commit has not been applied yet
+        PolyXid xid2 = xid();
+        idx.insert( xid2, asPolyValues( 2, 3, 4 ), asPolyValues( 2 ) );
+        idx.barrier( xid2 );
+        idx.checkpoint();
+        PersistentHashIndex reopened = unique();
+        Assertions.assertFalse( reopened.isInitialized() );
+
+        idx.commit( xid2 );
+        idx.checkpoint();
+        reopened = unique();
+        Assertions.assertTrue( reopened.isInitialized() );
+        Assertions.assertEquals( 2, reopened.size() );
+        reopened.drop();
+    }
+
+
+    @Test
+    public void testLargeKey() {
+        PersistentHashIndex idx = unique();
+        PolyXid xid1 = xid();
+        idx.clear();
+        idx.initialize();
+        // Larger than the initial encode buffer, which is grown on demand
+        final String large = "x".repeat( 4 * PolySerializable.BUFFER_SIZE );
+        idx.insert( xid1, List.of( PolyString.of( large ), PolyInteger.of( 1 ), PolyInteger.of( 2 ) ), asPolyValues( 1 ) );
+        idx.barrier( xid1 );
+        idx.commit( xid1 );
+        Assertions.assertTrue( idx.contains( xid(), List.of( PolyString.of( large ), PolyInteger.of( 1 ), PolyInteger.of( 2 ) ) ) );
+        Assertions.assertFalse( idx.contains( xid(), List.of( PolyString.of( large + "y" ), PolyInteger.of( 1 ), PolyInteger.of( 2 ) ) ) );
+
+        // Keys which do not fit into a segment are rejected
+        final String tooLarge = "x".repeat( MappedHashTable.DEFAULT_SEGMENT_SIZE );
+        Assertions.assertThrows( GenericRuntimeException.class, () -> PersistentHashIndex.encode( List.of( PolyString.of( tooLarge ) ) ) );
+        idx.drop();
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.index;
+
+
+import static org.polypheny.db.adapter.index.CowHashIndexTest.asPolyValues;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.algebra.exceptions.ConstraintViolationException;
+import org.polypheny.db.transaction.PUID;
+import org.polypheny.db.transaction.PUID.Type;
+import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.type.entity.PolyNull;
+import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.type.entity.numerical.PolyInteger;
+import org.polypheny.db.util.Pair;
+import org.polypheny.db.util.PolyphenyHomeDirManager;
+import org.polypheny.db.util.RunMode;
+
+
+public class SkipListIndexTest {
+
+    @BeforeAll
+    public static void init() {
+        if ( PolyphenyHomeDirManager.getMode() == null ) {
+            PolyphenyHomeDirManager.setModeAndGetInstance( RunMode.TEST );
+        }
+    }
+
+
+    private static PolyXid xid() {
+        return PolyXid.generateLocalTransactionIdentifier( PUID.randomPUID( Type.NODE ), PUID.randomPUID( Type.TRANSACTION ) );
+    }
+
+
+    private static List<List<PolyValue>> keys( Integer... elements ) {
+        return Arrays.stream( elements ).map( CowHashIndexTest::asPolyValues ).toList();
+    }
+
+
+    /**
+     * Creates an index on the keys 0, 10, 20, ..., 90 and commits it.
+     */
+    private static SkipListIndex filled( boolean unique ) {
+        SkipListIndex idx = new SkipListIndex( 44L, "idx_test", unique, null, null, List.of( "a" ), List.of( "id" ) );
+        PolyXid xid = xid();
+        List<Pair<List<PolyValue>, List<PolyValue>>> rows = new ArrayList<>();
+        for ( int i = 90; i >= 0; i -= 10 ) {
+            rows.add( Pair.of( asPolyValues( i ), asPolyValues( i ) ) );
+        }
+        idx.insertAll( xid, rows );
+        idx.barrier( xid );
+        idx.commit( xid );
+        return idx;
+    }
+
+
+    @Test
+    public void testRange() {
+        SkipListIndex idx = filled( true );
+        PolyXid xid = xid();
+        Assertions.assertEquals( keys( 20, 30, 40 ), idx.scan( xid, IndexRange.between( PolyInteger.of( 20 ), true, PolyInteger.of( 40 ), true ) ) );
+        Assertions.assertEquals( keys( 30 ), idx.scan( xid, IndexRange.between( PolyInteger.of( 20 ), false, PolyInteger.of( 40 ), false ) ) );
+        Assertions.assertEquals( keys( 0, 10 ), idx.scan( xid, IndexRange.all().withUpper( PolyInteger.of( 15 ), false ) ) );
+        Assertions.assertEquals( keys( 80, 90 ), idx.scan( xid, IndexRange.all().withLower( PolyInteger.of( 80 ), true ) ) );
+        Assertions.assertEquals( keys(), idx.scan( xid, IndexRange.between( PolyInteger.of( 41 ), true, PolyInteger.of( 49 ), true ) ) );
+        // The tighter bound wins
+        Assertions.assertEquals( keys( 50 ), idx.scan( xid, IndexRange.all()
+                .withLower( PolyInteger.of( 10 ), true )
+                .withLower( PolyInteger.of( 50 ), true )
+                .withUpper( PolyInteger.of( 50 ), true )
+                .withUpper( PolyInteger.of( 70 ), true ) ) );
+    }
+
+
+    @Test
+    public void testTopN() {
+        SkipListIndex idx = filled( true );
+        PolyXid xid = xid();
+        Assertions.assertEquals( keys( 0, 10, 20 ), idx.scan( xid, IndexRange.first( 3, false ) ) );
+        Assertions.assertEquals( keys( 90, 80 ), idx.scan( xid, IndexRange.first( 2, true ) ) );
+        Assertions.assertEquals( 10, idx.scan( xid, IndexRange.first( 100, false ) ).size() );
+    }
+
+
+    @Test
+    public void testNullsAreLast() {
+        SkipListIndex idx = filled( false );
+        PolyXid xid = xid();
+        idx.insert( xid, List.of( PolyNull.NULL ), asPolyValues( -1 ) );
+        idx.barrier( xid );
+        idx.commit( xid );
+        Assertions.assertTrue( idx.scan( xid, IndexRange.first( 1, true ) ).get( 0 ).get( 0 ).isNull() );
+        Assertions.assertEquals( keys( 0 ), idx.scan( xid, IndexRange.first( 1, false ) ) );
+        // No comparison is true for null
+        Assertions.assertEquals( keys( 80, 90 ), idx.scan( xid, IndexRange.all().withLower( PolyInteger.of( 80 ), true ) ) );
+    }
+
+
+    @Test
+    public void testCopyOnWriteIsolation() {
+        SkipListIndex idx = filled( true );
+        PolyXid xid1 = xid();
+        PolyXid xid2 = xid();
+        idx.insert( xid1, asPolyValues( 25 ), asPolyValues( 25 ) );
+        idx.delete( xid1, asPolyValues( 30 ) );
+        IndexRange range = IndexRange.between( PolyInteger.of( 20 ), true, PolyInteger.of( 40 ), true );
+        // Not visible before the barrier
+        Assertions.assertEquals( keys( 20, 30, 40 ), idx.scan( xid1, range ) );
+        idx.barrier( xid1 );
+        Assertions.assertEquals( keys( 20, 25, 40 ), idx.scan( xid1, range ) );
+        Assertions.assertEquals( keys( 40, 25, 20 ), idx.scan( xid1, new IndexRange( PolyInteger.of( 20 ), true, PolyInteger.of( 40 ), true, true, -1 ) ) );
+        Assertions.assertEquals( keys( 20, 30, 40 ), idx.scan( xid2, range ) );
+        idx.commit( xid1 );
+        Assertions.assertEquals( keys( 20, 25, 40 ), idx.scan( xid2, range ) );
+
+        idx.insert( xid1, asPolyValues( 35 ), asPolyValues( 35 ) );
+        idx.barrier( xid1 );
+        idx.rollback( xid1 );
+        Assertions.assertEquals( keys( 20, 25, 40 ), idx.scan( xid1, range ) );
+    }
+
+
+    @Test
+    public void testDuplicates() {
+        SkipListIndex unique = filled( true );
+        PolyXid xid1 = xid();
+        unique.insert( xid1, asPolyValues( 10 ), asPolyValues( 11 ) );
+        try {
+            unique.barrier( xid1 );
+            Assertions.fail( "Expected ConstraintViolationException not thrown!" );
+        } catch ( ConstraintViolationException ignored ) {
+            // pass
+        }
+        unique.rollback( xid1 );
+
+        SkipListIndex multi = filled( false );
+        multi.insert( xid1, asPolyValues( 10 ), asPolyValues( 11 ) );
+        multi.barrier( xid1 );
+        multi.commit( xid1 );
+        Assertions.assertEquals( keys( 10, 10 ), multi.scan( xid1, IndexRange.between( PolyInteger.of( 10 ), true, PolyInteger.of( 10 ), true ) ) );
+        multi.deletePrimary( xid1, asPolyValues( 10 ), asPolyValues( 10 ) );
+        multi.barrier( xid1 );
+        multi.commit( xid1 );
+        Assertions.assertEquals( keys( 10 ), multi.scan( xid1, IndexRange.between( PolyInteger.of( 10 ), true, PolyInteger.of( 10 ), true ) ) );
+        Assertions.assertEquals( 10, multi.size() );
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.algebra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests for {@link AlgFingerprint}.
+ */
+public class AlgFingerprintTest {
+
+    private static AlgFingerprint joinTree( int depth, String leaf ) {
+        AlgFingerprint current = AlgFingerprint.of( leaf, List.of() );
+        for ( int i = 0; i < depth; i++ ) {
+            AlgFingerprint scan = AlgFingerprint.of( "Scan(table=" + i + ")", List.of() );
+            current = AlgFingerprint.of( "Join(condition==($0, ?" + i + ":INTEGER))", List.of( current, scan ) );
+        }
+        return current;
+    }
+
+
+    @Test
+    public void equalTreesHaveEqualFingerprints() {
+        AlgFingerprint a = joinTree( 50, "Scan(table=42)" );
+        AlgFingerprint b = joinTree( 50, "Scan(table=42)" );
+
+        assertNotSame( a, b );
+        assertEquals( a, b );
+        assertEquals( a.hashCode(), b.hashCode() );
+        assertEquals( a.toString(), b.toString() );
+    }
+
+
+    @Test
+    public void differentLeafChangesRootFingerprint() {
+        AlgFingerprint a = joinTree( 50, "Scan(table=42)" );
+        AlgFingerprint b = joinTree( 50, "Scan(table=43)" );
+
+        assertNotEquals( a, b );
+        assertNotEquals( a.toString(), b.toString() );
+    }
+
+
+    @Test
+    public void inputOrderMatters() {
+        AlgFingerprint left = AlgFingerprint.of( "Scan(table=1)", List.of() );
+        AlgFingerprint right = AlgFingerprint.of( "Scan(table=2)", List.of() );
+
+        assertNotEquals(
+                AlgFingerprint.of( "Union(all=true)", List.of( left, right ) ),
+                AlgFingerprint.of( "Union(all=true)", List.of( right, left ) ) );
+    }
+
+
+    @Test
+    public void inputsAreNotPartOfTheDescriptor() {
+        AlgFingerprint input = AlgFingerprint.of( "Scan(table=1)", List.of() );
+
+        // a node without input must not be confused with the same node with an input
+        assertNotEquals(
+                AlgFingerprint.of( "Filter(condition=true)", List.of() ),
+                AlgFingerprint.of( "Filter(condition=true)", List.of( input ) ) );
+    }
+
+}
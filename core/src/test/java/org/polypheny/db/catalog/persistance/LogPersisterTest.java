@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.catalog.persistance;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+public class LogPersisterTest {
+
+    @TempDir
+    Path folder;
+
+
+    /**
+     * Creates a catalog image which changes in the middle and at the end for every version.
+     */
+    static String state( int version ) {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < 200; i++ ) {
+            sb.append( "entity" ).append( i ).append( ';' );
+        }
+        sb.insert( sb.length() / 2, "table" + version + ";" );
+        return sb.append( "version=" ).append( version ).toString();
+    }
+
+
+    static int version( String state ) {
+        return Integer.parseInt( state.substring( state.lastIndexOf( '=' ) + 1 ) );
+    }
+
+
+    @Test
+    public void replayDeltas() throws IOException {
+        LogPersister persister = new LogPersister( folder, 100, false );
+        for ( int i = 0; i < 10; i++ ) {
+            persister.write( state( i ) );
+        }
+        persister.close();
+
+        // only the first write is a full snapshot, the other nine only contain the changed range
+        assertTrue( Files.size( folder.resolve( "catalog.log" ) ) < 9L * state( 0 ).length() );
+
+        LogPersister recovered = new LogPersister( folder, 100, false );
+        assertEquals( state( 9 ), recovered.read() );
+        recovered.close();
+    }
+
+
+    @Test
+    public void compaction() throws IOException {
+        LogPersister persister = new LogPersister( folder, 3, false );
+        for ( int i = 0; i < 20; i++ ) {
+            persister.write( state( i ) );
+            assertEquals( state( i ), persister.read() );
+        }
+        persister.close();
+
+        LogPersister recovered = new LogPersister( folder, 3, false );
+        assertEquals( state( 19 ), recovered.read() );
+        recovered.close();
+    }
+
+
+    @Test
+    public void tornWriteIsDiscarded() throws IOException {
+        LogPersister persister = new LogPersister( folder, 100, false );
+        for ( int i = 0; i < 10; i++ ) {
+            persister.write( state( i ) );
+        }
+        persister.close();
+
+        // cut the last record in half, as if the process died during the write
+        try ( FileChannel channel = FileChannel.open( folder.resolve( "catalog.log" ), StandardOpenOption.WRITE ) ) {
+            channel.truncate( channel.size() - 5 );
+        }
+
+        LogPersister recovered = new LogPersister( folder, 100, false );
+        assertEquals( state( 8 ), recovered.read() );
+
+        // the log has to be usable after the recovery
+        recovered.write( state( 10 ) );
+        recovered.close();
+
+        LogPersister again = new LogPersister( folder, 100, false );
+        assertEquals( state( 10 ), again.read() );
+        again.close();
+    }
+
+
+    @Test
+    public void migrateLegacyFile() throws IOException {
+        Files.writeString( folder.resolve( "catalog.poly" ), state( 3 ) );
+
+        LogPersister persister = new LogPersister( folder, 100, false );
+        assertEquals( state( 3 ), persister.read() );
+        persister.write( state( 4 ) );
+        persister.close();
+
+        LogPersister recovered = new LogPersister( folder, 100, false );
+        assertEquals( state( 4 ), recovered.read() );
+        recovered.close();
+    }
+
+
+    @Test
+    public void recoverAfterKill() throws Exception {
+        String java = System.getProperty( "java.home" ) + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder( java, "-cp", System.getProperty( "java.class.path" ), Writer.class.getName(), folder.toString() )
+                .redirectErrorStream( true )
+                .redirectOutput( ProcessBuilder.Redirect.DISCARD )
+                .start();
+
+        // wait until the writer produced a log with a few compactions behind it
+        Path log = folder.resolve( "catalog.log" );
+        long deadline = System.currentTimeMillis() + 30_000;
+        while ( (!Files.exists( folder.resolve( "catalog.snapshot" ) ) || Files.size( log ) < 4096) && System.currentTimeMillis() < deadline ) {
+            Thread.sleep( 10 );
+        }
+        process.destroyForcibly();
+        assertTrue( process.waitFor( 30, TimeUnit.SECONDS ) );
+
+        LogPersister recovered = new LogPersister( folder, 50, true );
+        String state = recovered.read();
+        assertEquals( state( version( state ) ), state );
+
+        recovered.write( state( -1 ) );
+        recovered.close();
+
+        LogPersister again = new LogPersister( folder, 50, true );
+        assertEquals( state( -1 ), again.read() );
+        again.close();
+    }
+
+
+    /**
+     * Writes new catalog versions until it gets killed.
+     */
+    public static class Writer {
+
+        public static void main( String[] args ) {
+            LogPersister persister = new LogPersister( Path.of( args[0] ), 50, true );
+            for ( int i = 0; ; i++ ) {
+                persister.write( state( i ) );
+            }
+        }
+
+    }
+
+}
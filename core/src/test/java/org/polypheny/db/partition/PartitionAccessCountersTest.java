@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.partition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+
+public class PartitionAccessCountersTest {
+
+    @Test
+    public void untrackedPartitionsAreIgnored() {
+        PartitionAccessCounters counters = new PartitionAccessCounters();
+        counters.recordReads( List.of( 1L, 2L ) );
+        counters.track( List.of( 1L ) );
+        counters.recordReads( List.of( 1L, 2L ) );
+
+        long now = System.currentTimeMillis();
+        assertEquals( 1.0, counters.getReads( 1L, now, 1000 ), 0.01 );
+        assertEquals( 0.0, counters.getReads( 2L, now, 1000 ), 0.0 );
+        assertEquals( 0.0, counters.getWrites( 1L, now, 1000 ), 0.0 );
+    }
+
+
+    @Test
+    public void countersDecayWithHalfLife() {
+        PartitionAccessCounters counters = new PartitionAccessCounters();
+        counters.track( List.of( 1L ) );
+        for ( int i = 0; i < 100; i++ ) {
+            counters.recordWrites( List.of( 1L ) );
+        }
+
+        long now = System.currentTimeMillis();
+        assertEquals( 100.0, counters.getWrites( 1L, now, 1000 ), 0.5 );
+        // Reading again folds in nothing new and does not decay
+        assertEquals( 100.0, counters.getWrites( 1L, now, 1000 ), 0.5 );
+        // After one half-life the old accesses count half
+        counters.recordWrites( List.of( 1L ) );
+        assertEquals( 51.0, counters.getWrites( 1L, now + 1000, 1000 ), 0.5 );
+        assertEquals( 12.75, counters.getWrites( 1L, now + 3000, 1000 ), 0.1 );
+    }
+
+
+    @Test
+    public void retainDropsOtherPartitions() {
+        PartitionAccessCounters counters = new PartitionAccessCounters();
+        counters.track( List.of( 1L, 2L ) );
+        counters.retain( Set.of( 2L ) );
+        counters.recordReads( List.of( 1L, 2L ) );
+
+        long now = System.currentTimeMillis();
+        assertEquals( 0.0, counters.getReads( 1L, now, 1000 ), 0.0 );
+        assertEquals( 1.0, counters.getReads( 2L, now, 1000 ), 0.01 );
+    }
+
+}
@@ -41,6 +41,7 @@
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.EnumerableDefaults;
@@ -86,6 +87,29 @@ public void testSemiJoin() {
     }
 
 
+    @Test
+    public void testTopN() {
+        // A permutation of 0 to 999
+        final List<Integer> numbers = new ArrayList<>();
+        for ( int i = 0; i < 1000; i++ ) {
+            numbers.add( (i * 7919) % 1000 );
+        }
+        final Enumerable<Integer> input = Linq4j.asEnumerable( numbers );
+        assertThat(
+                Enumerables.topN( input, i -> i, (Comparator<Integer>) null, 0, 5 ).toList(),
+                equalTo( Arrays.asList( 0, 1, 2, 3, 4 ) ) );
+        assertThat(
+                Enumerables.topN( input, i -> i, Comparator.<Integer>reverseOrder(), 10, 3 ).toList(),
+                equalTo( Arrays.asList( 989, 988, 987 ) ) );
+        assertThat(
+                Enumerables.topN( input, i -> i, (Comparator<Integer>) null, 998, 5 ).toList(),
+                equalTo( Arrays.asList( 998, 999 ) ) );
+        assertThat(
+                Enumerables.topN( input, i -> i, (Comparator<Integer>) null, 0, 0 ).toList(),
+                equalTo( List.of() ) );
+    }
+
+
     @Test
     public void testMergeJoin() {
         assertThat(
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.parallel;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for {@link GatherEnumerable} and {@link PartitionedHashJoin}.
+ */
+public class ParallelExecutionTest {
+
+    @SuppressWarnings("unchecked")
+    private static Enumerable<Integer> gather( List<Enumerable<Integer>> inputs ) {
+        return GatherEnumerable.of( inputs.toArray( new Enumerable[0] ) );
+    }
+
+
+    private static Enumerable<Integer> range( int from, int to ) {
+        List<Integer> values = new ArrayList<>();
+        for ( int i = from; i < to; i++ ) {
+            values.add( i );
+        }
+        return Linq4j.asEnumerable( values );
+    }
+
+
+    @Test
+    public void testGatherReturnsAllElements() {
+        List<Enumerable<Integer>> partitions = new ArrayList<>();
+        long expected = 0;
+        for ( int p = 0; p < 8; p++ ) {
+            partitions.add( range( p * 100_000, p * 100_000 + 20_000 ) );
+            for ( int i = p * 100_000; i < p * 100_000 + 20_000; i++ ) {
+                expected += i;
+            }
+        }
+        Enumerable<Integer> gather = gather( partitions );
+
+        // Enumerate repeatedly, as a cached plan does
+        for ( int run = 0; run < 3; run++ ) {
+            List<Integer> result = gather.toList();
+            assertEquals( 160_000, result.size() );
+            assertEquals( expected, result.stream().mapToLong( Integer::longValue ).sum() );
+        }
+    }
+
+
+    @Test
+    public void testGatherCanBeClosedEarly() {
+        Enumerable<Integer> gather = gather( List.of( range( 0, 100_000 ), range( 0, 100_000 ) ) );
+        try ( Enumerator<Integer> enumerator = gather.enumerator() ) {
+            for ( int i = 0; i < 10; i++ ) {
+                assertTrue( enumerator.moveNext() );
+            }
+        }
+        assertEquals( 200_000, gather.toList().size() );
+    }
+
+
+    @Test
+    public void testGatherCloseWaitsForInputs() {
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        List<Enumerable<Integer>> partitions = new ArrayList<>();
+        for ( int p = 0; p < 8; p++ ) {
+            partitions.add( counted( range( 0, 100_000 ), opened, closed ) );
+        }
+        Enumerable<Integer> gather = gather( partitions );
+        for ( int run = 0; run < 10; run++ ) {
+            try ( Enumerator<Integer> enumerator = gather.enumerator() ) {
+                assertTrue( enumerator.moveNext() );
+            }
+            // No input is still enumerated after the gather has been closed
+            assertEquals( opened.get(), closed.get() );
+        }
+    }
+
+
+    /**
+     * Counts how often enumerators of the input are opened and closed.
+     */
+    private static Enumerable<Integer> counted( Enumerable<Integer> input, AtomicInteger opened, AtomicInteger closed ) {
+        return new AbstractEnumerable<>() {
+            @Override
+            public Enumerator<Integer> enumerator() {
+                opened.incrementAndGet();
+                Enumerator<Integer> enumerator = input.enumerator();
+                return new Enumerator<>() {
+                    @Override
+                    public Integer current() {
+                        return enumerator.current();
+                    }
+
+
+                    @Override
+                    public boolean moveNext() {
+                        return enumerator.moveNext();
+                    }
+
+
+                    @Override
+                    public void reset() {
+                        enumerator.reset();
+                    }
+
+
+                    @Override
+                    public void close() {
+                        enumerator.close();
+                        closed.incrementAndGet();
+                    }
+                };
+            }
+        };
+    }
+
+
+    @Test
+    public void testGatherPropagatesFailure() {
+        Enumerable<Integer> failing = Linq4j.asEnumerable( () -> new Iterator<>() {
+            private int i = 0;
+
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+
+            @Override
+            public Integer next() {
+                if ( ++i > 1000 ) {
+                    throw new IllegalStateException( "Failing partition" );
+                }
+                return i;
+            }
+        } );
+        Enumerable<Integer> gather = gather( List.of( range( 0, 10_000 ), failing ) );
+        assertThrows( IllegalStateException.class, gather::toList );
+    }
+
+
+    @Test
+    public void testPartitionedHashJoin() {
+        // Every key of the inner input occurs once in each of its two partitions
+        Enumerable<Integer> inner = gather( List.of( range( 0, 500 ), range( 0, 500 ) ) );
+        Enumerable<Integer> outer = range( 0, 1000 );
+
+        List<String> innerJoin = PartitionedHashJoin.join( outer, inner, ( Integer o ) -> o, ( Integer i ) -> i, ( Integer o, Integer i ) -> o + ":" + i, false ).toList();
+        assertEquals( 1000, innerJoin.size() );
+        assertTrue( innerJoin.stream().allMatch( r -> r.split( ":" )[0].equals( r.split( ":" )[1] ) ) );
+
+        List<String> leftJoin = PartitionedHashJoin.join( outer, inner, ( Integer o ) -> o, ( Integer i ) -> i, ( Integer o, Integer i ) -> o + ":" + i, true ).toList();
+        assertEquals( 1500, leftJoin.size() );
+        assertTrue( leftJoin.contains( "999:null" ) );
+    }
+
+}
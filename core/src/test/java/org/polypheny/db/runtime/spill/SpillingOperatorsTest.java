@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.spill;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.type.entity.PolyString;
+import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.type.entity.numerical.PolyInteger;
+
+
+/**
+ * Unit tests for {@link SpillingSort}, {@link SpillingAggregate} and {@link SpillingHashJoin} with budgets, which
+ * force them to spill.
+ */
+public class SpillingOperatorsTest {
+
+    private static final long SMALL_LIMIT = 64 * 1024;
+
+
+    /**
+     * Rows of the form {@code [key, "row i"]}, where the key is {@code i % keys}, in descending order of {@code i}.
+     */
+    private static Enumerable<PolyValue[]> rows( int count, int keys ) {
+        final List<PolyValue[]> rows = new ArrayList<>();
+        for ( int i = count - 1; i >= 0; i-- ) {
+            rows.add( new PolyValue[]{ PolyInteger.of( i % keys ), PolyString.of( "row " + i ) } );
+        }
+        return Linq4j.asEnumerable( rows );
+    }
+
+
+    private static int key( PolyValue[] row ) {
+        return row[0].asNumber().intValue();
+    }
+
+
+    @Test
+    public void testSortSpillsAndMergesRuns() {
+        try ( MemoryBudget budget = new MemoryBudget( SMALL_LIMIT ) ) {
+            final List<PolyValue[]> sorted = SpillingSort.orderBy( budget, rows( 20_000, 20_000 ), row -> row[0], (Comparator<PolyValue>) null ).toList();
+
+            assertEquals( 20_000, sorted.size() );
+            for ( int i = 0; i < sorted.size(); i++ ) {
+                assertEquals( i, key( sorted.get( i ) ) );
+                assertEquals( "row " + i, sorted.get( i )[1].asString().value );
+            }
+            assertTrue( budget.getSpilledRows() > 0 );
+            assertEquals( 0, budget.getReserved() );
+        }
+    }
+
+
+    @Test
+    public void testSortWithComparatorWithinBudget() {
+        try ( MemoryBudget budget = new MemoryBudget( 0 ) ) {
+            final List<PolyValue[]> sorted = SpillingSort.orderBy( budget, rows( 1000, 1000 ), row -> row[0], Comparator.<PolyValue>reverseOrder() ).toList();
+
+            assertEquals( 1000, sorted.size() );
+            assertEquals( 999, key( sorted.get( 0 ) ) );
+            assertEquals( 0, budget.getSpilledRows() );
+        }
+    }
+
+
+    @Test
+    public void testAggregateSpillsGroups() {
+        try ( MemoryBudget budget = new MemoryBudget( SMALL_LIMIT ) ) {
+            final List<PolyValue[]> groups = SpillingAggregate.groupBy(
+                    budget,
+                    rows( 30_000, 5_000 ),
+                    row -> row[0],
+                    () -> new int[1],
+                    ( int[] acc, PolyValue[] row ) -> {
+                        acc[0]++;
+                        return acc;
+                    },
+                    ( PolyValue key, int[] acc ) -> new PolyValue[]{ key, PolyInteger.of( acc[0] ) } ).toList();
+
+            assertEquals( 5_000, groups.size() );
+            final Map<Integer, Integer> counts = new HashMap<>();
+            for ( PolyValue[] group : groups ) {
+                assertNull( counts.put( key( group ), group[1].asNumber().intValue() ) );
+            }
+            assertTrue( counts.values().stream().allMatch( count -> count == 6 ) );
+            assertTrue( budget.getSpilledRows() > 0 );
+            assertEquals( 0, budget.getReserved() );
+        }
+    }
+
+
+    @Test
+    public void testAggregateWithRowsOfVaryingSize() {
+        // Rows of a group are larger or smaller than the rows spilled before, so they may or may not fit into the budget
+        final List<PolyValue[]> rows = new ArrayList<>();
+        for ( int i = 0; i < 30_000; i++ ) {
+            rows.add( new PolyValue[]{ PolyInteger.of( i % 5_000 ), PolyString.of( "x".repeat( (i * 7919) % 300 ) ) } );
+        }
+        try ( MemoryBudget budget = new MemoryBudget( SMALL_LIMIT ) ) {
+            final List<PolyValue[]> groups = SpillingAggregate.groupBy(
+                    budget,
+                    Linq4j.asEnumerable( rows ),
+                    row -> row[0],
+                    () -> new int[1],
+                    ( int[] acc, PolyValue[] row ) -> {
+                        acc[0]++;
+                        return acc;
+                    },
+                    ( PolyValue key, int[] acc ) -> new PolyValue[]{ key, PolyInteger.of( acc[0] ) } ).toList();
+
+            // Every group is returned exactly once and contains all its rows
+            assertEquals( 5_000, groups.size() );
+            final Map<Integer, Integer> counts = new HashMap<>();
+            for ( PolyValue[] group : groups ) {
+                assertNull( counts.put( key( group ), group[1].asNumber().intValue() ) );
+            }
+            assertTrue( counts.values().stream().allMatch( count -> count == 6 ) );
+            assertTrue( budget.getSpilledRows() > 0 );
+            assertEquals( 0, budget.getReserved() );
+        }
+    }
+
+
+    @Test
+    public void testHashJoinPartitionsInputs() {
+        try ( MemoryBudget budget = new MemoryBudget( SMALL_LIMIT ) ) {
+            // Every key of the inner input occurs twice, the outer input has keys without match
+            final Enumerable<PolyValue[]> inner = rows( 10_000, 5_000 );
+            final Enumerable<PolyValue[]> outer = rows( 8_000, 8_000 );
+
+            final List<String> innerJoin = SpillingHashJoin.join( budget, outer, inner, row -> row[0], row -> row[0], ( PolyValue[] o, PolyValue[] i ) -> key( o ) + ":" + key( i ), false ).toList();
+            assertEquals( 10_000, innerJoin.size() );
+            assertTrue( innerJoin.stream().allMatch( r -> r.split( ":" )[0].equals( r.split( ":" )[1] ) ) );
+            assertTrue( budget.getSpilledRows() > 0 );
+
+            final List<String> leftJoin = SpillingHashJoin.join( budget, outer, inner, row -> row[0], row -> row[0], ( PolyValue[] o, PolyValue[] i ) -> key( o ) + ":" + (i == null ? null : key( i )), true ).toList();
+            assertEquals( 13_000, leftJoin.size() );
+            assertTrue( leftJoin.contains( "7999:null" ) );
+            assertEquals( 0, budget.getReserved() );
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.vector;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.type.entity.PolyString;
+import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.type.entity.numerical.PolyInteger;
+import org.polypheny.db.type.entity.numerical.PolyLong;
+
+
+/**
+ * Unit tests for {@link VectorizedCalc}, {@link VectorizedAggregate} and {@link VectorizedHashJoin}.
+ */
+public class VectorizedOperatorsTest {
+
+    private static final String[] INT_INT = { "INTEGER", "INTEGER" };
+
+
+    /**
+     * More rows than fit into one batch, some of them with a null in the second column.
+     */
+    private static Enumerable<PolyValue[]> numbers( int count ) {
+        List<PolyValue[]> rows = new ArrayList<>();
+        for ( int i = 0; i < count; i++ ) {
+            rows.add( new PolyValue[]{ PolyInteger.of( i ), i % 10 == 0 ? null : PolyInteger.of( i % 7 ) } );
+        }
+        return Linq4j.asEnumerable( rows );
+    }
+
+
+    @Test
+    public void testCalcFiltersAndProjects() {
+        // SELECT a, b * 2 FROM t WHERE b > 3
+        int[] program = {
+                VectorizedCalc.INPUT, 1, VectorizedCalc.LONG_CONSTANT, 0, VectorizedCalc.GREATER_THAN,
+                VectorizedCalc.INPUT, 0, VectorizedCalc.OUTPUT,
+                VectorizedCalc.INPUT, 1, VectorizedCalc.LONG_CONSTANT, 1, VectorizedCalc.TIMES, VectorizedCalc.OUTPUT };
+        List<PolyValue[]> result = VectorizedCalc.calc( null, numbers( 3000 ), INT_INT, INT_INT, program, new long[]{ 3, 2 }, new double[0] ).toList();
+
+        int expected = 0;
+        for ( int i = 0; i < 3000; i++ ) {
+            if ( i % 10 != 0 && i % 7 > 3 ) {
+                PolyValue[] row = result.get( expected++ );
+                assertEquals( PolyInteger.of( i ), row[0] );
+                assertEquals( PolyInteger.of( i % 7 * 2 ), row[1] );
+            }
+        }
+        assertEquals( expected, result.size() );
+    }
+
+
+    @Test
+    public void testCalcIsNull() {
+        int[] program = { VectorizedCalc.INPUT, 1, VectorizedCalc.IS_NULL, VectorizedCalc.INPUT, 0, VectorizedCalc.OUTPUT };
+        List<PolyValue[]> result = VectorizedCalc.calc( null, numbers( 2500 ), INT_INT, new String[]{ "INTEGER" }, program, new long[0], new double[0] ).toList();
+
+        assertEquals( 250, result.size() );
+        assertEquals( PolyInteger.of( 2490 ), result.get( 249 )[0] );
+    }
+
+
+    @Test
+    public void testAggregateGroupBy() {
+        // SELECT b, COUNT(*), COUNT(b), SUM(a), MIN(a), MAX(a) FROM t GROUP BY b
+        Enumerable<PolyValue[]> input = VectorizedAggregate.aggregate(
+                numbers( 5000 ),
+                INT_INT,
+                new String[]{ "INTEGER", "BIGINT", "BIGINT", "BIGINT", "INTEGER", "INTEGER" },
+                new int[]{ 1 },
+                new int[]{ VectorizedAggregate.COUNT_STAR, VectorizedAggregate.COUNT, VectorizedAggregate.SUM, VectorizedAggregate.MIN, VectorizedAggregate.MAX },
+                new int[]{ -1, 1, 0, 0, 0 } );
+        List<PolyValue[]> result = new ArrayList<>( input.toList() );
+        result.sort( Comparator.comparing( row -> row[0] == null ? -1 : row[0].asNumber().intValue() ) );
+
+        // The null group
+        assertEquals( 8, result.size() );
+        assertNull( result.get( 0 )[0] );
+        assertEquals( PolyLong.of( 500 ), result.get( 0 )[1] );
+        assertEquals( PolyLong.of( 0 ), result.get( 0 )[2] );
+
+        for ( int b = 0; b < 7; b++ ) {
+            long count = 0;
+            long sum = 0;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for ( int a = 0; a < 5000; a++ ) {
+                if ( a % 10 != 0 && a % 7 == b ) {
+                    count++;
+                    sum += a;
+                    min = Math.min( min, a );
+                    max = Math.max( max, a );
+                }
+            }
+            PolyValue[] row = result.get( b + 1 );
+            assertEquals( PolyInteger.of( b ), row[0] );
+            assertEquals( PolyLong.of( count ), row[1] );
+            assertEquals( PolyLong.of( count ), row[2] );
+            assertEquals( PolyLong.of( sum ), row[3] );
+            assertEquals( PolyInteger.of( min ), row[4] );
+            assertEquals( PolyInteger.of( max ), row[5] );
+        }
+    }
+
+
+    @Test
+    public void testAggregateWithoutGroupsOnEmptyInput() {
+        List<PolyValue[]> result = VectorizedAggregate.aggregate(
+                Linq4j.emptyEnumerable(),
+                INT_INT,
+                new String[]{ "BIGINT", "BIGINT", "BIGINT" },
+                new int[0],
+                new int[]{ VectorizedAggregate.COUNT_STAR, VectorizedAggregate.SUM, VectorizedAggregate.SUM0 },
+                new int[]{ -1, 0, 0 } ).toList();
+
+        assertEquals( 1, result.size() );
+        assertEquals( PolyLong.of( 0 ), result.get( 0 )[0] );
+        assertNull( result.get( 0 )[1] );
+        assertEquals( PolyLong.of( 0 ), result.get( 0 )[2] );
+    }
+
+
+    @Test
+    public void testHashJoin() {
+        List<PolyValue[]> right = new ArrayList<>();
+        for ( int i = 0; i < 5; i++ ) {
+            right.add( new PolyValue[]{ PolyInteger.of( i ), PolyString.of( "x" + i ) } );
+            right.add( new PolyValue[]{ PolyInteger.of( i ), PolyString.of( "y" + i ) } );
+        }
+        String[] rightTypes = { "INTEGER", "VARCHAR" };
+
+        // Keys 0 to 4 match twice, 5 and 6 never, nulls never
+        List<PolyValue[]> inner = VectorizedHashJoin.join( numbers( 2000 ), Linq4j.asEnumerable( right ), INT_INT, rightTypes, new int[]{ 1 }, new int[]{ 0 }, false ).toList();
+        long matching = 0;
+        for ( int a = 0; a < 2000; a++ ) {
+            if ( a % 10 != 0 && a % 7 < 5 ) {
+                matching++;
+            }
+        }
+        assertEquals( 2 * matching, inner.size() );
+        for ( PolyValue[] row : inner ) {
+            assertEquals( row[1], row[2] );
+            assertEquals( 4, row.length );
+        }
+
+        List<PolyValue[]> left = VectorizedHashJoin.join( numbers( 2000 ), Linq4j.asEnumerable( right ), INT_INT, rightTypes, new int[]{ 1 }, new int[]{ 0 }, true ).toList();
+        assertEquals( 2 * matching + (2000 - matching), left.size() );
+    }
+
+}
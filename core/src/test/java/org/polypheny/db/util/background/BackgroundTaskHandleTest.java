@@ -0,0 +1,163 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.util.background;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.util.background.BackgroundTask.TaskPriority;
+import org.polypheny.db.util.background.BackgroundTask.TaskSchedulingType;
+
+
+/**
+ * Unit tests for the scheduling of {@link BackgroundTaskHandle}s, with a single worker like the
+ * {@link BackgroundTaskManager} uses if only one background thread is configured.
+ */
+public class BackgroundTaskHandleTest {
+
+    private ScheduledExecutorService scheduler;
+    private ThreadPoolExecutor executor;
+    private final List<BackgroundTaskHandle> handles = new ArrayList<>();
+
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        executor = new ThreadPoolExecutor( 1, 1, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<>( 16, Comparator.comparing( r -> (BackgroundTaskHandle) r ) ) );
+    }
+
+
+    @AfterEach
+    public void tearDown() {
+        handles.forEach( BackgroundTaskHandle::stop );
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+
+    private BackgroundTaskHandle register( BackgroundTask task, TaskPriority priority, TaskSchedulingType schedulingType ) {
+        BackgroundTaskHandle handle = new BackgroundTaskHandle( String.valueOf( handles.size() ), task, priority.name(), priority, schedulingType, scheduler, executor );
+        handles.add( handle );
+        return handle;
+    }
+
+
+    private static void await( CountDownLatch latch ) {
+        try {
+            assertTrue( latch.await( 10, TimeUnit.SECONDS ) );
+        } catch ( InterruptedException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+
+    private static void awaitCondition( BooleanSupplier condition ) throws InterruptedException {
+        for ( int i = 0; i < 100 && !condition.getAsBoolean(); i++ ) {
+            Thread.sleep( 50 );
+        }
+        assertTrue( condition.getAsBoolean() );
+    }
+
+
+    @Test
+    public void testPriorityOrdering() throws InterruptedException {
+        // Occupies the only worker, so that the triggered tasks are queued
+        CountDownLatch release = new CountDownLatch( 1 );
+        executor.execute( () -> await( release ) );
+
+        List<TaskPriority> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch( 3 );
+        for ( TaskPriority priority : List.of( TaskPriority.LOW, TaskPriority.HIGH, TaskPriority.MEDIUM ) ) {
+            register( () -> {
+                executed.add( priority );
+                done.countDown();
+            }, priority, TaskSchedulingType.EVERY_THIRTY_SECONDS );
+        }
+        awaitCondition( () -> executor.getQueue().size() == 3 );
+
+        release.countDown();
+        await( done );
+        assertEquals( List.of( TaskPriority.HIGH, TaskPriority.MEDIUM, TaskPriority.LOW ), executed );
+    }
+
+
+    @Test
+    public void testPendingRunsAreCoalesced() throws InterruptedException {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+        BackgroundTaskHandle handle = register( () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await( release );
+        }, TaskPriority.MEDIUM, TaskSchedulingType.EVERY_SECOND_FIXED );
+
+        // The task is triggered twice more while its first execution is still running
+        await( started );
+        Thread.sleep( 2_500 );
+        assertEquals( 1, executions.get() );
+        assertEquals( 0, executor.getQueue().size() );
+
+        handle.stop();
+        release.countDown();
+        awaitCondition( () -> executor.getActiveCount() == 0 );
+        assertEquals( 1, executions.get() );
+        assertEquals( 1, handle.getOverruns() );
+    }
+
+
+    @Test
+    public void testDelayedTasksAreRescheduledAfterExecution() throws InterruptedException {
+        List<Long> starts = new CopyOnWriteArrayList<>();
+        List<Long> ends = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch( 2 );
+        BackgroundTaskHandle handle = register( () -> {
+            starts.add( System.nanoTime() );
+            try {
+                // The first execution takes longer than the interval
+                Thread.sleep( starts.size() == 1 ? 1_500 : 0 );
+            } catch ( InterruptedException e ) {
+                throw new RuntimeException( e );
+            }
+            ends.add( System.nanoTime() );
+            done.countDown();
+        }, TaskPriority.MEDIUM, TaskSchedulingType.EVERY_SECOND );
+
+        await( done );
+        handle.stop();
+        // The next execution is scheduled one interval after the previous one has finished, not at a fixed rate
+        long gap = TimeUnit.NANOSECONDS.toMillis( starts.get( 1 ) - ends.get( 0 ) );
+        assertTrue( gap >= 950, "Gap between executions was " + gap + " ms" );
+        assertEquals( 1, handle.getOverruns() );
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.util.sketch;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.type.entity.numerical.PolyInteger;
+import org.polypheny.db.type.entity.temporal.PolyDate;
+import org.polypheny.db.type.entity.temporal.PolyTimestamp;
+
+
+/**
+ * Unit tests for {@link HyperLogLog}, {@link KllSketch}, {@link CountMinSketch} and {@link ColumnSketch}.
+ */
+public class SketchTest {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+
+    private static long hash( long value ) {
+        return HASH_FUNCTION.hashLong( value ).asLong();
+    }
+
+
+    @Test
+    public void testHyperLogLogSmallCardinality() {
+        HyperLogLog sketch = new HyperLogLog();
+        for ( int i = 0; i < 1000; i++ ) {
+            sketch.add( hash( i % 100 ) );
+        }
+        assertEquals( 100, sketch.estimate(), 3 );
+    }
+
+
+    @Test
+    public void testHyperLogLogLargeCardinality() {
+        HyperLogLog sketch = new HyperLogLog();
+        for ( int i = 0; i < 1_000_000; i++ ) {
+            sketch.add( hash( i ) );
+        }
+        assertEquals( 1_000_000, sketch.estimate(), 50_000 );
+    }
+
+
+    @Test
+    public void testHyperLogLogMerge() throws IOException {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for ( int i = 0; i < 20_000; i++ ) {
+            first.add( hash( i ) );
+            second.add( hash( i + 10_000 ) );
+        }
+        first.merge( second );
+        assertEquals( 30_000, first.estimate(), 1500 );
+
+        HyperLogLog read = HyperLogLog.read( roundTrip( first::write ) );
+        assertEquals( first.estimate(), read.estimate() );
+    }
+
+
+    @Test
+    public void testKllQuantiles() {
+        KllSketch sketch = new KllSketch();
+        for ( int i = 1; i <= 100_000; i++ ) {
+            sketch.add( (i * 7919L) % 100_000 );
+        }
+        assertEquals( 100_000, sketch.getCount() );
+        assertEquals( 0, sketch.getMin() );
+        assertEquals( 99_999, sketch.getMax() );
+        assertEquals( 50_000, sketch.getQuantile( 0.5 ), 3000 );
+        assertEquals( 90_000, sketch.getQuantile( 0.9 ), 3000 );
+        assertEquals( 0.25, sketch.getRank( 25_000, false ), 0.03 );
+        assertEquals( 0.0, sketch.getRank( 0, false ) );
+        assertEquals( 1.0, sketch.getRank( 99_999, true ) );
+    }
+
+
+    @Test
+    public void testKllMergeAndSerialization() throws IOException {
+        KllSketch first = new KllSketch();
+        KllSketch second = new KllSketch();
+        for ( int i = 0; i < 50_000; i++ ) {
+            first.add( i );
+            second.add( 50_000 + i );
+        }
+        first.merge( second );
+        assertEquals( 100_000, first.getCount() );
+        assertEquals( 0.5, first.getRank( 50_000, false ), 0.03 );
+
+        KllSketch read = KllSketch.read( roundTrip( first::write ) );
+        assertEquals( first.getCount(), read.getCount() );
+        assertEquals( first.getQuantile( 0.3 ), read.getQuantile( 0.3 ) );
+        assertEquals( first.getRank( 70_000, true ), read.getRank( 70_000, true ) );
+    }
+
+
+    @Test
+    public void testCountMinHeavyHitters() throws IOException {
+        CountMinSketch sketch = new CountMinSketch();
+        for ( int i = 0; i < 10_000; i++ ) {
+            sketch.add( hash( i ), 1 );
+        }
+        sketch.add( hash( -1 ), 5000 );
+        assertEquals( 15_000, sketch.getTotal() );
+
+        long heavy = sketch.estimate( hash( -1 ) );
+        assertTrue( heavy >= 5000 );
+        // The overcount is bounded by e / width of the total with a high probability
+        assertTrue( heavy <= 5000 + 15_000 * Math.E / CountMinSketch.DEFAULT_WIDTH );
+
+        CountMinSketch read = CountMinSketch.read( roundTrip( sketch::write ) );
+        read.merge( sketch );
+        assertEquals( 30_000, read.getTotal() );
+        assertEquals( 2 * heavy, read.estimate( hash( -1 ) ) );
+    }
+
+
+    @Test
+    public void testEqualsSelectivityOfHighCardinality() {
+        ColumnSketch sketch = new ColumnSketch();
+        for ( int i = 0; i < 200_000; i++ ) {
+            sketch.add( PolyInteger.of( i ) );
+        }
+        // The count-min sketch alone would estimate about depth / width, the distinct count limits it to about 1 / rows
+        double selectivity = sketch.getEqualsSelectivity( PolyInteger.of( 42 ) );
+        assertTrue( selectivity <= 1.1 / 200_000 );
+
+        for ( int i = 0; i < 100_000; i++ ) {
+            sketch.add( PolyInteger.of( -1 ) );
+        }
+        // Frequent values are still estimated by the count-min sketch
+        assertEquals( 1.0 / 3, sketch.getEqualsSelectivity( PolyInteger.of( -1 ) ), 0.01 );
+        assertTrue( sketch.getEqualsSelectivity( PolyInteger.of( 42 ) ) <= 2.0 / 300_000 );
+    }
+
+
+    @Test
+    public void testRangeSelectivityOfTemporalValues() {
+        final long day = 24 * 60 * 60 * 1000L;
+        ColumnSketch dates = new ColumnSketch();
+        ColumnSketch timestamps = new ColumnSketch();
+        for ( int i = 0; i < 1000; i++ ) {
+            dates.add( PolyDate.of( i * day ) );
+            timestamps.add( PolyTimestamp.of( i * day + 1000L ) );
+        }
+
+        // Bounds may be of another temporal type, they are compared by their milliseconds since the epoch
+        assertEquals( 0.25, dates.getRangeSelectivity( PolyDate.of( 0L ), true, PolyTimestamp.of( 250 * day - 1 ), true ), 0.03 );
+        assertEquals( 0.5, timestamps.getRangeSelectivity( PolyDate.of( 500 * day ), true, null, false ), 0.03 );
+    }
+
+
+    private static DataInputStream roundTrip( Writer writer ) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( DataOutputStream out = new DataOutputStream( bytes ) ) {
+            writer.write( out );
+        }
+        return new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) );
+    }
+
+
+    private interface Writer {
+
+        void write( DataOutputStream out ) throws IOException;
+
+    }
+
+}
@@ -16,14 +16,15 @@
 
 package org.polypheny.db.partition;
 
-import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
@@ -42,9 +43,6 @@
 import org.polypheny.db.catalog.logistic.PartitionType;
 import org.polypheny.db.catalog.snapshot.Snapshot;
 import org.polypheny.db.config.RuntimeConfig;
-import org.polypheny.db.monitoring.core.MonitoringServiceProvider;
-import org.polypheny.db.monitoring.events.metrics.DmlDataPoint;
-import org.polypheny.db.monitoring.events.metrics.QueryDataPointImpl;
 import org.polypheny.db.partition.properties.PartitionProperty;
 import org.polypheny.db.partition.properties.TemperaturePartitionProperty;
 import org.polypheny.db.processing.DataMigrator;
@@ -59,8 +57,8 @@
 
 
 /**
- * Periodically retrieves information from the MonitoringService to get current statistics about
- * the frequency map to determine which chunk of data should reside in HOT {@literal &}  which in COLD partition
+ * Periodically reads the decayed access counters of the partitions from {@link PartitionAccessCounters}, which are
+ * updated by the monitoring analyzers, to determine which chunk of data should reside in HOT {@literal &} which in COLD partition
  *
  * Only one instance of the MAP exists.
  * Which gets created once the first TEMPERATURE partitioned table gets created. (Including creation of BackgroundTask)
@@ -101,6 +99,7 @@ public void initialize() {
     @Override
     public void terminate() {
         BackgroundTaskManager.INSTANCE.removeBackgroundTask( backgroundTaskId );
+        PartitionAccessCounters.INSTANCE.clear();
     }
 
 
@@ -124,29 +123,21 @@ private void processAllPeriodicTables() {
 
         long invocationTimestamp = System.currentTimeMillis();
         List<LogicalTable> periodicTables = catalog.getSnapshot().getTablesForPeriodicProcessing();
+        Set<Long> trackedPartitionIds = new HashSet<>();
         // Retrieve all Tables which rely on periodic processing
         for ( LogicalTable table : periodicTables ) {
-            if ( catalog.getSnapshot().alloc().getPartitionProperty( table.id ).orElseThrow().partitionType == PartitionType.TEMPERATURE ) {
+            PartitionProperty property = catalog.getSnapshot().alloc().getPartitionProperty( table.id ).orElseThrow();
+            if ( property.partitionType == PartitionType.TEMPERATURE ) {
+                trackedPartitionIds.addAll( property.partitionIds );
                 determinePartitionFrequency( table, invocationTimestamp );
             }
         }
+        // Stop counting partitions which were dropped
+        PartitionAccessCounters.INSTANCE.retain( trackedPartitionIds );
         log.debug( "Finished processing access frequency of tables" );
     }
 
 
-    private void incrementPartitionAccess( long identifiedPartitionId, List<Long> partitionIds ) {
-        // Outer if is needed to ignore frequencies from old non-existing partitionIds
-        // Which are not yet linked to the table but are still in monitoring
-        if ( partitionIds.contains( identifiedPartitionId ) ) {
-            if ( accessCounter.containsKey( identifiedPartitionId ) ) {
-                accessCounter.replace( identifiedPartitionId, accessCounter.get( identifiedPartitionId ) + 1 );
-            } else {
-                accessCounter.put( identifiedPartitionId, (long) 1 );
-            }
-        }
-    }
-
-
     /**
      * Determines the partition distribution for temperature partitioned tables by deciding which partitions should be moved from HOT to COLD
      * and from COLD to HOT. To setup the table corresponding to the current access frequencies patterns.
@@ -394,42 +385,30 @@ private List<Long> filterList( long namespaceId, long adapterId, long tableId, L
      * in a desired time interval.
      *
      * @param table Temperature partitioned table
-     * @param invocationTimestamp Timestamp do determine the interval for which monitoring metrics should be collected.
+     * @param invocationTimestamp Timestamp up to which the access counters are decayed.
      */
     @Override
     public void determinePartitionFrequency( LogicalTable table, long invocationTimestamp ) {
         Snapshot snapshot = catalog.getSnapshot();
         PartitionProperty property = snapshot.alloc().getPartitionProperty( table.id ).orElseThrow();
-        Timestamp queryStart = new Timestamp( invocationTimestamp - ((TemperaturePartitionProperty) property).getFrequencyInterval() * 1000 );
-
-        accessCounter = new HashMap<>();
-        List<Long> tempPartitionIds = new ArrayList<>( property.partitionIds );
-
-        tempPartitionIds.forEach( p -> accessCounter.put( p, (long) 0 ) );
+        TemperaturePartitionProperty temperatureProperty = (TemperaturePartitionProperty) property;
+        // Accesses older than the frequency interval count half
+        long halfLife = temperatureProperty.getFrequencyInterval() * 1000;
 
-        switch ( ((TemperaturePartitionProperty) property).getPartitionCostIndication() ) {
-            case ALL:
-                for ( QueryDataPointImpl queryDataPoint : MonitoringServiceProvider.getInstance().getDataPointsAfter( QueryDataPointImpl.class, queryStart ) ) {
-                    queryDataPoint.getAccessedPartitions().forEach( p -> incrementPartitionAccess( p, tempPartitionIds ) );
-                }
-                for ( DmlDataPoint dmlDataPoint : MonitoringServiceProvider.getInstance().getDataPointsAfter( DmlDataPoint.class, queryStart ) ) {
-                    dmlDataPoint.getAccessedPartitions().forEach( p -> incrementPartitionAccess( p, tempPartitionIds ) );
-                }
+        PartitionAccessCounters counters = PartitionAccessCounters.INSTANCE;
+        counters.track( property.partitionIds );
 
-                break;
-
-            case READ:
-                List<QueryDataPointImpl> readAccesses = MonitoringServiceProvider.getInstance().getDataPointsAfter( QueryDataPointImpl.class, queryStart );
-                for ( QueryDataPointImpl queryDataPoint : readAccesses ) {
-                    queryDataPoint.getAccessedPartitions().forEach( p -> incrementPartitionAccess( p, tempPartitionIds ) );
-                }
-                break;
-
-            case WRITE:
-                List<DmlDataPoint> writeAccesses = MonitoringServiceProvider.getInstance().getDataPointsAfter( DmlDataPoint.class, queryStart );
-                for ( DmlDataPoint dmlDataPoint : writeAccesses ) {
-                    dmlDataPoint.getAccessedPartitions().forEach( p -> incrementPartitionAccess( p, tempPartitionIds ) );
-                }
+        accessCounter = new HashMap<>();
+        for ( long partitionId : property.partitionIds ) {
+            double reads = counters.getReads( partitionId, invocationTimestamp, halfLife );
+            double writes = counters.getWrites( partitionId, invocationTimestamp, halfLife );
+            double accesses = switch ( temperatureProperty.getPartitionCostIndication() ) {
+                case ALL -> reads + writes;
+                case READ -> reads;
+                case WRITE -> writes;
+            };
+            // Partitions with less than half an access count as not accessed
+            accessCounter.put( partitionId, Math.round( accesses ) );
         }
 
         // To gain observability
@@ -26,6 +26,7 @@
 import org.polypheny.db.partition.PartitionFunctionInfo.PartitionFunctionInfoColumnType;
 import org.polypheny.db.partition.properties.PartitionProperty;
 import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyValue;
 
 
 @Slf4j
@@ -37,7 +38,30 @@ public class HashPartitionManager extends AbstractPartitionManager {
 
     @Override
     public long getTargetPartitionId( LogicalTable table, PartitionProperty property, String columnValue ) {
-        long hashValue = Math.abs( columnValue.hashCode() );
+        return getPartition( property, columnValue.hashCode() );
+    }
+
+
+    @Override
+    public long[] getTargetPartitionIds( LogicalTable table, PartitionProperty property, List<PolyValue> values ) {
+        long[] targets = new long[values.size()];
+        char[] digits = new char[20];
+        for ( int i = 0; i < targets.length; i++ ) {
+            PolyValue value = values.get( i );
+            int hash;
+            if ( value != null && !value.isNull() && PolyType.INT_TYPES.contains( value.type ) ) {
+                hash = decimalHashCode( value.asNumber().longValue(), digits );
+            } else {
+                hash = PartitionManager.asPartitionValue( value ).hashCode();
+            }
+            targets[i] = getPartition( property, hash );
+        }
+        return targets;
+    }
+
+
+    private static long getPartition( PartitionProperty property, int hash ) {
+        long hashValue = Math.abs( hash );
 
         // Get designated HASH partition based on number of internal partitions
         int partitionIndex = (int) (hashValue % property.partitionIds.size());
@@ -47,6 +71,31 @@ public long getTargetPartitionId( LogicalTable table, PartitionProperty property
     }
 
 
+    /**
+     * Returns the {@link String#hashCode()} of the decimal representation of the value without creating the string,
+     * so that integers are placed on the same partitions as by {@link #getTargetPartitionId}.
+     */
+    static int decimalHashCode( long value, char[] digits ) {
+        if ( value == Long.MIN_VALUE ) {
+            return Long.toString( value ).hashCode();
+        }
+        int hash = 0;
+        if ( value < 0 ) {
+            hash = '-';
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while ( value != 0 );
+        while ( length > 0 ) {
+            hash = 31 * hash + digits[--length];
+        }
+        return hash;
+    }
+
+
     @Override
     public List<List<String>> validateAdjustPartitionGroupSetup( List<List<String>> partitionGroupQualifiers, long numPartitionGroups, List<String> partitionGroupNames, LogicalColumn partitionColumn ) {
         partitionGroupQualifiers = super.validateAdjustPartitionGroupSetup( partitionGroupQualifiers, numPartitionGroups, partitionGroupNames, partitionColumn );
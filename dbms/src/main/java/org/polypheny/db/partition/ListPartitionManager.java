@@ -19,7 +19,9 @@
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.catalog.Catalog;
@@ -32,6 +34,7 @@
 import org.polypheny.db.partition.properties.PartitionProperty;
 import org.polypheny.db.type.PolyType;
 import org.polypheny.db.type.PolyTypeFamily;
+import org.polypheny.db.type.entity.PolyValue;
 
 
 @Slf4j
@@ -84,6 +87,33 @@ public long getTargetPartitionId( LogicalTable table, PartitionProperty property
     }
 
 
+    @Override
+    public long[] getTargetPartitionIds( LogicalTable table, PartitionProperty property, List<PolyValue> values ) {
+        // Qualifier to partition, a later partition listing the same qualifier wins like in getTargetPartitionId
+        Map<String, Long> qualifiers = new HashMap<>();
+        long unboundPartitionId = -1;
+        for ( long partitionId : property.partitionIds ) {
+            Optional<AllocationPartition> optionalPartition = Catalog.snapshot().alloc().getPartition( partitionId );
+            if ( optionalPartition.isEmpty() ) {
+                continue;
+            }
+            if ( optionalPartition.get().qualifiers.isEmpty() ) {
+                unboundPartitionId = partitionId;
+                break;
+            }
+            for ( String qualifier : optionalPartition.get().qualifiers ) {
+                qualifiers.put( qualifier, partitionId );
+            }
+        }
+
+        long[] targets = new long[values.size()];
+        for ( int i = 0; i < targets.length; i++ ) {
+            targets[i] = qualifiers.getOrDefault( PartitionManager.asPartitionValue( values.get( i ) ), unboundPartitionId );
+        }
+        return targets;
+    }
+
+
     @Override
     public List<List<String>> validateAdjustPartitionGroupSetup( List<List<String>> partitionGroupQualifiers, long numPartitionGroups, List<String> partitionGroupNames, LogicalColumn partitionColumn ) {
         partitionGroupQualifiers = super.validateAdjustPartitionGroupSetup( partitionGroupQualifiers, numPartitionGroups, partitionGroupNames, partitionColumn );
@@ -16,10 +16,13 @@
 
 package org.polypheny.db.partition;
 
+import java.util.Arrays;
+import java.util.List;
 import org.apache.commons.lang3.NotImplementedException;
 import org.polypheny.db.catalog.entity.logical.LogicalTable;
 import org.polypheny.db.partition.properties.PartitionProperty;
 import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyValue;
 
 public class NonePartitionManager extends AbstractPartitionManager {
 
@@ -41,6 +44,14 @@ public long getTargetPartitionId( LogicalTable table, PartitionProperty property
     }
 
 
+    @Override
+    public long[] getTargetPartitionIds( LogicalTable table, PartitionProperty property, List<PolyValue> values ) {
+        long[] targets = new long[values.size()];
+        Arrays.fill( targets, property.partitionIds.get( 0 ) );
+        return targets;
+    }
+
+
     @Override
     public PartitionFunctionInfo getPartitionFunctionInfo() {
         throw new NotImplementedException();
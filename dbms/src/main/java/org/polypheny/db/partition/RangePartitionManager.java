@@ -16,9 +16,12 @@
 
 package org.polypheny.db.partition;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
@@ -32,6 +35,7 @@
 import org.polypheny.db.partition.properties.PartitionProperty;
 import org.polypheny.db.type.PolyType;
 import org.polypheny.db.type.PolyTypeFamily;
+import org.polypheny.db.type.entity.PolyValue;
 
 
 @Slf4j
@@ -41,38 +45,43 @@ public class RangePartitionManager extends AbstractPartitionManager {
     public static final String FUNCTION_TITLE = "RANGE";
     public static final List<PolyType> SUPPORTED_TYPES = ImmutableList.of( PolyType.INTEGER, PolyType.BIGINT, PolyType.SMALLINT, PolyType.TINYINT );
 
+    /**
+     * The sorted ranges per partition property. A property is replaced in the catalog whenever the partitions of
+     * its table change, hence the properties are compared by identity and weakly referenced.
+     */
+    private static final Cache<PartitionProperty, Ranges> RANGES = CacheBuilder.newBuilder().weakKeys().build();
+
 
     @Override
     public long getTargetPartitionId( LogicalTable table, PartitionProperty property, String columnValue ) {
-        long unboundPartitionId = -1;
-        long selectedPartitionId = -1;
-
-        // Process all accumulated CatalogPartitions
-        for ( AllocationPartition partition : Catalog.snapshot().alloc().getPartitionsFromLogical( table.id ) ) {
-            if ( partition.isUnbound ) {
-                unboundPartitionId = partition.id;
-                break;
-            }
+        long partitionId = getRanges( table, property ).find( Double.parseDouble( columnValue ) );
+        if ( log.isDebugEnabled() ) {
+            log.debug( "Found column value: {} on partitionID {}", columnValue, partitionId );
+        }
+        return partitionId;
+    }
 
-            if ( isValueInRange( columnValue, partition ) ) {
-                if ( log.isDebugEnabled() ) {
-                    log.debug( "Found column value: {} on partitionID {} in range: [{} - {}]",
-                            columnValue,
-                            partition.id,
-                            partition.qualifiers.get( 0 ),
-                            partition.qualifiers.get( 1 ) );
-                }
-                selectedPartitionId = partition.id;
-                break;
+
+    @Override
+    public long[] getTargetPartitionIds( LogicalTable table, PartitionProperty property, List<PolyValue> values ) {
+        Ranges ranges = getRanges( table, property );
+        long[] targets = new long[values.size()];
+        for ( int i = 0; i < targets.length; i++ ) {
+            PolyValue value = values.get( i );
+            if ( value == null || value.isNull() ) {
+                targets[i] = ranges.unboundPartitionId;
+            } else if ( value.isNumber() ) {
+                targets[i] = ranges.find( value.asNumber().doubleValue() );
+            } else {
+                targets[i] = ranges.find( Double.parseDouble( value.toString() ) );
             }
         }
+        return targets;
+    }
 
-        // If no concrete partition could be identified, report back the unbound/default partition
-        if ( selectedPartitionId == -1 ) {
-            selectedPartitionId = unboundPartitionId;
-        }
 
-        return selectedPartitionId;
+    private static Ranges getRanges( LogicalTable table, PartitionProperty property ) {
+        return RANGES.asMap().computeIfAbsent( property, p -> Ranges.of( table ) );
     }
 
 
@@ -252,13 +261,58 @@ public boolean supportsColumnOfType( PolyType type ) {
     }
 
 
-    private boolean isValueInRange( String columnValue, AllocationPartition partition ) {
-        int lowerBound = Integer.parseInt( partition.qualifiers.get( 0 ) );
-        int upperBound = Integer.parseInt( partition.qualifiers.get( 1 ) );
+    /**
+     * The ranges of the partitions of a table sorted by their lower bound. Ranges do not overlap, hence the range
+     * containing a value is found by binary search.
+     */
+    record Ranges( long[] lowerBounds, long[] upperBounds, long[] partitionIds, long unboundPartitionId ) {
+
+        static Ranges of( LogicalTable table ) {
+            long unboundPartitionId = -1;
+            List<AllocationPartition> bounded = new ArrayList<>();
+            for ( AllocationPartition partition : Catalog.snapshot().alloc().getPartitionsFromLogical( table.id ) ) {
+                if ( partition.isUnbound ) {
+                    unboundPartitionId = partition.id;
+                } else {
+                    bounded.add( partition );
+                }
+            }
+            long[] lowerBounds = new long[bounded.size()];
+            long[] upperBounds = new long[bounded.size()];
+            long[] partitionIds = new long[bounded.size()];
+            bounded.sort( Comparator.comparingLong( p -> Long.parseLong( p.qualifiers.get( 0 ) ) ) );
+            for ( int i = 0; i < bounded.size(); i++ ) {
+                lowerBounds[i] = Long.parseLong( bounded.get( i ).qualifiers.get( 0 ) );
+                upperBounds[i] = Long.parseLong( bounded.get( i ).qualifiers.get( 1 ) );
+                partitionIds[i] = bounded.get( i ).id;
+            }
+            return new Ranges( lowerBounds, upperBounds, partitionIds, unboundPartitionId );
+        }
+
 
-        double numericValue = Double.parseDouble( columnValue );
+        /**
+         * Returns the partition whose range contains the value or the unbound partition if there is none.
+         */
+        long find( double value ) {
+            // Index of the last range with a lower bound not above the value
+            int low = 0;
+            int high = lowerBounds.length - 1;
+            int candidate = -1;
+            while ( low <= high ) {
+                int middle = (low + high) >>> 1;
+                if ( lowerBounds[middle] <= value ) {
+                    candidate = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if ( candidate != -1 && value <= upperBounds[candidate] ) {
+                return partitionIds[candidate];
+            }
+            return unboundPartitionId;
+        }
 
-        return numericValue >= lowerBound && numericValue <= upperBound;
     }
 
 }
@@ -31,6 +31,7 @@
 import org.polypheny.db.partition.properties.PartitionProperty;
 import org.polypheny.db.partition.properties.TemperaturePartitionProperty;
 import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.entity.PolyValue;
 
 
 public class TemperatureAwarePartitionManager extends AbstractPartitionManager {
@@ -51,6 +52,14 @@ public long getTargetPartitionId( LogicalTable table, PartitionProperty property
     }
 
 
+    @Override
+    public long[] getTargetPartitionIds( LogicalTable table, PartitionProperty property, List<PolyValue> values ) {
+        PartitionManager partitionManager = PartitionManagerFactory.getInstance().getPartitionManager( ((TemperaturePartitionProperty) property).getInternalPartitionFunction() );
+
+        return partitionManager.getTargetPartitionIds( table, property, values );
+    }
+
+
     @Override
     public Map<Long, List<AllocationColumn>> getRelevantPlacements( LogicalTable table, List<AllocationEntity> allocs, List<Long> excludedAdapters ) {
         // Get partition manager
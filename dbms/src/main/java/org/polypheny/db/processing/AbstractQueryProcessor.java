@@ -23,6 +23,7 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -32,6 +33,9 @@
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -39,14 +43,19 @@
 import org.apache.calcite.avatica.Meta.CursorFactory;
 import org.apache.commons.lang3.time.StopWatch;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.polypheny.db.PolyImplementation;
 import org.polypheny.db.ResultIterator;
 import org.polypheny.db.adapter.DataContext;
 import org.polypheny.db.adapter.DataContext.ParameterValue;
 import org.polypheny.db.adapter.index.Index;
 import org.polypheny.db.adapter.index.IndexManager;
+import org.polypheny.db.adapter.index.IndexRange;
 import org.polypheny.db.algebra.AlgCollation;
 import org.polypheny.db.algebra.AlgCollations;
+import org.polypheny.db.algebra.AlgFieldCollation;
+import org.polypheny.db.algebra.AlgFieldCollation.Direction;
+import org.polypheny.db.algebra.AlgFieldCollation.NullDirection;
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.algebra.AlgRoot;
 import org.polypheny.db.algebra.AlgShuttle;
@@ -70,9 +79,11 @@
 import org.polypheny.db.algebra.logical.common.LogicalConditionalExecute;
 import org.polypheny.db.algebra.logical.document.LogicalDocumentModify;
 import org.polypheny.db.algebra.logical.lpg.LogicalLpgModify;
+import org.polypheny.db.algebra.logical.relational.LogicalRelFilter;
 import org.polypheny.db.algebra.logical.relational.LogicalRelModify;
 import org.polypheny.db.algebra.logical.relational.LogicalRelProject;
 import org.polypheny.db.algebra.logical.relational.LogicalRelScan;
+import org.polypheny.db.algebra.logical.relational.LogicalRelSort;
 import org.polypheny.db.algebra.logical.relational.LogicalRelValues;
 import org.polypheny.db.algebra.type.AlgDataType;
 import org.polypheny.db.algebra.type.AlgDataTypeField;
@@ -91,6 +102,7 @@
 import org.polypheny.db.information.InformationQueryPlan;
 import org.polypheny.db.interpreter.BindableConvention;
 import org.polypheny.db.interpreter.Interpreters;
+import org.polypheny.db.languages.QueryTextCache;
 import org.polypheny.db.monitoring.events.DmlEvent;
 import org.polypheny.db.monitoring.events.MonitoringType;
 import org.polypheny.db.monitoring.events.QueryEvent;
@@ -103,6 +115,7 @@
 import org.polypheny.db.plan.Convention;
 import org.polypheny.db.prepare.Prepare.PreparedResult;
 import org.polypheny.db.prepare.Prepare.PreparedResultImpl;
+import org.polypheny.db.processing.TieredExecution.Tier;
 import org.polypheny.db.processing.caching.ImplementationCache;
 import org.polypheny.db.processing.caching.QueryPlanCache;
 import org.polypheny.db.processing.caching.RoutingPlanCache;
@@ -112,17 +125,20 @@
 import org.polypheny.db.processing.util.Plan;
 import org.polypheny.db.processing.util.ProposedImplementations;
 import org.polypheny.db.rex.RexBuilder;
+import org.polypheny.db.rex.RexCall;
 import org.polypheny.db.rex.RexDynamicParam;
 import org.polypheny.db.rex.RexIndexRef;
 import org.polypheny.db.rex.RexLiteral;
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.rex.RexProgram;
+import org.polypheny.db.rex.RexShuttle;
 import org.polypheny.db.routing.DmlRouter;
 import org.polypheny.db.routing.ExecutionTimeMonitor;
 import org.polypheny.db.routing.ExecutionTimeMonitor.ExecutionTimeObserver;
 import org.polypheny.db.routing.LogicalQueryInformation;
 import org.polypheny.db.routing.ProposedRoutingPlan;
 import org.polypheny.db.routing.Router;
+import org.polypheny.db.routing.RouterPlanSelectionStrategy;
 import org.polypheny.db.routing.RoutingContext;
 import org.polypheny.db.routing.RoutingManager;
 import org.polypheny.db.routing.RoutingPlan;
@@ -184,7 +200,9 @@ public void executionTime( String reference, long nanoTime ) {
 
     @Override
     public void resetCaches() {
+        QueryTextCache.INSTANCE.reset();
         ImplementationCache.INSTANCE.reset();
+        TieredExecution.INSTANCE.reset();
         QueryPlanCache.INSTANCE.reset();
         RoutingPlanCache.INSTANCE.reset();
         RoutingManager.getInstance().getRouters().forEach( Router::resetCaches );
@@ -254,6 +272,7 @@ private ProposedImplementations prepareQueries( AlgRoot logicalRoot, AlgDataType
         final Convention resultConvention = ENABLE_BINDABLE ? BindableConvention.INSTANCE : EnumerableConvention.INSTANCE;
         final StopWatch stopWatch = new StopWatch();
         stopWatch.start();
+        final long start = System.nanoTime();
 
         // Initialize result lists. They will all be with in the same ordering.
         List<Plan> plans = null;
@@ -408,6 +427,9 @@ private ProposedImplementations prepareQueries( AlgRoot logicalRoot, AlgDataType
                 PreparedResult<PolyValue> preparedResult = ImplementationCache.INSTANCE.getIfPresent( parameterizedRoot.alg );
                 AlgNode optimalNode = QueryPlanCache.INSTANCE.getIfPresent( parameterizedRoot.alg );
                 if ( preparedResult != null ) {
+                    if ( RuntimeConfig.TIERED_EXECUTION.getBoolean() ) {
+                        preparedResult = TieredExecution.INSTANCE.timed( Tier.COMPILED, start, preparedResult );
+                    }
                     PolyImplementation result = createPolyImplementation(
                             preparedResult,
                             parameterizedRoot.kind,
@@ -429,7 +451,8 @@ private ProposedImplementations prepareQueries( AlgRoot logicalRoot, AlgDataType
 
         // Can we return earlier?
         if ( plans.stream().allMatch( obj -> Objects.nonNull( obj.result() ) && Objects.nonNull( obj.optimalNode() ) ) ) {
-            return new ProposedImplementations( plans.stream().filter( Plan::isValid ).toList(), logicalQueryInformation );
+            return new ProposedImplementations( plans.stream().filter( Plan::isValid ).toList(), logicalQueryInformation, true, plan -> {
+            } );
         }
 
         //
@@ -454,70 +477,175 @@ private ProposedImplementations prepareQueries( AlgRoot logicalRoot, AlgDataType
             statement.getProcessingDuration().start( "Planning & Optimization" );
         }
 
-        // OptimalNode same size as routed, parametrized and result
-        for ( Plan plan : plans ) {
-            if ( plan.optimalNode() != null ) {
-                continue;
-            }
-            plan.optimalNode( optimize( plan.parameterizedRoot(), resultConvention ) );
+        final int proposedPlans = plans.size();
+        plans = optimizePlans( plans, resultConvention ).stream().filter( Plan::isOptimized ).toList();
 
-            if ( this.isQueryPlanCachingActive( statement, plan.proposedRoutingPlan().getRoutedRoot() ) ) {
-                QueryPlanCache.INSTANCE.put( plan.parameterizedRoot().alg, plan.optimalNode() );
+        if ( isAnalyze ) {
+            statement.getProcessingDuration().stop( "Planning & Optimization" );
+        }
+
+        stopWatch.stop();
+        if ( log.isDebugEnabled() ) {
+            log.debug( "Preparing statement ... done. [{}]", stopWatch );
+        }
+
+        // Only the selected plan is implemented
+        return new ProposedImplementations(
+                plans,
+                logicalQueryInformation,
+                plans.size() == proposedPlans,
+                plan -> implementPlan( plan, parameterRowType, resultConvention, executionTimeMonitor, start, isAnalyze ) );
+    }
+
+
+    /**
+     * Optimizes the plans, which have not been taken from the plan cache. If the plan is selected by its costs only,
+     * the cumulative costs of every optimized plan are remembered in the {@link QueryPlanCache}. Plans are pruned on
+     * these computed costs only: a plan is not optimized, if the costs computed at its last optimization exceed the
+     * costs of the best plan of this query. Plans which have not been optimized recently are always optimized, as
+     * neither the tuples read by their scans nor any other logical property bounds their physical costs. No further
+     * plans are optimized once the {@link RoutingManager#PLANNING_TIME_BUDGET planning time budget} is exhausted.
+     *
+     * @return the optimized plans in their original order
+     */
+    private List<Plan> optimizePlans( List<Plan> plans, Convention resultConvention ) {
+        final boolean prune = plans.size() > 1
+                && RoutingManager.PLAN_SELECTION_STRATEGY.getEnum() == RouterPlanSelectionStrategy.BEST
+                && Math.abs( RoutingManager.PRE_COST_POST_COST_RATIO.getDouble() ) < AlgOptUtil.EPSILON;
+        final Set<Plan> optimized = optimizeCheapest(
+                plans,
+                prune,
+                RoutingManager.PLANNING_TIME_BUDGET.getInteger() * 1_000_000L,
+                plan -> plan.optimalNode() != null,
+                plan -> QueryPlanCache.INSTANCE.getCostIfPresent( plan.parameterizedRoot().alg ),
+                plan -> {
+                    if ( plan.optimalNode() == null ) {
+                        plan.optimalNode( optimize( plan.parameterizedRoot(), resultConvention ) );
+
+                        if ( this.isQueryPlanCachingActive( statement, plan.proposedRoutingPlan().getRoutedRoot() ) ) {
+                            QueryPlanCache.INSTANCE.put( plan.parameterizedRoot().alg, plan.optimalNode() );
+                        }
+                    }
+                    if ( !prune ) {
+                        return Double.NaN;
+                    }
+                    final AlgOptCost cost = plan.optimalNode().getCluster().getMetadataQuery().getCumulativeCost( plan.optimalNode() );
+                    if ( cost == null || cost.isInfinite() ) {
+                        return Double.NaN;
+                    }
+                    QueryPlanCache.INSTANCE.putCost( plan.parameterizedRoot().alg, cost.getRows() );
+                    return cost.getRows();
+                } );
+        return plans.stream().filter( optimized::contains ).toList();
+    }
+
+
+    /**
+     * Optimizes the plans, starting with those which are already optimized and those with the lowest computed costs.
+     * A plan which is not yet optimized is skipped, if its computed costs exceed the costs of the best plan optimized
+     * so far, or if the planning time budget is exhausted. At least one plan is always optimized.
+     *
+     * @param prune whether plans are skipped because of their computed costs
+     * @param budget the planning time budget in nanoseconds, or {@code 0} for no budget
+     * @param isOptimized whether a plan is already optimized
+     * @param computedCost the costs computed at a previous optimization of a plan, or {@code null} if unknown
+     * @param optimize optimizes a plan and returns its costs, or {@code NaN} if they have not been computed
+     * @return the optimized plans
+     */
+    static <P> Set<P> optimizeCheapest( List<P> plans, boolean prune, long budget, Predicate<P> isOptimized, Function<P, Double> computedCost, ToDoubleFunction<P> optimize ) {
+        final Map<P, Double> computedCosts = new HashMap<>();
+        if ( prune ) {
+            for ( P plan : plans ) {
+                final Double cost = isOptimized.test( plan ) ? null : computedCost.apply( plan );
+                if ( cost != null ) {
+                    computedCosts.put( plan, cost );
+                }
+            }
+        }
+        // Plans with unknown costs are optimized last, in their original order
+        final List<P> candidates = new ArrayList<>( plans );
+        candidates.sort( Comparator.<P, Boolean>comparing( plan -> !isOptimized.test( plan ) )
+                .thenComparingDouble( plan -> computedCosts.getOrDefault( plan, Double.POSITIVE_INFINITY ) ) );
+
+        final long start = System.nanoTime();
+        final Set<P> optimized = new HashSet<>();
+        double best = Double.POSITIVE_INFINITY;
+        for ( P plan : candidates ) {
+            if ( !isOptimized.test( plan ) ) {
+                if ( !optimized.isEmpty() && budget > 0 && System.nanoTime() - start > budget ) {
+                    log.debug( "Planning time budget exhausted, dropping proposed plan" );
+                    continue;
+                }
+                if ( computedCosts.containsKey( plan ) && computedCosts.get( plan ) > best ) {
+                    log.debug( "Dropping proposed plan, as its computed costs {} exceed the costs {} of the best plan", computedCosts.get( plan ), best );
+                    continue;
+                }
+            }
+            final double cost = optimize.applyAsDouble( plan );
+            if ( !Double.isNaN( cost ) ) {
+                best = Math.min( best, cost );
             }
+            optimized.add( plan );
         }
+        return optimized;
+    }
 
-        //
-        // Implementation
+
+    /**
+     * Implements an optimized plan, which has not been taken from the implementation cache.
+     */
+    private void implementPlan( Plan plan, AlgDataType parameterRowType, Convention resultConvention, ExecutionTimeMonitor executionTimeMonitor, long start, boolean isAnalyze ) {
         if ( isAnalyze ) {
-            statement.getProcessingDuration().stop( "Planning & Optimization" );
             statement.getProcessingDuration().start( "Implementation" );
         }
 
-        for ( Plan plan : plans ) {
-            if ( plan.result() != null ) {
-                continue;
-            }
+        final AlgDataType rowType = plan.parameterizedRoot().alg.getTupleType();
+        final List<Pair<Integer, String>> fields = Pair.zip( PolyTypeUtil.identity( rowType.getFieldCount() ), rowType.getFieldNames() );
+        AlgRoot optimalRoot = new AlgRoot( plan.optimalNode(), rowType, plan.parameterizedRoot().kind, fields, algCollation( plan.parameterizedRoot().alg ) );
 
-            final AlgDataType rowType = plan.parameterizedRoot().alg.getTupleType();
-            final List<Pair<Integer, String>> fields = Pair.zip( PolyTypeUtil.identity( rowType.getFieldCount() ), rowType.getFieldNames() );
-            AlgRoot optimalRoot = new AlgRoot( plan.optimalNode(), rowType, plan.parameterizedRoot().kind, fields, algCollation( plan.parameterizedRoot().alg ) );
+        boolean cachingActive = this.isImplementationCachingActive( statement, plan.proposedRoutingPlan().getRoutedRoot() );
+        AlgNode interpretable = cachingActive && RuntimeConfig.TIERED_EXECUTION.getBoolean() && optimalRoot.alg.isImplementationCacheable()
+                ? TieredExecution.toInterpretable( optimalRoot )
+                : null;
 
-            PreparedResult<PolyValue> preparedResult = implement( optimalRoot, parameterRowType );
+        PreparedResult<PolyValue> preparedResult;
+        if ( interpretable != null ) {
+            // Interpret until the query has been executed often enough to compile it in the background
+            // The background compilation must not use the statement, which may be closed or reused by then
+            final Conformance conformance = statement.getPrepareContext().config().conformance();
+            TieredExecution.INSTANCE.countExecution( plan.parameterizedRoot().alg, () -> implement( optimalRoot, parameterRowType, null, conformance, null ) );
+            preparedResult = TieredExecution.INSTANCE.timed( Tier.INTERPRETED, start, implement( optimalRoot, parameterRowType, interpretable, conformance, statement ) );
+        } else {
+            preparedResult = implement( optimalRoot, parameterRowType );
 
             // Cache implementation
-            if ( this.isImplementationCachingActive( statement, plan.proposedRoutingPlan().getRoutedRoot() ) ) {
+            if ( cachingActive ) {
                 if ( optimalRoot.alg.isImplementationCacheable() ) {
                     ImplementationCache.INSTANCE.put( plan.parameterizedRoot().alg, preparedResult );
                 } else {
                     ImplementationCache.INSTANCE.countUncacheable();
                 }
             }
-
-            PolyImplementation result = createPolyImplementation(
-                    preparedResult,
-                    optimalRoot.kind,
-                    optimalRoot.alg,
-                    optimalRoot.validatedRowType,
-                    resultConvention,
-                    executionTimeMonitor,
-                    Objects.requireNonNull( plan.optimalNode().getTraitSet().getTrait( ModelTraitDef.INSTANCE ) ).dataModel() );
-            plan.result( result );
-            plan.generatedCodes( preparedResult.getCode() );
-            plan.optimalNode( optimalRoot.alg );
+            if ( RuntimeConfig.TIERED_EXECUTION.getBoolean() ) {
+                preparedResult = TieredExecution.INSTANCE.timed( Tier.COMPILED, start, preparedResult );
+            }
         }
+
+        PolyImplementation result = createPolyImplementation(
+                preparedResult,
+                optimalRoot.kind,
+                optimalRoot.alg,
+                optimalRoot.validatedRowType,
+                resultConvention,
+                executionTimeMonitor,
+                Objects.requireNonNull( plan.optimalNode().getTraitSet().getTrait( ModelTraitDef.INSTANCE ) ).dataModel() );
+        plan.result( result );
+        plan.generatedCodes( preparedResult.getCode() );
+        plan.optimalNode( optimalRoot.alg );
+
         if ( isAnalyze ) {
             statement.getProcessingDuration().stop( "Implementation" );
         }
-
-        stopWatch.stop();
-        if ( log.isDebugEnabled() ) {
-            log.debug( "Preparing statement ... done. [{}]", stopWatch );
-        }
-
-        // Finally, all optionals should be of certain values.
-        return new ProposedImplementations(
-                plans.stream().filter( Plan::isValid ).toList(),
-                logicalQueryInformation );
     }
 
 
@@ -822,8 +950,26 @@ public AlgNode visit( AlgNode node ) {
         }
         final AlgShuttle shuttle2 = new AlgShuttleImpl() {
 
+            @Override
+            public AlgNode visit( LogicalRelSort sort ) {
+                final AlgNode replacement = topNIndexLookup( sort, statement, builder );
+                if ( replacement != null ) {
+                    IndexManager.getInstance().incrementHit();
+                    return replacement;
+                }
+                return super.visit( sort );
+            }
+
+
             @Override
             public AlgNode visit( LogicalRelProject project ) {
+                if ( project.getInput() instanceof LogicalRelFilter filter && filter.getInput() instanceof LogicalRelScan ) {
+                    final AlgNode replacement = rangeIndexLookup( project, filter, statement, builder );
+                    if ( replacement != null ) {
+                        IndexManager.getInstance().incrementHit();
+                        return replacement;
+                    }
+                }
                 if ( project.getInput() instanceof LogicalRelScan scan ) {
                     // Figure out the original column names required for index lookup
                     final List<String> columns = new ArrayList<>( project.getChildExps().size() );
@@ -880,6 +1026,166 @@ public AlgNode visit( AlgNode node ) {
     }
 
 
+    /**
+     * Replaces a project over a filtered scan with the rows of an ordered index in the range of the filter. The filter is
+     * kept on top of the index rows, as the range only covers the comparisons on the first index column.
+     *
+     * @return the replacement or {@code null} if there is no ordered index or the filter does not restrict its first column
+     */
+    private AlgNode rangeIndexLookup( LogicalRelProject project, LogicalRelFilter filter, Statement statement, AlgBuilder builder ) {
+        final LogicalRelScan scan = (LogicalRelScan) filter.getInput();
+        final List<Integer> fields = projectedFields( project );
+        final Index idx = getOrderedIndex( scan, fields, statement );
+        if ( idx == null ) {
+            return null;
+        }
+
+        IndexRange range = IndexRange.all();
+        for ( final RexNode conjunction : AlgOptUtil.conjunctions( filter.getCondition() ) ) {
+            range = narrowRange( range, conjunction, fields.get( 0 ) );
+        }
+        if ( range.isUnbounded() ) {
+            return null;
+        }
+
+        // The filter has to reference the projected columns, which are the columns of the index rows
+        final RexBuilder rexBuilder = builder.getRexBuilder();
+        final boolean[] resolvable = { true };
+        final RexNode condition = filter.getCondition().accept( new RexShuttle() {
+            @Override
+            public RexNode visitIndexRef( RexIndexRef inputRef ) {
+                final int position = fields.indexOf( inputRef.getIndex() );
+                if ( position < 0 ) {
+                    resolvable[0] = false;
+                    return inputRef;
+                }
+                return rexBuilder.makeInputRef( inputRef.getType(), position );
+            }
+        } );
+        if ( !resolvable[0] ) {
+            return null;
+        }
+
+        final AlgDataType rowType = indexRowType( scan, fields, builder );
+        final Values values = idx.getAsValues( statement.getTransaction().getXid(), builder, rowType, range );
+        return LogicalRelFilter.create( values, condition );
+    }
+
+
+    /**
+     * Replaces the input of a sort with a limit with the first rows of an ordered index, if the input is a project over a
+     * scan and the sort is on a prefix of the index columns. The sort is kept, it only has to sort these rows.
+     *
+     * @return the replacement or {@code null} if the sort can not be answered by an ordered index
+     */
+    private AlgNode topNIndexLookup( LogicalRelSort sort, Statement statement, AlgBuilder builder ) {
+        if ( !(sort.fetch instanceof RexLiteral fetch) || (sort.offset != null && !(sort.offset instanceof RexLiteral)) ) {
+            return null;
+        }
+        if ( !(sort.getInput() instanceof LogicalRelProject project) || !(project.getInput() instanceof LogicalRelScan scan) ) {
+            return null;
+        }
+        final List<AlgFieldCollation> collations = sort.collation.getFieldCollations();
+        if ( collations.isEmpty() ) {
+            return null;
+        }
+        final Direction direction = collations.get( 0 ).direction;
+        if ( direction != Direction.ASCENDING && direction != Direction.DESCENDING ) {
+            return null;
+        }
+        for ( int i = 0; i < collations.size(); i++ ) {
+            final AlgFieldCollation collation = collations.get( i );
+            // The index orders nulls like a sort with the default null direction
+            if ( collation.getFieldIndex() != i
+                    || collation.direction != direction
+                    || (collation.nullDirection != NullDirection.UNSPECIFIED && collation.nullDirection != direction.defaultNullDirection()) ) {
+                return null;
+            }
+        }
+
+        final List<Integer> fields = projectedFields( project );
+        final Index idx = getOrderedIndex( scan, fields, statement );
+        if ( idx == null ) {
+            return null;
+        }
+        final long offset = sort.offset == null ? 0 : ((RexLiteral) sort.offset).value.asNumber().longValue();
+        // Both operands are clamped first, so that the sum cannot overflow
+        final int limit = (int) Math.min( Integer.MAX_VALUE,
+                Math.min( Integer.MAX_VALUE, offset ) + Math.min( Integer.MAX_VALUE, fetch.value.asNumber().longValue() ) );
+
+        final AlgDataType rowType = indexRowType( scan, fields, builder );
+        final Values values = idx.getAsValues( statement.getTransaction().getXid(), builder, rowType, IndexRange.first( limit, direction == Direction.DESCENDING ) );
+        return sort.copy( sort.getTraitSet(), ImmutableList.of( values ) );
+    }
+
+
+    /**
+     * Returns the scan fields of a project which only consists of field references, or {@code null} otherwise.
+     */
+    private static List<Integer> projectedFields( LogicalRelProject project ) {
+        final List<Integer> fields = new ArrayList<>( project.getChildExps().size() );
+        for ( final RexNode expr : project.getChildExps() ) {
+            if ( !(expr instanceof RexIndexRef rir) ) {
+                return null;
+            }
+            fields.add( rir.getIndex() );
+        }
+        return fields;
+    }
+
+
+    private static Index getOrderedIndex( LogicalRelScan scan, List<Integer> fields, Statement statement ) {
+        if ( fields == null || fields.isEmpty() ) {
+            return null;
+        }
+        final Optional<LogicalTable> table = scan.getEntity().unwrap( LogicalTable.class );
+        if ( table.isEmpty() ) {
+            return null;
+        }
+        final List<String> columns = fields.stream().map( i -> scan.getTupleType().getFields().get( i ).getName() ).toList();
+        return IndexManager.getInstance().getOrderedIndex( statement.getTransaction().getDefaultNamespace(), table.get(), columns );
+    }
+
+
+    private static AlgDataType indexRowType( LogicalRelScan scan, List<Integer> fields, AlgBuilder builder ) {
+        final List<AlgDataTypeField> scanFields = fields.stream().map( i -> scan.getTupleType().getFields().get( i ) ).toList();
+        return builder.getTypeFactory().createStructType(
+                null,
+                scanFields.stream().map( AlgDataTypeField::getType ).toList(),
+                scanFields.stream().map( AlgDataTypeField::getName ).toList() );
+    }
+
+
+    /**
+     * Narrows the range by a comparison of the given field with a literal.
+     */
+    private static IndexRange narrowRange( IndexRange range, RexNode node, int field ) {
+        if ( !(node instanceof RexCall call) || call.getOperands().size() != 2 ) {
+            return range;
+        }
+        RexNode left = call.getOperands().get( 0 );
+        RexNode right = call.getOperands().get( 1 );
+        Kind kind = call.getKind();
+        if ( left instanceof RexLiteral && right instanceof RexIndexRef ) {
+            left = call.getOperands().get( 1 );
+            right = call.getOperands().get( 0 );
+            kind = kind.reverse();
+        }
+        if ( !(left instanceof RexIndexRef ref) || ref.getIndex() != field || !(right instanceof RexLiteral literal) || literal.isNull() ) {
+            return range;
+        }
+        final PolyValue value = literal.value;
+        return switch ( kind ) {
+            case EQUALS -> range.withLower( value, true ).withUpper( value, true );
+            case LESS_THAN -> range.withUpper( value, false );
+            case LESS_THAN_OR_EQUAL -> range.withUpper( value, true );
+            case GREATER_THAN -> range.withLower( value, false );
+            case GREATER_THAN_OR_EQUAL -> range.withLower( value, true );
+            default -> range;
+        };
+    }
+
+
     private List<ProposedRoutingPlan> route( AlgRoot logicalRoot, Statement statement, LogicalQueryInformation queryInformation ) {
         RoutingContext context = new RoutingContext( logicalRoot.alg.getCluster(), statement, queryInformation );
         final DmlRouter dmlRouter = RoutingManager.getInstance().getDmlRouter();
@@ -1063,6 +1369,19 @@ private AlgNode optimize( AlgRoot logicalRoot, Convention resultConvention ) {
 
 
     private PreparedResult<PolyValue> implement( AlgRoot root, AlgDataType parameterRowType ) {
+        return implement( root, parameterRowType, null, statement.getPrepareContext().config().conformance(), statement );
+    }
+
+
+    /**
+     * Implements the plan. This is static, as it also runs on the background compiler of the {@link TieredExecution},
+     * when the statement of the query may already have been closed.
+     *
+     * @param interpretable if not {@code null}, the plan is executed by interpreting this node instead of compiling it
+     * @param statement receives the internal parameters of the generated code in its data context, {@code null} if the
+     * code is compiled in the background for later executions
+     */
+    private static PreparedResult<PolyValue> implement( AlgRoot root, AlgDataType parameterRowType, @Nullable AlgNode interpretable, Conformance conformance, @Nullable Statement statement ) {
         if ( log.isTraceEnabled() ) {
             log.trace( "Physical query plan: [{}]", AlgOptUtil.dumpPlan( "-- Physical Plan", root.alg, ExplainFormat.TEXT, ExplainLevel.DIGEST_ATTRIBUTES ) );
         }
@@ -1081,6 +1400,9 @@ private PreparedResult<PolyValue> implement( AlgRoot root, AlgDataType parameter
         if ( resultConvention == BindableConvention.INSTANCE ) {
             bindable = Interpreters.bindable( root.alg );
             generatedCode = null;
+        } else if ( interpretable != null ) {
+            bindable = Interpreters.bindable( interpretable );
+            generatedCode = null;
         } else {
             EnumerableAlg enumerable = (EnumerableAlg) root.alg;
             if ( !root.isRefTrivial() ) {
@@ -1093,8 +1415,6 @@ private PreparedResult<PolyValue> implement( AlgRoot root, AlgDataType parameter
                 enumerable = EnumerableCalc.create( enumerable, program );
             }
 
-            final Conformance conformance = statement.getPrepareContext().config().conformance();
-
             final Map<String, Object> internalParameters = new LinkedHashMap<>();
             internalParameters.put( "_conformance", conformance );
 
@@ -1105,7 +1425,9 @@ private PreparedResult<PolyValue> implement( AlgRoot root, AlgDataType parameter
                     statement );
             bindable = implementationPair.left;
             generatedCode = implementationPair.right;
-            statement.getDataContext().addAll( internalParameters );
+            if ( statement != null ) {
+                statement.getDataContext().addAll( internalParameters );
+            }
         }
 
         AlgDataType resultType = root.alg.getTupleType();
@@ -1393,7 +1715,8 @@ private Pair<PolyImplementation, ProposedRoutingPlan> selectPlan( ProposedImplem
         LogicalQueryInformation queryInformation = proposed.getLogicalQueryInformation();
 
         List<AlgOptCost> approximatedCosts;
-        if ( RuntimeConfig.ROUTING_PLAN_CACHING.getBoolean() ) {
+        // Plans dropped during the optimization have no costs, caching the remaining ones would lose them for good
+        if ( RuntimeConfig.ROUTING_PLAN_CACHING.getBoolean() && proposed.isComplete() ) {
             // Get approximated costs and cache routing plans
             approximatedCosts = proposed.plans.stream()
                     .map( p -> p.optimalNode().computeSelfCost( getPlanner(), p.optimalNode().getCluster().getMetadataQuery() ) )
@@ -1407,13 +1730,14 @@ private Pair<PolyImplementation, ProposedRoutingPlan> selectPlan( ProposedImplem
 
         if ( proposed.plans.size() == 1 ) {
             // If only one plan proposed, return this without further selection
+            Plan plan = proposed.implement( 0 );
             if ( statement.getTransaction().isAnalyze() ) {
                 UiRoutingPageUtil.outputSingleResult(
-                        proposed.plans.get( 0 ),
+                        plan,
                         statement.getTransaction().getQueryAnalyzer() );
-                addGeneratedCodeToQueryAnalyzer( proposed.plans.get( 0 ).generatedCodes() );
+                addGeneratedCodeToQueryAnalyzer( plan.generatedCodes() );
             }
-            return new Pair<>( proposed.plans.get( 0 ).result(), proposed.plans.get( 0 ).proposedRoutingPlan() );
+            return new Pair<>( plan.result(), plan.proposedRoutingPlan() );
         } else {
             // Calculate costs and get selected plan from plan selector
             approximatedCosts = proposed.plans.stream()
@@ -1424,15 +1748,14 @@ private Pair<PolyImplementation, ProposedRoutingPlan> selectPlan( ProposedImplem
                     approximatedCosts,
                     statement );
 
-            int index = proposedRoutingPlans.indexOf( (ProposedRoutingPlan) routingPlan );
+            Plan plan = proposed.implement( proposedRoutingPlans.indexOf( (ProposedRoutingPlan) routingPlan ) );
 
             if ( statement.getTransaction().isAnalyze() ) {
-                AlgNode optimalNode = proposed.plans.get( index ).optimalNode();
-                UiRoutingPageUtil.addPhysicalPlanPage( optimalNode, statement.getTransaction().getQueryAnalyzer() );
-                addGeneratedCodeToQueryAnalyzer( proposed.plans.get( index ).generatedCodes() );
+                UiRoutingPageUtil.addPhysicalPlanPage( plan.optimalNode(), statement.getTransaction().getQueryAnalyzer() );
+                addGeneratedCodeToQueryAnalyzer( plan.generatedCodes() );
             }
 
-            return new Pair<>( proposed.plans.get( index ).result(), (ProposedRoutingPlan) routingPlan );
+            return new Pair<>( plan.result(), (ProposedRoutingPlan) routingPlan );
         }
     }
 
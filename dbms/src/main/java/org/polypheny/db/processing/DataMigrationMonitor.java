@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationKeyValue;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.information.InformationPage;
+import org.polypheny.db.information.InformationTable;
+
+
+/**
+ * Keeps track of the progress and throughput of the data migrations and exposes them on an information page.
+ */
+public class DataMigrationMonitor {
+
+    public static final DataMigrationMonitor INSTANCE = new DataMigrationMonitor();
+
+    private final AtomicLong idBuilder = new AtomicLong();
+    private final Map<Long, Progress> activeMigrations = new ConcurrentHashMap<>();
+
+    private final AtomicLong completedMigrations = new AtomicLong();
+    private final AtomicLong failedMigrations = new AtomicLong();
+    private final AtomicLong migratedRows = new AtomicLong();
+    private final AtomicLong writtenBatches = new AtomicLong();
+    private final AtomicLong migrationNanos = new AtomicLong();
+
+
+    private DataMigrationMonitor() {
+        registerMonitoringPage();
+    }
+
+
+    public Progress start( String description ) {
+        Progress progress = new Progress( idBuilder.getAndIncrement(), description );
+        activeMigrations.put( progress.id, progress );
+        return progress;
+    }
+
+
+    private void finish( Progress progress, boolean failed ) {
+        if ( activeMigrations.remove( progress.id ) == null ) {
+            return;
+        }
+        (failed ? failedMigrations : completedMigrations).incrementAndGet();
+        migratedRows.addAndGet( progress.rows.get() );
+        writtenBatches.addAndGet( progress.batches.get() );
+        migrationNanos.addAndGet( progress.getElapsedNanos() );
+    }
+
+
+    private static String throughput( long rows, long nanos ) {
+        if ( nanos <= 0 ) {
+            return "-";
+        }
+        return String.format( Locale.ENGLISH, "%.0f rows/s", rows / (nanos / 1e9) );
+    }
+
+
+    private void registerMonitoringPage() {
+        InformationManager im = InformationManager.getInstance();
+
+        InformationPage page = new InformationPage( "Data Migration" );
+        im.addPage( page );
+
+        // General
+        InformationGroup generalGroup = new InformationGroup( page, "General" ).setOrder( 1 );
+        im.addGroup( generalGroup );
+
+        InformationKeyValue generalKv = new InformationKeyValue( generalGroup );
+        im.registerInformation( generalKv );
+        generalGroup.setRefreshFunction( () -> {
+            generalKv.putPair( "Batch Size", String.valueOf( RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger() ) );
+            generalKv.putPair( "Parallelism", String.valueOf( RuntimeConfig.DATA_MIGRATOR_PARALLELISM.getInteger() ) );
+            generalKv.putPair( "Active Migrations", String.valueOf( activeMigrations.size() ) );
+            generalKv.putPair( "Completed Migrations", String.valueOf( completedMigrations.get() ) );
+            generalKv.putPair( "Failed Migrations", String.valueOf( failedMigrations.get() ) );
+            generalKv.putPair( "Migrated Rows", String.valueOf( migratedRows.get() ) );
+            generalKv.putPair( "Written Batches", String.valueOf( writtenBatches.get() ) );
+            generalKv.putPair( "Average Throughput", throughput( migratedRows.get(), migrationNanos.get() ) );
+        } );
+
+        // Active migrations
+        InformationGroup activeGroup = new InformationGroup( page, "Active Migrations" ).setOrder( 2 );
+        im.addGroup( activeGroup );
+
+        InformationTable activeTable = new InformationTable(
+                activeGroup,
+                Arrays.asList( "Migration", "Rows", "Batches", "Queued Batches", "Elapsed", "Throughput" ) );
+        im.registerInformation( activeTable );
+        activeGroup.setRefreshFunction( () -> {
+            activeTable.reset();
+            for ( Progress progress : activeMigrations.values() ) {
+                long elapsed = progress.getElapsedNanos();
+                activeTable.addRow(
+                        progress.description,
+                        progress.rows.get(),
+                        progress.batches.get(),
+                        progress.queued.get(),
+                        TimeUnit.NANOSECONDS.toMillis( elapsed ) + " ms",
+                        throughput( progress.rows.get(), elapsed ) );
+            }
+        } );
+    }
+
+
+    /**
+     * Progress of a single migration. Counters are updated concurrently by the workers writing the batches.
+     */
+    public class Progress implements AutoCloseable {
+
+        private final long id;
+        @Getter
+        private final String description;
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong queued = new AtomicLong();
+        private boolean failed = false;
+
+
+        private Progress( long id, String description ) {
+            this.id = id;
+            this.description = description;
+        }
+
+
+        void queued() {
+            queued.incrementAndGet();
+        }
+
+
+        void dequeued() {
+            queued.decrementAndGet();
+        }
+
+
+        void written( int rowCount ) {
+            rows.addAndGet( rowCount );
+            batches.incrementAndGet();
+        }
+
+
+        void failed() {
+            failed = true;
+        }
+
+
+        public long getRows() {
+            return rows.get();
+        }
+
+
+        public long getElapsedNanos() {
+            return System.nanoTime() - startNanos;
+        }
+
+
+        @Override
+        public void close() {
+            finish( this, failed );
+        }
+
+    }
+
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.PolyImplementation;
+import org.polypheny.db.ResultIterator;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.algebra.AlgRoot;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.transaction.Statement;
+import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.type.entity.numerical.PolyInteger;
+
+
+/**
+ * Streams the rows of a single source cursor into one or more targets. The source is read on the calling thread and
+ * split into columnar batches per target. The query of a target is prepared once, with the values of its first batch,
+ * and its implementation is then reused for all following batches.
+ * <p>
+ * By default, all batches are written on the calling thread. With a parallelism above one, every target is assigned to
+ * one of the workers, which write the batches of their targets from bounded queues while the source is read. The
+ * statements of a transaction share one connection per store, which must neither be used by two workers at once nor
+ * by a worker while the source is read through it. Hence, the targets of a worker must be written through a
+ * transaction of its own, see {@link #getWorkers()}. The batches of a target are written in the order of the source.
+ */
+@Slf4j
+final class DataMigrationPipeline {
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private static final ExecutorService workers = Executors.newCachedThreadPool( r -> {
+        Thread thread = new Thread( r, "DataMigrator-" + threadCounter.getAndIncrement() );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    private static final Chunk END = new Chunk( null, null );
+
+    private final List<Target> targets = new ArrayList<>();
+    private final int batchSize;
+    private final int parallelism;
+    private final int queueCapacity;
+    private final List<BlockingQueue<Chunk>> queues = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+
+    DataMigrationPipeline() {
+        this(
+                RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger(),
+                RuntimeConfig.DATA_MIGRATOR_PARALLELISM.getInteger(),
+                RuntimeConfig.DATA_MIGRATOR_QUEUE_CAPACITY.getInteger() );
+    }
+
+
+    DataMigrationPipeline( int batchSize, int parallelism, int queueCapacity ) {
+        this.batchSize = Math.max( 1, batchSize );
+        this.parallelism = Math.max( 1, parallelism );
+        this.queueCapacity = Math.max( 1, queueCapacity );
+    }
+
+
+    /**
+     * Returns the number of workers, which write the targets concurrently to reading the source, or {@code 0} if all
+     * targets are written on the calling thread. Every worker needs a transaction of its own for writing its targets.
+     */
+    int getWorkers() {
+        return parallelism > 1 ? parallelism : 0;
+    }
+
+
+    /**
+     * Adds a target to which rows are written.
+     *
+     * @param worker The worker writing the target, below {@link #getWorkers()}; targets of the same worker are never
+     * written concurrently
+     * @param statement The statement used for writing to this target; it is not shared with other targets
+     * @param alg The query writing the values of the dynamic parameters to the target
+     * @param parameterRowType The row type of the parameters
+     * @param columnIndexes Maps the id of each dynamic parameter to the index of its value in the source rows. Indexes
+     * beyond the end of a row produce a running counter, as used for the materialized views.
+     * @param columnTypes The type of each dynamic parameter
+     */
+    Target addTarget( int worker, Statement statement, AlgRoot alg, AlgDataType parameterRowType, Map<Long, Integer> columnIndexes, Map<Long, AlgDataType> columnTypes ) {
+        return addTarget( worker, new StatementWriter( statement, alg, parameterRowType, columnTypes ), columnIndexes );
+    }
+
+
+    /**
+     * Adds a target to which rows are written by the given writer.
+     *
+     * @param worker The worker writing the target, below {@link #getWorkers()}; targets of the same worker are never
+     * written concurrently
+     * @param writer Writes the batches of the target
+     * @param columnIndexes Maps the id of each column of the batches to the index of its value in the source rows.
+     * Indexes beyond the end of a row produce a running counter.
+     */
+    Target addTarget( int worker, BatchWriter writer, Map<Long, Integer> columnIndexes ) {
+        if ( worker < 0 || worker >= Math.max( 1, getWorkers() ) ) {
+            throw new GenericRuntimeException( "There is no worker %s for writing a target", worker );
+        }
+        Target target = new Target( worker, writer, columnIndexes );
+        targets.add( target );
+        return target;
+    }
+
+
+    /**
+     * Copies all rows of the source to the targets and closes the source.
+     *
+     * @param description The description of the migration on the information page
+     * @param source The cursor over the source rows
+     * @param router Selects the target of a row
+     */
+    void run( String description, ResultIterator source, Function<List<PolyValue>, Target> router ) {
+        try ( DataMigrationMonitor.Progress progress = DataMigrationMonitor.INSTANCE.start( description ) ) {
+            // Only workers with targets are started
+            int workerCount = getWorkers() == 0 ? 0 : targets.stream().mapToInt( t -> t.worker + 1 ).max().orElse( 0 );
+            List<Future<?>> running = new ArrayList<>( workerCount );
+            for ( int i = 0; i < workerCount; i++ ) {
+                BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>( queueCapacity );
+                queues.add( queue );
+                running.add( workers.submit( () -> work( queue, progress ) ) );
+            }
+
+            try {
+                List<List<PolyValue>> rows;
+                while ( failure.get() == null && !(rows = source.getNextBatch()).isEmpty() ) {
+                    for ( List<PolyValue> row : rows ) {
+                        Target target = router.apply( row );
+                        if ( target.buffer.add( row ) ) {
+                            emit( target, progress );
+                        }
+                    }
+                }
+                for ( Target target : targets ) {
+                    if ( failure.get() == null && target.buffer.size > 0 ) {
+                        emit( target, progress );
+                    }
+                }
+            } catch ( Throwable t ) {
+                failure.compareAndSet( null, t );
+            } finally {
+                for ( BlockingQueue<Chunk> queue : queues ) {
+                    putUninterruptibly( queue, END );
+                }
+                for ( Future<?> worker : running ) {
+                    awaitUninterruptibly( worker );
+                }
+                try {
+                    source.close();
+                } catch ( Exception e ) {
+                    log.warn( "Exception while closing the source of a data migration", e );
+                }
+            }
+
+            if ( failure.get() != null ) {
+                progress.failed();
+                throw new GenericRuntimeException( failure.get() );
+            }
+        }
+    }
+
+
+    /**
+     * Writes the buffered rows of a target or hands them to its worker.
+     */
+    private void emit( Target target, DataMigrationMonitor.Progress progress ) throws InterruptedException {
+        ColumnBatch batch = target.buffer;
+        target.buffer = target.newBatch();
+        if ( queues.isEmpty() ) {
+            progress.written( target.write( batch ) );
+            return;
+        }
+        progress.queued();
+        queues.get( target.worker ).put( new Chunk( target, batch ) );
+    }
+
+
+    private void work( BlockingQueue<Chunk> queue, DataMigrationMonitor.Progress progress ) {
+        while ( true ) {
+            Chunk chunk;
+            try {
+                chunk = queue.take();
+            } catch ( InterruptedException e ) {
+                failure.compareAndSet( null, e );
+                return;
+            }
+            if ( chunk == END ) {
+                return;
+            }
+            progress.dequeued();
+            // After a failure the remaining chunks are only drained, so that the source is not blocked
+            if ( failure.get() == null ) {
+                try {
+                    progress.written( chunk.target.write( chunk.batch ) );
+                } catch ( Throwable t ) {
+                    failure.compareAndSet( null, t );
+                }
+            }
+        }
+    }
+
+
+    private void putUninterruptibly( BlockingQueue<Chunk> queue, Chunk chunk ) {
+        boolean interrupted = false;
+        while ( true ) {
+            try {
+                queue.put( chunk );
+                break;
+            } catch ( InterruptedException e ) {
+                interrupted = true;
+            }
+        }
+        if ( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private void awaitUninterruptibly( Future<?> future ) {
+        boolean interrupted = false;
+        while ( true ) {
+            try {
+                future.get();
+                break;
+            } catch ( InterruptedException e ) {
+                interrupted = true;
+            } catch ( ExecutionException e ) {
+                failure.compareAndSet( null, e.getCause() );
+                break;
+            }
+        }
+        if ( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private record Chunk(Target target, ColumnBatch batch) {
+
+    }
+
+
+    /**
+     * Writes the batches of a target.
+     */
+    interface BatchWriter {
+
+        /**
+         * Writes a batch.
+         *
+         * @param columns The values of the batch per column, in the order of the rows
+         * @param size The number of rows of the batch
+         * @return The number of written rows
+         */
+        int write( Map<Long, List<PolyValue>> columns, int size );
+
+    }
+
+
+    /**
+     * A target of the migration, e.g. a partition or a placement.
+     */
+    final class Target {
+
+        private final int worker;
+        private final BatchWriter writer;
+        private final Map<Long, Integer> columnIndexes;
+
+        private ColumnBatch buffer;
+        private int counter = 0;
+
+
+        private Target( int worker, BatchWriter writer, Map<Long, Integer> columnIndexes ) {
+            this.worker = worker;
+            this.writer = writer;
+            this.columnIndexes = new LinkedHashMap<>( columnIndexes );
+            this.buffer = newBatch();
+        }
+
+
+        private ColumnBatch newBatch() {
+            return new ColumnBatch( this, columnIndexes.keySet(), batchSize );
+        }
+
+
+        private int write( ColumnBatch batch ) {
+            return writer.write( batch.columns, batch.size );
+        }
+
+    }
+
+
+    /**
+     * Writes batches with a statement, whose query is prepared with the values of the first batch.
+     */
+    private static final class StatementWriter implements BatchWriter {
+
+        private final Statement statement;
+        private final AlgRoot alg;
+        private final AlgDataType parameterRowType;
+        private final Map<Long, AlgDataType> columnTypes;
+
+        private PolyImplementation implementation;
+
+
+        private StatementWriter( Statement statement, AlgRoot alg, AlgDataType parameterRowType, Map<Long, AlgDataType> columnTypes ) {
+            this.statement = statement;
+            this.alg = alg;
+            this.parameterRowType = parameterRowType;
+            this.columnTypes = new HashMap<>( columnTypes );
+        }
+
+
+        @Override
+        public int write( Map<Long, List<PolyValue>> columns, int size ) {
+            DataContext dataContext = statement.getDataContext();
+            try {
+                for ( Entry<Long, List<PolyValue>> column : columns.entrySet() ) {
+                    dataContext.addParameterValues( column.getKey(), columnTypes.get( column.getKey() ), column.getValue() );
+                }
+                if ( implementation == null ) {
+                    implementation = statement.getQueryProcessor().prepareQuery( alg, parameterRowType, true, false, false );
+                }
+                Iterator<?> iterator = implementation.enumerable( dataContext ).iterator();
+                //noinspection WhileLoopReplaceableByForEach
+                while ( iterator.hasNext() ) {
+                    iterator.next();
+                }
+            } finally {
+                dataContext.resetParameterValues();
+            }
+            return size;
+        }
+
+    }
+
+
+    /**
+     * Column-wise buffer for the rows of a batch, in the layout expected by {@link DataContext#addParameterValues}.
+     */
+    private static final class ColumnBatch {
+
+        private final Target target;
+        private final Map<Long, List<PolyValue>> columns = new LinkedHashMap<>();
+        private final int capacity;
+        private int size = 0;
+
+
+        private ColumnBatch( Target target, Iterable<Long> columnIds, int capacity ) {
+            this.target = target;
+            this.capacity = capacity;
+            for ( Long columnId : columnIds ) {
+                columns.put( columnId, new ArrayList<>( capacity ) );
+            }
+        }
+
+
+        /**
+         * Adds a row and returns whether the batch is full.
+         */
+        private boolean add( List<PolyValue> row ) {
+            for ( Entry<Long, Integer> column : target.columnIndexes.entrySet() ) {
+                int index = column.getValue();
+                columns.get( column.getKey() ).add( index < row.size() ? row.get( index ) : PolyInteger.of( target.counter++ ) );
+            }
+            return ++size >= capacity;
+        }
+
+    }
+
+}
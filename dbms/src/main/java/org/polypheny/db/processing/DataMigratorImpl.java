@@ -24,7 +24,6 @@
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
@@ -54,6 +53,7 @@
 import org.polypheny.db.algebra.type.AlgDataTypeSystem;
 import org.polypheny.db.algebra.type.AlgRecordType;
 import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.entity.Entity;
 import org.polypheny.db.catalog.entity.LogicalAdapter;
 import org.polypheny.db.catalog.entity.allocation.AllocationCollection;
 import org.polypheny.db.catalog.entity.allocation.AllocationColumn;
@@ -84,13 +84,13 @@
 import org.polypheny.db.tools.AlgBuilder;
 import org.polypheny.db.transaction.Statement;
 import org.polypheny.db.transaction.Transaction;
+import org.polypheny.db.transaction.TransactionException;
+import org.polypheny.db.transaction.TransactionManagerImpl;
 import org.polypheny.db.type.PolyType;
 import org.polypheny.db.type.PolyTypeFactoryImpl;
 import org.polypheny.db.type.entity.PolyValue;
 import org.polypheny.db.type.entity.document.PolyDocument;
 import org.polypheny.db.type.entity.graph.PolyGraph;
-import org.polypheny.db.type.entity.numerical.PolyInteger;
-import org.polypheny.db.util.Pair;
 
 
 @Slf4j
@@ -338,60 +338,25 @@ public void executeQuery( List<AllocationColumn> selectedColumns, AlgRoot source
                 }
             }
 
-            int batchSize = RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger();
-            int i = 0;
-
-            do {
-                ResultIterator iter = implementation.execute( sourceStatement, batchSize );
-                List<List<PolyValue>> rows = iter.getNextBatch();
-                iter.close();
-                if ( rows.isEmpty() ) {
-                    continue;
-                }
-                Map<Long, List<PolyValue>> values = new HashMap<>();
-
-                for ( List<PolyValue> list : rows ) {
-                    for ( Map.Entry<Long, Integer> entry : resultColMapping.entrySet() ) {
-                        if ( !values.containsKey( entry.getKey() ) ) {
-                            values.put( entry.getKey(), new LinkedList<>() );
-                        }
-                        if ( isMaterializedView ) {
-                            if ( entry.getValue() > list.size() - 1 ) {
-                                values.get( entry.getKey() ).add( PolyInteger.of( i ) );
-                                i++;
-                            } else {
-                                values.get( entry.getKey() ).add( list.get( entry.getValue() ) );
-                            }
-                        } else {
-                            values.get( entry.getKey() ).add( list.get( entry.getValue() ) );
-                        }
-                    }
-                }
-                List<AlgDataTypeField> fields;
-                if ( isMaterializedView ) {
-                    fields = targetAlg.alg.getEntity().getTupleType().getFields();
-                } else {
-                    fields = sourceAlg.validatedRowType.getFields();
-                }
-
-                for ( Map.Entry<Long, List<PolyValue>> v : values.entrySet() ) {
-                    targetStatement.getDataContext().addParameterValues(
-                            v.getKey(),
-                            fields.get( resultColMapping.get( v.getKey() ) ).getType(),
-                            v.getValue() );
-                }
-
-                Iterator<?> iterator = targetStatement.getQueryProcessor()
-                        .prepareQuery( targetAlg, sourceAlg.validatedRowType, true, false, false )
-                        .enumerable( targetStatement.getDataContext() )
-                        .iterator();
-
-                //noinspection WhileLoopReplaceableByForEach
-                while ( iterator.hasNext() ) {
-                    iterator.next();
-                }
-                targetStatement.getDataContext().resetParameterValues();
-            } while ( implementation.hasMoreRows() );
+            List<AlgDataTypeField> fields;
+            if ( isMaterializedView ) {
+                fields = targetAlg.alg.getEntity().getTupleType().getFields();
+            } else {
+                fields = sourceAlg.validatedRowType.getFields();
+            }
+            Map<Long, AlgDataType> columnTypes = new HashMap<>();
+            resultColMapping.forEach( ( columnId, index ) -> columnTypes.put( columnId, fields.get( index ).getType() ) );
+
+            // The target statement belongs to the transaction of the source and shares its connections, hence it is written on the calling thread
+            DataMigrationPipeline pipeline = new DataMigrationPipeline(
+                    RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger(),
+                    1,
+                    RuntimeConfig.DATA_MIGRATOR_QUEUE_CAPACITY.getInteger() );
+            DataMigrationPipeline.Target target = pipeline.addTarget( 0, targetStatement, targetAlg, sourceAlg.validatedRowType, resultColMapping, columnTypes );
+            pipeline.run(
+                    describe( targetAlg ),
+                    implementation.execute( sourceStatement, RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger() ),
+                    row -> target );
         } catch ( Throwable t ) {
             throw new GenericRuntimeException( t );
         }
@@ -546,97 +511,91 @@ public void copyAllocationData( Transaction transaction, LogicalAdapter store, L
 
         Source source = getSource( transaction, sourceTables, table, partitionColumn, targetTables );
 
-        Map<Long, Statement> targetStatements = new HashMap<>();
-        //Creates queue of target Statements depending
-        targetTables.forEach( t -> targetStatements.put( t.partitionId, transaction.createStatement() ) );
-        //Map PartitionId to TargetStatementQueue
-        Map<Long, AlgRoot> targetAlgs = new HashMap<>();
-
+        // Values are taken from the source rows in the order of the column positions
         List<AllocationColumn> columns = snapshot.alloc().getColumns( targetTables.get( 0 ).placementId );
-        for ( AllocationTable targetTable : targetTables ) {
-            if ( targetTable.getColumns().size() == columns.size() ) {
-                // There have been no placements for this table on this storeId before. Build insert statement
-                targetAlgs.put( targetTable.partitionId, buildInsertStatement( targetStatements.get( targetTable.partitionId ), columns, targetTable ) );
-            } else {
-                // Build update statement
-                targetAlgs.put( targetTable.partitionId, buildUpdateStatement( targetStatements.get( targetTable.partitionId ), columns, targetTable ) );
-            }
+        Map<Long, Integer> columnIndexes = new HashMap<>();
+        Map<Long, AlgDataType> columnTypes = new HashMap<>();
+        int i = 0;
+        for ( AllocationColumn column : columns.stream().sorted( Comparator.comparingInt( c -> c.position ) ).toList() ) {
+            columnIndexes.put( column.columnId, i++ );
+            columnTypes.put( column.columnId, column.getAlgDataType() );
         }
 
-        // Execute Query
+        // Every partition gets its own statement, as the query of a target is prepared once and reused for all batches.
+        // With parallel workers, the partitions are distributed among them and every worker writes through a
+        // transaction of its own, as the statements of a transaction share one connection per store.
+        DataMigrationPipeline pipeline = new DataMigrationPipeline();
+        List<Transaction> workerTransactions = new ArrayList<>();
+        for ( int worker = 0; worker < Math.min( pipeline.getWorkers(), targetTables.size() ); worker++ ) {
+            workerTransactions.add( TransactionManagerImpl.getInstance().startTransaction( transaction.getUser().id, false, "Data Migration" ) );
+        }
         try {
+            Map<Long, DataMigrationPipeline.Target> targets = new HashMap<>();
+            for ( AllocationTable targetTable : targetTables ) {
+                int worker = workerTransactions.isEmpty() ? 0 : targets.size() % workerTransactions.size();
+                Statement targetStatement = (workerTransactions.isEmpty() ? transaction : workerTransactions.get( worker )).createStatement();
+                AlgRoot targetAlg;
+                if ( targetTable.getColumns().size() == columns.size() ) {
+                    // There have been no placements for this table on this storeId before. Build insert statement
+                    targetAlg = buildInsertStatement( targetStatement, columns, targetTable );
+                } else {
+                    // Build update statement
+                    targetAlg = buildUpdateStatement( targetStatement, columns, targetTable );
+                }
+                targets.put( targetTable.partitionId, pipeline.addTarget( worker, targetStatement, targetAlg, source.sourceAlg.validatedRowType, columnIndexes, columnTypes ) );
+            }
+
+            // Execute Query
             PolyImplementation result = source.sourceStatement.getQueryProcessor().prepareQuery( source.sourceAlg, source.sourceAlg.alg.getCluster().getTypeFactory().builder().build(), true, false, false );
 
-            int columIndex = 0;
+            int partitionColumnIndex = 0;
             if ( partitionColumn != null && partitionColumn.tableId == table.id ) {
-                columIndex = source.sourceAlg.alg.getTupleType().getField( partitionColumn.name, true, false ).getIndex();
+                partitionColumnIndex = source.sourceAlg.alg.getTupleType().getField( partitionColumn.name, true, false ).getIndex();
             }
-
-            //int partitionColumnIndex = -1;
-            String parsedValue;
-
-            int batchSize = RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger();
-
-            do {
-                ResultIterator iter = result.execute( source.sourceStatement, batchSize );
-                List<List<PolyValue>> rows = iter.getNextBatch();
-                iter.close();
-                if ( rows.isEmpty() ) {
-                    continue;
-                }
-
-                Map<Long, Map<Long, Pair<AlgDataType, List<PolyValue>>>> partitionValues = new HashMap<>();
-
-                for ( List<PolyValue> row : rows ) {
-
-                    if ( row.get( columIndex ) != null ) {
-                        parsedValue = row.get( columIndex ).toString();
-                    } else {
-                        parsedValue = PartitionManager.NULL_STRING;
-                    }
-
-                    long currentPartitionId = partitionManager.getTargetPartitionId( table, targetProperty, parsedValue );
-
-                    int i = 0;
-                    for ( AllocationColumn column : columns.stream().sorted( Comparator.comparingInt( c -> c.position ) ).toList() ) {
-                        if ( !partitionValues.containsKey( currentPartitionId ) ) {
-                            partitionValues.put( currentPartitionId, new HashMap<>() );
-                        }
-                        if ( !partitionValues.get( currentPartitionId ).containsKey( column.columnId ) ) {
-                            partitionValues.get( currentPartitionId ).put( column.columnId, Pair.of( column.getAlgDataType(), new ArrayList<>() ) );
+            final int columnIndex = partitionColumnIndex;
+
+            pipeline.run(
+                    "Partitioning of " + table.name + " on " + store.uniqueName,
+                    result.execute( source.sourceStatement, RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger() ),
+                    row -> {
+                        String parsedValue = row.get( columnIndex ) != null ? row.get( columnIndex ).toString() : PartitionManager.NULL_STRING;
+                        long partitionId = partitionManager.getTargetPartitionId( table, targetProperty, parsedValue );
+                        DataMigrationPipeline.Target target = targets.get( partitionId );
+                        if ( target == null ) {
+                            throw new GenericRuntimeException( "There is no target for the partition with id %s", partitionId );
                         }
-                        partitionValues.get( currentPartitionId ).get( column.columnId ).right.add( row.get( i++ ) );
-                    }
-                }
-
-                // Iterate over partitionValues in that way we don't even execute a statement which has no rows
-                for ( Entry<Long, Map<Long, Pair<AlgDataType, List<PolyValue>>>> dataOnPartition : partitionValues.entrySet() ) {
-                    long partitionId = dataOnPartition.getKey();
-                    Map<Long, Pair<AlgDataType, List<PolyValue>>> values = dataOnPartition.getValue();
-                    Statement currentTargetStatement = targetStatements.get( partitionId );
-
-                    for ( Entry<Long, Pair<AlgDataType, List<PolyValue>>> columnDataOnPartition : values.entrySet() ) {
-                        // Check partitionValue
-                        currentTargetStatement.getDataContext().addParameterValues( columnDataOnPartition.getKey(), columnDataOnPartition.getValue().left, columnDataOnPartition.getValue().right );
-                    }
-
-                    Iterator<?> iterator = currentTargetStatement.getQueryProcessor()
-                            .prepareQuery( targetAlgs.get( partitionId ), source.sourceAlg.validatedRowType, true, false, false )
-                            .enumerable( currentTargetStatement.getDataContext() )
-                            .iterator();
-                    //noinspection WhileLoopReplaceableByForEach
-                    while ( iterator.hasNext() ) {
-                        iterator.next();
-                    }
-                    currentTargetStatement.getDataContext().resetParameterValues();
-                }
-            } while ( result.hasMoreRows() );
+                        return target;
+                    } );
+            for ( Transaction workerTransaction : workerTransactions ) {
+                workerTransaction.commit();
+            }
         } catch ( Throwable t ) {
+            for ( Transaction workerTransaction : workerTransactions ) {
+                rollback( workerTransaction );
+            }
             throw new GenericRuntimeException( t );
         }
     }
 
 
+    private static void rollback( Transaction transaction ) {
+        if ( !transaction.isActive() ) {
+            return;
+        }
+        try {
+            transaction.rollback();
+        } catch ( TransactionException e ) {
+            log.warn( "Exception while rolling back the transaction of a data migration worker", e );
+        }
+    }
+
+
+    private static String describe( AlgRoot targetAlg ) {
+        Entity entity = targetAlg.alg.getEntity();
+        return "Copy to " + (entity == null ? "unknown entity" : entity.name);
+    }
+
+
     @NotNull
     private Source getSource( Transaction transaction, List<AllocationTable> sourceTables, LogicalTable table, @Nullable LogicalColumn partitionColumn, List<AllocationTable> targetTables ) {
         List<LogicalColumn> selectColumns = Catalog.snapshot().alloc().getColumns( targetTables.get( 0 ).placementId ).stream().map( a -> Catalog.snapshot().rel().getColumn( a.columnId ).orElseThrow() ).collect( Collectors.toCollection( ArrayList::new ) );
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.avatica.Meta.CursorFactory;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.jetbrains.annotations.Nullable;
+import org.polypheny.db.algebra.AlgFingerprint;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.AlgRoot;
+import org.polypheny.db.algebra.core.Calc;
+import org.polypheny.db.algebra.core.Filter;
+import org.polypheny.db.algebra.core.Project;
+import org.polypheny.db.algebra.core.Sort;
+import org.polypheny.db.algebra.core.Union;
+import org.polypheny.db.algebra.core.Values;
+import org.polypheny.db.algebra.enumerable.EnumerableAlg;
+import org.polypheny.db.algebra.type.AlgDataType;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationKeyValue;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.information.InformationPage;
+import org.polypheny.db.information.InformationTable;
+import org.polypheny.db.prepare.Prepare.PreparedResult;
+import org.polypheny.db.processing.caching.ImplementationCache;
+import org.polypheny.db.runtime.Bindable;
+import org.polypheny.db.runtime.Typed;
+import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.util.sketch.KllSketch;
+
+
+/**
+ * Tiered execution of queries: the first executions of a query are interpreted, which avoids compiling queries that
+ * are executed only once. When a query has been executed {@link RuntimeConfig#TIERED_EXECUTION_THRESHOLD} times, its
+ * code is compiled in the background and put into the {@link ImplementationCache}, from where it is used for all
+ * later executions.
+ * The interpreter executes filters, projections, sorts, unions and values. Plans containing other nodes, e.g. scans
+ * of adapters, joins or aggregations, are not tiered but compiled on their first execution, as their compiled subtrees
+ * would still have to be compiled on every interpreted execution.
+ */
+@Slf4j
+public class TieredExecution {
+
+    public static final TieredExecution INSTANCE = new TieredExecution();
+
+    private static final List<Class<? extends AlgNode>> INTERPRETED_ALGS = List.of( Calc.class, Filter.class, Project.class, Sort.class, Union.class, Values.class );
+
+    private final Cache<AlgFingerprint, AtomicInteger> executions;
+    private final Set<AlgFingerprint> compiling = ConcurrentHashMap.newKeySet();
+    private final ExecutorService compiler = Executors.newSingleThreadExecutor( r -> {
+        Thread thread = new Thread( r, "TieredCompiler" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    private final Map<Tier, KllSketch> latencies = new EnumMap<>( Tier.class );
+    private final AtomicLong compilations = new AtomicLong();
+    private final AtomicLong failedCompilations = new AtomicLong();
+
+
+    private TieredExecution() {
+        executions = CacheBuilder.newBuilder()
+                .maximumSize( RuntimeConfig.IMPLEMENTATION_CACHING_SIZE.getInteger() )
+                .build();
+        for ( Tier tier : Tier.values() ) {
+            latencies.put( tier, new KllSketch() );
+        }
+        registerMonitoringPage();
+    }
+
+
+    /**
+     * Returns the plan, if every node of it can be interpreted, or {@code null} if the plan should not be interpreted
+     * at all.
+     */
+    @Nullable
+    public static AlgNode toInterpretable( AlgRoot root ) {
+        if ( !root.isRefTrivial() || !isInterpreted( root.alg ) ) {
+            return null;
+        }
+        return root.alg;
+    }
+
+
+    private static boolean isInterpreted( AlgNode node ) {
+        return node instanceof EnumerableAlg
+                && INTERPRETED_ALGS.stream().anyMatch( c -> c.isInstance( node ) )
+                && node.getInputs().stream().allMatch( TieredExecution::isInterpreted );
+    }
+
+
+    /**
+     * Counts an execution of the plan and compiles the plan in the background, once it has been executed often enough.
+     *
+     * @param parameterizedNode the plan as it is cached by the {@link ImplementationCache}
+     * @param compilation compiles the plan
+     */
+    public void countExecution( AlgNode parameterizedNode, Supplier<PreparedResult<PolyValue>> compilation ) {
+        AlgFingerprint fingerprint = parameterizedNode.getFingerprint();
+        int count;
+        try {
+            count = executions.get( fingerprint, AtomicInteger::new ).incrementAndGet();
+        } catch ( ExecutionException e ) {
+            throw new GenericRuntimeException( e );
+        }
+        if ( count < RuntimeConfig.TIERED_EXECUTION_THRESHOLD.getInteger() || !compiling.add( fingerprint ) ) {
+            return;
+        }
+        compiler.execute( () -> {
+            try {
+                ImplementationCache.INSTANCE.put( parameterizedNode, compilation.get() );
+                compilations.incrementAndGet();
+            } catch ( Throwable t ) {
+                // Keep interpreting the query instead of failing again on every execution
+                AtomicInteger counter = executions.getIfPresent( fingerprint );
+                if ( counter != null ) {
+                    counter.set( Integer.MIN_VALUE );
+                }
+                failedCompilations.incrementAndGet();
+                log.warn( "Background compilation of a query failed", t );
+            } finally {
+                compiling.remove( fingerprint );
+            }
+        } );
+    }
+
+
+    /**
+     * Returns a prepared result, which records the latency of its executions for the tier.
+     *
+     * @param start time in nanoseconds when the processing of the query started
+     */
+    public PreparedResult<PolyValue> timed( Tier tier, long start, PreparedResult<PolyValue> preparedResult ) {
+        return new TimedPreparedResult( preparedResult, tier, start );
+    }
+
+
+    public void reset() {
+        executions.invalidateAll();
+    }
+
+
+    long getCompilations() {
+        return compilations.get();
+    }
+
+
+    long getFailedCompilations() {
+        return failedCompilations.get();
+    }
+
+
+    private void record( Tier tier, long nanos ) {
+        KllSketch sketch = latencies.get( tier );
+        synchronized ( sketch ) {
+            sketch.add( nanos / 1_000_000d );
+        }
+    }
+
+
+    private void registerMonitoringPage() {
+        InformationManager im = InformationManager.getInstance();
+
+        InformationPage page = new InformationPage( "Tiered Execution" );
+        im.addPage( page );
+
+        InformationGroup generalGroup = new InformationGroup( page, "General" ).setOrder( 1 );
+        im.addGroup( generalGroup );
+        InformationKeyValue generalKv = new InformationKeyValue( generalGroup );
+        im.registerInformation( generalKv );
+        generalGroup.setRefreshFunction( () -> {
+            generalKv.putPair( "Status", RuntimeConfig.TIERED_EXECUTION.getBoolean() ? "Active" : "Disabled" );
+            generalKv.putPair( "Tracked Queries", String.valueOf( executions.size() ) );
+            generalKv.putPair( "Pending Compilations", String.valueOf( compiling.size() ) );
+            generalKv.putPair( "Background Compilations", String.valueOf( compilations.get() ) );
+            generalKv.putPair( "Failed Compilations", String.valueOf( failedCompilations.get() ) );
+        } );
+
+        InformationGroup latencyGroup = new InformationGroup( page, "Latency" ).setOrder( 2 );
+        im.addGroup( latencyGroup );
+        InformationTable latencyTable = new InformationTable(
+                latencyGroup,
+                Arrays.asList( "Tier", "Executions", "p50", "p90", "p99", "Max" ) );
+        im.registerInformation( latencyTable );
+        latencyGroup.setRefreshFunction( () -> {
+            latencyTable.reset();
+            for ( Tier tier : Tier.values() ) {
+                KllSketch sketch = latencies.get( tier );
+                synchronized ( sketch ) {
+                    if ( sketch.isEmpty() ) {
+                        latencyTable.addRow( tier.name(), 0, "-", "-", "-", "-" );
+                        continue;
+                    }
+                    latencyTable.addRow(
+                            tier.name(),
+                            sketch.getCount(),
+                            format( sketch.getQuantile( 0.5 ) ),
+                            format( sketch.getQuantile( 0.9 ) ),
+                            format( sketch.getQuantile( 0.99 ) ),
+                            format( sketch.getMax() ) );
+                }
+            }
+        } );
+    }
+
+
+    private static String format( double millis ) {
+        return String.format( Locale.ENGLISH, "%.2f ms", millis );
+    }
+
+
+    public enum Tier {
+        INTERPRETED, COMPILED
+    }
+
+
+    /**
+     * Prepared result, whose executions record their latency from the start of the processing until the last row has
+     * been read.
+     */
+    private class TimedPreparedResult implements PreparedResult<PolyValue>, Typed {
+
+        private final PreparedResult<PolyValue> preparedResult;
+        private final Tier tier;
+        private final long start;
+
+
+        TimedPreparedResult( PreparedResult<PolyValue> preparedResult, Tier tier, long start ) {
+            this.preparedResult = preparedResult;
+            this.tier = tier;
+            this.start = start;
+        }
+
+
+        @Override
+        public String getCode() {
+            return preparedResult.getCode();
+        }
+
+
+        @Override
+        public boolean isDml() {
+            return preparedResult.isDml();
+        }
+
+
+        @Override
+        public List<List<String>> getFieldOrigins() {
+            return preparedResult.getFieldOrigins();
+        }
+
+
+        @Override
+        public AlgDataType getParameterRowType() {
+            return preparedResult.getParameterRowType();
+        }
+
+
+        @Override
+        public Type getElementType() {
+            return ((Typed) preparedResult).getElementType();
+        }
+
+
+        @Override
+        public Bindable<PolyValue[]> getBindable( CursorFactory cursorFactory ) {
+            Bindable<PolyValue[]> bindable = preparedResult.getBindable( cursorFactory );
+            return dataContext -> {
+                Enumerable<PolyValue[]> enumerable = bindable.bind( dataContext );
+                return new AbstractEnumerable<>() {
+                    @Override
+                    public Enumerator<PolyValue[]> enumerator() {
+                        return new TimedEnumerator( enumerable.enumerator(), tier, start );
+                    }
+                };
+            };
+        }
+
+    }
+
+
+    private class TimedEnumerator implements Enumerator<PolyValue[]> {
+
+        private final Enumerator<PolyValue[]> enumerator;
+        private final Tier tier;
+        private final long start;
+        private boolean recorded = false;
+
+
+        TimedEnumerator( Enumerator<PolyValue[]> enumerator, Tier tier, long start ) {
+            this.enumerator = enumerator;
+            this.tier = tier;
+            this.start = start;
+        }
+
+
+        @Override
+        public PolyValue[] current() {
+            return enumerator.current();
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            boolean hasNext = enumerator.moveNext();
+            if ( !hasNext ) {
+                finish();
+            }
+            return hasNext;
+        }
+
+
+        @Override
+        public void reset() {
+            enumerator.reset();
+        }
+
+
+        @Override
+        public void close() {
+            finish();
+            enumerator.close();
+        }
+
+
+        private void finish() {
+            if ( !recorded ) {
+                recorded = true;
+                record( tier, System.nanoTime() - start );
+            }
+        }
+
+    }
+
+}
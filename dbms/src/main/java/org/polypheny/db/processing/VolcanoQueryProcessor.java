@@ -32,6 +32,7 @@
 import org.polypheny.db.algebra.enumerable.document.DocumentSortToSortRule;
 import org.polypheny.db.algebra.rules.AggregateExpandDistinctAggregatesRule;
 import org.polypheny.db.algebra.rules.AggregateReduceFunctionsRule;
+import org.polypheny.db.algebra.rules.AggregateUnionTransposeRule;
 import org.polypheny.db.algebra.rules.AggregateValuesRule;
 import org.polypheny.db.algebra.rules.AllocationToPhysicalModifyRule;
 import org.polypheny.db.algebra.rules.AllocationToPhysicalScanRule;
@@ -97,9 +98,11 @@ public class VolcanoQueryProcessor extends AbstractQueryProcessor {
                     EnumerableRules.ENUMERABLE_AGGREGATE_RULE,
                     EnumerableRules.ENUMERABLE_SORT_RULE,
                     EnumerableRules.ENUMERABLE_LIMIT_RULE,
+                    EnumerableRules.ENUMERABLE_TOP_N_RULE,
                     EnumerableRules.ENUMERABLE_COLLECT_RULE,
                     EnumerableRules.ENUMERABLE_UNCOLLECT_RULE,
                     EnumerableRules.ENUMERABLE_UNION_RULE,
+                    EnumerableRules.ENUMERABLE_GATHER_RULE,
                     EnumerableRules.ENUMERABLE_MODIFY_COLLECT_RULE,
                     EnumerableRules.ENUMERABLE_INTERSECT_RULE,
                     EnumerableRules.ENUMERABLE_MINUS_RULE,
@@ -185,6 +188,11 @@ public VolcanoQueryProcessor( Statement statement ) {
             planner.addRule( rule );
         }
 
+        if ( RuntimeConfig.PARALLEL_EXECUTION.getBoolean() ) {
+            // Aggregate the inputs of a union partially, so the partial aggregations can be executed in parallel
+            planner.addRule( AggregateUnionTransposeRule.INSTANCE );
+        }
+
         if ( ENABLE_BINDABLE ) {
             for ( AlgOptRule rule : Bindables.RULES ) {
                 planner.addRule( rule );
@@ -22,6 +22,7 @@
 import java.text.DecimalFormatSymbols;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
+import org.polypheny.db.algebra.AlgFingerprint;
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.information.InformationAction;
@@ -41,7 +42,7 @@ public class ImplementationCache {
 
     public static final ImplementationCache INSTANCE = new ImplementationCache();
 
-    private final Cache<String, PreparedResult<PolyValue>> implementationCache;
+    private final Cache<AlgFingerprint, PreparedResult<PolyValue>> implementationCache;
 
     private final AtomicLong hitsCounter = new AtomicLong(); // Number of requests for which the cache contained the value
     private final AtomicLong missesCounter = new AtomicLong(); // Number of requests for which the cache hasn't contained the value
@@ -58,7 +59,7 @@ public ImplementationCache() {
 
 
     public PreparedResult<PolyValue> getIfPresent( AlgNode parameterizedNode ) {
-        PreparedResult<PolyValue> preparedResult = implementationCache.getIfPresent( parameterizedNode.algCompareString() );
+        PreparedResult<PolyValue> preparedResult = implementationCache.getIfPresent( parameterizedNode.getFingerprint() );
         if ( preparedResult == null ) {
             missesCounter.incrementAndGet();
         } else {
@@ -69,7 +70,7 @@ public PreparedResult<PolyValue> getIfPresent( AlgNode parameterizedNode ) {
 
 
     public void put( AlgNode parameterizedNode, PreparedResult<PolyValue> preparedResult ) {
-        implementationCache.put( parameterizedNode.algCompareString(), preparedResult );
+        implementationCache.put( parameterizedNode.getFingerprint(), preparedResult );
     }
 
 
@@ -21,7 +21,9 @@
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import org.polypheny.db.algebra.AlgFingerprint;
 import org.polypheny.db.algebra.AlgNode;
 import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.information.InformationAction;
@@ -39,7 +41,10 @@ public class QueryPlanCache {
 
     public static final QueryPlanCache INSTANCE = new QueryPlanCache();
 
-    private final Cache<String, AlgNode> planCache;
+    private final Cache<AlgFingerprint, AlgNode> planCache;
+
+    // Cumulative costs of optimized plans. They expire, so that plans which are not optimized because of their costs are eventually reconsidered.
+    private final Cache<AlgFingerprint, Double> costCache;
 
     private final AtomicLong hitsCounter = new AtomicLong(); // Number of requests for which the cache contained the value
     private final AtomicLong missesCounter = new AtomicLong(); // Number of requests for which the cache hasn't contained the value
@@ -51,12 +56,16 @@ public QueryPlanCache() {
                 .maximumSize( RuntimeConfig.QUERY_PLAN_CACHING_SIZE.getInteger() )
                 //  .expireAfterWrite(10, TimeUnit.MINUTES)
                 .build();
+        costCache = CacheBuilder.newBuilder()
+                .maximumSize( RuntimeConfig.QUERY_PLAN_CACHING_SIZE.getInteger() )
+                .expireAfterWrite( 10, TimeUnit.MINUTES )
+                .build();
         registerMonitoringPage();
     }
 
 
     public AlgNode getIfPresent( AlgNode parameterizedNode ) {
-        AlgNode node = planCache.getIfPresent( parameterizedNode.algCompareString() );
+        AlgNode node = planCache.getIfPresent( parameterizedNode.getFingerprint() );
         if ( node == null ) {
             missesCounter.incrementAndGet();
         } else {
@@ -67,13 +76,28 @@ public AlgNode getIfPresent( AlgNode parameterizedNode ) {
 
 
     public void put( AlgNode parameterizedNode, AlgNode optimalNode ) {
-        planCache.put( parameterizedNode.algCompareString(), optimalNode );
+        planCache.put( parameterizedNode.getFingerprint(), optimalNode );
+    }
+
+
+    /**
+     * Returns the cumulative costs, which have been computed for the optimized plan of the parameterized node, or
+     * {@code null} if the plan has not been optimized recently.
+     */
+    public Double getCostIfPresent( AlgNode parameterizedNode ) {
+        return costCache.getIfPresent( parameterizedNode.getFingerprint() );
+    }
+
+
+    public void putCost( AlgNode parameterizedNode, double cost ) {
+        costCache.put( parameterizedNode.getFingerprint(), cost );
     }
 
 
     public void reset() {
         ImplementationCache.INSTANCE.reset();
         planCache.invalidateAll();
+        costCache.invalidateAll();
         hitsCounter.set( 0 );
         missesCounter.set( 0 );
     }
@@ -37,6 +37,11 @@ public class Plan {
     private String generatedCodes = null;
 
 
+    public boolean isOptimized() {
+        return optimalNode != null && parameterizedRoot != null;
+    }
+
+
     public boolean isValid() {
         return optimalNode != null && generatedCodes != null && result != null && parameterizedRoot != null;
     }
@@ -17,6 +17,7 @@
 package org.polypheny.db.processing.util;
 
 import java.util.List;
+import java.util.function.Consumer;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Value;
@@ -30,6 +31,23 @@ public class ProposedImplementations {
 
     public List<Plan> plans;
     public LogicalQueryInformation logicalQueryInformation;
+    /**
+     * Whether the plans contain all proposed routing plans, i.e. none has been dropped during the optimization.
+     */
+    public boolean complete;
+    Consumer<Plan> implementer;
+
+
+    /**
+     * Implements the plan, if it has not been taken from the implementation cache, and returns it.
+     */
+    public Plan implement( int index ) {
+        Plan plan = plans.get( index );
+        if ( !plan.isValid() ) {
+            implementer.accept( plan );
+        }
+        return plan;
+    }
 
 
     public List<ProposedRoutingPlan> getRoutingPlans() {
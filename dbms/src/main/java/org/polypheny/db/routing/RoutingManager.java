@@ -29,6 +29,7 @@
 import org.polypheny.db.config.ConfigClazzList;
 import org.polypheny.db.config.ConfigDouble;
 import org.polypheny.db.config.ConfigEnum;
+import org.polypheny.db.config.ConfigInteger;
 import org.polypheny.db.config.ConfigManager;
 import org.polypheny.db.config.WebUiGroup;
 import org.polypheny.db.routing.factories.RouterFactory;
@@ -60,6 +61,11 @@ public class RoutingManager {
             RouterPlanSelectionStrategy.class,
             RouterPlanSelectionStrategy.BEST );
 
+    public static final ConfigInteger PLANNING_TIME_BUDGET = new ConfigInteger(
+            "routing/planningTimeBudget",
+            "Time in milliseconds, after which no further proposed routing plans are optimized, once at least one of them has been optimized. 0 means no limit.",
+            0 );
+
 
     private static final RoutingManager INSTANCE = new RoutingManager();
 
@@ -152,6 +158,9 @@ public void restart( Config c ) {
             }
         } );
         POST_COST_AGGREGATION_ACTIVE.withUi( routingGroup.getId(), 3 );
+
+        configManager.registerConfig( PLANNING_TIME_BUDGET );
+        PLANNING_TIME_BUDGET.withUi( routingGroup.getId(), 4 );
     }
 
 
@@ -89,8 +89,13 @@
 import org.polypheny.db.schema.trait.ModelTrait;
 import org.polypheny.db.tools.AlgBuilder;
 import org.polypheny.db.tools.RoutedAlgBuilder;
+import org.polypheny.db.transaction.EntityAccessMap;
+import org.polypheny.db.transaction.Lock.LockMode;
+import org.polypheny.db.transaction.LockManager;
 import org.polypheny.db.transaction.Statement;
+import org.polypheny.db.transaction.TransactionImpl;
 import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.util.DeadlockException;
 import org.polypheny.db.util.Pair;
 import org.polypheny.db.util.Triple;
 
@@ -286,6 +291,8 @@ public AlgNode visit( LogicalRelFilter filter ) {
                 accessedPartitions.add( identPart );
             }
 
+            lockPartitions( statement, table, accessedPartitions );
+
             if ( statement.getMonitoringEvent() != null ) {
                 statement.getMonitoringEvent()
                         .updateAccessedPartitions(
@@ -337,6 +344,19 @@ public AlgNode visit( LogicalRelFilter filter ) {
     }
 
 
+    /**
+     * Locks the partitions a DML is routed to. If the partitions are not known before routing (e.g. for inserts), the
+     * statement only holds an intention lock on the table.
+     */
+    private void lockPartitions( Statement statement, LogicalTable table, Set<Long> partitionIds ) {
+        try {
+            LockManager.INSTANCE.lock( EntityAccessMap.getPartitionLocks( table.id, partitionIds, LockMode.EXCLUSIVE ), (TransactionImpl) statement.getTransaction() );
+        } catch ( DeadlockException e ) {
+            throw new GenericRuntimeException( e );
+        }
+    }
+
+
     private Triple<Long, String, Boolean> handleDmlInsert( List<String> updateColumns, LogicalRelModify modify, List<Long> columnIds, List<LogicalColumn> columns, PartitionProperty property, LogicalTable table, Set<Long> accessedPartitionList, PartitionManager partitionManager, AllocationPlacement pkPlacement, Statement statement, List<AllocationColumn> placementsOnAdapter, AlgCluster cluster, List<AlgNode> modifies, List<? extends RexNode> sourceExpressions, List<Map<Long, PolyValue>> allValues ) {
         String partitionValue = null;
         long identPart = -1;
@@ -444,34 +464,33 @@ private Triple<Long, String, Boolean> handleDmlInsert( List<String> updateColumn
                         // Needed to identify the column which contains the partition value
                         long partitionValueIndex = ((RexDynamicParam) fieldValues.get( i )).getIndex();
 
-                        long tempPartitionId = 0;
                         // Get partitionValue per row/tuple to be inserted
                         // Create as many independent TableModifies as there are entries in getParameterValues
 
                         Map<Long, List<Map<Long, PolyValue>>> tempValues = new HashMap<>();
+                        // The allocation of a partition is looked up only once per statement
+                        Map<Long, Optional<AllocationEntity>> allocations = new HashMap<>();
                         statement.getDataContext().resetContext();
-                        for ( Map<Long, PolyValue> currentRow : allValues ) {
-                            // first we sort the values to insert according to the partitionManager and their partitionId
+                        statement.getDataContext().setParameterTypes( statement.getDataContext().getParameterTypes() );
 
-                            tempPartitionId = partitionManager.getTargetPartitionId( table, property, currentRow.get( partitionValueIndex ).toString() );
+                        // first we sort the values to insert according to the partitionManager and their partitionId
+                        long[] partitionIds = partitionManager.getTargetPartitionIds( table, property, allValues.stream().map( row -> row.get( partitionValueIndex ) ).toList() );
+                        for ( int row = 0; row < partitionIds.length; row++ ) {
+                            long tempPartitionId = partitionIds[row];
+                            accessedPartitionList.add( tempPartitionId );
 
-                            if ( catalog.getSnapshot().alloc().getAlloc( pkPlacement.id, tempPartitionId ).isEmpty() ) {
+                            if ( allocations.computeIfAbsent( tempPartitionId, id -> catalog.getSnapshot().alloc().getAlloc( pkPlacement.id, id ) ).isEmpty() ) {
                                 continue;
                             }
 
-                            statement.getDataContext().setParameterTypes( statement.getDataContext().getParameterTypes() );
-
-                            if ( !tempValues.containsKey( tempPartitionId ) ) {
-                                tempValues.put( tempPartitionId, new ArrayList<>() );
-                            }
-                            tempValues.get( tempPartitionId ).add( currentRow );
+                            tempValues.computeIfAbsent( tempPartitionId, id -> new ArrayList<>() ).add( allValues.get( row ) );
                         }
 
                         for ( Entry<Long, List<Map<Long, PolyValue>>> entry : tempValues.entrySet() ) {
                             // then we add a modification for each partition
                             statement.getDataContext().setParameterValues( entry.getValue() );
 
-                            AllocationEntity allocation = catalog.getSnapshot().alloc().getAlloc( pkPlacement.id, entry.getKey() ).orElseThrow();
+                            AllocationEntity allocation = allocations.get( entry.getKey() ).orElseThrow();
 
                             AlgNode input = buildDml(
                                     super.recursiveCopy( modify.getInput( 0 ) ),
@@ -17,15 +17,16 @@
 package org.polypheny.db.transaction;
 
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NonNull;
@@ -42,15 +43,14 @@
 import org.polypheny.db.algebra.core.relational.RelModify;
 import org.polypheny.db.catalog.Catalog;
 import org.polypheny.db.catalog.entity.Entity;
-import org.polypheny.db.catalog.entity.allocation.AllocationEntity;
 import org.polypheny.db.catalog.entity.logical.LogicalTable;
-import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
 import org.polypheny.db.catalog.logistic.DataModel;
 import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.partition.properties.PartitionProperty;
 import org.polypheny.db.plan.AlgOptUtil;
 import org.polypheny.db.transaction.EntityAccessMap.EntityIdentifier.NamespaceLevel;
 import org.polypheny.db.transaction.Lock.LockMode;
+import org.polypheny.db.util.Pair;
 
 
 /**
@@ -87,6 +87,10 @@ public enum Mode {
 
 
     private final Map<EntityIdentifier, Mode> accessMap;
+    /**
+     * Entities of which only some partitions are accessed, these are locked with intention locks.
+     */
+    private final Map<EntityIdentifier, Mode> intentionMap;
     private final Map<EntityIdentifier, LockMode> accessLockMap;
 
     private final Map<Long, List<Long>> accessedPartitions;
@@ -97,6 +101,7 @@ public enum Mode {
      */
     public EntityAccessMap() {
         accessMap = Collections.emptyMap();
+        intentionMap = Collections.emptyMap();
         accessLockMap = Collections.emptyMap();
         accessedPartitions = Collections.emptyMap();
     }
@@ -112,6 +117,7 @@ public EntityAccessMap( AlgNode alg, Map<Long, List<Long>> accessedPartitions )
         // NOTE: This method must NOT retain a reference to the input alg, because we use it for cached statements, and we
         // don't want to retain any alg references after preparation completes.
         this.accessMap = new HashMap<>();
+        this.intentionMap = new HashMap<>();
 
         //TODO @HENNLO remove this and rather integrate EntityAccessMap directly into Query Processor when DML Partitions can be queried
         this.accessedPartitions = accessedPartitions;
@@ -130,6 +136,7 @@ public EntityAccessMap( AlgNode alg, Map<Long, List<Long>> accessedPartitions )
     public EntityAccessMap( EntityIdentifier entityIdentifier, Mode mode ) {
         accessMap = new HashMap<>();
         accessMap.put( entityIdentifier, mode );
+        intentionMap = Collections.emptyMap();
         accessLockMap = evaluateAccessLockMap();
 
         this.accessedPartitions = new HashMap<>();
@@ -138,18 +145,34 @@ public EntityAccessMap( EntityIdentifier entityIdentifier, Mode mode ) {
 
     @NotNull
     private Map<EntityIdentifier, LockMode> evaluateAccessLockMap() {
-        return accessMap.entrySet()
-                .stream()
-                .filter( e -> Arrays.asList( Mode.READ_ACCESS, Mode.WRITE_ACCESS, Mode.READWRITE_ACCESS ).contains( e.getValue() ) )
-                .collect( Collectors.toMap( Entry::getKey, e -> {
-                    if ( e.getValue() == Mode.READ_ACCESS ) {
-                        return LockMode.SHARED;
-                    } else if ( e.getValue() == Mode.WRITE_ACCESS || e.getValue() == Mode.READWRITE_ACCESS ) {
-                        return LockMode.EXCLUSIVE;
-                    } else {
-                        throw new GenericRuntimeException( "LockMode not possible." );
-                    }
-                } ) );
+        Map<EntityIdentifier, LockMode> lockMap = new HashMap<>();
+        intentionMap.forEach( ( id, mode ) -> lockMap.put( id, mode == Mode.READ_ACCESS ? LockMode.INTENTION_SHARED : LockMode.INTENTION_EXCLUSIVE ) );
+        accessMap.forEach( ( id, mode ) -> {
+            if ( mode != Mode.NO_ACCESS ) {
+                // an entity can be read completely while only some of its partitions are written
+                lockMap.merge( id, mode == Mode.READ_ACCESS ? LockMode.SHARED : LockMode.EXCLUSIVE, LockMode::combine );
+            }
+        } );
+        return lockMap;
+    }
+
+
+    /**
+     * Returns the locks required to access some partitions of an entity: an intention lock on the entity and a lock in
+     * the given mode on every partition.
+     *
+     * @param entityId id of the logical entity
+     * @param partitionIds ids of the accessed partitions
+     * @param mode lock mode for the partitions
+     * @return entity and partition locks
+     */
+    public static List<Entry<EntityIdentifier, LockMode>> getPartitionLocks( long entityId, Collection<Long> partitionIds, LockMode mode ) {
+        List<Entry<EntityIdentifier, LockMode>> locks = new ArrayList<>( partitionIds.size() + 1 );
+        locks.add( Pair.of( EntityIdentifier.ofEntity( entityId ), mode == LockMode.SHARED ? LockMode.INTENTION_SHARED : LockMode.INTENTION_EXCLUSIVE ) );
+        for ( long partitionId : partitionIds ) {
+            locks.add( Pair.of( EntityIdentifier.ofPartition( entityId, partitionId ), mode ) );
+        }
+        return locks;
     }
 
 
@@ -228,7 +251,12 @@ public Mode getEntityAccessMode( @NonNull EntityAccessMap.EntityIdentifier entit
      * @return qualified name
      */
     public EntityIdentifier getQualifiedName( Entity entity, long partitionId ) {
-        return new EntityIdentifier( entity.id, partitionId, NamespaceLevel.ENTITY_LEVEL );
+        return EntityIdentifier.ofPartition( entity.id, partitionId );
+    }
+
+
+    private static void addAccess( Map<EntityIdentifier, Mode> map, EntityIdentifier key, Mode newAccess ) {
+        map.merge( key, newAccess, ( oldAccess, access ) -> oldAccess == access ? access : Mode.READWRITE_ACCESS );
     }
 
 
@@ -275,28 +303,32 @@ private void attachRel( AlgNode p, Entity entity ) {
             }
 
             // TODO @HENNLO Integrate PartitionIds into Entities
-            // If entity has no info which partitions are accessed, ergo has no concrete entries in map
-            // assume that all are accessed. --> Add all to AccessMap
-            List<Long> relevantAllocations;
-            if ( accessedPartitions.containsKey( p.getEntity().id ) ) {
-                relevantAllocations = accessedPartitions.get( p.getEntity().id );
-            } else {
-                if ( entity.dataModel == DataModel.RELATIONAL ) {
-                    List<AllocationEntity> allocations = Catalog.getInstance().getSnapshot().alloc().getFromLogical( entity.id );
-                    relevantAllocations = allocations.stream().map( a -> a.id ).toList();
+            EntityIdentifier entityKey = EntityIdentifier.ofEntity( entity.id );
+            List<Long> partitionIds = accessedPartitions.get( entity.id );
+            if ( partitionIds == null ) {
+                if ( entity.dataModel != DataModel.RELATIONAL ) {
+                    return;
+                }
+                if ( newAccess == Mode.WRITE_ACCESS ) {
+                    // The target partitions of a DML are identified during routing, the DmlRouter locks them.
+                    addAccess( intentionMap, entityKey, newAccess );
                 } else {
-                    relevantAllocations = List.of();
+                    // No info which partitions are accessed, assume that all are accessed.
+                    addAccess( accessMap, entityKey, newAccess );
                 }
+                return;
+            }
 
+            Optional<PartitionProperty> property = Catalog.getInstance().getSnapshot().alloc().getPartitionProperty( entity.id );
+            if ( property.isEmpty() || new HashSet<>( partitionIds ).containsAll( property.get().partitionIds ) ) {
+                // all partitions are accessed, a single lock on the entity is cheaper
+                addAccess( accessMap, entityKey, newAccess );
+                return;
             }
 
-            for ( long allocationId : relevantAllocations ) {
-                EntityIdentifier key = getQualifiedName( entity, allocationId );
-                Mode oldAccess = accessMap.get( key );
-                if ( (oldAccess != null) && (oldAccess != newAccess) ) {
-                    newAccess = Mode.READWRITE_ACCESS;
-                }
-                accessMap.put( key, newAccess );
+            addAccess( intentionMap, entityKey, newAccess );
+            for ( long partitionId : partitionIds ) {
+                addAccess( accessMap, getQualifiedName( entity, partitionId ), newAccess );
             }
         }
 
@@ -339,14 +371,7 @@ private void attachLpg( AlgNode p ) {
         private void extractWriteConstraints( LogicalTable logicalTable ) {
 
             for ( long constraintTable : logicalTable.getConstraintIds() ) {
-                PartitionProperty property = Catalog.getInstance().getSnapshot().alloc().getPartitionProperty( logicalTable.id ).orElseThrow();
-                for ( long constraintPartitionIds : property.partitionIds ) {
-
-                    EntityIdentifier id = new EntityIdentifier( constraintTable, constraintPartitionIds, NamespaceLevel.ENTITY_LEVEL );
-                    if ( !accessMap.containsKey( id ) ) {
-                        accessMap.put( id, Mode.READ_ACCESS );
-                    }
-                }
+                accessMap.putIfAbsent( EntityIdentifier.ofEntity( constraintTable ), Mode.READ_ACCESS );
             }
         }
 
@@ -357,6 +382,12 @@ private void extractWriteConstraints( LogicalTable logicalTable ) {
     @AllArgsConstructor
     public static class EntityIdentifier {
 
+        /**
+         * Allocation id of the identifier which locks a whole entity. Relational entities are locked either as a whole
+         * or per partition, in which case the partition id is used as allocation id.
+         */
+        public static final long WHOLE_ENTITY = -1L;
+
         long entityId;
 
         long allocationId;
@@ -372,6 +403,16 @@ public enum NamespaceLevel {
         }
 
 
+        public static EntityIdentifier ofEntity( long entityId ) {
+            return new EntityIdentifier( entityId, WHOLE_ENTITY, NamespaceLevel.ENTITY_LEVEL );
+        }
+
+
+        public static EntityIdentifier ofPartition( long entityId, long partitionId ) {
+            return new EntityIdentifier( entityId, partitionId, NamespaceLevel.ENTITY_LEVEL );
+        }
+
+
         @Override
         public boolean equals( Object o ) {
             if ( this == o ) {
@@ -17,23 +17,49 @@
 package org.polypheny.db.transaction;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
-import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
 import org.polypheny.db.transaction.Transaction.AccessMode;
 
 
 // Based on code taken from https://github.com/dstibrany/LockManager
 public class Lock {
 
-    private final Set<TransactionImpl> owners = new HashSet<>();
+    /**
+     * Number of bits per lock mode in {@link #state}.
+     */
+    private static final int BITS_PER_MODE = 16;
+    private static final long HOLDER_MASK = (1L << BITS_PER_MODE) - 1;
+    private static final long[] CONFLICTS = new long[LockMode.values().length];
+
+    static {
+        for ( LockMode mode : LockMode.values() ) {
+            for ( LockMode other : LockMode.values() ) {
+                if ( !mode.isCompatible( other ) ) {
+                    CONFLICTS[mode.ordinal()] |= HOLDER_MASK << shift( other );
+                }
+            }
+        }
+    }
+
+    private final Map<TransactionImpl, LockMode> owners = new ConcurrentHashMap<>();
+    /**
+     * Number of holders per lock mode, every mode uses {@link #BITS_PER_MODE} bits.
+     */
+    private final AtomicLong state = new AtomicLong( 0 );
+    /**
+     * Number of transactions which are about to wait or are waiting for this lock. As long as there are waiters, locks
+     * are not granted on the fast path and releases have to signal the waiters.
+     */
+    private final AtomicInteger waiting = new AtomicInteger( 0 );
     private final ReentrantLock lock = new ReentrantLock( true );
     private final Condition waiters = lock.newCondition();
     private final WaitForGraph waitForGraph;
-    private int xLockCount = 0;
-    private int sLockCount = 0;
 
 
     Lock( WaitForGraph waitForGraph ) {
@@ -42,126 +68,211 @@ public class Lock {
 
 
     void acquire( TransactionImpl txn, LockMode lockMode ) throws InterruptedException {
-        if ( lockMode == LockMode.SHARED ) {
-            acquireSLock( txn );
-            txn.updateAccessMode( AccessMode.READ_ACCESS );
-        } else if ( lockMode == LockMode.EXCLUSIVE ) {
-            acquireXLock( txn );
-            txn.updateAccessMode( AccessMode.WRITE_ACCESS );
-        } else {
-            throw new GenericRuntimeException( "Lock mode does not exist" );
+        if ( !tryAcquire( txn, lockMode ) ) {
+            acquireSlow( txn, lockMode );
         }
+        txn.updateAccessMode( lockMode.getAccessMode() );
     }
 
 
     void release( TransactionImpl txn ) {
-        lock.lock();
-        try {
-            if ( sLockCount > 0 ) {
-                sLockCount--;
-            }
-            if ( xLockCount == 1 ) {
-                xLockCount = 0;
+        LockMode mode = owners.remove( txn );
+        if ( mode == null ) {
+            return;
+        }
+        state.addAndGet( -unit( mode ) );
+
+        if ( waiting.get() > 0 ) {
+            lock.lock();
+            try {
+                waitForGraph.remove( txn );
+                waiters.signalAll();
+            } finally {
+                lock.unlock();
             }
-
-            owners.remove( txn );
+        } else {
             waitForGraph.remove( txn );
-
-            waiters.signalAll();
-        } finally {
-            lock.unlock();
         }
     }
 
 
-    void upgrade( TransactionImpl txn ) throws InterruptedException {
+    /**
+     * Converts the lock held by the transaction into a lock which covers the held and the requested mode.
+     */
+    void upgrade( TransactionImpl txn, LockMode lockMode ) throws InterruptedException {
+        LockMode held = owners.get( txn );
+        if ( held == null ) {
+            acquire( txn, lockMode );
+            return;
+        }
+        LockMode target = held.combine( lockMode );
+        if ( target == held ) {
+            return;
+        }
+
         lock.lock();
+        waiting.incrementAndGet();
         try {
-            if ( owners.contains( txn ) && isXLocked() ) {
-                return;
-            }
-            while ( isXLocked() || sLockCount > 1 ) {
-                Set<TransactionImpl> ownersWithSelfRemoved = owners.stream().filter( ownerTxn -> !ownerTxn.equals( txn ) ).collect( Collectors.toSet() );
-                waitForGraph.add( txn, ownersWithSelfRemoved );
+            while ( true ) {
+                long current = state.get();
+                long others = current - unit( held );
+                if ( (others & CONFLICTS[target.ordinal()]) == 0 ) {
+                    if ( state.compareAndSet( current, others + unit( target ) ) ) {
+                        break;
+                    }
+                    continue;
+                }
+                waitForGraph.add( txn, blockers( txn, target ) );
                 waitForGraph.detectDeadlock( txn );
                 waiters.await();
             }
-            sLockCount = 0;
-            xLockCount = 1;
+            owners.put( txn, target );
         } finally {
+            waiting.decrementAndGet();
             lock.unlock();
         }
+        txn.updateAccessMode( target.getAccessMode() );
     }
 
 
+    /**
+     * Returns the strongest mode in which the lock is currently held.
+     */
     LockMode getMode() {
-        LockMode lockMode = null;
-        lock.lock();
-
-        try {
-            if ( isXLocked() ) {
-                lockMode = LockMode.EXCLUSIVE;
-            } else if ( isSLocked() ) {
-                lockMode = LockMode.SHARED;
+        long current = state.get();
+        for ( LockMode mode : new LockMode[]{ LockMode.EXCLUSIVE, LockMode.SHARED, LockMode.INTENTION_EXCLUSIVE, LockMode.INTENTION_SHARED } ) {
+            if ( ((current >>> shift( mode )) & HOLDER_MASK) > 0 ) {
+                return mode;
             }
-        } finally {
-            lock.unlock();
         }
+        return null;
+    }
+
 
-        return lockMode;
+    /**
+     * Returns the mode in which the given transaction holds the lock.
+     */
+    LockMode getMode( TransactionImpl txn ) {
+        return owners.get( txn );
     }
 
 
     Set<TransactionImpl> getOwners() {
-        return owners;
+        return owners.keySet();
     }
 
 
-    private void acquireSLock( TransactionImpl txn ) throws InterruptedException {
-        lock.lock();
-        try {
-            while ( isXLocked() || lock.hasWaiters( waiters ) ) {
-                waitForGraph.add( txn, owners );
-                waitForGraph.detectDeadlock( txn );
-                waiters.await();
+    /**
+     * Fast path: grants a compatible lock without taking the monitor, as long as nobody is waiting.
+     */
+    private boolean tryAcquire( TransactionImpl txn, LockMode lockMode ) {
+        long conflicts = CONFLICTS[lockMode.ordinal()];
+        long current = state.get();
+        while ( (current & conflicts) == 0 && waiting.get() == 0 ) {
+            if ( state.compareAndSet( current, current + unit( lockMode ) ) ) {
+                owners.put( txn, lockMode );
+                return true;
             }
-            sLockCount++;
-            owners.add( txn );
-        } finally {
-            lock.unlock();
+            current = state.get();
         }
+        return false;
     }
 
 
-    private void acquireXLock( TransactionImpl txn ) throws InterruptedException {
+    private void acquireSlow( TransactionImpl txn, LockMode lockMode ) throws InterruptedException {
+        long conflicts = CONFLICTS[lockMode.ordinal()];
         lock.lock();
+        waiting.incrementAndGet();
         try {
-            while ( isXLocked() || isSLocked() ) {
-                waitForGraph.add( txn, owners );
+            while ( true ) {
+                long current = state.get();
+                // all but exclusive requests queue up behind waiting transactions, otherwise writers could starve
+                if ( (current & conflicts) == 0 && (lockMode == LockMode.EXCLUSIVE || !lock.hasWaiters( waiters )) ) {
+                    if ( state.compareAndSet( current, current + unit( lockMode ) ) ) {
+                        break;
+                    }
+                    continue;
+                }
+                waitForGraph.add( txn, blockers( txn, lockMode ) );
                 waitForGraph.detectDeadlock( txn );
                 waiters.await();
             }
-            xLockCount = 1;
-            owners.add( txn );
+            owners.put( txn, lockMode );
         } finally {
+            waiting.decrementAndGet();
             lock.unlock();
         }
     }
 
 
-    private boolean isXLocked() {
-        return xLockCount == 1;
+    /**
+     * Returns the transactions a request in the given mode waits for. Owners holding a compatible mode only block if the
+     * request is queued behind other waiters.
+     */
+    private Set<TransactionImpl> blockers( TransactionImpl txn, LockMode lockMode ) {
+        Set<TransactionImpl> blockers = new HashSet<>();
+        owners.forEach( ( owner, mode ) -> {
+            if ( !owner.equals( txn ) && !lockMode.isCompatible( mode ) ) {
+                blockers.add( owner );
+            }
+        } );
+        if ( blockers.isEmpty() ) {
+            owners.keySet().stream().filter( owner -> !owner.equals( txn ) ).forEach( blockers::add );
+        }
+        return blockers;
+    }
+
+
+    private static int shift( LockMode mode ) {
+        return mode.ordinal() * BITS_PER_MODE;
     }
 
 
-    private boolean isSLocked() {
-        return sLockCount > 0;
+    private static long unit( LockMode mode ) {
+        return 1L << shift( mode );
     }
 
 
     public enum LockMode {
         SHARED,
-        EXCLUSIVE
+        EXCLUSIVE,
+        /**
+         * Held on an entity while parts of it (e.g. partitions) are locked in {@link #SHARED} mode.
+         */
+        INTENTION_SHARED,
+        /**
+         * Held on an entity while parts of it (e.g. partitions) are locked in {@link #EXCLUSIVE} mode.
+         */
+        INTENTION_EXCLUSIVE;
+
+
+        public boolean isCompatible( LockMode other ) {
+            return switch ( this ) {
+                case SHARED -> other == SHARED || other == INTENTION_SHARED;
+                case EXCLUSIVE -> false;
+                case INTENTION_SHARED -> other != EXCLUSIVE;
+                case INTENTION_EXCLUSIVE -> other == INTENTION_SHARED || other == INTENTION_EXCLUSIVE;
+            };
+        }
+
+
+        /**
+         * Returns the weakest mode which grants the rights of both modes.
+         */
+        public LockMode combine( LockMode other ) {
+            if ( this == other || other == INTENTION_SHARED ) {
+                return this;
+            } else if ( this == INTENTION_SHARED ) {
+                return other;
+            }
+            // there is no shared intention exclusive mode, shared and intention exclusive need an exclusive lock
+            return EXCLUSIVE;
+        }
+
+
+        AccessMode getAccessMode() {
+            return this == SHARED || this == INTENTION_SHARED ? AccessMode.READ_ACCESS : AccessMode.WRITE_ACCESS;
+        }
     }
 
 }
@@ -17,18 +17,20 @@
 package org.polypheny.db.transaction;
 
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.transaction.EntityAccessMap.EntityIdentifier;
 import org.polypheny.db.transaction.EntityAccessMap.EntityIdentifier.NamespaceLevel;
 import org.polypheny.db.transaction.Lock.LockMode;
+import org.polypheny.db.transaction.Transaction.AccessMode;
 import org.polypheny.db.util.DeadlockException;
 
 
@@ -39,7 +41,17 @@ public class LockManager {
     public static final LockManager INSTANCE = new LockManager();
     public static final EntityIdentifier GLOBAL_LOCK = new EntityIdentifier( -1L, -1L, NamespaceLevel.ENTITY_LEVEL ); // For locking whole schema
 
+    /**
+     * Order in which locks are acquired, a global order prevents deadlocks between statements locking the same entities.
+     * Entity locks use {@link EntityIdentifier#WHOLE_ENTITY} as allocation id and are therefore acquired before the locks
+     * on their partitions.
+     */
+    private static final Comparator<Entry<EntityIdentifier, LockMode>> LOCK_ORDER = Comparator
+            .<Entry<EntityIdentifier, LockMode>>comparingLong( e -> e.getKey().entityId )
+            .thenComparingLong( e -> e.getKey().allocationId );
+
     private final ConcurrentHashMap<EntityIdentifier, Lock> lockTable;
+    private final Function<EntityIdentifier, Lock> lockFactory;
     @Getter
     private final WaitForGraph waitForGraph;
 
@@ -47,6 +59,7 @@ public class LockManager {
     private LockManager() {
         lockTable = new ConcurrentHashMap<>();
         waitForGraph = new WaitForGraph();
+        lockFactory = id -> new Lock( waitForGraph );
     }
 
 
@@ -64,82 +77,91 @@ public void lock( @NonNull Collection<Entry<EntityIdentifier, LockMode>> idAcces
      * Used in traditional transactional workload to lck all entities that will eagerly receive any update
      */
     private void handlePrimaryLocks( @NonNull Collection<Entry<EntityIdentifier, LockMode>> idAccessMap, @NonNull TransactionImpl transaction ) throws DeadlockException {
-        Iterator<Entry<EntityIdentifier, LockMode>> iter = idAccessMap.stream().sorted( ( a, b ) -> Math.toIntExact( a.getKey().entityId - b.getKey().entityId ) ).iterator();
-        Entry<EntityIdentifier, LockMode> pair;
-        while ( iter.hasNext() ) {
-            pair = iter.next();
-            lockTable.putIfAbsent( pair.getKey(), new Lock( waitForGraph ) );
-
-            Lock lock = lockTable.get( pair.getKey() );
-
-            try {
-                if ( hasLock( transaction, pair.getKey() ) && pair.getValue() == lock.getMode() ) {
-                    continue;
-                } else if ( pair.getValue() == Lock.LockMode.SHARED && hasLock( transaction, pair.getKey() ) && lock.getMode() == Lock.LockMode.EXCLUSIVE ) {
-                    continue;
-                } else if ( pair.getValue() == Lock.LockMode.EXCLUSIVE && hasLock( transaction, pair.getKey() ) && lock.getMode() == Lock.LockMode.SHARED ) {
-                    lock.upgrade( transaction );
-                } else {
-                    lock.acquire( transaction, pair.getValue() );
-                }
-            } catch ( InterruptedException e ) {
-                removeTransaction( transaction );
-                throw new DeadlockException( e );
+        if ( idAccessMap.size() == 1 ) {
+            Entry<EntityIdentifier, LockMode> pair = idAccessMap.iterator().next();
+            acquire( pair.getKey(), pair.getValue(), transaction );
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Entry<EntityIdentifier, LockMode>[] pairs = idAccessMap.toArray( new Entry[0] );
+        Arrays.sort( pairs, LOCK_ORDER );
+        for ( Entry<EntityIdentifier, LockMode> pair : pairs ) {
+            acquire( pair.getKey(), pair.getValue(), transaction );
+        }
+    }
+
+
+    private void acquire( EntityIdentifier entityIdentifier, LockMode mode, TransactionImpl transaction ) throws DeadlockException {
+        try {
+            // Fast path: re-entrant acquisition only needs the lock owned by the transaction
+            Lock owned = transaction.getLock( entityIdentifier );
+            if ( owned != null ) {
+                owned.upgrade( transaction, mode );
+                return;
             }
 
-            transaction.addLock( lock );
+            Lock lock = lockTable.get( entityIdentifier );
+            if ( lock == null ) {
+                lock = lockTable.computeIfAbsent( entityIdentifier, lockFactory );
+            }
+            lock.acquire( transaction, mode );
+            transaction.addLock( entityIdentifier, lock );
+        } catch ( InterruptedException e ) {
+            removeTransaction( transaction );
+            throw new DeadlockException( e );
         }
     }
 
 
     /**
-     * Used in freshness related workload to lock all entities that will lazily receive updates (considered secondaries)
+     * Used in freshness related workload by transactions which accept outdated data. Reads of such transactions do not
+     * lock any entities, they never wait for writers and writers never wait for them. Only the global schema lock is
+     * acquired, so that the read entities cannot be altered or dropped. Statements which write fall back to the
+     * primary locks.
+     * <p>
+     * This is not a snapshot read mode. The stores do not keep versions which could be shared across stores, so each
+     * read sees the committed state of its store at the isolation level of the store. Uncommitted changes are never
+     * visible, but successive statements of a transaction may see different commits, and a transaction which is being
+     * committed on several stores may be visible on some of them only.
      */
     private void handleSecondaryLocks( @NonNull Collection<Entry<EntityIdentifier, LockMode>> idAccessMap, @NonNull TransactionImpl transaction ) throws DeadlockException {
-        // Try locking secondaries first.
-        // If this cannot be fulfilled by data distribution fallback and try to acquire a regular primary lock
-        // TODO @HENNLO Check if this decision should even be made here or somewhere else
-
-        // This is mainly relevant for Queries on secondaries/outdated nodes.
-        // In theory, we already know for each query which partitions are going to be accessed.
-        // The FreshnessManager could therefore already be invoked prior to Routing to decide if the Freshness can be
-        // guaranteed or if we need to fall back to primary locking mechanisms.
+        for ( Entry<EntityIdentifier, LockMode> pair : idAccessMap ) {
+            if ( pair.getValue() == LockMode.EXCLUSIVE || pair.getValue() == LockMode.INTENTION_EXCLUSIVE ) {
+                handlePrimaryLocks( idAccessMap, transaction );
+                return;
+            }
+        }
+
+        for ( Entry<EntityIdentifier, LockMode> pair : idAccessMap ) {
+            if ( pair.getKey().equals( GLOBAL_LOCK ) ) {
+                acquire( GLOBAL_LOCK, pair.getValue(), transaction );
+            }
+        }
+        transaction.updateAccessMode( AccessMode.READ_ACCESS );
     }
 
 
     public void unlock( @NonNull Collection<EntityIdentifier> ids, @NonNull TransactionImpl transaction ) {
-        Iterator<EntityIdentifier> iter = ids.iterator();
-        EntityIdentifier entityIdentifier;
-        while ( iter.hasNext() ) {
-            entityIdentifier = iter.next();
-            Lock lock = lockTable.get( entityIdentifier );
+        for ( EntityIdentifier entityIdentifier : ids ) {
+            Lock lock = transaction.removeLock( entityIdentifier );
             if ( lock != null ) {
                 lock.release( transaction );
             }
-            transaction.removeLock( lock );
         }
     }
 
 
     public void removeTransaction( @NonNull TransactionImpl transaction ) {
-        Set<Lock> txnLockList = transaction.getLocks();
-        for ( Lock lock : txnLockList ) {
+        for ( Lock lock : transaction.getLocks() ) {
             lock.release( transaction );
         }
+        transaction.clearLocks();
     }
 
 
     public boolean hasLock( @NonNull TransactionImpl transaction, @NonNull EntityAccessMap.EntityIdentifier entityIdentifier ) {
-        Set<Lock> locks = transaction.getLocks();
-        if ( locks == null ) {
-            return false;
-        }
-        for ( Lock txnLock : locks ) {
-            if ( txnLock == lockTable.get( entityIdentifier ) ) {
-                return true;
-            }
-        }
-        return false;
+        return transaction.getLock( entityIdentifier ) != null;
     }
 
 
@@ -36,6 +36,7 @@
 import org.polypheny.db.processing.QueryProcessor;
 import org.polypheny.db.processing.QueryProviderImpl;
 import org.polypheny.db.processing.VolcanoQueryProcessor;
+import org.polypheny.db.runtime.spill.MemoryBudget;
 import org.polypheny.db.type.entity.numerical.PolyLong;
 import org.polypheny.db.util.FileInputHandle;
 
@@ -56,6 +57,7 @@ public class StatementImpl implements Statement {
     private InformationDuration routingDuration;
     private InformationDuration overviewDuration;
     private InformationPage executionTimePage;
+    private MemoryBudget memoryBudget;
 
     private StatementEvent statementEvent;
 
@@ -173,6 +175,10 @@ public void close() {
             dataContext.getParameterValues().clear();
         }
         fileInputHandles.forEach( FileInputHandle::close );
+        if ( memoryBudget != null ) {
+            memoryBudget.close();
+            memoryBudget = null;
+        }
         dataContext = null;
     }
 
@@ -182,4 +188,13 @@ public void registerFileInputHandle( FileInputHandle fileInputHandle ) {
         fileInputHandles.add( fileInputHandle );
     }
 
+
+    @Override
+    public synchronized MemoryBudget getMemoryBudget() {
+        if ( memoryBudget == null ) {
+            memoryBudget = MemoryBudget.create();
+        }
+        return memoryBudget;
+    }
+
 }
@@ -18,8 +18,10 @@
 
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
@@ -56,6 +58,7 @@
 import org.polypheny.db.processing.DataMigratorImpl;
 import org.polypheny.db.processing.Processor;
 import org.polypheny.db.processing.QueryProcessor;
+import org.polypheny.db.transaction.EntityAccessMap.EntityIdentifier;
 import org.polypheny.db.type.entity.category.PolyNumber;
 import org.polypheny.db.view.MaterializedViewManager;
 
@@ -101,7 +104,7 @@ public class TransactionImpl implements Transaction, Comparable<Object> {
     @Getter
     private final List<Adapter<?>> involvedAdapters = new CopyOnWriteArrayList<>();
 
-    private final Set<Lock> lockList = new HashSet<>();
+    private final Map<EntityIdentifier, Lock> locks = new HashMap<>();
     private boolean useCache = true;
 
     private boolean acceptsOutdated = false;
@@ -383,18 +386,28 @@ public void updateAccessMode( AccessMode accessModeCandidate ) {
     //
 
 
-    Set<Lock> getLocks() {
-        return lockList;
+    Collection<Lock> getLocks() {
+        return locks.values();
     }
 
 
-    void addLock( Lock lock ) {
-        lockList.add( lock );
+    Lock getLock( EntityIdentifier entityIdentifier ) {
+        return locks.get( entityIdentifier );
     }
 
 
-    void removeLock( Lock lock ) {
-        lockList.remove( lock );
+    void addLock( EntityIdentifier entityIdentifier, Lock lock ) {
+        locks.put( entityIdentifier, lock );
+    }
+
+
+    Lock removeLock( EntityIdentifier entityIdentifier ) {
+        return locks.remove( entityIdentifier );
+    }
+
+
+    void clearLocks() {
+        locks.clear();
     }
 
 
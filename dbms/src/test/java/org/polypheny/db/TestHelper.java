@@ -63,6 +63,7 @@
 import org.polypheny.db.catalog.IdBuilder;
 import org.polypheny.db.catalog.impl.PolyCatalog;
 import org.polypheny.db.functions.Functions;
+import org.polypheny.db.languages.QueryTextCache;
 import org.polypheny.db.processing.caching.ImplementationCache;
 import org.polypheny.db.processing.caching.QueryPlanCache;
 import org.polypheny.db.processing.caching.RoutingPlanCache;
@@ -434,6 +435,7 @@ public static List<Object[]> orderResultList( List<Object[]> result ) {
 
 
     public void resetCaches() {
+        QueryTextCache.INSTANCE.reset();
         ImplementationCache.INSTANCE.reset();
         QueryPlanCache.INSTANCE.reset();
         RoutingPlanCache.INSTANCE.reset();
@@ -719,6 +721,14 @@ public static class JdbcConnection implements AutoCloseable {
 
 
         public JdbcConnection( boolean autoCommit ) throws SQLException {
+            this( autoCommit, new Properties() );
+        }
+
+
+        /**
+         * @param properties Additional connection properties
+         */
+        public JdbcConnection( boolean autoCommit, Properties properties ) throws SQLException {
             try {
                 Class.forName( "org.polypheny.jdbc.Driver" );
             } catch ( ClassNotFoundException e ) {
@@ -728,6 +738,7 @@ public JdbcConnection( boolean autoCommit ) throws SQLException {
             log.debug( "Connecting to database @ {}", url );
 
             Properties props = new Properties();
+            props.putAll( properties );
             props.setProperty( "user", "pa" );
             props.setProperty( "serialization", "PROTOBUF" );
 
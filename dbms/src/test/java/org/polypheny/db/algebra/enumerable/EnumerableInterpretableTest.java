@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.algebra.enumerable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.tree.Blocks;
+import org.apache.calcite.linq4j.tree.ClassDeclaration;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.MemberDeclaration;
+import org.apache.calcite.linq4j.tree.ParameterExpression;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.processing.caching.ImplementationCache;
+import org.polypheny.db.runtime.Bindable;
+
+
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Tag("adapter")
+public class EnumerableInterpretableTest {
+
+    // The literals are hoisted into static final fields of the generated class
+    private static final String QUERY = "SELECT id + 10, name FROM (VALUES (1, 'a'), (2, 'b'), (3, 'c')) AS t(id, name) WHERE id > 1 AND name <> 'x'";
+
+    private static final List<Object[]> EXPECTED = ImmutableList.of(
+            new Object[]{ 12, "b" },
+            new Object[]{ 13, "c" } );
+
+
+    @BeforeAll
+    public static void start() {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+    }
+
+
+    private static ClassDeclaration constantClass( int modifier, String value ) {
+        final ParameterExpression constant = Expressions.parameter( modifier, String.class, "CONSTANT" );
+        final List<MemberDeclaration> memberDeclarations = List.of(
+                Expressions.fieldDecl( modifier, constant, Expressions.constant( value ) ),
+                Expressions.methodDecl(
+                        Modifier.PUBLIC,
+                        Enumerable.class,
+                        "bind",
+                        Expressions.list( DataContext.INITIAL_ROOT ),
+                        Blocks.toFunctionBlock( Expressions.call( Linq4j.class, "singletonEnumerable", constant ) ) ),
+                Expressions.methodDecl(
+                        Modifier.PUBLIC,
+                        Class.class,
+                        "getElementType",
+                        List.of(),
+                        Blocks.toFunctionBlock( Expressions.constant( String.class ) ) ) );
+        return Expressions.classDecl( Modifier.PUBLIC, "Baz", null, Collections.singletonList( Bindable.class ), memberDeclarations );
+    }
+
+
+    private static Bindable<Object> bindable( ClassDeclaration expr ) throws Exception {
+        return EnumerableInterpretable.getBindable( expr, Expressions.toString( expr.memberDeclarations, "\n", false ), 1 );
+    }
+
+
+    @Test
+    public void testStaticFinalFieldsAreCached() throws Exception {
+        bindable( constantClass( Modifier.PUBLIC | Modifier.STATIC | Modifier.FINAL, "static final" ) );
+        final long compilations = EnumerableInterpretable.getCompilations();
+        final Bindable<Object> cached = bindable( constantClass( Modifier.PUBLIC | Modifier.STATIC | Modifier.FINAL, "static final" ) );
+        assertEquals( compilations, EnumerableInterpretable.getCompilations() );
+        assertEquals( "static final", cached.bind( null ).first() );
+
+        // A different constant is a different class
+        final long before = EnumerableInterpretable.getCompilations();
+        final Bindable<Object> other = bindable( constantClass( Modifier.PUBLIC | Modifier.STATIC | Modifier.FINAL, "other static final" ) );
+        assertEquals( before + 1, EnumerableInterpretable.getCompilations() );
+        assertEquals( "other static final", other.bind( null ).first() );
+    }
+
+
+    @Test
+    public void testMutableStaticFieldsAreNotCached() throws Exception {
+        final long compilations = EnumerableInterpretable.getCompilations();
+        bindable( constantClass( Modifier.PUBLIC | Modifier.STATIC, "static" ) );
+        bindable( constantClass( Modifier.PUBLIC | Modifier.STATIC, "static" ) );
+        assertEquals( compilations + 2, EnumerableInterpretable.getCompilations() );
+    }
+
+
+    /**
+     * Executes the same query twice without the implementation cache. The generated code of both executions is
+     * identical, hence the second execution reuses the compiled class.
+     */
+    @Test
+    public void testSamePlanIsCompiledOnce() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                final long before = EnumerableInterpretable.getCompilations();
+                ImplementationCache.INSTANCE.reset();
+                TestHelper.checkResultSet( statement.executeQuery( QUERY ), EXPECTED );
+                final long compilations = EnumerableInterpretable.getCompilations();
+                assertTrue( compilations > before );
+
+                ImplementationCache.INSTANCE.reset();
+                TestHelper.checkResultSet( statement.executeQuery( QUERY ), EXPECTED );
+                assertEquals( compilations, EnumerableInterpretable.getCompilations() );
+            }
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.common.collect.ImmutableList;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.util.Benchmark;
+
+
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Tag("adapter")
+public class JdbcBatchTest {
+
+    private final static String SCHEMA_SQL = "CREATE TABLE batchtest( "
+            + "id INTEGER NOT NULL, "
+            + "amount BIGINT NULL, "
+            + "price DECIMAL(8,2) NULL, "
+            + "name VARCHAR(20) NULL, "
+            + "PRIMARY KEY (id) )";
+
+
+    @BeforeAll
+    public static void start() {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+    }
+
+
+    @Test
+    public void chunkedBatchTest() throws SQLException {
+        final int batchSize = RuntimeConfig.BATCH_EXECUTION_SIZE.getInteger();
+        RuntimeConfig.BATCH_EXECUTION_SIZE.setInteger( 3 );
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( false ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( SCHEMA_SQL );
+
+                try {
+                    PreparedStatement preparedInsert = connection.prepareStatement( "INSERT INTO batchtest(id, amount, name) VALUES (?, ?, ?)" );
+                    for ( int i = 0; i < 10; i++ ) {
+                        preparedInsert.setInt( 1, i );
+                        preparedInsert.setLong( 2, i * 10L );
+                        if ( i % 4 == 0 ) {
+                            preparedInsert.setNull( 3, Types.VARCHAR );
+                        } else {
+                            preparedInsert.setString( 3, "Name " + i );
+                        }
+                        preparedInsert.addBatch();
+                    }
+                    int[] inserted = preparedInsert.executeBatch();
+                    assertArrayEquals( new int[]{ 1, 1, 1, 1, 1, 1, 1, 1, 1, 1 }, inserted );
+                    connection.commit();
+
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT COUNT(*), SUM(amount) FROM batchtest WHERE name IS NOT NULL" ),
+                            ImmutableList.of( new Object[]{ 7L, 330L } ) );
+
+                    // Every row of the batch updates a different number of rows
+                    PreparedStatement preparedUpdate = connection.prepareStatement( "UPDATE batchtest SET amount = amount + 1 WHERE id < ?" );
+                    for ( int bound : new int[]{ 0, 1, 5, 10 } ) {
+                        preparedUpdate.setInt( 1, bound );
+                        preparedUpdate.addBatch();
+                    }
+                    int[] updated = preparedUpdate.executeBatch();
+                    connection.commit();
+                    assertArrayEquals( new int[]{ 0, 1, 5, 10 }, updated );
+
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT amount FROM batchtest WHERE id = 0" ),
+                            ImmutableList.of( new Object[]{ 3L } ) );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE batchtest" );
+                }
+            }
+        } finally {
+            RuntimeConfig.BATCH_EXECUTION_SIZE.setInteger( batchSize );
+        }
+    }
+
+
+    /**
+     * Inserts a large batch of rows with the JDBC driver into the default store. Only a few rows are inserted, unless
+     * benchmarks are {@link Benchmark#enabled() enabled}.
+     */
+    @Test
+    public void batchInsertBenchmark() throws SQLException {
+        final int rows = Benchmark.enabled() ? 100_000 : 100;
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( false ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( SCHEMA_SQL );
+
+                try {
+                    final int[] offset = { 0 };
+                    new Benchmark( "JDBC batch insert of " + rows + " rows", statistician -> {
+                        try {
+                            PreparedStatement preparedInsert = connection.prepareStatement( "INSERT INTO batchtest(id, amount, price, name) VALUES (?, ?, ?, ?)" );
+                            for ( int i = 0; i < rows; i++ ) {
+                                preparedInsert.setInt( 1, offset[0] + i );
+                                preparedInsert.setLong( 2, i );
+                                preparedInsert.setBigDecimal( 3, BigDecimal.valueOf( i % 100_000, 2 ) );
+                                preparedInsert.setString( 4, "Name " + i );
+                                preparedInsert.addBatch();
+                            }
+                            final long start = System.nanoTime();
+                            int[] inserted = preparedInsert.executeBatch();
+                            connection.commit();
+                            statistician.record( start );
+                            assertEquals( rows, inserted.length );
+                            offset[0] += rows;
+                        } catch ( SQLException e ) {
+                            throw new RuntimeException( e );
+                        }
+                        return null;
+                    }, 3 ).run();
+
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT COUNT(*) FROM batchtest" ),
+                            ImmutableList.of( new Object[]{ 3L * rows } ) );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE batchtest" );
+                }
+            }
+        }
+    }
+
+}
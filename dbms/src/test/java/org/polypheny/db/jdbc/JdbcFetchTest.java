@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.util.Benchmark;
+
+
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Tag("adapter")
+public class JdbcFetchTest {
+
+    private static final int ROWS = 250;
+
+
+    @BeforeAll
+    public static void start() throws SQLException {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( false ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE fetchtest( id INTEGER NOT NULL, name VARCHAR(20) NOT NULL, PRIMARY KEY (id) )" );
+                PreparedStatement preparedInsert = connection.prepareStatement( "INSERT INTO fetchtest(id, name) VALUES (?, ?)" );
+                for ( int i = 0; i < ROWS; i++ ) {
+                    preparedInsert.setInt( 1, i );
+                    preparedInsert.setString( 2, "Name " + i );
+                    preparedInsert.addBatch();
+                }
+                preparedInsert.executeBatch();
+                connection.commit();
+            }
+        }
+    }
+
+
+    @AfterAll
+    public static void stop() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "DROP TABLE fetchtest" );
+            }
+        }
+    }
+
+
+    @Test
+    public void singleColumnFirstFrameTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT name FROM fetchtest WHERE id = 7" ),
+                        ImmutableList.of( new Object[]{ "Name 7" } ) );
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT id, name FROM fetchtest WHERE id = 7" ),
+                        ImmutableList.of( new Object[]{ 7, "Name 7" } ) );
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT name FROM fetchtest WHERE id < 0" ),
+                        ImmutableList.of() );
+            }
+        }
+    }
+
+
+    @Test
+    public void multipleFramesTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( false ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement(); Statement other = connection.createStatement() ) {
+                statement.setFetchSize( 10 );
+                int count = 0;
+                try ( ResultSet rs = statement.executeQuery( "SELECT id, name FROM fetchtest ORDER BY id" ) ) {
+                    while ( rs.next() ) {
+                        assertEquals( count, rs.getInt( 1 ) );
+                        assertEquals( "Name " + count, rs.getString( 2 ) );
+                        if ( count == ROWS / 2 ) {
+                            // Another statement of the same transaction, while the next frame may be prefetched
+                            try ( ResultSet single = other.executeQuery( "SELECT name FROM fetchtest WHERE id = 1" ) ) {
+                                assertTrue( single.next() );
+                                assertEquals( "Name 1", single.getString( 1 ) );
+                                assertFalse( single.next() );
+                            }
+                        }
+                        count++;
+                    }
+                }
+                assertEquals( ROWS, count );
+                connection.commit();
+            }
+        }
+    }
+
+
+    @Test
+    public void reexecuteWhilePrefetchingTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( false ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( PreparedStatement preparedSelect = connection.prepareStatement( "SELECT id, name FROM fetchtest WHERE id >= ? ORDER BY id" ) ) {
+                preparedSelect.setFetchSize( 10 );
+                for ( int start = 0; start < 3; start++ ) {
+                    preparedSelect.setInt( 1, start );
+                    try ( ResultSet rs = preparedSelect.executeQuery() ) {
+                        // Reading beyond the first frame starts prefetching the next one, which is still pending when
+                        // the statement is executed again
+                        for ( int i = 0; i < 15; i++ ) {
+                            assertTrue( rs.next() );
+                            assertEquals( start + i, rs.getInt( 1 ) );
+                            assertEquals( "Name " + (start + i), rs.getString( 2 ) );
+                        }
+                    }
+                }
+
+                try ( Statement statement = connection.createStatement() ) {
+                    statement.setFetchSize( 10 );
+                    try ( ResultSet rs = statement.executeQuery( "SELECT id FROM fetchtest ORDER BY id" ) ) {
+                        for ( int i = 0; i < 15; i++ ) {
+                            assertTrue( rs.next() );
+                        }
+                        // Executes a new query through the same statement while a frame of the previous one is pending
+                        TestHelper.checkResultSet(
+                                statement.executeQuery( "SELECT name FROM fetchtest WHERE id = 3" ),
+                                ImmutableList.of( new Object[]{ "Name 3" } ) );
+                    }
+                }
+                connection.commit();
+            }
+        }
+    }
+
+
+    /**
+     * Executes point queries over JDBC, whose latency is dominated by round trips. Only a few queries are executed,
+     * unless benchmarks are {@link Benchmark#enabled() enabled}.
+     */
+    @Test
+    public void pointQueryBenchmark() throws SQLException {
+        final int queries = Benchmark.enabled() ? 10_000 : 10;
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( PreparedStatement preparedSelect = connection.prepareStatement( "SELECT name FROM fetchtest WHERE id = ?" ) ) {
+                new Benchmark( "JDBC point queries", statistician -> {
+                    final long start = System.nanoTime();
+                    try {
+                        for ( int i = 0; i < queries; i++ ) {
+                            preparedSelect.setInt( 1, i % ROWS );
+                            try ( ResultSet rs = preparedSelect.executeQuery() ) {
+                                assertTrue( rs.next() );
+                            }
+                        }
+                    } catch ( SQLException e ) {
+                        throw new RuntimeException( e );
+                    }
+                    statistician.record( start );
+                    return null;
+                }, 5 ).run();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.misc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.processing.caching.ImplementationCache;
+import org.polypheny.db.processing.caching.QueryPlanCache;
+import org.polypheny.db.runtime.parallel.GatherEnumerable;
+
+
+/**
+ * Parallel execution of scans of partitioned tables. Partitions are only read concurrently, if they are placed on
+ * different stores, as the inputs of a gather must not share the connection of a store.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Tag("adapter")
+public class ParallelGatherTest {
+
+    private static final int ROWS = 100;
+
+    private static boolean parallelExecution;
+    private static int parallelism;
+    private static int threshold;
+
+
+    @BeforeAll
+    public static void start() {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        parallelExecution = RuntimeConfig.PARALLEL_EXECUTION.getBoolean();
+        parallelism = RuntimeConfig.PARALLELISM.getInteger();
+        threshold = RuntimeConfig.PARALLEL_EXECUTION_THRESHOLD.getInteger();
+        RuntimeConfig.PARALLEL_EXECUTION.setBoolean( true );
+        RuntimeConfig.PARALLELISM.setInteger( 2 );
+        // The gather is cheaper than the union for any number of tuples
+        RuntimeConfig.PARALLEL_EXECUTION_THRESHOLD.setInteger( 0 );
+    }
+
+
+    @AfterAll
+    public static void stop() {
+        RuntimeConfig.PARALLEL_EXECUTION.setBoolean( parallelExecution );
+        RuntimeConfig.PARALLELISM.setInteger( parallelism );
+        RuntimeConfig.PARALLEL_EXECUTION_THRESHOLD.setInteger( threshold );
+    }
+
+
+    private static void createTable( Statement statement ) throws SQLException {
+        statement.executeUpdate( "CREATE TABLE gathertest( id INTEGER NOT NULL, val INTEGER NOT NULL, PRIMARY KEY (id) ) "
+                + "PARTITION BY HASH (id) "
+                + "PARTITIONS 2" );
+        StringBuilder insert = new StringBuilder( "INSERT INTO gathertest VALUES " );
+        for ( int i = 0; i < ROWS; i++ ) {
+            insert.append( i == 0 ? "" : ", " ).append( "(" ).append( i ).append( ", " ).append( i ).append( ")" );
+        }
+        statement.executeUpdate( insert.toString() );
+    }
+
+
+    private static void checkSum( Statement statement ) throws SQLException {
+        // Neither the plan nor the implementation of a previous test must be reused
+        QueryPlanCache.INSTANCE.reset();
+        ImplementationCache.INSTANCE.reset();
+        TestHelper.checkResultSet(
+                statement.executeQuery( "SELECT COUNT(*), SUM(val) FROM gathertest" ),
+                ImmutableList.of( new Object[]{ (long) ROWS, (long) ROWS * (ROWS - 1) / 2 } ) );
+    }
+
+
+    /**
+     * All partitions are placed on the same store, hence they are read one after the other through the connection of
+     * the store.
+     */
+    @Test
+    public void testPartitionsOnSameStoreAreNotGathered() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                try {
+                    createTable( statement );
+                    final long runs = GatherEnumerable.getRuns();
+                    checkSum( statement );
+                    assertEquals( runs, GatherEnumerable.getRuns() );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE IF EXISTS gathertest" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testPartitionsOnDifferentStoresAreGathered() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                try {
+                    createTable( statement );
+                    TestHelper.addHsqldb( "gatherstore", statement );
+                    statement.executeUpdate( "ALTER TABLE gathertest ADD PLACEMENT (val) ON STORE \"gatherstore\"" );
+                    statement.executeUpdate( "ALTER TABLE gathertest MODIFY PARTITIONS (0) ON STORE \"gatherstore\"" );
+                    statement.executeUpdate( "ALTER TABLE gathertest MODIFY PARTITIONS (1) ON STORE \"hsqldb\"" );
+
+                    final long runs = GatherEnumerable.getRuns();
+                    checkSum( statement );
+                    assertTrue( GatherEnumerable.getRuns() > runs );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE IF EXISTS gathertest" );
+                    statement.executeUpdate( "ALTER ADAPTERS DROP \"gatherstore\"" );
+                }
+            }
+        }
+    }
+
+}
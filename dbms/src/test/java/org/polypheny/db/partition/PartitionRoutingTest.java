@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.partition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.partition.RangePartitionManager.Ranges;
+
+
+public class PartitionRoutingTest {
+
+    @Test
+    public void decimalHashCodeMatchesStringHashCode() {
+        char[] digits = new char[20];
+        long[] values = { 0, 1, -1, 9, 10, -10, 123456789, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1 };
+        for ( long value : values ) {
+            assertEquals( Long.toString( value ).hashCode(), HashPartitionManager.decimalHashCode( value, digits ) );
+        }
+        Random random = new Random( 42 );
+        for ( int i = 0; i < 10_000; i++ ) {
+            long value = random.nextLong() >> random.nextInt( 64 );
+            assertEquals( Long.toString( value ).hashCode(), HashPartitionManager.decimalHashCode( value, digits ) );
+        }
+    }
+
+
+    @Test
+    public void rangesFindContainingPartition() {
+        Ranges ranges = new Ranges( new long[]{ -10, 0, 100 }, new long[]{ -1, 50, 200 }, new long[]{ 1, 2, 3 }, 4 );
+        assertEquals( 1, ranges.find( -10 ) );
+        assertEquals( 1, ranges.find( -1 ) );
+        assertEquals( 4, ranges.find( -0.5 ) );
+        assertEquals( 2, ranges.find( 0 ) );
+        assertEquals( 2, ranges.find( 50 ) );
+        assertEquals( 4, ranges.find( 51 ) );
+        assertEquals( 3, ranges.find( 100 ) );
+        assertEquals( 3, ranges.find( 200 ) );
+        assertEquals( 4, ranges.find( 201 ) );
+        assertEquals( 4, ranges.find( -11 ) );
+
+        Ranges empty = new Ranges( new long[0], new long[0], new long[0], 7 );
+        assertEquals( 7, empty.find( 5 ) );
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.ResultIterator;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.processing.DataMigrationPipeline.BatchWriter;
+import org.polypheny.db.processing.DataMigrationPipeline.Target;
+import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.type.entity.numerical.PolyInteger;
+
+
+public class DataMigrationPipelineTest {
+
+    private static ResultIterator source( int rows, AtomicBoolean closed ) {
+        Iterator<PolyValue[]> iterator = new CloseableIterator( rows, closed );
+        return new ResultIterator( iterator, null, 10, false, false, false, null, null, null );
+    }
+
+
+    /**
+     * Collects the values of the first column and checks that the writers of a worker never run concurrently.
+     */
+    private static BatchWriter collector( List<Integer> values, AtomicInteger active ) {
+        return ( columns, size ) -> {
+            assertEquals( 1, active.incrementAndGet() );
+            try {
+                for ( PolyValue value : columns.get( 1L ) ) {
+                    values.add( value.asNumber().intValue() );
+                }
+                Thread.yield();
+            } finally {
+                active.decrementAndGet();
+            }
+            return size;
+        };
+    }
+
+
+    @Test
+    public void testOrderingPerTarget() {
+        for ( int parallelism : new int[]{ 1, 4 } ) {
+            DataMigrationPipeline pipeline = new DataMigrationPipeline( 7, parallelism, 1 );
+            AtomicInteger firstWorker = new AtomicInteger();
+            AtomicInteger secondWorker = new AtomicInteger();
+            List<List<Integer>> values = new ArrayList<>();
+            List<Target> targets = new ArrayList<>();
+            for ( int i = 0; i < 3; i++ ) {
+                List<Integer> received = Collections.synchronizedList( new ArrayList<>() );
+                values.add( received );
+                int worker = i == 2 && pipeline.getWorkers() > 1 ? 1 : 0;
+                targets.add( pipeline.addTarget( worker, collector( received, worker == 1 ? secondWorker : firstWorker ), Map.of( 1L, 0 ) ) );
+            }
+
+            AtomicBoolean closed = new AtomicBoolean();
+            pipeline.run( "test", source( 1000, closed ), row -> targets.get( row.get( 0 ).asNumber().intValue() % 3 ) );
+
+            assertTrue( closed.get() );
+            for ( int i = 0; i < 3; i++ ) {
+                List<Integer> received = values.get( i );
+                for ( int j = 0; j < received.size(); j++ ) {
+                    assertEquals( i + j * 3, received.get( j ) );
+                }
+                assertEquals( (1000 - i + 2) / 3, received.size() );
+            }
+        }
+    }
+
+
+    @Test
+    public void testTargetsAreWrittenConcurrently() {
+        DataMigrationPipeline pipeline = new DataMigrationPipeline( 5, 4, 1 );
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        // The first batch of every target is only written once all workers are writing their first batch
+        CountDownLatch started = new CountDownLatch( 4 );
+        List<AtomicInteger> written = new ArrayList<>();
+        List<Target> targets = new ArrayList<>();
+        for ( int worker = 0; worker < 4; worker++ ) {
+            AtomicInteger rows = new AtomicInteger();
+            written.add( rows );
+            targets.add( pipeline.addTarget( worker, ( columns, size ) -> {
+                maxActive.accumulateAndGet( active.incrementAndGet(), Math::max );
+                try {
+                    if ( rows.get() == 0 ) {
+                        started.countDown();
+                        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+                    }
+                    rows.addAndGet( size );
+                } catch ( InterruptedException e ) {
+                    throw new RuntimeException( e );
+                } finally {
+                    active.decrementAndGet();
+                }
+                return size;
+            }, Map.of( 1L, 0 ) ) );
+        }
+
+        pipeline.run( "test", source( 1000, new AtomicBoolean() ), row -> targets.get( row.get( 0 ).asNumber().intValue() % 4 ) );
+
+        assertEquals( 4, maxActive.get() );
+        for ( AtomicInteger rows : written ) {
+            assertEquals( 250, rows.get() );
+        }
+    }
+
+
+    @Test
+    public void testErrorPropagation() {
+        for ( int parallelism : new int[]{ 1, 4 } ) {
+            DataMigrationPipeline pipeline = new DataMigrationPipeline( 5, parallelism, 1 );
+            IllegalStateException error = new IllegalStateException( "write failed" );
+            AtomicInteger batches = new AtomicInteger();
+            Target target = pipeline.addTarget( 0, ( columns, size ) -> {
+                if ( batches.incrementAndGet() == 3 ) {
+                    throw error;
+                }
+                return size;
+            }, Map.of( 1L, 0 ) );
+
+            AtomicBoolean closed = new AtomicBoolean();
+            GenericRuntimeException e = assertThrows(
+                    GenericRuntimeException.class,
+                    () -> pipeline.run( "test", source( 1000, closed ), row -> target ) );
+            assertSame( error, e.getCause() );
+            assertTrue( closed.get() );
+            // The source is not read to the end after a failure
+            assertTrue( batches.get() < 200 );
+        }
+    }
+
+
+    @Test
+    public void testCounterForMaterializedViews() {
+        DataMigrationPipeline pipeline = new DataMigrationPipeline( 4, 1, 1 );
+        List<Integer> ids = new ArrayList<>();
+        List<Integer> counters = new ArrayList<>();
+        // The second column is beyond the end of the source rows and is filled with a running counter
+        Target target = pipeline.addTarget( 0, ( columns, size ) -> {
+            columns.get( 1L ).forEach( v -> ids.add( v.asNumber().intValue() ) );
+            columns.get( 2L ).forEach( v -> counters.add( v.asNumber().intValue() ) );
+            return size;
+        }, Map.of( 1L, 0, 2L, 1 ) );
+
+        pipeline.run( "test", source( 10, new AtomicBoolean() ), row -> target );
+
+        assertEquals( 10, ids.size() );
+        for ( int i = 0; i < 10; i++ ) {
+            assertEquals( i, ids.get( i ) );
+            assertEquals( i, counters.get( i ) );
+        }
+    }
+
+
+    /**
+     * Returns rows with a single integer column counting up from zero and records whether it was closed.
+     */
+    private static final class CloseableIterator implements Iterator<PolyValue[]>, AutoCloseable {
+
+        private final int rows;
+        private final AtomicBoolean closed;
+        private int next = 0;
+
+
+        private CloseableIterator( int rows, AtomicBoolean closed ) {
+            this.rows = rows;
+            this.closed = closed;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return next < rows;
+        }
+
+
+        @Override
+        public PolyValue[] next() {
+            return new PolyValue[]{ PolyInteger.of( next++ ) };
+        }
+
+
+        @Override
+        public void close() {
+            closed.set( true );
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the selection of the proposed plans, which are optimized by
+ * {@link AbstractQueryProcessor#optimizeCheapest}.
+ */
+public class OptimizeCheapestTest {
+
+    /**
+     * A proposed plan. The costs are those of its optimized physical plan, the computed costs those remembered from a
+     * previous optimization.
+     */
+    private static class TestPlan {
+
+        final String name;
+        final double cost;
+        final Double computedCost;
+        final boolean optimized;
+
+
+        TestPlan( String name, double cost, Double computedCost, boolean optimized ) {
+            this.name = name;
+            this.cost = cost;
+            this.computedCost = computedCost;
+            this.optimized = optimized;
+        }
+
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+
+    private final List<TestPlan> optimizations = new ArrayList<>();
+
+
+    private Set<TestPlan> optimizeCheapest( List<TestPlan> plans, boolean prune ) {
+        return AbstractQueryProcessor.optimizeCheapest(
+                plans,
+                prune,
+                0,
+                plan -> plan.optimized,
+                plan -> plan.computedCost,
+                plan -> {
+                    if ( !plan.optimized ) {
+                        optimizations.add( plan );
+                    }
+                    return plan.cost;
+                } );
+    }
+
+
+    /**
+     * The scan of the pushdown plan reads ten times the tuples of the other scan, but the filter is pushed down to its
+     * store, which makes it the cheaper plan. It must not be dropped, as its costs have not been computed yet.
+     */
+    @Test
+    public void testPushdownMakesPlanCheaper() {
+        final TestPlan pushdown = new TestPlan( "pushdown", 10, null, false );
+        final TestPlan scan = new TestPlan( "scan", 100, null, false );
+
+        final Set<TestPlan> optimized = optimizeCheapest( List.of( scan, pushdown ), true );
+        assertEquals( Set.of( scan, pushdown ), optimized );
+        assertEquals( List.of( scan, pushdown ), optimizations );
+    }
+
+
+    @Test
+    public void testPlansArePrunedOnComputedCosts() {
+        final TestPlan pushdown = new TestPlan( "pushdown", 10, 10.0, false );
+        final TestPlan scan = new TestPlan( "scan", 100, 100.0, false );
+
+        // The cheaper plan is optimized first, the other one is dropped, as its costs computed before are higher
+        final Set<TestPlan> optimized = optimizeCheapest( List.of( scan, pushdown ), true );
+        assertEquals( Set.of( pushdown ), optimized );
+        assertEquals( List.of( pushdown ), optimizations );
+    }
+
+
+    @Test
+    public void testCachedPlansAreNeverDropped() {
+        final TestPlan pushdown = new TestPlan( "pushdown", 10, 10.0, false );
+        final TestPlan cached = new TestPlan( "cached", 100, null, true );
+
+        final Set<TestPlan> optimized = optimizeCheapest( List.of( cached, pushdown ), true );
+        assertEquals( Set.of( cached, pushdown ), optimized );
+        assertEquals( List.of( pushdown ), optimizations );
+    }
+
+
+    @Test
+    public void testNoPruningWithoutCostBasedSelection() {
+        final TestPlan pushdown = new TestPlan( "pushdown", 10, 10.0, false );
+        final TestPlan scan = new TestPlan( "scan", 100, 100.0, false );
+
+        final Set<TestPlan> optimized = optimizeCheapest( List.of( scan, pushdown ), false );
+        assertEquals( Set.of( scan, pushdown ), optimized );
+        assertEquals( List.of( scan, pushdown ), optimizations );
+    }
+
+}
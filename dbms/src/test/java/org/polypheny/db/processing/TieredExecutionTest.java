@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.algebra.enumerable.EnumerableInterpretable;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.processing.caching.ImplementationCache;
+
+
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Tag("adapter")
+public class TieredExecutionTest {
+
+    // Filters and sorts of values are interpreted, other than those of scans, which may be pushed down to the adapter
+    private static final String QUERY = "SELECT id, name FROM (VALUES (1, 'a'), (2, 'b'), (3, 'c')) AS t(id, name) WHERE id > 1 ORDER BY id";
+
+    private static final List<Object[]> EXPECTED = ImmutableList.of(
+            new Object[]{ 2, "b" },
+            new Object[]{ 3, "c" } );
+
+    private static boolean tieredExecution;
+    private static int threshold;
+
+
+    @BeforeAll
+    public static void start() throws SQLException {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE tieredtest( id INTEGER NOT NULL, name VARCHAR(10), PRIMARY KEY (id) )" );
+                statement.executeUpdate( "INSERT INTO tieredtest VALUES (1, 'a'), (2, 'b'), (3, 'c')" );
+            }
+        }
+        tieredExecution = RuntimeConfig.TIERED_EXECUTION.getBoolean();
+        threshold = RuntimeConfig.TIERED_EXECUTION_THRESHOLD.getInteger();
+        RuntimeConfig.TIERED_EXECUTION.setBoolean( true );
+        RuntimeConfig.TIERED_EXECUTION_THRESHOLD.setInteger( 2 );
+    }
+
+
+    @AfterAll
+    public static void stop() throws SQLException {
+        RuntimeConfig.TIERED_EXECUTION.setBoolean( tieredExecution );
+        RuntimeConfig.TIERED_EXECUTION_THRESHOLD.setInteger( threshold );
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "DROP TABLE tieredtest" );
+            }
+        }
+    }
+
+
+    /**
+     * The first execution of an interpretable query does not compile any code with Janino.
+     */
+    @Test
+    public void testFirstExecutionIsNotCompiled() throws SQLException {
+        ImplementationCache.INSTANCE.reset();
+        TieredExecution.INSTANCE.reset();
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                final long compilations = EnumerableInterpretable.getCompilations();
+                TestHelper.checkResultSet( statement.executeQuery( QUERY ), EXPECTED );
+                assertEquals( compilations, EnumerableInterpretable.getCompilations() );
+            }
+        }
+    }
+
+
+    /**
+     * Plans with scans of adapters are compiled on their first execution and never interpreted.
+     */
+    @Test
+    public void testPlansWithScansAreNotTiered() throws SQLException, InterruptedException {
+        ImplementationCache.INSTANCE.reset();
+        TieredExecution.INSTANCE.reset();
+        final long compilations = TieredExecution.INSTANCE.getCompilations();
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                final long before = EnumerableInterpretable.getCompilations();
+                TestHelper.checkResultSet( statement.executeQuery( "SELECT id, name FROM tieredtest WHERE id > 1 ORDER BY id" ), EXPECTED );
+                assertTrue( EnumerableInterpretable.getCompilations() > before );
+
+                final long after = EnumerableInterpretable.getCompilations();
+                for ( int i = 0; i < 5; i++ ) {
+                    TestHelper.checkResultSet( statement.executeQuery( "SELECT id, name FROM tieredtest WHERE id > 1 ORDER BY id" ), EXPECTED );
+                }
+                // Later executions use the cached implementation, no compilation happens in the background
+                assertEquals( after, EnumerableInterpretable.getCompilations() );
+                Thread.sleep( 500 );
+                assertEquals( compilations, TieredExecution.INSTANCE.getCompilations() );
+            }
+        }
+    }
+
+
+    /**
+     * Every execution runs in its own statement and transaction, which are closed when the query is compiled in the
+     * background.
+     */
+    @Test
+    public void testBackgroundCompilationAfterStatementClosed() throws SQLException, InterruptedException {
+        ImplementationCache.INSTANCE.reset();
+        TieredExecution.INSTANCE.reset();
+        long compilations = TieredExecution.INSTANCE.getCompilations();
+        long failedCompilations = TieredExecution.INSTANCE.getFailedCompilations();
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            for ( int i = 0; i < 5; i++ ) {
+                try ( Statement statement = connection.createStatement() ) {
+                    TestHelper.checkResultSet( statement.executeQuery( QUERY ), EXPECTED );
+                }
+            }
+
+            for ( int i = 0; i < 100 && TieredExecution.INSTANCE.getCompilations() + TieredExecution.INSTANCE.getFailedCompilations() == compilations + failedCompilations; i++ ) {
+                Thread.sleep( 100 );
+            }
+            assertEquals( compilations + 1, TieredExecution.INSTANCE.getCompilations() );
+            assertEquals( failedCompilations, TieredExecution.INSTANCE.getFailedCompilations() );
+
+            try ( Statement statement = connection.createStatement() ) {
+                TestHelper.checkResultSet( statement.executeQuery( QUERY ), EXPECTED );
+            }
+        }
+    }
+
+}
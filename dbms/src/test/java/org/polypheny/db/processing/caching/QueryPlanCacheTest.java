@@ -0,0 +1,240 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing.caching;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.algebra.AlgFingerprint;
+import org.polypheny.db.algebra.AlgNode;
+import org.polypheny.db.algebra.core.JoinAlgType;
+import org.polypheny.db.algebra.core.common.ConditionalExecute.Condition;
+import org.polypheny.db.algebra.logical.common.LogicalConditionalExecute;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.tools.AlgBuilder;
+import org.polypheny.db.transaction.Transaction;
+import org.polypheny.db.transaction.TransactionException;
+import org.polypheny.db.util.Benchmark;
+
+
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Tag("adapter")
+public class QueryPlanCacheTest {
+
+    private Transaction transaction;
+
+
+    @BeforeAll
+    public static void start() throws SQLException {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE fingerprinttest( id INTEGER NOT NULL, name VARCHAR(20), PRIMARY KEY (id) )" );
+            }
+        }
+    }
+
+
+    @AfterAll
+    public static void stop() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "DROP TABLE fingerprinttest" );
+            }
+        }
+    }
+
+
+    @BeforeEach
+    public void startTransaction() {
+        transaction = TestHelper.getInstance().getTransaction();
+    }
+
+
+    @AfterEach
+    public void rollbackTransaction() throws TransactionException {
+        transaction.rollback();
+    }
+
+
+    private AlgNode filter( int id ) {
+        AlgBuilder builder = AlgBuilder.create( transaction.createStatement() );
+        return builder.relScan( "public", "fingerprinttest" )
+                .filter( builder.equals( builder.field( "id" ), builder.literal( id ) ) )
+                .project( builder.field( "name" ) )
+                .build();
+    }
+
+
+    private AlgNode joinTree( int depth ) {
+        AlgBuilder builder = AlgBuilder.create( transaction.createStatement() );
+        builder.relScan( "public", "fingerprinttest" );
+        for ( int i = 0; i < depth; i++ ) {
+            builder.relScan( "public", "fingerprinttest" )
+                    .join( JoinAlgType.INNER, builder.equals( builder.field( 2, 0, "id" ), builder.field( 2, 1, "id" ) ) );
+        }
+        return builder.build();
+    }
+
+
+    private AlgNode check( Class<? extends Exception> exceptionClass, String exceptionMessage ) {
+        AlgBuilder builder = AlgBuilder.create( transaction.createStatement() );
+        AlgNode left = builder.relScan( "public", "fingerprinttest" ).build();
+        AlgNode right = builder.relScan( "public", "fingerprinttest" ).build();
+        return LogicalConditionalExecute.create( left, right, Condition.EQUAL_TO_ZERO, exceptionClass, exceptionMessage );
+    }
+
+
+    @Test
+    public void testFingerprintOfEqualTrees() {
+        AlgNode a = filter( 1 );
+        AlgNode b = filter( 1 );
+
+        assertNotSame( a, b );
+        assertEquals( a.getFingerprint(), b.getFingerprint() );
+        assertNotEquals( a.getFingerprint(), filter( 2 ).getFingerprint() );
+    }
+
+
+    @Test
+    public void testFingerprintIsComputedOnce() {
+        AlgNode plan = joinTree( 10 );
+        AlgFingerprint fingerprint = plan.getFingerprint();
+
+        assertSame( fingerprint, plan.getFingerprint() );
+        assertEquals( fingerprint, joinTree( 10 ).getFingerprint() );
+        assertNotEquals( fingerprint, joinTree( 9 ).getFingerprint() );
+    }
+
+
+    @Test
+    public void testFingerprintIsResetOnReplacedInput() {
+        AlgNode plan = filter( 1 );
+        AlgFingerprint fingerprint = plan.getFingerprint();
+
+        plan.replaceInput( 0, filter( 2 ).getInput( 0 ) );
+        assertNotEquals( fingerprint, plan.getFingerprint() );
+        assertEquals( filter( 2 ).getFingerprint(), plan.getFingerprint() );
+    }
+
+
+    /**
+     * Compares the cost of cache keys of deep join trees: repeated lookups of the same tree, and the first lookup of
+     * equal trees, as every execution of a query creates a new parameterized tree. Only a few lookups are done, unless
+     * benchmarks are {@link Benchmark#enabled() enabled}.
+     */
+    @Test
+    public void fingerprintLookupBenchmark() {
+        final int lookups = Benchmark.enabled() ? 100_000 : 10;
+        final int trees = Benchmark.enabled() ? 1_000 : 10;
+        final AlgNode plan = joinTree( 30 );
+        QueryPlanCache.INSTANCE.reset();
+        QueryPlanCache.INSTANCE.put( plan, plan );
+
+        new Benchmark( "Fingerprint lookups of the same join tree", statistician -> {
+            final long start = System.nanoTime();
+            for ( int i = 0; i < lookups; i++ ) {
+                assertSame( plan, QueryPlanCache.INSTANCE.getIfPresent( plan ) );
+            }
+            statistician.record( start );
+            return null;
+        }, 10 ).run();
+        new Benchmark( "Compare strings of the same join tree", statistician -> {
+            final long start = System.nanoTime();
+            for ( int i = 0; i < lookups; i++ ) {
+                plan.algCompareString();
+            }
+            statistician.record( start );
+            return null;
+        }, 10 ).run();
+
+        new Benchmark( "Fingerprint lookups of new join trees", statistician -> {
+            final List<AlgNode> plans = new ArrayList<>( trees );
+            for ( int i = 0; i < trees; i++ ) {
+                plans.add( joinTree( 30 ) );
+            }
+            final long start = System.nanoTime();
+            for ( AlgNode other : plans ) {
+                assertSame( plan, QueryPlanCache.INSTANCE.getIfPresent( other ) );
+            }
+            statistician.record( start );
+            return null;
+        }, 5 ).run();
+        new Benchmark( "Compare strings of new join trees", statistician -> {
+            final List<AlgNode> plans = new ArrayList<>( trees );
+            for ( int i = 0; i < trees; i++ ) {
+                plans.add( joinTree( 30 ) );
+            }
+            final long start = System.nanoTime();
+            for ( AlgNode other : plans ) {
+                other.algCompareString();
+            }
+            statistician.record( start );
+            return null;
+        }, 5 ).run();
+        QueryPlanCache.INSTANCE.reset();
+    }
+
+
+    @Test
+    public void testFingerprintOfConditionalExecute() {
+        AlgNode a = check( GenericRuntimeException.class, "Insert violates unique constraint" );
+
+        assertEquals( a.getFingerprint(), check( GenericRuntimeException.class, "Insert violates unique constraint" ).getFingerprint() );
+        assertNotEquals( a.getFingerprint(), check( IllegalStateException.class, "Insert violates unique constraint" ).getFingerprint() );
+        assertNotEquals( a.getFingerprint(), check( GenericRuntimeException.class, "Update violates unique constraint" ).getFingerprint() );
+    }
+
+
+    @Test
+    public void testCacheHitAndMiss() {
+        QueryPlanCache.INSTANCE.reset();
+        AlgNode plan = filter( 1 );
+        assertNull( QueryPlanCache.INSTANCE.getIfPresent( plan ) );
+
+        QueryPlanCache.INSTANCE.put( plan, plan );
+        assertSame( plan, QueryPlanCache.INSTANCE.getIfPresent( filter( 1 ) ) );
+        assertNull( QueryPlanCache.INSTANCE.getIfPresent( filter( 2 ) ) );
+
+        AlgNode check = check( GenericRuntimeException.class, "Insert violates unique constraint" );
+        QueryPlanCache.INSTANCE.put( check, check );
+        assertSame( check, QueryPlanCache.INSTANCE.getIfPresent( check( GenericRuntimeException.class, "Insert violates unique constraint" ) ) );
+        assertNull( QueryPlanCache.INSTANCE.getIfPresent( check( IllegalStateException.class, "Insert violates unique constraint" ) ) );
+        QueryPlanCache.INSTANCE.reset();
+    }
+
+}
@@ -17,6 +17,7 @@
 package org.polypheny.db.restapi;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.google.common.collect.ImmutableList;
 import com.google.gson.JsonArray;
@@ -26,8 +27,10 @@
 import com.google.gson.JsonPrimitive;
 import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -47,6 +50,8 @@
 import org.junit.jupiter.api.Test;
 import org.polypheny.db.TestHelper;
 import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.util.Benchmark;
 
 @SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
 @Slf4j
@@ -241,6 +246,107 @@ public void testOperations() {
     }
 
 
+    @Test
+    public void testStreamedResult() throws SQLException {
+        final int rows = 25;
+        final int batchSize = RuntimeConfig.RESULT_STREAMING_BATCH_SIZE.getInteger();
+        RuntimeConfig.RESULT_STREAMING_BATCH_SIZE.setInteger( 7 );
+        try {
+            createStreamTable( rows );
+
+            // JSON
+            HttpRequest<?> request = Unirest.get( "{protocol}://{host}:{port}/restapi/v1/res/restschema.streamtest" )
+                    .queryString( "_sort", "restschema.streamtest.id" );
+            JsonObject result = JsonParser.parseString( executeRest( request ).getBody() ).getAsJsonObject();
+            assertEquals( rows, result.get( "size" ).getAsInt() );
+            JsonArray array = result.getAsJsonArray( "result" );
+            assertEquals( rows, array.size() );
+            for ( int i = 0; i < rows; i++ ) {
+                JsonObject row = array.get( i ).getAsJsonObject();
+                assertEquals( i, row.get( "restschema.streamtest.id" ).getAsInt() );
+                // Null values are omitted
+                assertEquals( i % 5 != 0, row.has( "restschema.streamtest.name" ) );
+            }
+
+            // NDJSON
+            request = Unirest.get( "{protocol}://{host}:{port}/restapi/v1/res/restschema.streamtest" )
+                    .queryString( "_sort", "restschema.streamtest.id" )
+                    .queryString( "_format", "ndjson" );
+            HttpResponse<String> response = executeRest( request );
+            assertTrue( response.getHeaders().getFirst( "Content-Type" ).startsWith( "application/x-ndjson" ) );
+            String[] lines = response.getBody().split( "\n" );
+            assertEquals( rows, lines.length );
+            for ( int i = 0; i < rows; i++ ) {
+                JsonObject row = JsonParser.parseString( lines[i] ).getAsJsonObject();
+                assertEquals( i, row.get( "restschema.streamtest.id" ).getAsInt() );
+                if ( i % 5 != 0 ) {
+                    assertEquals( "Name " + i, row.get( "restschema.streamtest.name" ).getAsString() );
+                }
+            }
+        } finally {
+            RuntimeConfig.RESULT_STREAMING_BATCH_SIZE.setInteger( batchSize );
+            dropStreamTable();
+        }
+    }
+
+
+    /**
+     * Exports a table over the REST interface as JSON and as NDJSON. Only a few rows are exported, unless benchmarks
+     * are {@link Benchmark#enabled() enabled}.
+     */
+    @Test
+    public void streamedResultBenchmark() throws SQLException {
+        final int rows = Benchmark.enabled() ? 500_000 : 100;
+        try {
+            createStreamTable( rows );
+            for ( String format : new String[]{ "json", "ndjson" } ) {
+                new Benchmark( "REST export of " + rows + " rows as " + format, statistician -> {
+                    HttpRequest<?> request = Unirest.get( "{protocol}://{host}:{port}/restapi/v1/res/restschema.streamtest" )
+                            .queryString( "_format", format );
+                    final long start = System.nanoTime();
+                    executeRest( request );
+                    statistician.record( start );
+                    return null;
+                }, 3 ).run();
+            }
+        } finally {
+            dropStreamTable();
+        }
+    }
+
+
+    private static void createStreamTable( int rows ) throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( false ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE restschema.streamtest( id INTEGER NOT NULL, name VARCHAR(20) NULL, PRIMARY KEY (id) )" );
+                PreparedStatement preparedInsert = connection.prepareStatement( "INSERT INTO restschema.streamtest(id, name) VALUES (?, ?)" );
+                for ( int i = 0; i < rows; i++ ) {
+                    preparedInsert.setInt( 1, i );
+                    if ( i % 5 == 0 ) {
+                        preparedInsert.setNull( 2, Types.VARCHAR );
+                    } else {
+                        preparedInsert.setString( 2, "Name " + i );
+                    }
+                    preparedInsert.addBatch();
+                }
+                preparedInsert.executeBatch();
+                connection.commit();
+            }
+        }
+    }
+
+
+    private static void dropStreamTable() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "DROP TABLE restschema.streamtest" );
+            }
+        }
+    }
+
+
     private JsonObject getTestRow() {
         return getTestRow( 0 );
     }
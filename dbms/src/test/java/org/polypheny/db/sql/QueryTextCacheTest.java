@@ -0,0 +1,225 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.sql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.languages.QueryTextCache;
+import org.polypheny.db.util.Benchmark;
+
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Tag("adapter")
+public class QueryTextCacheTest {
+
+    private static final int ITEMS = 100;
+    private static final int CUSTOMERS = 50;
+
+
+    @BeforeAll
+    public static void start() throws SQLException {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        addTestData();
+    }
+
+
+    private static void addTestData() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( false ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE qtc_stock( s_i_id INTEGER NOT NULL, s_w_id INTEGER NOT NULL, s_quantity INTEGER NOT NULL, s_data VARCHAR(50), PRIMARY KEY (s_i_id, s_w_id))" );
+                statement.executeUpdate( "CREATE TABLE qtc_customer( c_id INTEGER NOT NULL, c_last VARCHAR(16) NOT NULL, c_balance DECIMAL(12,2) NOT NULL, c_payment_cnt INTEGER NOT NULL, PRIMARY KEY (c_id))" );
+                statement.executeUpdate( "CREATE TABLE qtc_order_line( ol_o_id INTEGER NOT NULL, ol_i_id INTEGER NOT NULL, ol_quantity INTEGER NOT NULL, ol_info VARCHAR(24), PRIMARY KEY (ol_o_id, ol_i_id))" );
+                for ( int i = 0; i < ITEMS; i++ ) {
+                    statement.executeUpdate( "INSERT INTO qtc_stock VALUES (" + i + ", 1, " + (i % 10) + ", 'item " + i + "')" );
+                }
+                for ( int i = 0; i < CUSTOMERS; i++ ) {
+                    statement.executeUpdate( "INSERT INTO qtc_customer VALUES (" + i + ", 'customer " + i + "', 0.00, 0)" );
+                }
+                connection.commit();
+            }
+        }
+    }
+
+
+    @AfterAll
+    public static void stop() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "DROP TABLE qtc_stock" );
+                statement.executeUpdate( "DROP TABLE qtc_customer" );
+                statement.executeUpdate( "DROP TABLE qtc_order_line" );
+            }
+        }
+    }
+
+
+    @Test
+    public void testLiteralsOfCachedPlan() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                QueryTextCache.INSTANCE.reset();
+                for ( int i = 0; i < 10; i++ ) {
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT s_quantity, s_data FROM qtc_stock WHERE s_i_id = " + i + " AND s_w_id = 1" ),
+                            ImmutableList.of( new Object[]{ i % 10, "item " + i } ) );
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT s_i_id FROM qtc_stock WHERE s_data = 'item " + i + "'" ),
+                            ImmutableList.of( new Object[]{ i } ) );
+                }
+                assertEquals( 2, QueryTextCache.INSTANCE.getSize() );
+            }
+        }
+    }
+
+
+    @Test
+    public void testUnrepresentableLiterals() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                // Fractional and out of range literals for an integer column are compared without being bound
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT s_i_id FROM qtc_stock WHERE s_i_id = 3.0" ),
+                        ImmutableList.of( new Object[]{ 3 } ) );
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT s_i_id FROM qtc_stock WHERE s_i_id = 3.5" ),
+                        ImmutableList.of() );
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT s_i_id FROM qtc_stock WHERE s_i_id = 3000000000" ),
+                        ImmutableList.of() );
+                // Strings longer than the column
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT c_id FROM qtc_customer WHERE c_last = 'a name longer than sixteen characters'" ),
+                        ImmutableList.of() );
+            }
+        }
+    }
+
+
+    @Test
+    public void testInsertAndUpdate() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                for ( int i = 0; i < 5; i++ ) {
+                    statement.executeUpdate( "INSERT INTO qtc_order_line (ol_o_id, ol_i_id, ol_quantity, ol_info) VALUES (-1, " + i + ", " + (i + 1) + ", 'info " + i + "')" );
+                    statement.executeUpdate( "UPDATE qtc_order_line SET ol_quantity = " + (i * 10) + " WHERE ol_o_id = -1 AND ol_i_id = " + i );
+                }
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT ol_i_id, ol_quantity, ol_info FROM qtc_order_line WHERE ol_o_id = -1 ORDER BY ol_i_id" ),
+                        ImmutableList.of(
+                                new Object[]{ 0, 0, "info 0" },
+                                new Object[]{ 1, 10, "info 1" },
+                                new Object[]{ 2, 20, "info 2" },
+                                new Object[]{ 3, 30, "info 3" },
+                                new Object[]{ 4, 40, "info 4" } ) );
+                statement.executeUpdate( "DELETE FROM qtc_order_line WHERE ol_o_id = -1" );
+            }
+        }
+    }
+
+
+    /**
+     * Runs a mix of statements modeled after the transactions of TPC-C with and without the query text cache. Only a
+     * few iterations are run, unless benchmarks are {@link Benchmark#enabled() enabled}.
+     */
+    @Test
+    public void testStatementMixBenchmark() throws SQLException {
+        final int transactions = Benchmark.enabled() ? 500 : 5;
+        final boolean caching = RuntimeConfig.QUERY_TEXT_CACHING.getBoolean();
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                final int[] orderId = { 0 };
+                for ( boolean enabled : new boolean[]{ false, true } ) {
+                    RuntimeConfig.QUERY_TEXT_CACHING.setBoolean( enabled );
+                    new Benchmark( "TPC-C-like statement mix, query text cache " + (enabled ? "enabled" : "disabled"), statistician -> {
+                        final Random random = new Random( 0 );
+                        final long start = System.nanoTime();
+                        try {
+                            for ( int i = 0; i < transactions; i++ ) {
+                                runTransaction( statement, random, orderId[0]++ );
+                            }
+                        } catch ( SQLException e ) {
+                            throw new RuntimeException( e );
+                        }
+                        statistician.record( start );
+                        return null;
+                    }, 5 ).run();
+                }
+                statement.executeUpdate( "DELETE FROM qtc_order_line" );
+            }
+        } finally {
+            RuntimeConfig.QUERY_TEXT_CACHING.setBoolean( caching );
+        }
+    }
+
+
+    private static void runTransaction( Statement statement, Random random, int orderId ) throws SQLException {
+        final int customer = random.nextInt( CUSTOMERS );
+        switch ( random.nextInt( 4 ) ) {
+            case 0 -> {
+                // New-Order
+                final int item = random.nextInt( ITEMS );
+                final int quantity;
+                try ( ResultSet rs = statement.executeQuery( "SELECT s_quantity, s_data FROM qtc_stock WHERE s_i_id = " + item + " AND s_w_id = 1" ) ) {
+                    assertTrue( rs.next() );
+                    quantity = rs.getInt( 1 );
+                }
+                statement.executeUpdate( "UPDATE qtc_stock SET s_quantity = " + (quantity >= 5 ? quantity - 1 : quantity + 91) + " WHERE s_i_id = " + item + " AND s_w_id = 1" );
+                statement.executeUpdate( "INSERT INTO qtc_order_line (ol_o_id, ol_i_id, ol_quantity, ol_info) VALUES (" + orderId + ", " + item + ", " + (random.nextInt( 10 ) + 1) + ", 'dist " + customer + "')" );
+            }
+            case 1 -> {
+                // Payment
+                final BigDecimal amount = BigDecimal.valueOf( random.nextInt( 500_000 ), 2 );
+                statement.executeUpdate( "UPDATE qtc_customer SET c_payment_cnt = c_payment_cnt + 1, c_balance = " + amount.toPlainString() + " WHERE c_id = " + customer );
+            }
+            case 2 -> {
+                // Order-Status
+                try ( ResultSet rs = statement.executeQuery( "SELECT c_balance, c_last FROM qtc_customer WHERE c_id = " + customer ) ) {
+                    assertTrue( rs.next() );
+                }
+            }
+            default -> {
+                // Stock-Level
+                try ( ResultSet rs = statement.executeQuery( "SELECT COUNT(*) FROM qtc_stock WHERE s_w_id = 1 AND s_quantity < " + (random.nextInt( 10 ) + 10) ) ) {
+                    assertTrue( rs.next() );
+                }
+            }
+        }
+    }
+
+}
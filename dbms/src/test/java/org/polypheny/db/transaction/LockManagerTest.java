@@ -0,0 +1,336 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.transaction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.transaction.EntityAccessMap.EntityIdentifier;
+import org.polypheny.db.transaction.EntityAccessMap.EntityIdentifier.NamespaceLevel;
+import org.polypheny.db.transaction.Lock.LockMode;
+import org.polypheny.db.transaction.PUID.Type;
+import org.polypheny.db.util.DeadlockException;
+import org.polypheny.db.util.Pair;
+
+
+@Slf4j
+public class LockManagerTest {
+
+    private static final AtomicLong ENTITY_IDS = new AtomicLong( 1_000_000 );
+
+
+    private static TransactionImpl transaction() {
+        PolyXid xid = PolyXid.generateLocalTransactionIdentifier( PUID.EMPTY_PUID, PUID.randomPUID( Type.TRANSACTION ) );
+        return new TransactionImpl( xid, null, null, null, false, "LockManagerTest", null );
+    }
+
+
+    private static EntityIdentifier entity() {
+        return new EntityIdentifier( ENTITY_IDS.getAndIncrement(), 0, NamespaceLevel.ENTITY_LEVEL );
+    }
+
+
+    @Test
+    public void reentrantAcquisition() throws DeadlockException {
+        LockManager manager = LockManager.INSTANCE;
+        EntityIdentifier id = entity();
+        TransactionImpl transaction = transaction();
+
+        manager.lock( List.of( Pair.of( id, LockMode.SHARED ) ), transaction );
+        manager.lock( List.of( Pair.of( id, LockMode.SHARED ) ), transaction );
+        assertEquals( LockMode.SHARED, manager.getLockMode( id ) );
+
+        manager.lock( List.of( Pair.of( id, LockMode.EXCLUSIVE ) ), transaction );
+        manager.lock( List.of( Pair.of( id, LockMode.SHARED ) ), transaction );
+        assertEquals( LockMode.EXCLUSIVE, manager.getLockMode( id ) );
+        assertEquals( 1, transaction.getLocks().size() );
+        assertTrue( manager.hasLock( transaction, id ) );
+
+        manager.removeTransaction( transaction );
+        assertNull( manager.getLockMode( id ) );
+        assertTrue( transaction.getLocks().isEmpty() );
+    }
+
+
+    @Test
+    public void sharedLocksAreCompatible() throws DeadlockException {
+        LockManager manager = LockManager.INSTANCE;
+        EntityIdentifier id = entity();
+        TransactionImpl first = transaction();
+        TransactionImpl second = transaction();
+
+        manager.lock( List.of( Pair.of( id, LockMode.SHARED ) ), first );
+        manager.lock( List.of( Pair.of( id, LockMode.SHARED ) ), second );
+        assertEquals( 2, manager.getLocks().get( id ).getOwners().size() );
+
+        manager.unlock( List.of( id ), first );
+        assertEquals( LockMode.SHARED, manager.getLockMode( id ) );
+        manager.removeTransaction( second );
+        assertNull( manager.getLockMode( id ) );
+    }
+
+
+    @Test
+    public void partitionWritersDoNotConflict() throws DeadlockException {
+        LockManager manager = LockManager.INSTANCE;
+        long table = ENTITY_IDS.getAndIncrement();
+        TransactionImpl first = transaction();
+        TransactionImpl second = transaction();
+
+        manager.lock( EntityAccessMap.getPartitionLocks( table, List.of( 1L ), LockMode.EXCLUSIVE ), first );
+        manager.lock( EntityAccessMap.getPartitionLocks( table, List.of( 2L ), LockMode.EXCLUSIVE ), second );
+        assertEquals( LockMode.INTENTION_EXCLUSIVE, manager.getLockMode( EntityIdentifier.ofEntity( table ) ) );
+        assertEquals( LockMode.EXCLUSIVE, manager.getLockMode( EntityIdentifier.ofPartition( table, 1L ) ) );
+        assertEquals( LockMode.EXCLUSIVE, manager.getLockMode( EntityIdentifier.ofPartition( table, 2L ) ) );
+
+        manager.removeTransaction( first );
+        manager.removeTransaction( second );
+        assertNull( manager.getLockMode( EntityIdentifier.ofEntity( table ) ) );
+    }
+
+
+    @Test
+    public void entityLockWaitsForPartitionWriter() throws Exception {
+        LockManager manager = LockManager.INSTANCE;
+        long table = ENTITY_IDS.getAndIncrement();
+        TransactionImpl writer = transaction();
+        TransactionImpl reader = transaction();
+
+        manager.lock( EntityAccessMap.getPartitionLocks( table, List.of( 1L ), LockMode.EXCLUSIVE ), writer );
+        CompletableFuture<Void> read = CompletableFuture.runAsync( () -> {
+            try {
+                manager.lock( List.of( Pair.of( EntityIdentifier.ofEntity( table ), LockMode.SHARED ) ), reader );
+            } catch ( DeadlockException e ) {
+                throw new RuntimeException( e );
+            }
+        } );
+
+        Thread.sleep( 200 );
+        assertFalse( read.isDone() );
+
+        manager.removeTransaction( writer );
+        read.get( 10, TimeUnit.SECONDS );
+        assertEquals( LockMode.SHARED, manager.getLockMode( EntityIdentifier.ofEntity( table ) ) );
+        manager.removeTransaction( reader );
+    }
+
+
+    @Test
+    public void upgradeCombinesModes() throws DeadlockException {
+        LockManager manager = LockManager.INSTANCE;
+        EntityIdentifier id = entity();
+        TransactionImpl transaction = transaction();
+
+        manager.lock( List.of( Pair.of( id, LockMode.INTENTION_SHARED ) ), transaction );
+        manager.lock( List.of( Pair.of( id, LockMode.INTENTION_EXCLUSIVE ) ), transaction );
+        assertEquals( LockMode.INTENTION_EXCLUSIVE, manager.getLockMode( id ) );
+
+        // there is no shared intention exclusive mode
+        manager.lock( List.of( Pair.of( id, LockMode.SHARED ) ), transaction );
+        assertEquals( LockMode.EXCLUSIVE, manager.getLockMode( id ) );
+        assertEquals( 1, manager.getLocks().get( id ).getOwners().size() );
+
+        manager.removeTransaction( transaction );
+        assertNull( manager.getLockMode( id ) );
+    }
+
+
+    @Test
+    public void outdatedReaderDoesNotBlock() throws Exception {
+        LockManager manager = LockManager.INSTANCE;
+        EntityIdentifier id = entity();
+        TransactionImpl writer = transaction();
+        TransactionImpl reader = transaction();
+        reader.setAcceptsOutdated( true );
+
+        manager.lock( List.of( Pair.of( id, LockMode.EXCLUSIVE ) ), writer );
+        CompletableFuture.runAsync( () -> {
+            try {
+                manager.lock( List.of( Pair.of( LockManager.GLOBAL_LOCK, LockMode.SHARED ), Pair.of( id, LockMode.SHARED ) ), reader );
+            } catch ( DeadlockException e ) {
+                throw new RuntimeException( e );
+            }
+        } ).get( 10, TimeUnit.SECONDS );
+
+        assertTrue( manager.hasLock( reader, LockManager.GLOBAL_LOCK ) );
+        assertFalse( manager.hasLock( reader, id ) );
+        assertEquals( LockMode.EXCLUSIVE, manager.getLockMode( id ) );
+
+        manager.removeTransaction( reader );
+        manager.removeTransaction( writer );
+    }
+
+
+    /**
+     * Readers of an entity which is constantly written, once with regular locks and once accepting outdated data.
+     * Checks that readers accepting outdated data never hold the entity lock and reports the tail latency of the readers.
+     */
+    @Test
+    public void readerLatencyWithWriters() throws Exception {
+        AtomicInteger regularLocks = new AtomicInteger();
+        AtomicInteger outdatedLocks = new AtomicInteger();
+        long regular = readerLatency( false, regularLocks );
+        long outdated = readerLatency( true, outdatedLocks );
+        log.info( "p99 reader lock latency: {} us with locks, {} us accepting outdated data", regular / 1000, outdated / 1000 );
+        assertTrue( regularLocks.get() > 0 );
+        assertEquals( 0, outdatedLocks.get() );
+    }
+
+
+    private long readerLatency( boolean acceptsOutdated, AtomicInteger lockedReads ) throws Exception {
+        int readers = 8;
+        int readsPerReader = 200;
+        LockManager manager = LockManager.INSTANCE;
+        EntityIdentifier id = entity();
+
+        AtomicBoolean running = new AtomicBoolean( true );
+        Thread writer = new Thread( () -> {
+            while ( running.get() ) {
+                TransactionImpl transaction = transaction();
+                try {
+                    manager.lock( List.of( Pair.of( id, LockMode.EXCLUSIVE ) ), transaction );
+                    Thread.sleep( 1 );
+                } catch ( DeadlockException | InterruptedException e ) {
+                    Thread.interrupted();
+                } finally {
+                    manager.removeTransaction( transaction );
+                }
+            }
+        } );
+        writer.start();
+
+        long[] latencies = new long[readers * readsPerReader];
+        ExecutorService executor = Executors.newFixedThreadPool( readers );
+        for ( int r = 0; r < readers; r++ ) {
+            int offset = r * readsPerReader;
+            executor.execute( () -> {
+                for ( int i = 0; i < readsPerReader; i++ ) {
+                    TransactionImpl transaction = transaction();
+                    transaction.setAcceptsOutdated( acceptsOutdated );
+                    long start = System.nanoTime();
+                    try {
+                        manager.lock( List.of( Pair.of( id, LockMode.SHARED ) ), transaction );
+                        if ( manager.hasLock( transaction, id ) ) {
+                            lockedReads.incrementAndGet();
+                        }
+                    } catch ( DeadlockException e ) {
+                        Thread.interrupted();
+                    } finally {
+                        latencies[offset + i] = System.nanoTime() - start;
+                        manager.removeTransaction( transaction );
+                    }
+                }
+            } );
+        }
+        executor.shutdown();
+        assertTrue( executor.awaitTermination( 5, TimeUnit.MINUTES ) );
+        running.set( false );
+        writer.join();
+
+        Arrays.sort( latencies );
+        return latencies[(int) (latencies.length * 0.99)];
+    }
+
+
+    /**
+     * Many short transactions which all read a hot entity and some of which write another entity.
+     * Checks mutual exclusion of the writers and reports the throughput.
+     */
+    @Test
+    public void contention() throws InterruptedException {
+        int threads = 64;
+        int transactionsPerThread = 2_000;
+        LockManager manager = LockManager.INSTANCE;
+        EntityIdentifier hot = entity();
+        EntityIdentifier written = entity();
+
+        AtomicInteger writers = new AtomicInteger();
+        AtomicInteger violations = new AtomicInteger();
+        AtomicInteger aborts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        for ( int t = 0; t < threads; t++ ) {
+            executor.execute( () -> {
+                try {
+                    start.await();
+                } catch ( InterruptedException e ) {
+                    return;
+                }
+                for ( int i = 0; i < transactionsPerThread; i++ ) {
+                    TransactionImpl transaction = transaction();
+                    boolean write = i % 16 == 0;
+                    List<Entry<EntityIdentifier, LockMode>> accesses = new ArrayList<>();
+                    accesses.add( Pair.of( hot, LockMode.SHARED ) );
+                    if ( write ) {
+                        accesses.add( Pair.of( written, LockMode.EXCLUSIVE ) );
+                    }
+                    try {
+                        manager.lock( accesses, transaction );
+                        // re-entrant acquisition, as done by every statement of a transaction
+                        manager.lock( accesses, transaction );
+                        if ( write ) {
+                            if ( writers.incrementAndGet() != 1 ) {
+                                violations.incrementAndGet();
+                            }
+                            writers.decrementAndGet();
+                        }
+                    } catch ( DeadlockException e ) {
+                        aborts.incrementAndGet();
+                        Thread.interrupted();
+                    } finally {
+                        manager.removeTransaction( transaction );
+                    }
+                }
+            } );
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue( executor.awaitTermination( 5, TimeUnit.MINUTES ) );
+        long duration = System.nanoTime() - startTime;
+
+        log.info(
+                "{} threads executed {} transactions in {} ms ({} tx/s, {} aborted)",
+                threads,
+                threads * transactionsPerThread,
+                TimeUnit.NANOSECONDS.toMillis( duration ),
+                (long) (threads * transactionsPerThread / (duration / 1e9)),
+                aborts.get() );
+
+        assertEquals( 0, violations.get() );
+        assertNull( manager.getLockMode( hot ) );
+        assertNull( manager.getLockMode( written ) );
+    }
+
+}
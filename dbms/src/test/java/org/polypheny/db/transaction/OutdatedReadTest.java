@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.transaction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+
+
+/**
+ * Reads of connections which accept outdated data, while the read table is written. The table holds two rows whose
+ * sum every writer keeps at {@link #TOTAL}.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Tag("adapter")
+public class OutdatedReadTest {
+
+    private static final int TOTAL = 1000;
+
+    private static final String SUM = "SELECT SUM(balance) FROM outdatedtest";
+
+
+    @BeforeAll
+    public static void start() throws SQLException {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( false ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE outdatedtest( id INTEGER NOT NULL, balance INTEGER NOT NULL, PRIMARY KEY (id) )" );
+                statement.executeUpdate( "INSERT INTO outdatedtest VALUES (1, " + TOTAL / 2 + "), (2, " + TOTAL / 2 + ")" );
+                connection.commit();
+            }
+        }
+    }
+
+
+    @AfterAll
+    public static void stop() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "DROP TABLE outdatedtest" );
+            }
+        }
+    }
+
+
+    private static JdbcConnection outdatedConnection() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty( "acceptsOutdated", "true" );
+        return new JdbcConnection( true, properties );
+    }
+
+
+    private static int sum( Statement statement ) throws SQLException {
+        try ( ResultSet rs = statement.executeQuery( SUM ) ) {
+            assertTrue( rs.next() );
+            return rs.getInt( 1 );
+        }
+    }
+
+
+    @Test
+    public void readerDoesNotWaitForWriter() throws Exception {
+        try ( JdbcConnection writerConnection = new JdbcConnection( false ); JdbcConnection readerConnection = outdatedConnection() ) {
+            Connection writer = writerConnection.getConnection();
+            try ( Statement statement = writer.createStatement() ) {
+                // The writer holds the exclusive lock of the table until it is rolled back
+                statement.executeUpdate( "UPDATE outdatedtest SET balance = balance + 1 WHERE id = 1" );
+                try ( Statement reader = readerConnection.getConnection().createStatement() ) {
+                    int sum = CompletableFuture.supplyAsync( () -> {
+                        try {
+                            return sum( reader );
+                        } catch ( SQLException e ) {
+                            throw new RuntimeException( e );
+                        }
+                    } ).get( 30, TimeUnit.SECONDS );
+                    // The uncommitted change is not visible
+                    assertEquals( TOTAL, sum );
+                }
+            } finally {
+                writer.rollback();
+            }
+        }
+    }
+
+
+    @Test
+    public void readersNeverSeePartialUpdates() throws Exception {
+        int readers = 4;
+        AtomicBoolean running = new AtomicBoolean( true );
+        ExecutorService executor = Executors.newFixedThreadPool( readers );
+        List<Future<Integer>> reads = new ArrayList<>();
+        for ( int r = 0; r < readers; r++ ) {
+            reads.add( executor.submit( () -> {
+                int count = 0;
+                try ( JdbcConnection readerConnection = outdatedConnection(); Statement reader = readerConnection.getConnection().createStatement() ) {
+                    while ( running.get() || count == 0 ) {
+                        assertEquals( TOTAL, sum( reader ) );
+                        count++;
+                    }
+                }
+                return count;
+            } ) );
+        }
+
+        try ( JdbcConnection writerConnection = new JdbcConnection( false ) ) {
+            Connection writer = writerConnection.getConnection();
+            try ( Statement statement = writer.createStatement() ) {
+                // Moves balance from one row to the other, in a transaction of two statements
+                for ( int i = 0; i < 100; i++ ) {
+                    statement.executeUpdate( "UPDATE outdatedtest SET balance = balance - 1 WHERE id = 1" );
+                    statement.executeUpdate( "UPDATE outdatedtest SET balance = balance + 1 WHERE id = 2" );
+                    writer.commit();
+                }
+            }
+        } finally {
+            running.set( false );
+        }
+
+        for ( Future<Integer> read : reads ) {
+            assertTrue( read.get( 1, TimeUnit.MINUTES ) > 0 );
+        }
+        executor.shutdown();
+    }
+
+}
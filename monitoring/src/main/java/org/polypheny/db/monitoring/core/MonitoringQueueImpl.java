@@ -19,12 +19,13 @@
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -36,24 +37,36 @@
 
 
 /**
- * MonitoringQueue implementation which stores the monitoring jobs in a concurrent queue and processes them with a
- * background worker task.
+ * MonitoringQueue implementation which stores the monitoring events in a bounded, lock-free ring buffer.
+ * A background thread drains the buffer in batches and hands the batches to a pool of workers, which analyze the
+ * events and pass the resulting data points to the repositories. If the workers are busy, the draining thread
+ * processes the batch itself, which bounds the events in memory to the capacity of the buffer and a few batches.
+ * The {@link OverloadPolicy} decides what happens to new events if the buffer is full.
  */
 @Slf4j
 public class MonitoringQueueImpl implements MonitoringQueue {
 
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos( 1 );
+
     private final PersistentMonitoringRepository persistentRepository;
     private final MonitoringRepository statisticRepository;
     private MonitoringThreadPoolExecutor threadPoolWorkers;
 
-    private final BlockingQueue<Runnable> eventQueue = new LinkedBlockingQueue<>();
+    private final MpscRingBuffer<MonitoringEvent> eventQueue;
 
     private final int CORE_POOL_SIZE;
     private final int MAXIMUM_POOL_SIZE;
     private final int KEEP_ALIVE_TIME;
+    private final int BATCH_SIZE;
+
+    private final boolean backgroundProcessingActive;
 
-    private boolean backgroundProcessingActive;
-    private int threadCount;
+    /**
+     * Events which were drained from the buffer but are not yet processed
+     */
+    private final AtomicLong inProcessing = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
 
 
     /**
@@ -70,47 +83,33 @@ public MonitoringQueueImpl(
         this.backgroundProcessingActive = backgroundProcessingActive;
 
         this.CORE_POOL_SIZE = RuntimeConfig.MONITORING_CORE_POOL_SIZE.getInteger();
-        this.MAXIMUM_POOL_SIZE = RuntimeConfig.MONITORING_MAXIMUM_POOL_SIZE.getInteger();
+        this.MAXIMUM_POOL_SIZE = Math.max( CORE_POOL_SIZE, RuntimeConfig.MONITORING_MAXIMUM_POOL_SIZE.getInteger() );
         this.KEEP_ALIVE_TIME = RuntimeConfig.MONITORING_POOL_KEEP_ALIVE_TIME.getInteger();
+        this.BATCH_SIZE = Math.max( 1, RuntimeConfig.MONITORING_QUEUE_BATCH_SIZE.getInteger() );
+        this.eventQueue = new MpscRingBuffer<>( RuntimeConfig.MONITORING_QUEUE_CAPACITY.getInteger() );
 
         if ( !this.backgroundProcessingActive ) {
-            threadPoolWorkers = new MonitoringThreadPoolExecutor(
-                    CORE_POOL_SIZE,
-                    MAXIMUM_POOL_SIZE,
-                    KEEP_ALIVE_TIME,
-                    TimeUnit.SECONDS,
-                    eventQueue );
             return;
         }
 
         RuntimeConfig.MONITORING_CORE_POOL_SIZE.setRequiresRestart( true );
         RuntimeConfig.MONITORING_MAXIMUM_POOL_SIZE.setRequiresRestart( true );
         RuntimeConfig.MONITORING_POOL_KEEP_ALIVE_TIME.setRequiresRestart( true );
+        RuntimeConfig.MONITORING_QUEUE_CAPACITY.setRequiresRestart( true );
+        RuntimeConfig.MONITORING_QUEUE_BATCH_SIZE.setRequiresRestart( true );
 
+        // At most one batch per worker waits, otherwise the draining thread processes the batch itself
         threadPoolWorkers = new MonitoringThreadPoolExecutor(
                 CORE_POOL_SIZE,
                 MAXIMUM_POOL_SIZE,
                 KEEP_ALIVE_TIME,
                 TimeUnit.SECONDS,
-                eventQueue );
-
-        // Instantiated thread count
-        this.threadCount = threadPoolWorkers.getPoolSize();
-
-        // Create a scheduled, separate thread which gets new thread count every 500 milliseconds
-        Timer timer = new Timer();
-        timer.scheduleAtFixedRate( new TimerTask() {
-            @Override
-            public synchronized void run() {
-                int newThreadCount = threadPoolWorkers.getPoolSize();
-                if ( newThreadCount != threadCount ) {
-                    threadCount = newThreadCount;
-                    if ( log.isDebugEnabled() ) {
-                        log.debug( "Thread count is now: {}", threadCount );
-                    }
-                }
-            }
-        }, 500, 500 );
+                new ArrayBlockingQueue<>( MAXIMUM_POOL_SIZE ) );
+        threadPoolWorkers.setRejectedExecutionHandler( new ThreadPoolExecutor.CallerRunsPolicy() );
+
+        Thread drainer = new Thread( this::drainQueue, "MonitoringQueueDrainer" );
+        drainer.setDaemon( true );
+        drainer.start();
     }
 
 
@@ -125,11 +124,25 @@ public MonitoringQueueImpl(
 
 
     @Override
-    public synchronized void queueEvent( @NonNull MonitoringEvent event ) {
-        if ( backgroundProcessingActive ) {
-            threadPoolWorkers.execute( new MonitoringWorker( event ) );
-        } else {
-            eventQueue.add( new MonitoringWorker( event ) );
+    public void queueEvent( @NonNull MonitoringEvent event ) {
+        OverloadPolicy policy = (OverloadPolicy) RuntimeConfig.MONITORING_QUEUE_OVERLOAD_POLICY.getEnum();
+        if ( policy == OverloadPolicy.SAMPLE && eventQueue.size() > eventQueue.getCapacity() / 4 * 3 ) {
+            int rate = Math.max( 1, RuntimeConfig.MONITORING_QUEUE_SAMPLE_RATE.getInteger() );
+            if ( ThreadLocalRandom.current().nextInt( rate ) != 0 ) {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+        if ( eventQueue.offer( event ) ) {
+            return;
+        }
+        if ( policy != OverloadPolicy.BLOCK || !backgroundProcessingActive ) {
+            // Nobody frees space without background processing, so blocking would wait forever
+            dropped.incrementAndGet();
+            return;
+        }
+        while ( !eventQueue.offer( event ) ) {
+            LockSupport.parkNanos( IDLE_PARK_NANOS );
         }
     }
 
@@ -140,24 +153,16 @@ public synchronized void queueEvent( @NonNull MonitoringEvent event ) {
      * @return Current number of elements in Queue
      */
     @Override
-    public synchronized long getNumberOfElementsInQueue() {
-        return threadPoolWorkers.getQueue().size();
+    public long getNumberOfElementsInQueue() {
+        return eventQueue.size() + inProcessing.get();
     }
 
 
     @Override
-    public synchronized List<HashMap<String, String>> getInformationOnElementsInQueue() {
+    public List<HashMap<String, String>> getInformationOnElementsInQueue() {
         List<HashMap<String, String>> infoList = new ArrayList<>();
-        List<MonitoringEvent> queueElements = new ArrayList<>();
-
-        threadPoolWorkers.getQueue().stream().limit( 100 ).toList()
-                .forEach(
-                        task -> queueElements.add(
-                                ((MonitoringWorker) task).getEvent()
-                        )
-                );
 
-        for ( MonitoringEvent event : queueElements ) {
+        for ( MonitoringEvent event : eventQueue.peek( 100 ) ) {
             HashMap<String, String> infoRow = new HashMap<>();
             infoRow.put( "type", event.getClass().toString() );
             infoRow.put( "id", event.getId().toString() );
@@ -171,7 +176,35 @@ public synchronized List<HashMap<String, String>> getInformationOnElementsInQueu
 
     @Override
     public long getNumberOfProcessedEvents() {
-        return threadPoolWorkers.getCompletedTaskCount();
+        return processed.get();
+    }
+
+
+    @Override
+    public long getNumberOfDroppedEvents() {
+        return dropped.get();
+    }
+
+
+    /**
+     * Drains the buffer in batches until the application is stopped. The thread parks briefly if the buffer is empty,
+     * which keeps the producers free of any signalling.
+     */
+    private void drainQueue() {
+        while ( true ) {
+            List<MonitoringEvent> batch = new ArrayList<>( BATCH_SIZE );
+            if ( eventQueue.drain( batch::add, BATCH_SIZE ) == 0 ) {
+                LockSupport.parkNanos( IDLE_PARK_NANOS );
+                continue;
+            }
+            inProcessing.addAndGet( batch.size() );
+            try {
+                threadPoolWorkers.execute( new MonitoringWorker( batch ) );
+            } catch ( Throwable t ) {
+                inProcessing.addAndGet( -batch.size() );
+                log.error( "Could not process monitoring events", t );
+            }
+        }
     }
 
 
@@ -227,37 +260,45 @@ protected void afterExecute( Runnable r, Throwable t ) {
     @Getter
     class MonitoringWorker implements Runnable {
 
-        private final MonitoringEvent event;
+        private final List<MonitoringEvent> events;
 
 
-        public MonitoringWorker( MonitoringEvent event ) {
-            this.event = event;
+        public MonitoringWorker( List<MonitoringEvent> events ) {
+            this.events = events;
         }
 
 
         @Override
         public void run() {
-            processQueue();
+            try {
+                processQueue();
+            } finally {
+                inProcessing.addAndGet( -events.size() );
+                processed.addAndGet( events.size() );
+            }
         }
 
 
         private void processQueue() {
-            if ( event != null ) {
-                if ( log.isDebugEnabled() ) {
-                    log.debug( "get new monitoring job {}", event.getId().toString() );
-                }
+            if ( log.isDebugEnabled() ) {
+                log.debug( "get {} new monitoring jobs", events.size() );
+            }
 
-                // Returns list of metrics which was produced by this particular event
-                final List<MonitoringDataPoint> dataPoints = event.analyze();
-                if ( !dataPoints.isEmpty() ) {
-                    // Sends all extracted metrics to subscribers
-                    for ( MonitoringDataPoint dataPoint : dataPoints ) {
-                        persistentRepository.dataPoint( dataPoint );
-                        // Statistics are only collected if Active Tracking is switched on
-                        if ( RuntimeConfig.ACTIVE_TRACKING.getBoolean() ) {
-                            statisticRepository.dataPoint( dataPoint );
-                        }
-                    }
+            // Collects the metrics which were produced by the events of this batch
+            final List<MonitoringDataPoint> dataPoints = new ArrayList<>();
+            for ( MonitoringEvent event : events ) {
+                try {
+                    dataPoints.addAll( event.analyze() );
+                } catch ( RuntimeException e ) {
+                    log.warn( "Could not analyze monitoring event {}", event.getId(), e );
+                }
+            }
+            if ( !dataPoints.isEmpty() ) {
+                // Sends all extracted metrics to subscribers
+                persistentRepository.dataPoints( dataPoints );
+                // Statistics are only collected if Active Tracking is switched on
+                if ( RuntimeConfig.ACTIVE_TRACKING.getBoolean() ) {
+                    statisticRepository.dataPoints( dataPoints );
                 }
             }
         }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.monitoring.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import lombok.Getter;
+
+
+/**
+ * Bounded, lock-free queue for many producers and a single consumer.
+ * Every slot carries a sequence number, which tells producers whether the slot is free and the consumer whether the
+ * slot is filled. Producers only contend on one compare-and-set of the tail, the consumer never contends.
+ *
+ * @param <E> type of the elements
+ */
+class MpscRingBuffer<E> {
+
+    @Getter
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+
+    MpscRingBuffer( int capacity ) {
+        // Round up to a power of two, so that the position of a slot is a mask
+        this.capacity = Math.max( 2, Integer.highestOneBit( Math.min( Math.max( 1, capacity - 1 ), 1 << 29 ) ) << 1 );
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicReferenceArray<>( this.capacity );
+        this.sequences = new AtomicLongArray( this.capacity );
+        for ( int i = 0; i < this.capacity; i++ ) {
+            sequences.set( i, i );
+        }
+    }
+
+
+    /**
+     * Adds the element if there is space left.
+     *
+     * @return whether the element was added
+     */
+    boolean offer( E element ) {
+        long position = tail.get();
+        while ( true ) {
+            int index = (int) (position & mask);
+            long difference = sequences.get( index ) - position;
+            if ( difference == 0 ) {
+                if ( tail.compareAndSet( position, position + 1 ) ) {
+                    slots.set( index, element );
+                    // Publishes the element to the consumer
+                    sequences.set( index, position + 1 );
+                    return true;
+                }
+                position = tail.get();
+            } else if ( difference < 0 ) {
+                // The consumer has not yet freed the slot of the previous round
+                return false;
+            } else {
+                // Another producer has claimed this position
+                position = tail.get();
+            }
+        }
+    }
+
+
+    /**
+     * Removes up to {@code limit} elements and hands them to the consumer in their order.
+     * Must only be called by a single thread at a time.
+     *
+     * @return number of removed elements
+     */
+    int drain( Consumer<E> consumer, int limit ) {
+        long position = head.get();
+        int drained = 0;
+        while ( drained < limit ) {
+            int index = (int) (position & mask);
+            if ( sequences.get( index ) != position + 1 ) {
+                // Empty or the producer of this slot has not yet published its element
+                break;
+            }
+            E element = slots.get( index );
+            slots.set( index, null );
+            // Frees the slot for the producers of the next round
+            sequences.set( index, position + capacity );
+            position++;
+            drained++;
+            head.set( position );
+            consumer.accept( element );
+        }
+        return drained;
+    }
+
+
+    /**
+     * Returns up to {@code limit} of the oldest elements without removing them.
+     */
+    List<E> peek( int limit ) {
+        List<E> elements = new ArrayList<>();
+        long position = head.get();
+        while ( elements.size() < limit && sequences.get( (int) (position & mask) ) == position + 1 ) {
+            E element = slots.get( (int) (position & mask) );
+            if ( element != null ) {
+                elements.add( element );
+            }
+            position++;
+        }
+        return elements;
+    }
+
+
+    int size() {
+        return (int) Math.max( 0, Math.min( capacity, tail.get() - head.get() ) );
+    }
+
+}
@@ -22,6 +22,7 @@
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.monitoring.events.DmlEvent;
 import org.polypheny.db.monitoring.events.metrics.DmlDataPoint;
+import org.polypheny.db.partition.PartitionAccessCounters;
 
 
 @Slf4j
@@ -50,6 +51,7 @@ public static DmlDataPoint analyze( DmlEvent dmlEvent ) {
         } else {
             metric.setAccessedPartitions( Collections.emptyList() );
         }
+        PartitionAccessCounters.INSTANCE.recordWrites( metric.getAccessedPartitions() );
 
         return metric;
     }
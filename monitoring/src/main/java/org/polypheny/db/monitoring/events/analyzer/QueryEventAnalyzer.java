@@ -22,6 +22,7 @@
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.monitoring.events.QueryEvent;
 import org.polypheny.db.monitoring.events.metrics.QueryDataPointImpl;
+import org.polypheny.db.partition.PartitionAccessCounters;
 
 
 @Slf4j
@@ -29,7 +30,7 @@ public class QueryEventAnalyzer {
 
     public static QueryDataPointImpl analyze( QueryEvent queryEvent ) {
 
-        return QueryDataPointImpl
+        QueryDataPointImpl metric = QueryDataPointImpl
                 .builder()
                 .Id( queryEvent.getId() )
                 .tables( queryEvent.getLogicalQueryInformation().getAllScannedEntities() )
@@ -47,6 +48,9 @@ public static QueryDataPointImpl analyze( QueryEvent queryEvent ) {
                 .indexSize( queryEvent.getIndexSize() )
                 .accessedPartitions( queryEvent.getAccessedPartitions() != null ? queryEvent.getAccessedPartitions().values().stream().flatMap( Set::stream ).toList() : Collections.emptyList() )
                 .build();
+        PartitionAccessCounters.INSTANCE.recordReads( metric.getAccessedPartitions() );
+
+        return metric;
     }
 
 }
@@ -19,6 +19,7 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -29,6 +30,7 @@
 import org.polypheny.db.algebra.constant.Kind;
 import org.polypheny.db.catalog.Catalog;
 import org.polypheny.db.catalog.entity.logical.LogicalTable;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
 import org.polypheny.db.catalog.logistic.DataModel;
 import org.polypheny.db.catalog.logistic.EntityType;
 import org.polypheny.db.catalog.logistic.Pattern;
@@ -45,6 +47,8 @@
 @Slf4j
 public class StatisticQueryProcessor {
 
+    private static final int SCAN_BATCH_SIZE = 1000;
+
     @Getter
     private final TransactionManager transactionManager;
 
@@ -77,6 +81,22 @@ public StatisticQueryResult selectOneColumnStat( AlgNode node, Transaction trans
     }
 
 
+    /**
+     * Streams the values of a query with one column in batches to the consumer, without materializing the whole result.
+     */
+    public void scanColumn( AlgNode node, Statement statement, Consumer<List<PolyValue>> consumer ) {
+        PolyImplementation implementation = statement.getQueryProcessor().prepareQuery( AlgRoot.of( node, Kind.SELECT ), node.getTupleType(), false );
+        try ( ResultIterator iterator = implementation.execute( statement, SCAN_BATCH_SIZE ) ) {
+            List<List<PolyValue>> rows;
+            while ( !(rows = iterator.getNextBatch()).isEmpty() ) {
+                consumer.accept( rows.stream().map( row -> row.get( 0 ) ).toList() );
+            }
+        } catch ( Exception e ) {
+            throw new GenericRuntimeException( "Could not scan the values of a column", e );
+        }
+    }
+
+
     /**
      * Gets all columns in the database
      *
@@ -19,18 +19,29 @@
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeSupport;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import lombok.Getter;
@@ -80,9 +91,11 @@
 import org.polypheny.db.type.entity.numerical.PolyInteger;
 import org.polypheny.db.util.ImmutableBitSet;
 import org.polypheny.db.util.Pair;
+import org.polypheny.db.util.PolyphenyHomeDirManager;
 import org.polypheny.db.util.background.BackgroundTask.TaskPriority;
 import org.polypheny.db.util.background.BackgroundTask.TaskSchedulingType;
 import org.polypheny.db.util.background.BackgroundTaskManager;
+import org.polypheny.db.util.sketch.ColumnSketch;
 
 
 /**
@@ -92,6 +105,10 @@
 @Slf4j
 public class StatisticsManagerImpl extends StatisticsManager {
 
+    private static final String SKETCH_FOLDER = "statistics";
+    private static final String SKETCH_FILE = "sketches";
+    private static final int SKETCH_FILE_VERSION = 1;
+
     private static StatisticQueryProcessor statisticQueryInterface;
 
     private final ExecutorService threadPool = Executors.newSingleThreadExecutor();
@@ -114,6 +131,13 @@ public class StatisticsManagerImpl extends StatisticsManager {
 
     private final Queue<Long> tablesToUpdate = new ConcurrentLinkedQueue<>();
 
+    /**
+     * Sketches of the values per column, these are kept apart from the {@link StatisticColumn}s as they survive
+     * the reevaluation of the statistics and are persisted.
+     */
+    private final Map<Long, ColumnSketch> columnSketches = new ConcurrentHashMap<>();
+    private final AtomicBoolean sketchesChanged = new AtomicBoolean( false );
+
     private Transaction transaction;
     private Statement statement;
 
@@ -133,6 +157,12 @@ public void initializeStatisticSettings() {
         displayInformation();
         registerTaskTracking();
         registerIsFullTracking();
+        loadSketches();
+        BackgroundTaskManager.INSTANCE.registerTask(
+                this::persistSketches,
+                "Persist column sketches of the StatisticsManager.",
+                TaskPriority.LOW,
+                TaskSchedulingType.EVERY_MINUTE );
 
         if ( RuntimeConfig.STATISTICS_ON_STARTUP.getBoolean() ) {
             this.asyncReevaluateAllStatistics();
@@ -200,6 +230,7 @@ private void reevaluateAllStatistics() {
         }
         log.debug( "Resetting StatisticManager." );
         Map<Long, StatisticColumn> statisticCopy = new ConcurrentHashMap<>();
+        Map<Long, ColumnSketch> sketchCopy = new HashMap<>();
         transaction = getTransaction();
         statement = transaction.createStatement();
         statement.getQueryProcessor().lock( statement );
@@ -208,10 +239,14 @@ private void reevaluateAllStatistics() {
                 StatisticColumn col = reevaluateField( column );
                 if ( col != null ) {
                     putRel( statisticCopy, column, col );
+                    if ( RuntimeConfig.STATISTIC_SKETCHES.getBoolean() ) {
+                        sketchCopy.put( column.getColumn().id, buildSketch( column ) );
+                    }
                 }
             }
             reevaluateRowCount();
             replaceStatistics( statisticCopy );
+            replaceSketches( sketchCopy );
             log.debug( "Finished resetting StatisticManager." );
             statisticQueryInterface.commitTransaction( transaction, statement );
         } catch ( Exception e ) {
@@ -262,6 +297,7 @@ public void reevaluateEntity( long entityId ) {
     private void deleteTable( LogicalTable table ) {
         for ( long columnId : table.getColumnIds() ) {
             this.statisticFields.remove( columnId );
+            removeSketch( columnId );
         }
     }
 
@@ -274,6 +310,128 @@ private synchronized void replaceStatistics( Map<Long, StatisticColumn> statisti
     }
 
 
+    /**
+     * Replace the tracked sketches with the rebuilt sketches, sketches of columns which are not rebuilt are dropped.
+     */
+    private void replaceSketches( Map<Long, ColumnSketch> sketches ) {
+        if ( !RuntimeConfig.STATISTIC_SKETCHES.getBoolean() ) {
+            return;
+        }
+        columnSketches.keySet().retainAll( sketches.keySet() );
+        columnSketches.putAll( sketches );
+        sketchesChanged.set( true );
+        persistSketches();
+    }
+
+
+    /**
+     * Builds the sketch of a column with a streaming scan over all its values.
+     */
+    private ColumnSketch buildSketch( QueryResult column ) {
+        ColumnSketch sketch = new ColumnSketch();
+        AlgNode node = getQueryNode( column, NodeType.ALL_VALUES );
+        if ( node != null ) {
+            statisticQueryInterface.scanColumn( node, statement, sketch::addAll );
+        }
+        return sketch;
+    }
+
+
+    private static boolean isSketchable( PolyType polyType ) {
+        return polyType.getFamily() == PolyTypeFamily.NUMERIC
+                || polyType.getFamily() == PolyTypeFamily.CHARACTER
+                || PolyType.DATETIME_TYPES.contains( polyType );
+    }
+
+
+    private void removeSketch( long columnId ) {
+        if ( columnSketches.remove( columnId ) != null ) {
+            sketchesChanged.set( true );
+        }
+    }
+
+
+    /**
+     * Writes the sketches to the statistics folder, if they have changed since they were written last.
+     * The file is replaced atomically, so that a crash leaves the previous sketches intact.
+     */
+    private void persistSketches() {
+        if ( !sketchesChanged.getAndSet( false ) ) {
+            return;
+        }
+        try {
+            Path file = getSketchFolder().resolve( SKETCH_FILE );
+            Path tmp = getSketchFolder().resolve( SKETCH_FILE + ".tmp" );
+            try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( tmp ) ) ) ) {
+                Map<Long, ColumnSketch> sketches = new HashMap<>( columnSketches );
+                out.writeInt( SKETCH_FILE_VERSION );
+                out.writeInt( sketches.size() );
+                for ( Map.Entry<Long, ColumnSketch> entry : sketches.entrySet() ) {
+                    out.writeLong( entry.getKey() );
+                    entry.getValue().write( out );
+                }
+            }
+            Files.move( tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } catch ( IOException | GenericRuntimeException e ) {
+            sketchesChanged.set( true );
+            log.warn( "Could not persist the column sketches", e );
+        }
+    }
+
+
+    /**
+     * Loads the persisted sketches of all columns which still exist.
+     */
+    private void loadSketches() {
+        if ( !RuntimeConfig.STATISTIC_SKETCHES.getBoolean() ) {
+            return;
+        }
+        try {
+            Path file = getSketchFolder().resolve( SKETCH_FILE );
+            if ( !Files.exists( file ) ) {
+                return;
+            }
+            Snapshot snapshot = Catalog.snapshot();
+            try ( DataInputStream in = new DataInputStream( new BufferedInputStream( Files.newInputStream( file ) ) ) ) {
+                if ( in.readInt() != SKETCH_FILE_VERSION ) {
+                    log.warn( "Ignoring column sketches with an unknown version" );
+                    return;
+                }
+                int size = in.readInt();
+                for ( int i = 0; i < size; i++ ) {
+                    long columnId = in.readLong();
+                    ColumnSketch sketch = ColumnSketch.read( in );
+                    if ( snapshot.rel().getColumn( columnId ).isPresent() ) {
+                        columnSketches.put( columnId, sketch );
+                    }
+                }
+            }
+        } catch ( IOException | GenericRuntimeException e ) {
+            columnSketches.clear();
+            log.warn( "Could not load the column sketches", e );
+        }
+    }
+
+
+    private static Path getSketchFolder() {
+        if ( PolyphenyHomeDirManager.getInstance().getHomeFile( SKETCH_FOLDER ).isEmpty() ) {
+            PolyphenyHomeDirManager.getInstance().registerNewFolder( SKETCH_FOLDER );
+        }
+        Optional<File> folder = PolyphenyHomeDirManager.getInstance().getHomeFile( SKETCH_FOLDER );
+        if ( !folder.map( File::isDirectory ).orElse( false ) ) {
+            throw new GenericRuntimeException( "There is an error with the statistics folder in the .polypheny folder." );
+        }
+        return folder.get().toPath();
+    }
+
+
+    @Override
+    @Nullable
+    public ColumnSketch getColumnSketch( long columnId ) {
+        return columnSketches.get( columnId );
+    }
+
+
     /**
      * Method to sort a column into the different kinds of column types and hands it to the specific reevaluation
      */
@@ -458,6 +616,7 @@ private AlgNode getQueryNode( QueryResult queryResult, NodeType nodeType ) {
             case UNIQUE_VALUE -> getUniqueValues( queryResult, tableScan, rexBuilder );
             case ROW_COUNT_COLUMN -> getColumnCount( queryResult, tableScan, rexBuilder, cluster );
             case ROW_COUNT_TABLE -> getTableCount( tableScan, cluster );
+            case ALL_VALUES -> getAllValues( queryResult, tableScan, rexBuilder );
         };
         return queryNode;
     }
@@ -551,6 +710,22 @@ private AlgNode getUniqueValues( QueryResult queryResult, RelScan<?> tableScan,
     }
 
 
+    /**
+     * Gets all values of a column
+     */
+    private AlgNode getAllValues( QueryResult queryResult, RelScan<?> tableScan, RexBuilder rexBuilder ) {
+        for ( int i = 0; i < tableScan.getTupleType().getFieldNames().size(); i++ ) {
+            if ( tableScan.getTupleType().getFieldNames().get( i ).equals( queryResult.getColumn().name ) ) {
+                return LogicalRelProject.create(
+                        tableScan,
+                        List.of( rexBuilder.makeInputRef( tableScan, i ) ),
+                        List.of( tableScan.getTupleType().getFieldNames().get( i ) ) );
+            }
+        }
+        return null;
+    }
+
+
     /**
      * Gets the amount of entries for a column
      */
@@ -639,6 +814,12 @@ public void displayInformation() {
         im.registerInformation( numericalInformation );
         im.registerInformation( alphabeticalInformation );
 
+        InformationGroup sketchGroup = new InformationGroup( page, "Column Sketches" );
+        im.addGroup( sketchGroup );
+
+        InformationTable sketchInformation = new InformationTable( sketchGroup, Arrays.asList( "Column Name", "Values", "Null Values", "Distinct Values", "Median" ) );
+        im.registerInformation( sketchInformation );
+
         InformationGroup tableSelectGroup = new InformationGroup( page, "Calls per Table" );
         im.addGroup( tableSelectGroup );
 
@@ -677,6 +858,7 @@ public void displayInformation() {
             tableSelectInformation.reset();
             tableInformation.reset();
             statisticsInformation.reset();
+            sketchInformation.reset();
             statisticFields.forEach( ( k, v ) -> {
                 if ( v instanceof NumericalStatisticColumn ) {
                     if ( ((NumericalStatisticColumn) v).getMin() != null && ((NumericalStatisticColumn) v).getMax() != null ) {
@@ -709,6 +891,11 @@ public void displayInformation() {
 
             } );
 
+            columnSketches.forEach( ( k, v ) -> {
+                double median = v.getQuantile( 0.5 );
+                sketchInformation.addRow( k, v.getCount(), v.getNullCount(), v.getDistinctCount(), Double.isNaN( median ) ? "-" : median );
+            } );
+
             entityStatistic.forEach( ( k, v ) -> {
                 tableInformation.addRow( v.getTable(), v.getDataModel(), v.getNumberOfRows() );
 
@@ -803,7 +990,10 @@ public void entitiesToUpdate( long entityId, Map<Long, List<?>> changedValues, M
 
 
     private void handleDrop( Map<Long, List<?>> changedValues ) {
-        changedValues.keySet().stream().findFirst().ifPresent( id -> statisticFields.remove( id ) );
+        changedValues.keySet().stream().findFirst().ifPresent( id -> {
+            statisticFields.remove( id );
+            removeSketch( id );
+        } );
     }
 
 
@@ -812,6 +1002,11 @@ private void handleTruncate( long tableId, Snapshot snapshot ) {
         for ( LogicalColumn column : table.getColumns() ) {
             PolyType polyType = column.type;
             QueryResult queryResult = new QueryResult( table, column );
+            ColumnSketch sketch = columnSketches.get( column.id );
+            if ( sketch != null ) {
+                sketch.clear();
+                sketchesChanged.set( true );
+            }
             if ( statisticFields.get( column.id ) == null ) {
                 continue;
             }
@@ -856,6 +1051,7 @@ private void handleInsert( long tableId, Map<Long, List<?>> changedValues, Snaps
             }
 
             PolyType polyType = column.type;
+            updateSketch( column, changedValues.get( (long) column.position - 1 ) );
 
             QueryResult queryResult = new QueryResult( table, column );
             if ( this.statisticFields.containsKey( column.id ) && changedValues.get( (long) column.position ) != null ) {
@@ -868,6 +1064,24 @@ private void handleInsert( long tableId, Map<Long, List<?>> changedValues, Snaps
     }
 
 
+    /**
+     * Adds the inserted values to the sketch of the column, the sketch is created for columns which are not yet tracked.
+     * Deleted and updated values are not subtracted, they only leave the sketch when it is rebuilt on re-evaluation.
+     */
+    private void updateSketch( LogicalColumn column, @Nullable List<?> values ) {
+        if ( values == null || !RuntimeConfig.STATISTIC_SKETCHES.getBoolean() || !isSketchable( column.type ) ) {
+            return;
+        }
+        ColumnSketch sketch = columnSketches.computeIfAbsent( column.id, id -> new ColumnSketch() );
+        for ( Object value : values ) {
+            if ( value == null || value instanceof PolyValue ) {
+                sketch.add( (PolyValue) value );
+            }
+        }
+        sketchesChanged.set( true );
+    }
+
+
     /**
      * Creates new StatisticColumns and inserts the values.
      */
@@ -902,6 +1116,7 @@ private void handleInsertColumn( List<?> changedValues, LogicalColumn column, Qu
     public void deleteEntityToUpdate( long entityId ) {
         for ( LogicalColumn column : Catalog.snapshot().rel().getColumns( entityId ) ) {
             statisticFields.get( column.id );
+            removeSketch( column.id );
         }
         entityStatistic.remove( entityId );
         if ( tablesToUpdate.contains( entityId ) ) {
@@ -1165,7 +1380,8 @@ private enum NodeType {
         ROW_COUNT_COLUMN,
         MIN,
         MAX,
-        UNIQUE_VALUE
+        UNIQUE_VALUE,
+        ALL_VALUES
     }
 
 
@@ -42,6 +42,8 @@
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.StreamSupport;
 import javax.annotation.Nonnull;
@@ -52,11 +54,11 @@
 import org.apache.calcite.avatica.ColumnMetaData;
 import org.apache.calcite.avatica.ColumnMetaData.Rep;
 import org.apache.calcite.avatica.Meta;
+import org.apache.calcite.avatica.Meta.CursorFactory;
 import org.apache.calcite.avatica.MetaImpl;
 import org.apache.calcite.avatica.MetaImpl.MetaTypeInfo;
 import org.apache.calcite.avatica.NoSuchStatementException;
 import org.apache.calcite.avatica.QueryState;
-import org.apache.calcite.avatica.proto.Common;
 import org.apache.calcite.avatica.proto.Requests.UpdateBatch;
 import org.apache.calcite.avatica.remote.ProtobufMeta;
 import org.apache.calcite.avatica.remote.TypedValue;
@@ -70,6 +72,7 @@
 import org.polypheny.db.PolyImplementation;
 import org.polypheny.db.adapter.DataContext;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
+import org.polypheny.db.algebra.constant.Kind;
 import org.polypheny.db.algebra.type.AlgDataType;
 import org.polypheny.db.algebra.type.AlgDataTypeField;
 import org.polypheny.db.algebra.type.AlgDataTypeSystem;
@@ -96,6 +99,7 @@
 import org.polypheny.db.catalog.logistic.EntityType;
 import org.polypheny.db.catalog.logistic.EntityType.PrimitiveTableType;
 import org.polypheny.db.catalog.logistic.Pattern;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.functions.TemporalFunctions;
 import org.polypheny.db.iface.AuthenticationException;
 import org.polypheny.db.iface.Authenticator;
@@ -107,6 +111,7 @@
 import org.polypheny.db.languages.QueryLanguage;
 import org.polypheny.db.nodes.Node;
 import org.polypheny.db.prepare.JavaTypeFactoryImpl;
+import org.polypheny.db.processing.ImplementationContext;
 import org.polypheny.db.processing.Processor;
 import org.polypheny.db.processing.QueryContext;
 import org.polypheny.db.routing.ExecutionTimeMonitor;
@@ -120,6 +125,7 @@
 import org.polypheny.db.type.entity.PolyNull;
 import org.polypheny.db.type.entity.PolyString;
 import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.type.entity.category.PolyNumber;
 import org.polypheny.db.type.entity.numerical.PolyBigDecimal;
 import org.polypheny.db.type.entity.numerical.PolyDouble;
 import org.polypheny.db.type.entity.numerical.PolyFloat;
@@ -135,9 +141,20 @@
 @Slf4j
 public class DbmsMeta implements ProtobufMeta {
 
-    public static final boolean SEND_FIRST_FRAME_WITH_RESPONSE = false;
+    public static final boolean SEND_FIRST_FRAME_WITH_RESPONSE = true;
     public static final JavaTypeFactoryImpl TYPE_FACTORY = new JavaTypeFactoryImpl();
 
+    private static final AtomicInteger prefetcherCounter = new AtomicInteger();
+
+    /**
+     * Collects the next frames of open result sets in the background.
+     */
+    private static final ExecutorService prefetcher = Executors.newCachedThreadPool( r -> {
+        Thread thread = new Thread( r, "FramePrefetcher-" + prefetcherCounter.getAndIncrement() );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
     private final ConcurrentMap<String, PolyConnectionHandle> openConnections = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, PolyStatementHandle<Object>> openStatements = new ConcurrentHashMap<>();
 
@@ -891,47 +908,8 @@ public ExecuteBatchResult executeBatchProtobuf( final StatementHandle h, final L
                 log.trace( "executeBatchProtobuf( StatementHandle {}, List<UpdateBatch> {} )", h, parameterValues );
             }
 
-            final PolyStatementHandle<?> statementHandle = getPolyphenyDbStatementHandle( h );
-
-            long[] updateCounts = new long[parameterValues.size()];
-            Map<Long, List<PolyValue>> values = new HashMap<>();
-            List<AlgDataType> types = new ArrayList<>();
-            for ( UpdateBatch updateBatch : parameterValues ) {
-                List<Common.TypedValue> list = updateBatch.getParameterValuesList();
-                long index = 0;
-                for ( Common.TypedValue v : list ) {
-                    long i = index++;
-                    if ( !values.containsKey( i ) ) {
-                        values.put( i, new ArrayList<>() );
-                    }
-                    if ( v.getType() == Common.Rep.ARRAY ) {
-                        values.get( i ).add( convertList( (List<TypedValue>) TypedValue.fromProto( v ).toLocal() ) );
-                    } else {
-                        values.get( i ).add( toPolyValue( TypedValue.fromProto( v ) ) );
-                    }
-                    types.add( (int) i, toPolyAlgType( TypedValue.fromProto( v ), TYPE_FACTORY ) );
-                }
-            }
-
-            try {
-                if ( values.isEmpty() ) {
-                    // Nothing to execute
-                    return new ExecuteBatchResult( new long[0] );
-                }
-                statementHandle.setStatement( connection.getCurrentOrCreateNewTransaction().createStatement() );
-                int i = 0;
-                for ( Entry<Long, List<PolyValue>> valuesList : values.entrySet() ) {
-                    statementHandle.getStatement().getDataContext().addParameterValues( valuesList.getKey(), types.get( i++ ), valuesList.getValue() );
-                }
-                prepare( h, statementHandle.getPreparedQuery() );
-                updateCounts[0] = execute( h, connection, statementHandle, -1 ).size();
-            } catch ( Throwable e ) {
-                log.error( "Exception while preparing query", e );
-                String message = e.getLocalizedMessage();
-                throw new GenericRuntimeException( message == null ? "null" : message, -1, "", AvaticaSeverity.ERROR );
-            }
-
-            return new ExecuteBatchResult( updateCounts );
+            final int columnCount = parameterValues.isEmpty() ? 0 : parameterValues.get( 0 ).getParameterValuesCount();
+            return executeBatch( h, connection, parameterValues.size(), columnCount, ( row, column ) -> TypedValue.fromProto( parameterValues.get( row ).getParameterValues( column ) ) );
         }
     }
 
@@ -972,6 +950,7 @@ public StatementHandle prepare( final ConnectionHandle ch, final String sql, fin
                 log.trace( "prepare( ConnectionHandle {}, String {}, long {} )", ch, sql, maxRowCount );
             }
 
+            awaitPrefetchedFrames( connection );
             StatementHandle h = createStatement( ch );
             PolyStatementHandle<?> polyphenyDbStatement;
             try {
@@ -1051,6 +1030,8 @@ public ExecuteResult prepareAndExecute( final StatementHandle h, final String sq
                 log.trace( "prepareAndExecute( StatementHandle {}, String {}, long {}, int {}, PrepareCallback {} )", h, sql, maxRowCount, maxRowsInFirstFrame, callback );
             }
 
+            // The transaction must not be used while result sets of the connection are read in the background
+            awaitPrefetchedFrames( connection );
             PolyStatementHandle<?> statementHandle = getPolyphenyDbStatementHandle( h );
             statementHandle.setPreparedQuery( sql );
             statementHandle.setStatement( connection.getCurrentOrCreateNewTransaction().createStatement() );
@@ -1095,12 +1076,137 @@ public ExecuteBatchResult executeBatch( final StatementHandle h, final List<List
                 log.trace( "executeBatch( StatementHandle {}, List<List<TypedValue>> {} )", h, parameterValues );
             }
 
-            log.error( "[NOT IMPLEMENTED YET] executeBatch( StatementHandle {}, List<List<TypedValue>> {} )", h, parameterValues );
-            return null;
+            final int columnCount = parameterValues.isEmpty() ? 0 : parameterValues.get( 0 ).size();
+            return executeBatch( h, connection, parameterValues.size(), columnCount, ( row, column ) -> parameterValues.get( row ).get( column ) );
         }
     }
 
 
+    /**
+     * Executes the prepared statement for every row of a batch. The values are decoded column by column into one list
+     * per parameter, whose type is derived once per column. Inserts are executed in chunks of up to
+     * {@link RuntimeConfig#BATCH_EXECUTION_SIZE} rows, so that only the values of one chunk are held at a time. Other
+     * statements, like updates and deletes, are executed row by row, as a chunk only reports the total number of changed
+     * rows. The first row is always executed on its own to find out which kind of statement the batch executes.
+     *
+     * @return the number of rows changed by every row of the batch, or {@link Statement#SUCCESS_NO_INFO} for the rows of
+     * an insert from a query, which changes a number of rows per row, of which the store only reports the total
+     */
+    private ExecuteBatchResult executeBatch( StatementHandle h, PolyConnectionHandle connection, int rowCount, int columnCount, BatchValues values ) throws NoSuchStatementException {
+        final PolyStatementHandle<?> statementHandle = getPolyphenyDbStatementHandle( h );
+        awaitPrefetchedFrames( connection );
+        final long[] updateCounts = new long[rowCount];
+        if ( rowCount == 0 || columnCount == 0 ) {
+            // Nothing to execute
+            return new ExecuteBatchResult( updateCounts );
+        }
+
+        final int chunkSize = Math.max( 1, RuntimeConfig.BATCH_EXECUTION_SIZE.getInteger() );
+        final Rep[] reps = new Rep[columnCount];
+        final AlgDataType[] types = new AlgDataType[columnCount];
+        try {
+            int rowsPerExecution = 1;
+            for ( int from = 0; from < rowCount; from += rowsPerExecution ) {
+                final int to = Math.min( rowCount, from + rowsPerExecution );
+                final List<List<PolyValue>> columns = new ArrayList<>( columnCount );
+                for ( int column = 0; column < columnCount; column++ ) {
+                    columns.add( new ArrayList<>( to - from ) );
+                }
+                for ( int row = from; row < to; row++ ) {
+                    for ( int column = 0; column < columnCount; column++ ) {
+                        final TypedValue value = values.get( row, column );
+                        if ( value.value != null && value.type != reps[column] ) {
+                            types[column] = deriveBatchType( types[column], value );
+                            reps[column] = value.type;
+                        }
+                        columns.get( column ).add( toPolyValue( value ) );
+                    }
+                }
+
+                statementHandle.setStatement( connection.getCurrentOrCreateNewTransaction().createStatement() );
+                final DataContext dataContext = statementHandle.getStatement().getDataContext();
+                for ( int column = 0; column < columnCount; column++ ) {
+                    final AlgDataType type = types[column] == null ? TYPE_FACTORY.createPolyType( PolyType.NULL ) : types[column];
+                    dataContext.addParameterValues( column, type, columns.get( column ) );
+                }
+                final Kind kind = prepare( h, statementHandle.getPreparedQuery() );
+                if ( statementHandle.getSignature().statementType != StatementType.IS_DML ) {
+                    throw new GenericRuntimeException( "Only DML statements can be executed as batch" );
+                }
+                collectUpdateCounts( statementHandle, updateCounts, from, to - from );
+                rowsPerExecution = kind == Kind.INSERT ? chunkSize : 1;
+            }
+            if ( connection.isAutoCommit() ) {
+                commit( connection.getHandle() );
+            }
+        } catch ( Throwable e ) {
+            log.error( "Exception while executing batch", e );
+            String message = e.getLocalizedMessage();
+            throw new GenericRuntimeException( message == null ? "null" : message, -1, "", AvaticaSeverity.ERROR );
+        }
+
+        return new ExecuteBatchResult( updateCounts );
+    }
+
+
+    /**
+     * Returns the type of a column of a batch, which so far has the given type, after adding the value.
+     */
+    private AlgDataType deriveBatchType( AlgDataType current, TypedValue value ) {
+        final AlgDataType type = toPolyAlgType( value, TYPE_FACTORY );
+        if ( current == null ) {
+            return type;
+        }
+        final AlgDataType common = TYPE_FACTORY.leastRestrictive( List.of( current, type ) );
+        return common == null ? type : common;
+    }
+
+
+    /**
+     * Executes the statement of a chunk and writes the number of changed rows of each of its rows into the update counts.
+     * Stores which execute the rows of a chunk one by one return one count per row, others only the total number of
+     * changed rows. As every row of an insert of values inserts one row, the total is then the number of rows.
+     */
+    private void collectUpdateCounts( PolyStatementHandle<?> statementHandle, long[] updateCounts, int offset, int rows ) {
+        final Iterator<?> iterator = statementHandle.getSignature().enumerable( statementHandle.getStatement().getDataContext() ).iterator();
+        final List<Integer> counts = new ArrayList<>();
+        while ( iterator.hasNext() ) {
+            Object object = iterator.next();
+            if ( object != null && object.getClass().isArray() ) {
+                object = ((Object[]) object)[0];
+            }
+            if ( object == null ) {
+                throw new GenericRuntimeException( "Result is null" );
+            }
+            counts.add( ((PolyNumber) object).intValue() );
+        }
+        final int total = counts.stream().mapToInt( Integer::intValue ).sum();
+        PolyImplementation.addMonitoringInformation( statementHandle.getStatement(), statementHandle.getStatement().getMonitoringEvent().getMonitoringType(), total );
+
+        if ( counts.size() == rows && counts.stream().allMatch( c -> c >= 0 ) ) {
+            for ( int i = 0; i < rows; i++ ) {
+                updateCounts[offset + i] = counts.get( i );
+            }
+        } else if ( rows == 1 ) {
+            updateCounts[offset] = total;
+        } else {
+            // Only an insert from a query may change a different number of rows than it has rows
+            Arrays.fill( updateCounts, offset, offset + rows, total == rows ? 1 : Statement.SUCCESS_NO_INFO );
+        }
+    }
+
+
+    /**
+     * Provides the values of a batch by row and parameter index.
+     */
+    @FunctionalInterface
+    private interface BatchValues {
+
+        TypedValue get( int row, int column );
+
+    }
+
+
     /**
      * Returns a frame of rows.
      * <p>
@@ -1120,39 +1226,74 @@ public Frame fetch( final StatementHandle h, final long offset, final int fetchM
             }
 
             final PolyStatementHandle<Object> statementHandle = getPolyphenyDbStatementHandle( h );
-
-            final PolySignature signature = statementHandle.getSignature();
-            final Iterator<Object> iterator;
             if ( statementHandle.getStatement() == null ) {
                 // this is a hotfix for catalog methods of dbmsmeta todo dl diff in jdbc bench
                 return new Frame( 0, true, new ArrayList<>() );
             }
-            if ( statementHandle.getOpenResultSet() == null ) {
-                final Iterable<Object> iterable = createExternalIterable( statementHandle.getStatement().getDataContext(), signature );
-                iterator = iterable.iterator();
-                statementHandle.setOpenResultSet( iterator );
-                statementHandle.getExecutionStopWatch().start();
-            } else {
-                iterator = statementHandle.getOpenResultSet();
-                statementHandle.getExecutionStopWatch().resume();
+
+            // Other result sets of the connection may still be read in the background, through the same transaction
+            awaitPrefetchedFrames( connection );
+
+            // Sequential fetches continue where the prefetched frame ends, like they continue the open result set
+            Frame frame = statementHandle.takePrefetchedFrame();
+            if ( frame == null ) {
+                frame = collectFrame( statementHandle, offset, fetchMaxRowCount );
+            }
+            if ( !frame.done && fetchMaxRowCount > 0 && connection.getPrefetchPermits().tryAcquire() ) {
+                final long nextOffset = offset + ((List<?>) frame.rows).size();
+                statementHandle.setPrefetchedFrame( prefetcher.submit( () -> collectFrame( statementHandle, nextOffset, fetchMaxRowCount ) ) );
             }
+            return frame;
+        }
+    }
 
-            final List<?> rows = MetaImpl.collect( signature.cursorFactory, LimitIterator.of( iterator, fetchMaxRowCount ), new ArrayList<>() );
-            statementHandle.getExecutionStopWatch().suspend();
-            boolean done = fetchMaxRowCount == 0 || rows.size() < fetchMaxRowCount;
 
-            if ( done ) {
-                statementHandle.getExecutionStopWatch().stop();
-                signature.getExecutionTimeMonitor().setExecutionTime( statementHandle.getExecutionStopWatch().getNanoTime() );
-                try {
-                    if ( iterator instanceof AutoCloseable ) {
-                        ((AutoCloseable) iterator).close();
-                    }
-                } catch ( Exception e ) {
-                    log.error( "Exception while closing result iterator", e );
+    /**
+     * Collects the next rows of the result set of the statement. Called while the connection is locked or, if the frame is
+     * prefetched, while its fetch is pending. Fetches wait for the prefetched frames of all statements of the connection
+     * first, hence at most one result set of a transaction is read at a time.
+     */
+    private Frame collectFrame( PolyStatementHandle<Object> statementHandle, long offset, int fetchMaxRowCount ) {
+        final PolySignature signature = statementHandle.getSignature();
+        final Iterator<Object> iterator;
+        if ( statementHandle.getOpenResultSet() == null ) {
+            final Iterable<Object> iterable = createExternalIterable( statementHandle.getStatement().getDataContext(), signature );
+            iterator = iterable.iterator();
+            statementHandle.setOpenResultSet( iterator );
+            statementHandle.getExecutionStopWatch().start();
+        } else {
+            iterator = statementHandle.getOpenResultSet();
+            statementHandle.getExecutionStopWatch().resume();
+        }
+
+        final List<?> rows = MetaImpl.collect( signature.cursorFactory, LimitIterator.of( iterator, fetchMaxRowCount ), new ArrayList<>() );
+        statementHandle.getExecutionStopWatch().suspend();
+        boolean done = fetchMaxRowCount == 0 || rows.size() < fetchMaxRowCount;
+
+        if ( done ) {
+            statementHandle.getExecutionStopWatch().stop();
+            signature.getExecutionTimeMonitor().setExecutionTime( statementHandle.getExecutionStopWatch().getNanoTime() );
+            try {
+                if ( iterator instanceof AutoCloseable ) {
+                    ((AutoCloseable) iterator).close();
                 }
+            } catch ( Exception e ) {
+                log.error( "Exception while closing result iterator", e );
+            }
+        }
+        return new Meta.Frame( offset, done, (Iterable<Object>) rows );
+    }
+
+
+    /**
+     * Waits until no result set of the connection is read in the background, so that its transaction can be used.
+     */
+    private void awaitPrefetchedFrames( PolyConnectionHandle connection ) {
+        final String prefix = connection.getHandle().id + "::";
+        for ( Entry<String, PolyStatementHandle<Object>> entry : openStatements.entrySet() ) {
+            if ( entry.getKey().startsWith( prefix ) ) {
+                entry.getValue().awaitPrefetchedFrame();
             }
-            return new Meta.Frame( offset, done, (Iterable<Object>) rows );
         }
     }
 
@@ -1197,6 +1338,8 @@ public ExecuteResult execute( final StatementHandle h, final List<TypedValue> pa
             if ( log.isTraceEnabled() ) {
                 log.trace( "execute( StatementHandle {}, List<TypedValue> {}, int {} )", h, parameterValues, maxRowsInFirstFrame );
             }
+            // The transaction must not be used while result sets of the connection are read in the background
+            awaitPrefetchedFrames( connection );
             final PolyStatementHandle<?> statementHandle = getPolyphenyDbStatementHandle( h );
             statementHandle.setStatement( connection.getCurrentOrCreateNewTransaction().createStatement() );
             return execute( h, parameterValues, maxRowsInFirstFrame, connection );
@@ -1324,7 +1467,12 @@ private PolyValue toPolyValue( TypedValue value ) {
     }
 
 
-    private void prepare( StatementHandle h, String sql ) throws NoSuchStatementException {
+    /**
+     * Prepares the query for the statement and sets its signature.
+     *
+     * @return the kind of the query
+     */
+    private Kind prepare( StatementHandle h, String sql ) throws NoSuchStatementException {
         PolyStatementHandle<?> statementHandle = getPolyphenyDbStatementHandle( h );
         QueryLanguage language = QueryLanguage.from( "sql" );
         QueryContext context = QueryContext.builder()
@@ -1334,10 +1482,12 @@ private void prepare( StatementHandle h, String sql ) throws NoSuchStatementExce
                 .transactionManager( transactionManager )
                 .build();
 
-        PolySignature signature = PolySignature.from( LanguageManager.getINSTANCE().anyPrepareQuery( context, statementHandle.getStatement() ).get( 0 ) );
+        ImplementationContext implementation = LanguageManager.getINSTANCE().anyPrepareQuery( context, statementHandle.getStatement() ).get( 0 );
+        PolySignature signature = PolySignature.from( implementation );
 
         h.signature = signature;
         statementHandle.setSignature( signature );
+        return implementation.getQuery().getQueryNode().map( Node::getKind ).orElse( Kind.OTHER );
     }
 
 
@@ -1386,18 +1536,19 @@ private List<MetaResultSet> execute( StatementHandle h, PolyConnectionHandle con
             resultSets = ImmutableList.of( metaResultSet );
         } else {
             try {
+                // Send the first frame together with the response to save a fetch call
+                final Frame firstFrame = maxRowsInFirstFrame != 0 && SEND_FIRST_FRAME_WITH_RESPONSE
+                        ? fetch( h, 0, Math.max( statementHandle.getMaxRowCount(), maxRowsInFirstFrame ) )
+                        : null;
+                // Frames always consist of lists of values. Avatica replaces the cursor factory of a response with a first
+                // frame based on the cursor factory of the statement, which turns the object cursor of single column results
+                // into a map cursor. Hence, the cursor factory has to match the frame, like for responses without a frame.
                 resultSets = Collections.singletonList( MetaResultSet.create(
                         h.connectionId,
                         h.id,
                         false,
-                        statementHandle.getSignature(),
-                        // Due to a bug in Avatica (it wrongly replaces the courser type) I have per default disabled sending data with the first frame.
-                        // TODO MV:  Due to the performance benefits of sending data together with the first frame, this issue should be addressed
-                        //  Remember that fetch is synchronized
-                        maxRowsInFirstFrame != 0 && SEND_FIRST_FRAME_WITH_RESPONSE
-                                ? fetch( h, 0, Math.max( statementHandle.getMaxRowCount(), maxRowsInFirstFrame ) )
-                                : null //Frame.MORE // Send first frame to together with the response to save a fetch call
-                ) );
+                        firstFrame == null ? statementHandle.getSignature() : statementHandle.getSignature().setCursorFactory( CursorFactory.LIST ),
+                        firstFrame ) );
             } catch ( NoSuchStatementException e ) {
                 String message = e.getLocalizedMessage();
                 throw new GenericRuntimeException( message == null ? "null" : message, -1, "", AvaticaSeverity.ERROR );
@@ -1450,6 +1601,7 @@ public void closeStatement( final StatementHandle statementHandle ) {
 
             final PolyStatementHandle<?> toClose = openStatements.remove( statementHandle.connectionId + "::" + statementHandle.id );
             if ( toClose != null ) {
+                toClose.awaitPrefetchedFrame();
                 if ( toClose.getOpenResultSet() != null && toClose.getOpenResultSet() instanceof AutoCloseable ) {
                     try {
                         ((AutoCloseable) toClose.getOpenResultSet()).close();
@@ -1524,7 +1676,10 @@ public void openConnection( final ConnectionHandle ch, final Map<String, String>
             throw new GenericRuntimeException( e.getLocalizedMessage(), -1, "", AvaticaSeverity.ERROR );
         }
 
-        openConnections.put( ch.id, new PolyConnectionHandle( ch, user, ch.id, namespace, transactionManager ) );
+        // Reading without locks gives up serializability, so it has to be requested explicitly
+        final boolean acceptsOutdated = Boolean.parseBoolean( connectionParameters.getOrDefault( "acceptsOutdated", "false" ) );
+
+        openConnections.put( ch.id, new PolyConnectionHandle( ch, user, ch.id, namespace, transactionManager, acceptsOutdated ) );
     }
 
 
@@ -1547,6 +1702,8 @@ public void closeConnection( ConnectionHandle ch ) {
                 return;
             }
 
+            awaitPrefetchedFrames( connectionToClose );
+
             // Check if there is a running transaction
             Transaction transaction = connectionToClose.getCurrentTransaction();
             if ( transaction != null && transaction.isActive() ) {
@@ -1617,6 +1774,7 @@ public void commit( final ConnectionHandle ch ) {
             if ( log.isTraceEnabled() ) {
                 log.trace( "commit( ConnectionHandle {} )", ch );
             }
+            awaitPrefetchedFrames( connection );
             Transaction transaction = connection.getCurrentTransaction();
 
             if ( transaction == null || !transaction.isActive() ) {
@@ -1647,6 +1805,7 @@ public void rollback( final ConnectionHandle ch ) {
             if ( log.isTraceEnabled() ) {
                 log.trace( "rollback( ConnectionHandle {} )", ch );
             }
+            awaitPrefetchedFrames( connection );
             Transaction transaction = connection.getCurrentTransaction();
 
             if ( transaction == null || !transaction.isActive() ) {
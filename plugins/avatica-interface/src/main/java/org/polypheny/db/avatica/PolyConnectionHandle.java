@@ -18,6 +18,7 @@
 
 
 import java.util.Objects;
+import java.util.concurrent.Semaphore;
 import lombok.Getter;
 import org.apache.calcite.avatica.ConnectionPropertiesImpl;
 import org.apache.calcite.avatica.Meta;
@@ -26,6 +27,7 @@
 import org.polypheny.db.catalog.Catalog;
 import org.polypheny.db.catalog.entity.LogicalUser;
 import org.polypheny.db.catalog.entity.logical.LogicalNamespace;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.transaction.PUID.ConnectionId;
 import org.polypheny.db.transaction.PUID.UserId;
 import org.polypheny.db.transaction.Transaction;
@@ -52,10 +54,24 @@ public class PolyConnectionHandle {
 
     private final TransactionManager transactionManager;
 
+    /**
+     * Whether the transactions of this connection accept outdated data and therefore read without entity locks.
+     * Set with the connection property {@code acceptsOutdated}. Reads see committed data only, but no snapshot.
+     *
+     * @see Transaction#setAcceptsOutdated(boolean)
+     */
+    private final boolean acceptsOutdated;
+
+    /**
+     * Bounds the number of frames, which are prefetched for the statements of this connection at the same time.
+     */
+    @Getter
+    private final Semaphore prefetchPermits = new Semaphore( Math.max( 0, RuntimeConfig.PREFETCHED_FRAMES.getInteger() ) );
+
     private final ConnectionProperties connectionProperties = new ConnectionPropertiesImpl( true, false, java.sql.Connection.TRANSACTION_SERIALIZABLE, Catalog.DATABASE_NAME, Catalog.DEFAULT_NAMESPACE_NAME );
 
 
-    public PolyConnectionHandle( final ConnectionHandle handle, final LogicalUser logicalUser, final String connectionId, final LogicalNamespace namespace, final TransactionManager transactionManager ) {
+    public PolyConnectionHandle( final ConnectionHandle handle, final LogicalUser logicalUser, final String connectionId, final LogicalNamespace namespace, final TransactionManager transactionManager, final boolean acceptsOutdated ) {
         this.handle = handle;
 
         this.userId = UserId.fromString( logicalUser.name );
@@ -63,6 +79,7 @@ public PolyConnectionHandle( final ConnectionHandle handle, final LogicalUser lo
         this.connectionId = ConnectionId.fromString( connectionId );
         this.namespace = namespace;
         this.transactionManager = transactionManager;
+        this.acceptsOutdated = acceptsOutdated;
     }
 
 
@@ -86,6 +103,7 @@ public Transaction getCurrentOrCreateNewTransaction() {
         synchronized ( this ) {
             if ( currentTransaction == null || !currentTransaction.isActive() ) {
                 currentTransaction = transactionManager.startTransaction( user.id, namespace.id, false, "AVATICA Interface" );
+                currentTransaction.setAcceptsOutdated( acceptsOutdated );
             }
             return currentTransaction;
         }
@@ -18,14 +18,20 @@
 
 
 import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.avatica.Meta.Frame;
 import org.apache.commons.lang3.time.StopWatch;
+import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
 import org.polypheny.db.transaction.Statement;
 
 /**
  *
  */
+@Slf4j
 @Getter
 public class PolyStatementHandle<E> {
 
@@ -44,6 +50,12 @@
     @Getter
     private final StopWatch executionStopWatch = new StopWatch();
 
+    /**
+     * The next frame of the open result set, which is collected in the background. It holds a prefetch permit of the
+     * connection until it is taken or discarded.
+     */
+    private transient Future<Frame> prefetchedFrame;
+
 
     public PolyStatementHandle( final PolyConnectionHandle connection, final int statementId ) {
         this.connection = connection;
@@ -56,14 +68,18 @@ public synchronized void setOpenResultSet( Iterator<E> result ) {
     }
 
 
-    public synchronized void setSignature( PolySignature signature ) {
-        this.signature = signature;
-        this.openResultSet = null;
-        executionStopWatch.reset();
+    public void setSignature( PolySignature signature ) {
+        discardPrefetchedFrame();
+        synchronized ( this ) {
+            this.signature = signature;
+            this.openResultSet = null;
+            executionStopWatch.reset();
+        }
     }
 
 
     public void unset() {
+        discardPrefetchedFrame();
         this.openResultSet = null;
         this.signature = null;
         if ( statement != null ) {
@@ -71,4 +87,68 @@ public void unset() {
         }
     }
 
+
+    public synchronized void setPrefetchedFrame( Future<Frame> frame ) {
+        this.prefetchedFrame = frame;
+    }
+
+
+    /**
+     * Waits for the prefetched frame and returns it, or returns {@code null} if no frame is prefetched.
+     */
+    public Frame takePrefetchedFrame() {
+        final Future<Frame> frame;
+        synchronized ( this ) {
+            if ( prefetchedFrame == null ) {
+                return null;
+            }
+            frame = prefetchedFrame;
+            prefetchedFrame = null;
+        }
+        try {
+            return frame.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GenericRuntimeException( e );
+        } catch ( ExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException runtimeException ) {
+                throw runtimeException;
+            }
+            throw new GenericRuntimeException( e.getCause() );
+        } finally {
+            connection.getPrefetchPermits().release();
+        }
+    }
+
+
+    /**
+     * Waits until the prefetched frame has been collected, so that the result set is no longer read in the background.
+     * The frame is kept for the next fetch.
+     */
+    public void awaitPrefetchedFrame() {
+        final Future<Frame> frame;
+        synchronized ( this ) {
+            frame = prefetchedFrame;
+        }
+        if ( frame == null ) {
+            return;
+        }
+        try {
+            frame.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        } catch ( ExecutionException e ) {
+            // Reported when the frame is taken
+        }
+    }
+
+
+    private void discardPrefetchedFrame() {
+        try {
+            takePrefetchedFrame();
+        } catch ( RuntimeException e ) {
+            log.debug( "Exception while prefetching a discarded frame", e );
+        }
+    }
+
 }
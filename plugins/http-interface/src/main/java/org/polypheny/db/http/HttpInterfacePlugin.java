@@ -18,6 +18,9 @@
 
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -26,6 +29,7 @@
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 import io.javalin.plugin.json.JavalinJackson;
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Arrays;
@@ -39,10 +43,12 @@
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.pf4j.Extension;
+import org.polypheny.db.ResultIterator;
 import org.polypheny.db.StatusNotificationService;
 import org.polypheny.db.catalog.Catalog;
 import org.polypheny.db.catalog.entity.logical.LogicalNamespace;
 import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.iface.Authenticator;
 import org.polypheny.db.iface.QueryInterface;
 import org.polypheny.db.iface.QueryInterfaceManager;
@@ -54,8 +60,12 @@
 import org.polypheny.db.languages.QueryLanguage;
 import org.polypheny.db.plugins.PluginContext;
 import org.polypheny.db.plugins.PolyPlugin;
+import org.polypheny.db.processing.ImplementationContext.ExecutedContext;
 import org.polypheny.db.processing.QueryContext;
+import org.polypheny.db.transaction.Transaction;
+import org.polypheny.db.transaction.TransactionException;
 import org.polypheny.db.transaction.TransactionManager;
+import org.polypheny.db.type.entity.PolyValue;
 import org.polypheny.db.util.Util;
 import org.polypheny.db.webui.Crud;
 import org.polypheny.db.webui.crud.LanguageCrud;
@@ -97,6 +107,9 @@ public static class HttpInterface extends QueryInterface {
         public static final String INTERFACE_NAME = "HTTP Interface";
         @SuppressWarnings("WeakerAccess")
         public static final String INTERFACE_DESCRIPTION = "HTTP-based query interface, which supports all available languages via specific routes.";
+        private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+        private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
         @SuppressWarnings("WeakerAccess")
         public static final List<QueryInterfaceSetting> AVAILABLE_SETTINGS = ImmutableList.of(
                 new QueryInterfaceSettingInteger( "port", false, true, false, 13137 ),
@@ -176,12 +189,28 @@ public void addRoute( QueryLanguage language ) {
         }
 
 
-        public void anyQuery( QueryLanguage language, final Context ctx ) {
+        public void anyQuery( QueryLanguage language, final Context ctx ) throws IOException {
             QueryRequest query = ctx.bodyAsClass( QueryRequest.class );
             String sessionId = ctx.req.getSession().getId();
             Crud.cleanupOldSession( sessionXids, sessionId );
             LogicalNamespace namespace = Catalog.snapshot().getNamespace( query.namespace ).orElse( null );
 
+            if ( ctx.header( "Accept" ) != null && ctx.header( "Accept" ).contains( NDJSON_CONTENT_TYPE ) ) {
+                String xid = streamQuery(
+                        QueryContext.builder()
+                                .query( query.query )
+                                .language( language )
+                                .userId( Catalog.defaultUserId )
+                                .origin( "Http Interface" )
+                                .transactionManager( transactionManager )
+                                .namespaceId( namespace == null ? Catalog.defaultNamespaceId : namespace.id )
+                                .batch( RuntimeConfig.RESULT_STREAMING_BATCH_SIZE.getInteger() )
+                                .build(), ctx );
+                countStatement( language );
+                sessionXids.put( sessionId, Set.of( xid ) );
+                return;
+            }
+
             List<? extends Result<?, ?>> results = LanguageCrud.anyQueryResult(
                     QueryContext.builder()
                             .query( query.query )
@@ -193,12 +222,97 @@ public void anyQuery( QueryLanguage language, final Context ctx ) {
                             .build(), query );
             ctx.json( results.toArray( new Result[0] ) );
 
+            countStatement( language );
+            // is empty from cleanupOldInfoAndFiles
+            sessionXids.put( sessionId, results.stream().map( t -> t.xid ).filter( Objects::nonNull ).collect( Collectors.toSet() ) );
+        }
+
+
+        /**
+         * Executes the statements of a query and streams their results as newline-delimited JSON with chunked transfer
+         * encoding. The rows are fetched from the result iterators in batches of the size configured in the query
+         * context and the response is flushed after every batch, so the results are never held in memory as a whole.
+         * For every statement, a line with the names of its columns is written, followed by one line per row, which
+         * contains the values of the row as JSON array. Values are encoded like the data of a relational result.
+         * An error ends the response with a line containing the error message.
+         *
+         * @return the id of the transaction, in which the query was executed
+         */
+        private String streamQuery( QueryContext context, final Context ctx ) throws IOException {
+            context = context.getLanguage().limitRemover().apply( context );
+            Transaction transaction = context.getTransactionManager().startTransaction( context.getUserId(), Catalog.defaultNamespaceId, false, context.getOrigin() );
+            List<ExecutedContext> executedContexts = LanguageManager.getINSTANCE().anyQuery( context.addTransaction( transaction ) );
+
+            ctx.contentType( NDJSON_CONTENT_TYPE );
+            JsonGenerator generator = JSON_FACTORY.createGenerator( ctx.res.getOutputStream() );
+            generator.disable( JsonGenerator.Feature.AUTO_CLOSE_TARGET );
+            generator.setRootValueSeparator( new SerializedString( "\n" ) );
+            boolean failed = false;
+            try {
+                for ( ExecutedContext executedContext : executedContexts ) {
+                    if ( executedContext.getException().isPresent() ) {
+                        log.warn( "Caught exception", executedContext.getException().get() );
+                        writeError( generator, executedContext.getException().get().getMessage() );
+                        failed = true;
+                        break;
+                    }
+                    generator.writeStartObject();
+                    generator.writeArrayFieldStart( "header" );
+                    for ( String name : executedContext.getImplementation().tupleType.getFieldNames() ) {
+                        generator.writeString( name );
+                    }
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+
+                    ResultIterator iterator = executedContext.getIterator();
+                    List<List<PolyValue>> rows;
+                    while ( !(rows = iterator.getNextBatch()).isEmpty() ) {
+                        for ( List<PolyValue> row : rows ) {
+                            generator.writeStartArray();
+                            for ( PolyValue value : row ) {
+                                generator.writeString( value == null ? null : value.toJson() );
+                            }
+                            generator.writeEndArray();
+                        }
+                        generator.flush();
+                    }
+                    iterator.close();
+                }
+            } catch ( Exception e ) {
+                log.warn( "Caught exception while streaming the result", e );
+                writeError( generator, e.getMessage() );
+                failed = true;
+            }
+
+            try {
+                if ( failed ) {
+                    transaction.rollback();
+                } else {
+                    transaction.commit();
+                }
+            } catch ( TransactionException e ) {
+                log.error( "Caught exception while finishing the transaction", e );
+                writeError( generator, e.getMessage() );
+            }
+            generator.writeRaw( '\n' );
+            generator.close();
+            return transaction.getXid().toString();
+        }
+
+
+        private static void writeError( JsonGenerator generator, String message ) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField( "error", message );
+            generator.writeEndObject();
+            generator.flush();
+        }
+
+
+        private void countStatement( QueryLanguage language ) {
             if ( !statementCounters.containsKey( language ) ) {
                 statementCounters.put( language, new AtomicLong() );
             }
             statementCounters.get( language ).incrementAndGet();
-            // is empty from cleanupOldInfoAndFiles
-            sessionXids.put( sessionId, results.stream().map( t -> t.xid ).filter( Objects::nonNull ).collect( Collectors.toSet() ) );
         }
 
 
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.monitoring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.polypheny.db.monitoring.events.MonitoringDataPoint;
+
+
+/**
+ * Append-only store for the data points of one class. The data points are partitioned by their timestamp into
+ * segments of one minute, which hold the timestamps and the data points in two parallel arrays ordered by time.
+ * A range scan finds the first segment in the skip list and the bounds within the segments by binary search, so it
+ * costs {@code O(log n + k)} for {@code k} returned data points.
+ * The memory is bounded by {@link #maintain}, which removes expired segments, downsamples old segments and evicts the
+ * oldest segments if the store grows beyond its limit.
+ */
+class DataPointStore {
+
+    static final long SEGMENT_MILLIS = TimeUnit.MINUTES.toMillis( 1 );
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final AtomicLong size = new AtomicLong();
+
+
+    void add( MonitoringDataPoint dataPoint ) {
+        long time = dataPoint.timestamp() == null ? System.currentTimeMillis() : dataPoint.timestamp().getTime();
+        segments.computeIfAbsent( segmentStart( time ), start -> new Segment() ).add( time, dataPoint );
+        size.incrementAndGet();
+    }
+
+
+    /**
+     * Returns the data points with a timestamp after {@code from} and before {@code to}, the newest first.
+     *
+     * @param from exclusive lower bound in milliseconds
+     * @param to exclusive upper bound in milliseconds
+     */
+    <T extends MonitoringDataPoint> List<T> range( long from, long to ) {
+        List<T> result = new ArrayList<>();
+        if ( from >= to ) {
+            return result;
+        }
+        NavigableMap<Long, Segment> candidates = from == Long.MIN_VALUE
+                ? segments.headMap( to, false )
+                : segments.subMap( segmentStart( from ), true, to, false );
+        for ( Segment segment : candidates.descendingMap().values() ) {
+            segment.collect( from, to, result );
+        }
+        return result;
+    }
+
+
+    <T extends MonitoringDataPoint> List<T> all() {
+        return range( Long.MIN_VALUE, Long.MAX_VALUE );
+    }
+
+
+    long size() {
+        return size.get();
+    }
+
+
+    /**
+     * Bounds the memory of the store.
+     *
+     * @param now current time in milliseconds
+     * @param retention milliseconds for which data points are kept
+     * @param downsampleAfter milliseconds after which only every {@code downsampleRate}th data point is kept
+     * @param downsampleRate rate of the downsampling, {@code 1} keeps all data points
+     * @param maxSize maximal number of data points, the oldest segments are evicted first
+     */
+    void maintain( long now, long retention, long downsampleAfter, int downsampleRate, long maxSize ) {
+        for ( Entry<Long, Segment> entry : segments.entrySet() ) {
+            long end = entry.getKey() + SEGMENT_MILLIS;
+            if ( end <= now - retention ) {
+                remove( entry.getKey() );
+            } else if ( downsampleRate > 1 && end <= now - downsampleAfter ) {
+                size.addAndGet( -entry.getValue().downsample( downsampleRate ) );
+            } else {
+                break;
+            }
+        }
+        while ( size.get() > maxSize && !segments.isEmpty() ) {
+            remove( segments.firstKey() );
+        }
+    }
+
+
+    private void remove( long start ) {
+        Segment segment = segments.remove( start );
+        if ( segment != null ) {
+            size.addAndGet( -segment.size() );
+        }
+    }
+
+
+    private static long segmentStart( long time ) {
+        return Math.floorDiv( time, SEGMENT_MILLIS ) * SEGMENT_MILLIS;
+    }
+
+
+    /**
+     * Data points of one time window. Data points are appended mostly in order of their timestamps, late arrivals are
+     * sorted in before the next scan.
+     */
+    private static class Segment {
+
+        private long[] timestamps = new long[16];
+        private MonitoringDataPoint[] dataPoints = new MonitoringDataPoint[16];
+        private int size = 0;
+        private boolean sorted = true;
+        private boolean downsampled = false;
+
+
+        synchronized void add( long time, MonitoringDataPoint dataPoint ) {
+            if ( size == timestamps.length ) {
+                timestamps = Arrays.copyOf( timestamps, Math.max( 16, size * 2 ) );
+                dataPoints = Arrays.copyOf( dataPoints, Math.max( 16, size * 2 ) );
+            }
+            if ( size > 0 && time < timestamps[size - 1] ) {
+                sorted = false;
+            }
+            timestamps[size] = time;
+            dataPoints[size++] = dataPoint;
+        }
+
+
+        synchronized int size() {
+            return size;
+        }
+
+
+        @SuppressWarnings("unchecked")
+        synchronized <T extends MonitoringDataPoint> void collect( long from, long to, List<T> result ) {
+            sort();
+            int lower = from == Long.MIN_VALUE ? 0 : firstIndexAfter( from );
+            int upper = to == Long.MAX_VALUE ? size : firstIndexAfter( to - 1 );
+            for ( int i = upper - 1; i >= lower; i-- ) {
+                result.add( (T) dataPoints[i] );
+            }
+        }
+
+
+        /**
+         * Keeps every {@code rate}th data point, a segment is downsampled only once.
+         *
+         * @return number of removed data points
+         */
+        synchronized int downsample( int rate ) {
+            if ( downsampled ) {
+                return 0;
+            }
+            sort();
+            int kept = 0;
+            for ( int i = 0; i < size; i += rate ) {
+                timestamps[kept] = timestamps[i];
+                dataPoints[kept++] = dataPoints[i];
+            }
+            int removed = size - kept;
+            timestamps = Arrays.copyOf( timestamps, kept );
+            dataPoints = Arrays.copyOf( dataPoints, kept );
+            size = kept;
+            downsampled = true;
+            return removed;
+        }
+
+
+        private int firstIndexAfter( long time ) {
+            int low = 0;
+            int high = size;
+            while ( low < high ) {
+                int middle = (low + high) >>> 1;
+                if ( timestamps[middle] <= time ) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+
+        /**
+         * Insertion sort, which is linear for the nearly sorted appends.
+         */
+        private void sort() {
+            if ( sorted ) {
+                return;
+            }
+            for ( int i = 1; i < size; i++ ) {
+                long time = timestamps[i];
+                MonitoringDataPoint dataPoint = dataPoints[i];
+                int j = i - 1;
+                while ( j >= 0 && timestamps[j] > time ) {
+                    timestamps[j + 1] = timestamps[j];
+                    dataPoints[j + 1] = dataPoints[j];
+                    j--;
+                }
+                timestamps[j + 1] = time;
+                dataPoints[j + 1] = dataPoint;
+            }
+            sorted = true;
+        }
+
+    }
+
+}
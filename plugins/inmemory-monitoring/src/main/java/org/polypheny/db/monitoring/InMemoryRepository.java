@@ -20,28 +20,36 @@
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.monitoring.events.MonitoringDataPoint;
 import org.polypheny.db.monitoring.events.QueryPostCost;
 import org.polypheny.db.monitoring.events.metrics.QueryPostCostImpl;
 import org.polypheny.db.monitoring.repository.PersistentMonitoringRepository;
 import org.polypheny.db.util.PolyphenyHomeDirManager;
+import org.polypheny.db.util.background.BackgroundTask.TaskPriority;
+import org.polypheny.db.util.background.BackgroundTask.TaskSchedulingType;
+import org.polypheny.db.util.background.BackgroundTaskManager;
 
+/**
+ * Keeps the monitoring data points in memory, in one time-partitioned {@link DataPointStore} per class of data points.
+ * A background task removes, downsamples and evicts old data points according to the configured retention.
+ */
 @Slf4j
 public class InMemoryRepository implements PersistentMonitoringRepository {
 
     private static final String FILE_PATH = "simpleBackendDb";
     private static final String FOLDER_NAME = "monitoring";
-    protected final Map<Class<?>, Map<UUID, MonitoringDataPoint>> data = new ConcurrentHashMap<>();
+    protected final Map<Class<?>, DataPointStore> data = new ConcurrentHashMap<>();
     protected Map<String, QueryPostCostImpl> queryPostCosts;
+    private String maintenanceTaskId;
 
 
     @Override
@@ -52,28 +60,15 @@ public void initialize( boolean resetRepository ) {
 
     @Override
     public void dataPoint( @NonNull MonitoringDataPoint dataPoint ) {
-        Map<UUID, MonitoringDataPoint> table = this.data.get( dataPoint.getClass() );
-        if ( table == null ) {
-            this.createPersistentTable( dataPoint.getClass() );
-            table = this.data.get( dataPoint.getClass() );
-        }
-
-        if ( table != null ) {
-            table.put( dataPoint.id(), dataPoint );
-        }
+        this.data.computeIfAbsent( dataPoint.getClass(), c -> new DataPointStore() ).add( dataPoint );
     }
 
 
     @Override
     public <TPersistent extends MonitoringDataPoint> List<TPersistent> getAllDataPoints( @NonNull Class<TPersistent> dataPointClass ) {
-        final Map<UUID, MonitoringDataPoint> table = this.data.get( dataPointClass );
-        if ( table != null ) {
-            return table.values()
-                    .stream()
-                    .map( monitoringPersistentData -> (TPersistent) monitoringPersistentData )
-                    .filter( elem -> elem != null && elem.timestamp() != null )
-                    .sorted( Comparator.comparing( MonitoringDataPoint::timestamp ).reversed() )
-                    .toList();
+        final DataPointStore store = this.data.get( dataPointClass );
+        if ( store != null ) {
+            return store.all();
         }
 
         return Collections.emptyList();
@@ -82,9 +77,9 @@ public <TPersistent extends MonitoringDataPoint> List<TPersistent> getAllDataPoi
 
     @Override
     public <TPersistent extends MonitoringDataPoint> long getNumberOfDataPoints( @NonNull Class<TPersistent> dataPointClass ) {
-        final Map<UUID, MonitoringDataPoint> table = this.data.get( dataPointClass );
-        if ( table != null ) {
-            return table.values().size();
+        final DataPointStore store = this.data.get( dataPointClass );
+        if ( store != null ) {
+            return store.size();
         }
         return 0;
     }
@@ -92,14 +87,9 @@ public <TPersistent extends MonitoringDataPoint> long getNumberOfDataPoints( @No
 
     @Override
     public <T extends MonitoringDataPoint> List<T> getDataPointsBefore( @NonNull Class<T> dataPointClass, @NonNull Timestamp timestamp ) {
-        final Map<UUID, MonitoringDataPoint> table = this.data.get( dataPointClass );
-        if ( table != null ) {
-            return table.values()
-                    .stream()
-                    .map( monitoringPersistentData -> (T) monitoringPersistentData )
-                    .sorted( Comparator.comparing( MonitoringDataPoint::timestamp ).reversed() )
-                    .filter( elem -> elem.timestamp().before( timestamp ) )
-                    .toList();
+        final DataPointStore store = this.data.get( dataPointClass );
+        if ( store != null ) {
+            return store.range( Long.MIN_VALUE, timestamp.getTime() );
         }
 
         return Collections.emptyList();
@@ -108,14 +98,9 @@ public <T extends MonitoringDataPoint> List<T> getDataPointsBefore( @NonNull Cla
 
     @Override
     public <T extends MonitoringDataPoint> List<T> getDataPointsAfter( @NonNull Class<T> dataPointClass, @NonNull Timestamp timestamp ) {
-        final Map<UUID, MonitoringDataPoint> table = this.data.get( dataPointClass );
-        if ( table != null ) {
-            return table.values()
-                    .stream()
-                    .map( monitoringPersistentData -> (T) monitoringPersistentData )
-                    .sorted( Comparator.comparing( MonitoringDataPoint::timestamp ).reversed() )
-                    .filter( elem -> elem.timestamp().after( timestamp ) )
-                    .toList();
+        final DataPointStore store = this.data.get( dataPointClass );
+        if ( store != null ) {
+            return store.range( timestamp.getTime(), Long.MAX_VALUE );
         }
 
         return Collections.emptyList();
@@ -221,20 +206,33 @@ protected void initialize( String filePath, String folderName, boolean resetRepo
                         + "Wait a few seconds or stop the locking process and try again. " );
             }
 
+            if ( maintenanceTaskId == null ) {
+                maintenanceTaskId = BackgroundTaskManager.INSTANCE.registerTask(
+                        this::maintainDataPoints,
+                        "Remove and downsample old monitoring data points",
+                        TaskPriority.LOW,
+                        TaskSchedulingType.EVERY_MINUTE );
+            }
+
         }
     }
 
 
-    private void initializePostCosts() {
-        queryPostCosts = new HashMap<>();
+    /**
+     * Applies the retention, downsampling and size limit to the data points of all classes.
+     */
+    private void maintainDataPoints() {
+        long now = System.currentTimeMillis();
+        long retention = TimeUnit.HOURS.toMillis( RuntimeConfig.MONITORING_RETENTION.getInteger() );
+        long downsampleAfter = TimeUnit.MINUTES.toMillis( RuntimeConfig.MONITORING_DOWNSAMPLE_AFTER.getInteger() );
+        int downsampleRate = RuntimeConfig.MONITORING_DOWNSAMPLE_RATE.getInteger();
+        long maxSize = RuntimeConfig.MONITORING_MAX_DATA_POINTS.getInteger();
+        data.values().forEach( store -> store.maintain( now, retention, downsampleAfter, downsampleRate, maxSize ) );
     }
 
 
-    private void createPersistentTable( Class<? extends MonitoringDataPoint> classPersistentData ) {
-        if ( classPersistentData != null ) {
-            final Map<UUID, MonitoringDataPoint> treeMap = new HashMap<>();
-            data.put( classPersistentData, treeMap );
-        }
+    private void initializePostCosts() {
+        queryPostCosts = new HashMap<>();
     }
 
 }
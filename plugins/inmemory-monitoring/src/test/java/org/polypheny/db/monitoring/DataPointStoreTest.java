@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.monitoring.events.MonitoringDataPoint;
+
+
+class DataPointStoreTest {
+
+    private static final long BASE = 1_700_000_000_000L;
+
+
+    private static TestDataPoint point( long time ) {
+        return new TestDataPoint( UUID.randomUUID(), new Timestamp( time ) );
+    }
+
+
+    @Test
+    public void rangeReturnsNewestFirst() {
+        DataPointStore store = new DataPointStore();
+        // Spans several segments and arrives partly out of order
+        long[] times = { 5, 1, 3, 2, 4, 120_000, 60_001, 60_000, 240_000, 180_500 };
+        for ( long time : times ) {
+            store.add( point( BASE + time ) );
+        }
+
+        List<TestDataPoint> all = store.all();
+        assertEquals( times.length, all.size() );
+        for ( int i = 1; i < all.size(); i++ ) {
+            assertTrue( all.get( i - 1 ).timestamp().getTime() >= all.get( i ).timestamp().getTime() );
+        }
+
+        List<TestDataPoint> after = store.range( BASE + 3, Long.MAX_VALUE );
+        assertEquals( 7, after.size() );
+        assertEquals( BASE + 240_000, after.get( 0 ).timestamp().getTime() );
+        assertEquals( BASE + 4, after.get( 6 ).timestamp().getTime() );
+
+        List<TestDataPoint> before = store.range( Long.MIN_VALUE, BASE + 60_001 );
+        assertEquals( 6, before.size() );
+        assertEquals( BASE + 60_000, before.get( 0 ).timestamp().getTime() );
+
+        assertEquals( 2, store.range( BASE + 60_000, BASE + 180_500 ).size() );
+        assertEquals( 0, store.range( BASE + 240_000, Long.MAX_VALUE ).size() );
+    }
+
+
+    @Test
+    public void maintainAppliesRetentionDownsamplingAndLimit() {
+        DataPointStore store = new DataPointStore();
+        long minute = DataPointStore.SEGMENT_MILLIS;
+        // 100 data points in each of the ten minutes after BASE
+        for ( int m = 0; m < 10; m++ ) {
+            for ( int i = 0; i < 100; i++ ) {
+                store.add( point( BASE + m * minute + i ) );
+            }
+        }
+        assertEquals( 1000, store.size() );
+
+        long now = BASE + 10 * minute;
+        // Keeps eight minutes and downsamples everything older than five minutes
+        store.maintain( now, 8 * minute, 5 * minute, 10, Long.MAX_VALUE );
+        assertEquals( 3 * 10 + 5 * 100, store.size() );
+        assertEquals( store.size(), store.all().size() );
+        assertEquals( 0, store.range( Long.MIN_VALUE, BASE + 2 * minute ).size() );
+
+        // Downsampling happens only once
+        store.maintain( now, 8 * minute, 5 * minute, 10, Long.MAX_VALUE );
+        assertEquals( 530, store.size() );
+
+        // Evicts the oldest segments until the limit is met
+        store.maintain( now, 8 * minute, 5 * minute, 10, 250 );
+        assertEquals( 200, store.size() );
+        assertEquals( BASE + 8 * minute, store.all().get( 199 ).timestamp().getTime() );
+    }
+
+
+    private record TestDataPoint( UUID id, Timestamp timestamp ) implements MonitoringDataPoint {
+
+        @Override
+        public DataPointType getDataPointType() {
+            return DataPointType.DQL;
+        }
+
+
+        @Override
+        public boolean isCommitted() {
+            return true;
+        }
+
+    }
+
+}
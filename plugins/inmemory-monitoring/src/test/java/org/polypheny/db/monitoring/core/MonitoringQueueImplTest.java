@@ -20,18 +20,24 @@
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.polypheny.db.TestHelper;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.monitoring.core.MonitoringQueue.OverloadPolicy;
 import org.polypheny.db.monitoring.events.MonitoringEvent;
 import org.polypheny.db.monitoring.events.QueryEvent;
 import org.polypheny.db.monitoring.repository.MonitoringRepository;
 import org.polypheny.db.monitoring.repository.PersistentMonitoringRepository;
+import org.polypheny.db.util.Benchmark;
 
 
+@Slf4j
 class MonitoringQueueImplTest {
 
     @BeforeAll
@@ -116,4 +122,78 @@ public void queueEventValidEventsQueueConsistsElements() {
         assertEquals( QueryEvent.class.toString(), infoString.get( "type" ) );
     }
 
+
+
+    @Test
+    public void queueEventFullQueueDropsEvents() {
+        // arrange
+        PersistentMonitoringRepository persistentRepo = Mockito.mock( PersistentMonitoringRepository.class );
+        MonitoringRepository statisticRepo = Mockito.mock( MonitoringRepository.class );
+        int capacity = RuntimeConfig.MONITORING_QUEUE_CAPACITY.getInteger();
+        Enum policy = RuntimeConfig.MONITORING_QUEUE_OVERLOAD_POLICY.getEnum();
+        RuntimeConfig.MONITORING_QUEUE_CAPACITY.setInteger( 16 );
+        RuntimeConfig.MONITORING_QUEUE_OVERLOAD_POLICY.setEnum( OverloadPolicy.DROP );
+        try {
+            MonitoringQueue sut = new MonitoringQueueImpl( false, persistentRepo, statisticRepo );
+
+            // act
+            for ( int i = 0; i < 20; i++ ) {
+                sut.queueEvent( new QueryEvent() );
+            }
+
+            // assert
+            assertEquals( 16L, sut.getNumberOfElementsInQueue() );
+            assertEquals( 4L, sut.getNumberOfDroppedEvents() );
+        } finally {
+            RuntimeConfig.MONITORING_QUEUE_CAPACITY.setInteger( capacity );
+            RuntimeConfig.MONITORING_QUEUE_OVERLOAD_POLICY.setEnum( policy );
+        }
+    }
+
+
+    /**
+     * Benchmark for the overhead of {@link MonitoringQueue#queueEvent} per statement, if several threads execute
+     * statements at a high rate and the events are processed in the background.
+     */
+    @Test
+    public void queueEventBenchmark() throws InterruptedException {
+        // Run a much quicker form of the test during regular testing.
+        final int eventsPerThread = Benchmark.enabled() ? 1_000_000 : 10_000;
+        final int threads = 4;
+        PersistentMonitoringRepository persistentRepo = Mockito.mock( PersistentMonitoringRepository.class );
+        MonitoringRepository statisticRepo = Mockito.mock( MonitoringRepository.class );
+        MonitoringQueue sut = new MonitoringQueueImpl( true, persistentRepo, statisticRepo );
+        MonitoringEvent event = Mockito.mock( MonitoringEvent.class );
+
+        new Benchmark( "queueEvent " + threads + " threads x " + eventsPerThread + " events", statistician -> {
+            List<Thread> producers = new ArrayList<>();
+            for ( int i = 0; i < threads; i++ ) {
+                producers.add( new Thread( () -> {
+                    for ( int j = 0; j < eventsPerThread; j++ ) {
+                        sut.queueEvent( event );
+                    }
+                } ) );
+            }
+            long nanos = System.nanoTime();
+            producers.forEach( Thread::start );
+            for ( Thread producer : producers ) {
+                try {
+                    producer.join();
+                } catch ( InterruptedException e ) {
+                    throw new RuntimeException( e );
+                }
+            }
+            log.debug( "queueEvent took {} nanos per statement", (System.nanoTime() - nanos) / (threads * eventsPerThread) );
+            statistician.record( nanos );
+            return null;
+        }, 5 ).run();
+
+        // All events are processed eventually, as the default policy blocks instead of dropping events
+        for ( int i = 0; i < 100 && sut.getNumberOfProcessedEvents() < 5L * threads * eventsPerThread; i++ ) {
+            Thread.sleep( 100 );
+        }
+        assertEquals( 0L, sut.getNumberOfDroppedEvents() );
+        assertEquals( 5L * threads * eventsPerThread, sut.getNumberOfProcessedEvents() );
+    }
+
 }
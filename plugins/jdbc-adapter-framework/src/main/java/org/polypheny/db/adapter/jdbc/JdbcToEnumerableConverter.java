@@ -240,7 +240,7 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
                                     DataContext.ROOT ) );
 
             enumerable = builder0.append(
-                    "enumerable" + System.nanoTime(),
+                    implementor.uniqueName( "enumerable" ),
                     Expressions.call(
                             RESULT_SET_ENUMERABLE_OF_PREPARED_METHOD,
                             Expressions.call(
@@ -252,7 +252,7 @@ public Result implement( EnumerableAlgImplementor implementor, Prefer pref ) {
                             preparedStatementConsumer_ ) );
         } else {
             enumerable = builder0.append(
-                    "enumerable" + System.nanoTime(),
+                    implementor.uniqueName( "enumerable" ),
                     Expressions.call(
                             RESULT_SET_ENUMERABLE_OF_METHOD,
                             Expressions.call(
@@ -318,7 +318,7 @@ private void generateGet(
         final Expression source = switch ( polyType ) {
             // TODO js(knn): Make sure this is more than just a hotfix.
             //  add nullability stuff as well
-            case ARRAY -> getPreprocessArrayExpression( resultSet_, i, dialect, fieldType );
+            case ARRAY -> getPreprocessArrayExpression( implementor, resultSet_, i, dialect, fieldType );
             case DATE -> Expressions.call( resultSet_, "getDate", Expressions.constant( i + 1 ), UTC_EXPRESSION );
             case TIME -> Expressions.call( resultSet_, "getTime", Expressions.constant( i + 1 ), LOCAL_EXPRESSION );
             case TIMESTAMP -> Expressions.call( resultSet_, "getTimestamp", Expressions.constant( i + 1 ), UTC_EXPRESSION );
@@ -345,9 +345,10 @@ private void generateGet(
 
 
     @NonNull
-    private static Expression getPreprocessArrayExpression( ParameterExpression resultSet_, int i, SqlDialect dialect, AlgDataType fieldType ) {
+    private static Expression getPreprocessArrayExpression( EnumerableAlgImplementor implementor, ParameterExpression resultSet_, int i, SqlDialect dialect, AlgDataType fieldType ) {
         if ( (dialect.supportsArrays() && (fieldType.unwrap( ArrayType.class ).orElseThrow().getDimension() == 1 || dialect.supportsNestedArrays())) ) {
-            ParameterExpression argument = Expressions.parameter( Object.class );
+            // Named explicitly, generated names are not stable and would prevent reusing the compiled class
+            ParameterExpression argument = Expressions.parameter( Object.class, implementor.uniqueName( "element" ) );
 
             AlgDataType componentType = fieldType.getComponentType();
             int depth = 1;
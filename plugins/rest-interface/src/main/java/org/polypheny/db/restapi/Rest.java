@@ -48,6 +48,7 @@
 import org.polypheny.db.catalog.Catalog;
 import org.polypheny.db.catalog.entity.logical.LogicalTable;
 import org.polypheny.db.catalog.snapshot.Snapshot;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.languages.OperatorRegistry;
 import org.polypheny.db.nodes.Operator;
 import org.polypheny.db.plan.AlgCluster;
@@ -81,6 +82,8 @@
 @Slf4j
 public class Rest {
 
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
     private final TransactionManager transactionManager;
     private final long databaseId;
     private final long userId;
@@ -539,6 +542,9 @@ private Transaction getTransaction() {
 
 
     String executeAndTransformPolyAlg( AlgRoot algRoot, final Statement statement, final Context ctx ) {
+        if ( ctx != null && !algRoot.kind.belongsTo( Kind.DML ) ) {
+            return executeAndStream( algRoot, statement, ctx );
+        }
         RestResult restResult;
         try {
             // Prepare
@@ -568,4 +574,40 @@ String executeAndTransformPolyAlg( AlgRoot algRoot, final Statement statement, f
         return result.left;
     }
 
+
+    /**
+     * Executes a query and streams its result to the response, without collecting it first. As the length of the
+     * response is not known in advance, it is sent with chunked transfer encoding. The result is written as
+     * newline-delimited JSON, if the client asks for it either with the {@code _format=ndjson} query parameter or the
+     * {@code application/x-ndjson} media type in its {@code Accept} header.
+     * If the execution fails after the first rows have been sent, the response is truncated.
+     */
+    private String executeAndStream( AlgRoot algRoot, final Statement statement, final Context ctx ) {
+        final boolean ndjson = "ndjson".equalsIgnoreCase( ctx.queryParam( "_format" ) )
+                || (ctx.header( "Accept" ) != null && ctx.header( "Accept" ).contains( NDJSON_CONTENT_TYPE ));
+        try {
+            // Prepare
+            PolyImplementation result = statement.getQueryProcessor().prepareQuery( algRoot, true );
+            log.debug( "AlgRoot was prepared." );
+
+            final ResultIterator iter = result.execute( statement, RuntimeConfig.RESULT_STREAMING_BATCH_SIZE.getInteger() );
+            RestResult restResult = new RestResult( algRoot.kind, iter, result.tupleType, result.getFields() );
+            ctx.contentType( ndjson ? NDJSON_CONTENT_TYPE : "application/json" );
+            restResult.stream( ctx.res.getOutputStream(), ndjson );
+            iter.close();
+            result.getExecutionTimeMonitor().setExecutionTime( restResult.getExecutionTime() );
+
+            statement.getTransaction().commit();
+        } catch ( Throwable e ) {
+            log.error( "Error during execution of REST query", e );
+            try {
+                statement.getTransaction().rollback();
+            } catch ( TransactionException transactionException ) {
+                log.error( "Could not rollback", e );
+            }
+            return null;
+        }
+        return "";
+    }
+
 }
@@ -18,18 +18,21 @@
 
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import com.j256.simplemagic.ContentInfo;
 import com.j256.simplemagic.ContentInfoUtil;
 import io.javalin.http.Context;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PushbackInputStream;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -48,6 +51,7 @@
 import org.polypheny.db.algebra.type.AlgDataType;
 import org.polypheny.db.algebra.type.AlgDataTypeField;
 import org.polypheny.db.catalog.exceptions.GenericRuntimeException;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.type.PolyTypeFamily;
 import org.polypheny.db.type.entity.PolyValue;
 import org.polypheny.db.util.Pair;
@@ -56,6 +60,8 @@
 @Slf4j
 public class RestResult {
 
+    private static final Gson GSON = new Gson();
+
     private final Kind kind;
     private final ResultIterator iterator;
     private final AlgDataType dataType;
@@ -117,70 +123,106 @@ private void transformNonDML() {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
         List<Map<String, Object>> result = new ArrayList<>();
-        while ( iterator.hasMoreRows() ) {
-            PolyValue[] row = iterator.getArrayRows().get( 0 );
-
+        List<AlgDataTypeField> fields = dataType.getFields();
+        for ( PolyValue[] row : iterator.getArrayRows() ) {
             Map<String, Object> temp = new HashMap<>();
-            int i = 0;
-            for ( AlgDataTypeField type : dataType.getFields() ) {
-                PolyValue o = row[i];
+            for ( int i = 0; i < fields.size(); i++ ) {
+                temp.put( columns.get( i ).columnName, toResultValue( fields.get( i ), row[i] ) );
+            }
+            result.add( temp );
+        }
+        stopWatch.stop();
+        this.executionTime = stopWatch.getNanoTime();
+        this.result = result;
+    }
 
-                String columnName = columns.get( i ).columnName;
-                if ( o == null ) {
-                    temp.put( columnName, null );
-                    continue;
-                }
 
-                if ( type.getType().getPolyType().getFamily() == PolyTypeFamily.MULTIMEDIA ) {
-                    temp.put( columnName, o );
-                } else {
-                    switch ( type.getType().getPolyType() ) {
-                        case TIMESTAMP:
-                            LocalDateTime localDateTime = o.asTimestamp().asSqlTimestamp().toInstant().atOffset( ZoneOffset.UTC ).toLocalDateTime();//.toLocalDateTime(); //LocalDateTime.ofEpochSecond( nanoSeconds / 1000L, (int) ((nanoSeconds % 1000) * 1000), ZoneOffset.UTC );
-                            temp.put( columnName, localDateTime.toString() );
-                            break;
-                        case TIME:
-                            temp.put( columnName, o.asTime().ofDay );
-                            break;
-                        case VARCHAR:
-                            temp.put( columnName, o.asString().value );
-                            break;
-                        case DOUBLE:
-                            temp.put( columnName, o.asNumber().DoubleValue() );
-                            break;
-                        case REAL:
-                        case FLOAT:
-                            temp.put( columnName, o.asNumber().FloatValue() );
-                            break;
-                        case DECIMAL:
-                            temp.put( columnName, o.asNumber().bigDecimalValue() );
-                            break;
-                        case BOOLEAN:
-                            temp.put( columnName, o.asBoolean().value );
-                            break;
-                        case BIGINT:
-                            temp.put( columnName, o.asNumber().LongValue() );
-                            break;
-                        case TINYINT:
-                        case SMALLINT:
-                        case INTEGER:
-                            temp.put( columnName, o.asNumber().IntValue() );
-                            break;
-                        case DATE:
-                            temp.put( columnName, o.asDate().getDaysSinceEpoch() );
-                            break;
-                        default:
-                            temp.put( columnName, o );
-                            break;
-                    }
+    /**
+     * Writes the rows of a non-DML result to the output stream, while they are fetched from the result iterator
+     * in batches of {@link RuntimeConfig#RESULT_STREAMING_BATCH_SIZE} rows. The output is flushed after every batch,
+     * so only one batch is held in memory and the client receives the first rows before the last row is fetched.
+     *
+     * @param ndjson whether the rows are written as newline-delimited JSON objects instead of a single JSON document
+     * of the form {@code {"result":[...],"size":n}}
+     * @return the number of written rows
+     */
+    public long stream( OutputStream outputStream, boolean ndjson ) throws IOException {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        List<AlgDataTypeField> fields = dataType.getFields();
+        Writer writer = new BufferedWriter( new OutputStreamWriter( outputStream, StandardCharsets.UTF_8 ) );
+        JsonWriter jsonWriter = GSON.newJsonWriter( writer );
+        jsonWriter.setLenient( ndjson );
+        if ( !ndjson ) {
+            jsonWriter.beginObject();
+            jsonWriter.name( "result" );
+            jsonWriter.beginArray();
+        }
+        long size = 0;
+        List<List<PolyValue>> rows;
+        while ( !(rows = iterator.getNextBatch()).isEmpty() ) {
+            for ( List<PolyValue> row : rows ) {
+                jsonWriter.beginObject();
+                for ( int i = 0; i < fields.size(); i++ ) {
+                    jsonWriter.name( columns.get( i ).columnName );
+                    writeValue( jsonWriter, toResultValue( fields.get( i ), row.get( i ) ) );
+                }
+                jsonWriter.endObject();
+                if ( ndjson ) {
+                    writer.write( '\n' );
                 }
-                i++;
             }
-            result.add( temp );
+            size += rows.size();
+            jsonWriter.flush();
         }
+        if ( !ndjson ) {
+            jsonWriter.endArray();
+            jsonWriter.name( "size" );
+            jsonWriter.value( size );
+            jsonWriter.endObject();
+        }
+        jsonWriter.flush();
         stopWatch.stop();
         this.executionTime = stopWatch.getNanoTime();
-        this.result = result;
+        return size;
+    }
+
+
+    private static void writeValue( JsonWriter jsonWriter, Object value ) throws IOException {
+        if ( value == null ) {
+            jsonWriter.nullValue();
+        } else if ( value instanceof String string ) {
+            jsonWriter.value( string );
+        } else if ( value instanceof Boolean bool ) {
+            jsonWriter.value( bool );
+        } else if ( value instanceof Number number ) {
+            jsonWriter.value( number );
+        } else {
+            GSON.toJson( value, value.getClass(), jsonWriter );
+        }
+    }
+
+
+    private static Object toResultValue( AlgDataTypeField type, PolyValue o ) {
+        if ( o == null ) {
+            return null;
+        }
+        if ( type.getType().getPolyType().getFamily() == PolyTypeFamily.MULTIMEDIA ) {
+            return o;
+        }
+        return switch ( type.getType().getPolyType() ) {
+            case TIMESTAMP -> o.asTimestamp().asSqlTimestamp().toInstant().atOffset( ZoneOffset.UTC ).toLocalDateTime().toString();
+            case TIME -> o.asTime().ofDay;
+            case VARCHAR -> o.asString().value;
+            case DOUBLE -> o.asNumber().DoubleValue();
+            case REAL, FLOAT -> o.asNumber().FloatValue();
+            case DECIMAL -> o.asNumber().bigDecimalValue();
+            case BOOLEAN -> o.asBoolean().value;
+            case BIGINT -> o.asNumber().LongValue();
+            case TINYINT, SMALLINT, INTEGER -> o.asNumber().IntValue();
+            case DATE -> o.asDate().getDaysSinceEpoch();
+            default -> o;
+        };
     }
 
 
@@ -254,18 +296,17 @@ private String getContentType( Object o ) {
 
 
     public Pair<String, Integer> getResult( final Context ctx ) {
-        Gson gson = new Gson();
         Map<String, Object> finalResult = new HashMap<>();
         finalResult.put( "result", result );
         finalResult.put( "size", result.size() );
         if ( !containsFiles ) {
-            return new Pair<>( gson.toJson( finalResult ), finalResult.size() );
+            return new Pair<>( GSON.toJson( finalResult ), finalResult.size() );
         } else {
             OutputStream os;
             ZipEntry zipEntry = new ZipEntry( "data.json" );
             try {
                 zipOut.putNextEntry( zipEntry );
-                zipOut.write( gson.toJson( finalResult ).getBytes( StandardCharsets.UTF_8 ) );
+                zipOut.write( GSON.toJson( finalResult ).getBytes( StandardCharsets.UTF_8 ) );
                 zipOut.close();
                 fos.close();
                 ctx.contentType( "application/octet-stream" );
@@ -43,6 +43,7 @@
 import org.polypheny.db.languages.NodeParseException;
 import org.polypheny.db.languages.NodeToAlgConverter;
 import org.polypheny.db.languages.NodeToAlgConverter.Config;
+import org.polypheny.db.languages.NormalizedQuery;
 import org.polypheny.db.languages.Parser;
 import org.polypheny.db.languages.Parser.ParserConfig;
 import org.polypheny.db.languages.ParserPos;
@@ -254,6 +255,12 @@ public List<String> splitStatements( String statements ) {
     }
 
 
+    @Override
+    public NormalizedQuery normalize( String query ) {
+        return SqlQueryNormalizer.normalize( query );
+    }
+
+
     // Add default values for unset fields
     private void addDefaultValues( Transaction transaction, SqlInsert insert ) {
         SqlNodeList oldColumnList = insert.getTargetColumnList();
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.sql;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import org.jetbrains.annotations.Nullable;
+import org.polypheny.db.languages.NormalizedQuery;
+import org.polypheny.db.type.entity.PolyString;
+import org.polypheny.db.type.entity.PolyValue;
+import org.polypheny.db.type.entity.numerical.PolyBigDecimal;
+
+
+/**
+ * Replaces literals of a single SQL query by dynamic parameters on the level of tokens, without parsing the query.
+ * Only literals, whose type the validator infers from the context, are replaced:
+ * <ul>
+ * <li>the right operand of a comparison, which is followed by the end of the expression, e.g. {@code WHERE id = 5 AND}</li>
+ * <li>the values of a {@code VALUES} row, e.g. {@code VALUES (5, 'abc')}</li>
+ * </ul>
+ * Other literals, e.g. in {@code LIMIT} or {@code ORDER BY} clauses, or typed literals like {@code DATE '2024-01-01'},
+ * are kept, as they influence the plan.
+ */
+public final class SqlQueryNormalizer {
+
+    private static final Set<String> STATEMENTS = Set.of( "SELECT", "INSERT", "UPDATE", "DELETE", "WITH" );
+    private static final Set<String> COMPARISONS = Set.of( "=", "<>", "!=", "<", ">", "<=", ">=" );
+    /**
+     * Keywords, which end the expression of a comparison.
+     */
+    private static final Set<String> FOLLOWERS = Set.of(
+            "AND", "OR", "WHERE", "GROUP", "HAVING", "ORDER", "LIMIT", "OFFSET", "FETCH",
+            "UNION", "EXCEPT", "INTERSECT", "MINUS", "JOIN", "INNER", "LEFT", "RIGHT", "FULL", "CROSS", "NATURAL", "THEN" );
+
+
+    private SqlQueryNormalizer() {
+        // Only static entry points
+    }
+
+
+    /**
+     * Normalizes the query.
+     *
+     * @return the normalized query, or {@code null} if it is not a single query or contains dynamic parameters
+     */
+    public static @Nullable NormalizedQuery normalize( String query ) {
+        final List<Token> tokens = tokenize( query );
+        if ( tokens == null || tokens.isEmpty() || tokens.get( 0 ).kind != Kind.WORD || !STATEMENTS.contains( tokens.get( 0 ).text ) ) {
+            return null;
+        }
+
+        final StringBuilder normalized = new StringBuilder( query.length() );
+        final List<PolyValue> literals = new ArrayList<>();
+        int copied = 0;
+        int depth = 0;
+        // Depth of the rows of a VALUES clause, or -1 outside of VALUES
+        int valuesDepth = -1;
+        for ( int i = 0; i < tokens.size(); i++ ) {
+            final Token token = tokens.get( i );
+            if ( token.is( "(" ) ) {
+                depth++;
+            } else if ( token.is( ")" ) ) {
+                depth--;
+            } else if ( token.kind == Kind.WORD && token.text.equals( "VALUES" ) ) {
+                valuesDepth = depth + 1;
+                continue;
+            } else if ( valuesDepth >= 0 && depth < valuesDepth && !token.is( "," ) ) {
+                valuesDepth = -1;
+            }
+            if ( !token.isLiteral() ) {
+                continue;
+            }
+            final boolean negative = i > 0 && token.kind == Kind.NUMBER && tokens.get( i - 1 ).is( "-" );
+            final Token previous = i - (negative ? 2 : 1) >= 0 ? tokens.get( i - (negative ? 2 : 1) ) : null;
+            final Token next = i + 1 < tokens.size() ? tokens.get( i + 1 ) : null;
+            if ( previous == null || !isReplaceable( previous, next, depth == valuesDepth ) ) {
+                continue;
+            }
+            final int start = negative ? tokens.get( i - 1 ).start : token.start;
+            normalized.append( query, copied, start ).append( '?' );
+            copied = token.end;
+            literals.add( token.kind == Kind.STRING
+                    ? PolyString.of( token.text )
+                    : PolyBigDecimal.of( negative ? new BigDecimal( token.text ).negate() : new BigDecimal( token.text ) ) );
+        }
+        normalized.append( query, copied, query.length() );
+        return new NormalizedQuery( normalized.toString(), literals );
+    }
+
+
+    private static boolean isReplaceable( Token previous, @Nullable Token next, boolean inValuesRow ) {
+        if ( inValuesRow && (previous.is( "(" ) || previous.is( "," )) ) {
+            return next != null && (next.is( "," ) || next.is( ")" ));
+        }
+        if ( previous.kind != Kind.SYMBOL || !COMPARISONS.contains( previous.text ) ) {
+            return false;
+        }
+        return next == null
+                || next.is( ")" ) || next.is( "," ) || next.is( ";" )
+                || (next.kind == Kind.WORD && FOLLOWERS.contains( next.text ));
+    }
+
+
+    /**
+     * Splits the query into tokens. Comments and whitespace are skipped.
+     *
+     * @return the tokens, or {@code null} if the query cannot be normalized
+     */
+    static @Nullable List<Token> tokenize( String query ) {
+        final List<Token> tokens = new ArrayList<>();
+        final int length = query.length();
+        int i = 0;
+        while ( i < length ) {
+            final char c = query.charAt( i );
+            final int start = i;
+            if ( Character.isWhitespace( c ) ) {
+                i++;
+            } else if ( query.startsWith( "--", i ) ) {
+                while ( i < length && query.charAt( i ) != '\n' ) {
+                    i++;
+                }
+            } else if ( query.startsWith( "/*", i ) ) {
+                final int end = query.indexOf( "*/", i + 2 );
+                if ( end < 0 ) {
+                    return null;
+                }
+                i = end + 2;
+            } else if ( c == '\'' ) {
+                if ( !tokens.isEmpty() && tokens.get( tokens.size() - 1 ).end == start && tokens.get( tokens.size() - 1 ).kind == Kind.WORD ) {
+                    // Prefixed string literals like N'abc' or X'00'
+                    return null;
+                }
+                final StringBuilder value = new StringBuilder();
+                i++;
+                while ( true ) {
+                    if ( i >= length ) {
+                        return null;
+                    }
+                    if ( query.charAt( i ) == '\'' ) {
+                        if ( i + 1 < length && query.charAt( i + 1 ) == '\'' ) {
+                            value.append( '\'' );
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    value.append( query.charAt( i++ ) );
+                }
+                tokens.add( new Token( Kind.STRING, value.toString(), start, i ) );
+            } else if ( c == '"' || c == '`' ) {
+                final int end = query.indexOf( c, i + 1 );
+                if ( end < 0 ) {
+                    return null;
+                }
+                i = end + 1;
+                tokens.add( new Token( Kind.IDENTIFIER, query.substring( start, i ), start, i ) );
+            } else if ( Character.isDigit( c ) || (c == '.' && i + 1 < length && Character.isDigit( query.charAt( i + 1 ) )) ) {
+                while ( i < length && (Character.isDigit( query.charAt( i ) ) || query.charAt( i ) == '.') ) {
+                    i++;
+                }
+                Kind kind = Kind.NUMBER;
+                // Approximate numbers like 1e5 and numbers directly followed by a word are kept
+                while ( i < length && (Character.isLetterOrDigit( query.charAt( i ) ) || query.charAt( i ) == '_' || query.charAt( i ) == '.'
+                        || ((query.charAt( i ) == '+' || query.charAt( i ) == '-') && Character.toUpperCase( query.charAt( i - 1 ) ) == 'E')) ) {
+                    kind = Kind.WORD;
+                    i++;
+                }
+                final String text = query.substring( start, i );
+                if ( kind == Kind.NUMBER && text.indexOf( '.' ) != text.lastIndexOf( '.' ) ) {
+                    return null;
+                }
+                tokens.add( new Token( kind, kind == Kind.WORD ? text.toUpperCase( Locale.ROOT ) : text, start, i ) );
+            } else if ( Character.isLetter( c ) || c == '_' || c == '$' ) {
+                while ( i < length && (Character.isLetterOrDigit( query.charAt( i ) ) || query.charAt( i ) == '_' || query.charAt( i ) == '$') ) {
+                    i++;
+                }
+                tokens.add( new Token( Kind.WORD, query.substring( start, i ).toUpperCase( Locale.ROOT ), start, i ) );
+            } else if ( c == '?' ) {
+                // Already parameterized
+                return null;
+            } else {
+                final String pair = i + 1 < length ? query.substring( i, i + 2 ) : "";
+                i += switch ( pair ) {
+                    case "<=", ">=", "<>", "!=", "||", "::" -> 2;
+                    default -> 1;
+                };
+                tokens.add( new Token( Kind.SYMBOL, query.substring( start, i ), start, i ) );
+            }
+        }
+
+        // Only single statements
+        for ( int t = 0; t < tokens.size() - 1; t++ ) {
+            if ( tokens.get( t ).is( ";" ) ) {
+                return null;
+            }
+        }
+        return tokens;
+    }
+
+
+    enum Kind {
+        WORD, IDENTIFIER, NUMBER, STRING, SYMBOL
+    }
+
+
+    /**
+     * A token of the query. Words are upper case, strings are unescaped.
+     *
+     * @param start the index of the first character in the query
+     * @param end the index after the last character in the query
+     */
+    record Token( Kind kind, String text, int start, int end ) {
+
+        boolean is( String symbol ) {
+            return kind == Kind.SYMBOL && text.equals( symbol );
+        }
+
+
+        boolean isLiteral() {
+            return kind == Kind.NUMBER || kind == Kind.STRING;
+        }
+
+    }
+
+}
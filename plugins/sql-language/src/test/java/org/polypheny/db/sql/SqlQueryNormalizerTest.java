@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019-2024 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.sql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+import org.polypheny.db.languages.NormalizedQuery;
+
+
+public class SqlQueryNormalizerTest {
+
+    private static void assertNormalized( String expected, String query ) {
+        final NormalizedQuery normalized = SqlQueryNormalizer.normalize( query );
+        assertEquals( expected, normalized == null ? null : normalized.query() );
+    }
+
+
+    @Test
+    public void testComparisons() {
+        assertNormalized( "SELECT * FROM t WHERE a = ? AND b <> ?", "SELECT * FROM t WHERE a = 5 AND b <> 'x'" );
+        assertNormalized( "SELECT * FROM t WHERE a >= ? ORDER BY a LIMIT 10", "SELECT * FROM t WHERE a >= -1.5 ORDER BY a LIMIT 10" );
+        assertNormalized( "UPDATE t SET a = ?, b = b + 1 WHERE c = ?", "UPDATE t SET a = 5, b = b + 1 WHERE c = 'it''s'" );
+        assertNormalized( "SELECT * FROM t WHERE (a = ?)", "SELECT * FROM t WHERE (a = 5)" );
+
+        final NormalizedQuery normalized = SqlQueryNormalizer.normalize( "DELETE FROM t WHERE a = -7 OR b = 'it''s'" );
+        assertEquals( "NS", normalized.signature() );
+        assertEquals( new BigDecimal( -7 ), normalized.literals().get( 0 ).asBigDecimal().value );
+        assertEquals( "it's", normalized.literals().get( 1 ).asString().value );
+    }
+
+
+    @Test
+    public void testKeptLiterals() {
+        // Operands of arithmetic, typed literals, approximate numbers and literals outside of comparisons
+        assertNormalized( "SELECT a + 1 FROM t WHERE b = c - 5", "SELECT a + 1 FROM t WHERE b = c - 5" );
+        assertNormalized( "SELECT * FROM t WHERE d = DATE '2024-01-01'", "SELECT * FROM t WHERE d = DATE '2024-01-01'" );
+        assertNormalized( "SELECT * FROM t WHERE a = 1e5", "SELECT * FROM t WHERE a = 1e5" );
+        assertNormalized( "SELECT * FROM t WHERE a = 5 + b", "SELECT * FROM t WHERE a = 5 + b" );
+        assertNormalized( "SELECT * FROM t WHERE a LIKE 'x%' ORDER BY 1", "SELECT * FROM t WHERE a LIKE 'x%' ORDER BY 1" );
+    }
+
+
+    @Test
+    public void testValues() {
+        assertNormalized( "INSERT INTO t (a, b) VALUES (?, ?), (?, ?)", "INSERT INTO t (a, b) VALUES (1, 'x'), (-2, 'y')" );
+        assertNormalized( "INSERT INTO t VALUES (?, UPPER('x'), CAST(5 AS BIGINT))", "INSERT INTO t VALUES (1, UPPER('x'), CAST(5 AS BIGINT))" );
+    }
+
+
+    @Test
+    public void testUnsupported() {
+        assertNull( SqlQueryNormalizer.normalize( "CREATE TABLE t (a INTEGER)" ) );
+        assertNull( SqlQueryNormalizer.normalize( "SELECT * FROM t WHERE a = ?" ) );
+        assertNull( SqlQueryNormalizer.normalize( "SELECT 1; SELECT 2" ) );
+        assertNull( SqlQueryNormalizer.normalize( "SELECT * FROM t WHERE a = 'x" ) );
+        assertNull( SqlQueryNormalizer.normalize( "SELECT * FROM t WHERE a = X'00'" ) );
+    }
+
+
+    @Test
+    public void testCommentsAndQuotedIdentifiers() {
+        assertNormalized( "SELECT \"a = 5\" FROM t /* a = 5 */ WHERE \"b\" = ? -- = 5", "SELECT \"a = 5\" FROM t /* a = 5 */ WHERE \"b\" = 5 -- = 5" );
+        assertNormalized( "SELECT * FROM t WHERE a = ?;", "SELECT * FROM t WHERE a = 5;" );
+    }
+
+}